@@ -0,0 +1,34 @@
+package simplexsolver;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that every score comes with
+ * the allocation rate (gc.alloc.rate, and gc.alloc.rate.norm per operation)
+ * and the number of collections. Any other option can be given through
+ * org.openjdk.jmh.Main instead, with -prof gc.
+ * @author Gennaro
+ */
+public class BenchmarkRunner
+{
+    private BenchmarkRunner()
+    {
+        throw new UnsupportedOperationException("BenchmarkRunner should not be instantiated.");
+    }
+    
+    /**
+     * @param args A regular expression for the benchmarks to run (by default, all of them).
+     */
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "simplexsolver\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,61 @@
+package simplexsolver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of a tableau, both from the equations of the
+ * constraints (as the user interface does) and from a compiled model, whose
+ * constraint matrix is already compressed. A tableau only builds its dense
+ * matrix when it is solved, so that part is measured by SolveBenchmark.
+ * @author Gennaro
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark
+{
+    @Param({"RANDOM_DENSE", "RANDOM_SPARSE", "TRANSPORTATION", "DEGENERATE_COVERING"})
+    public ModelFamily family;
+    
+    @Param({"10", "40", "160"})
+    public int size;
+    
+    private ModelFamily.Program _program;
+    private List<Variable> _variables;
+    private CompiledModel _model;
+    
+    @Setup
+    public void setUp()
+    {
+        _program = family.create(size);
+        _variables = _program.getVariables();
+        _model = _program.compile();
+    }
+    
+    @Benchmark
+    public Tableau fromEquations()
+    {
+        return new Tableau(_variables, _program.createObjective(), _program.getConstraints());
+    }
+    
+    @Benchmark
+    public Tableau fromCompiledModel()
+    {
+        return _model.createTableau();
+    }
+}
@@ -0,0 +1,258 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The families of linear programs the benchmarks are run on. Every program
+ * is generated from a fixed seed, so a family and a size always give the
+ * same program, and every one of them has an optimal solution.
+ * @author Gennaro
+ */
+public enum ModelFamily
+{
+    /**
+     * Maximizes positive costs over size constraints of size variables,
+     * with every coefficient nonzero.
+     */
+    RANDOM_DENSE
+    {
+        @Override
+        Program generate(int size, Random random)
+        {
+            Program program = new Program(size, SimplexUtilities.Objective.MAX);
+            for (int j = 0; j < size; j++)
+            {
+                program.setCost(j, 1 + random.nextInt(9));
+            }
+            for (int i = 0; i < size; i++)
+            {
+                double[] row = new double[size];
+                for (int j = 0; j < size; j++)
+                {
+                    row[j] = 1 + random.nextInt(9);
+                }
+                program.addConstraint(row, SimplexUtilities.Sign.LESS_THAN, size * (1 + random.nextInt(10)));
+            }
+            return program;
+        }
+    },
+    
+    /**
+     * Maximizes positive costs over size constraints of 2 * size variables,
+     * with about 5% of the coefficients nonzero (and at least one in every
+     * row and column).
+     */
+    RANDOM_SPARSE
+    {
+        @Override
+        Program generate(int size, Random random)
+        {
+            int columns = 2 * size;
+            Program program = new Program(columns, SimplexUtilities.Objective.MAX);
+            double[][] rows = new double[size][columns];
+            for (int j = 0; j < columns; j++)
+            {
+                program.setCost(j, 1 + random.nextInt(9));
+                rows[random.nextInt(size)][j] = 1 + random.nextInt(9);
+            }
+            for (int i = 0; i < size; i++)
+            {
+                rows[i][random.nextInt(columns)] = 1 + random.nextInt(9);
+                for (int j = 0; j < columns; j++)
+                {
+                    if (random.nextInt(20) == 0)
+                        rows[i][j] = 1 + random.nextInt(9);
+                }
+                program.addConstraint(rows[i], SimplexUtilities.Sign.LESS_THAN, 10 + random.nextInt(91));
+            }
+            return program;
+        }
+    },
+    
+    /**
+     * The Klee-Minty cube, on which the DANTZIG rule visits all of its 2^d
+     * vertices when the matrix is not scaled (scaling changes which column
+     * looks best). The dimension d is the size, up to 12.
+     */
+    KLEE_MINTY
+    {
+        @Override
+        Program generate(int size, Random random)
+        {
+            int dimension = Math.min(size, 12);
+            Program program = new Program(dimension, SimplexUtilities.Objective.MAX);
+            for (int j = 0; j < dimension; j++)
+            {
+                program.setCost(j, Math.pow(2, dimension - 1 - j));
+            }
+            for (int i = 0; i < dimension; i++)
+            {
+                double[] row = new double[dimension];
+                for (int j = 0; j < i; j++)
+                {
+                    row[j] = Math.pow(2, i - j + 1);
+                }
+                row[i] = 1;
+                program.addConstraint(row, SimplexUtilities.Sign.LESS_THAN, Math.pow(5, i + 1));
+            }
+            return program;
+        }
+    },
+    
+    /**
+     * Ships from size / 4 sources to size / 2 destinations at the lowest
+     * cost, with one variable for every pair. The supplies exceed the demands by 20%.
+     */
+    TRANSPORTATION
+    {
+        @Override
+        Program generate(int size, Random random)
+        {
+            int sources = Math.max(1, size / 4);
+            int destinations = Math.max(1, size / 2);
+            Program program = new Program(sources * destinations, SimplexUtilities.Objective.MIN);
+            for (int k = 0; k < sources * destinations; k++)
+            {
+                program.setCost(k, 1 + random.nextInt(20));
+            }
+            double totalDemand = 0;
+            double[] demands = new double[destinations];
+            for (int d = 0; d < destinations; d++)
+            {
+                demands[d] = 5 + random.nextInt(21);
+                totalDemand += demands[d];
+            }
+            double supply = Math.ceil(1.2 * totalDemand / sources);
+            for (int s = 0; s < sources; s++)
+            {
+                double[] row = new double[sources * destinations];
+                for (int d = 0; d < destinations; d++)
+                {
+                    row[s * destinations + d] = 1;
+                }
+                program.addConstraint(row, SimplexUtilities.Sign.LESS_THAN, supply);
+            }
+            for (int d = 0; d < destinations; d++)
+            {
+                double[] row = new double[sources * destinations];
+                for (int s = 0; s < sources; s++)
+                {
+                    row[s * destinations + d] = 1;
+                }
+                program.addConstraint(row, SimplexUtilities.Sign.GREATER_THAN, demands[d]);
+            }
+            return program;
+        }
+    },
+    
+    /**
+     * Covers size rows with 2 * size columns at the lowest cost, every row
+     * at least once. Every right hand side is 1 and the costs are small
+     * integers, so most of the pivots are degenerate.
+     */
+    DEGENERATE_COVERING
+    {
+        @Override
+        Program generate(int size, Random random)
+        {
+            int columns = 2 * size;
+            Program program = new Program(columns, SimplexUtilities.Objective.MIN);
+            for (int j = 0; j < columns; j++)
+            {
+                program.setCost(j, 1 + random.nextInt(3));
+            }
+            for (int i = 0; i < size; i++)
+            {
+                double[] row = new double[columns];
+                for (int k = 0; k < 3; k++)
+                {
+                    row[random.nextInt(columns)] = 1;
+                }
+                program.addConstraint(row, SimplexUtilities.Sign.GREATER_THAN, 1);
+            }
+            return program;
+        }
+    };
+    
+    private static final long SEED = 376;
+    
+    /**
+     * Generates the program of this family for a size.
+     * @param size The size (see each family for what it means).
+     * @return The program.
+     */
+    public Program create(int size)
+    {
+        return generate(size, new Random(SEED));
+    }
+    
+    abstract Program generate(int size, Random random);
+    
+    /**
+     * A generated linear program, with the variables X1 to Xn.
+     */
+    public static class Program
+    {
+        private final List<Variable> _variables = new ArrayList<>();
+        private final HashMap<Variable, Double> _objectiveEquation = new HashMap<>();
+        private final SimplexUtilities.Objective _objective;
+        private final ArrayList<Constraint> _constraints = new ArrayList<>();
+        
+        Program(int variableCount, SimplexUtilities.Objective objective)
+        {
+            for (int j = 1; j <= variableCount; j++)
+            {
+                _variables.add(new Variable("X" + j, j));
+            }
+            _objective = objective;
+        }
+        
+        private void setCost(int column, double cost)
+        {
+            _objectiveEquation.put(_variables.get(column), cost);
+        }
+        
+        private void addConstraint(double[] row, SimplexUtilities.Sign sign, double rhs)
+        {
+            HashMap<Variable, Double> equation = new HashMap<>();
+            for (int j = 0; j < row.length; j++)
+            {
+                if (row[j] != 0)
+                    equation.put(_variables.get(j), row[j]);
+            }
+            _constraints.add(new Constraint(equation, sign, rhs));
+        }
+        
+        public List<Variable> getVariables()
+        {
+            return _variables;
+        }
+        
+        public ArrayList<Constraint> getConstraints()
+        {
+            return _constraints;
+        }
+        
+        /**
+         * Creates the objective function. A tableau converts a MIN objective
+         * function to MAX in place, so every tableau needs a new one.
+         * @return A new objective function.
+         */
+        public ObjectiveFunction createObjective()
+        {
+            return new ObjectiveFunction(_objectiveEquation, _objective);
+        }
+        
+        /**
+         * Compiles the program (see CompiledModel).
+         * @return The compiled model.
+         */
+        public CompiledModel compile()
+        {
+            return new CompiledModel(_variables, createObjective(), _constraints);
+        }
+    }
+}
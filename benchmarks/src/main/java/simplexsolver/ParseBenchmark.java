@@ -0,0 +1,72 @@
+package simplexsolver;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of an equation as it is typed in the user interface,
+ * with terms variables, mixed signs, and integer and decimal coefficients
+ * (some of them left out, as in "X3").
+ * @author Gennaro
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int terms;
+    
+    private ModelContext _context;
+    private String _equation;
+    
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(376);
+        _context = new ModelContext();
+        StringBuilder equation = new StringBuilder();
+        for (int j = 1; j <= terms; j++)
+        {
+            _context.addNewVariable(new Variable("X" + j, j));
+            if (j > 1)
+                equation.append(random.nextBoolean() ? " + " : " - ");
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    equation.append(1 + random.nextInt(99));
+                    break;
+                case 1:
+                    equation.append(random.nextInt(100)).append('.').append(1 + random.nextInt(99));
+                    break;
+                default:
+                    break;
+            }
+            equation.append('X').append(j);
+        }
+        _equation = equation.toString();
+        if (_context.buildEquation(_equation) == null)
+            throw new IllegalStateException(_context.getErrorMessage());
+    }
+    
+    @Benchmark
+    public HashMap<Variable, Double> buildEquation()
+    {
+        return _context.buildEquation(_equation);
+    }
+}
@@ -0,0 +1,75 @@
+package simplexsolver;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single dense pivot, the update the TABLEAU and DUAL engines do
+ * on every iteration, on a tableau of size rows and 2 * size columns.
+ *
+ * Every invocation pivots the same row, alternately on its first and its
+ * second column. Each pivot exchanges one of those columns for the other in
+ * the basis, so the tableau goes back and forth between the same two states
+ * instead of growing or shrinking, and no invocation has to restore it.
+ * @author Gennaro
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PivotBenchmark
+{
+    @Param({"100", "400", "1000"})
+    public int size;
+    
+    @Param({"false", "true"})
+    public boolean vectorized;
+    
+    @Param({"false", "true"})
+    public boolean parallel;
+    
+    private double[] _matrix;
+    private int _columnCount;
+    private int _pivotRow;
+    private int _pivotColumn;
+    private PivotKernel _kernel;
+    
+    @Setup
+    public void setUp()
+    {
+        // The entries are kept away from 0, so both pivot elements always are.
+        Random random = new Random(376);
+        _columnCount = 2 * size;
+        _matrix = new double[size * _columnCount];
+        for (int k = 0; k < _matrix.length; k++)
+        {
+            _matrix[k] = 1 + random.nextDouble();
+        }
+        _pivotRow = size / 2;
+        _pivotColumn = 0;
+        RowOperations operations = vectorized ? RowOperations.createVectorized() : new ScalarRowOperations();
+        _kernel = new PivotKernel(parallel ? ForkJoinPool.commonPool() : null, operations);
+    }
+    
+    @Benchmark
+    public double[] pivot()
+    {
+        _kernel.pivot(_matrix, size, _columnCount, _pivotRow, _pivotColumn);
+        _pivotColumn ^= 1;
+        return _matrix;
+    }
+}
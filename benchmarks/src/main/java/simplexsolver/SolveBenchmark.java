@@ -0,0 +1,96 @@
+package simplexsolver;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a whole solve, from creating the tableau of a compiled model to
+ * the optimal solution, with each engine and otherwise its default settings
+ * (and with the matrix scaled or not). Next to
+ * the solves per second, the report has the number of simplex iterations
+ * (and of those, the first phase ones) done in each measurement iteration,
+ * so that iterations / solves is the number of pivots of one solve.
+ * @author Gennaro
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark
+{
+    @Param({"RANDOM_DENSE", "RANDOM_SPARSE", "KLEE_MINTY", "TRANSPORTATION", "DEGENERATE_COVERING"})
+    public ModelFamily family;
+    
+    @Param({"10", "40", "160"})
+    public int size;
+    
+    @Param({"TABLEAU", "REVISED", "DUAL"})
+    public SimplexUtilities.Engine engine;
+    
+    // Scaling hides the worst case of the Klee-Minty cube, so both are measured.
+    @Param({"AUTOMATIC", "NONE"})
+    public SimplexUtilities.Scaling scaling;
+    
+    private CompiledModel _model;
+    
+    @Setup
+    public void setUp()
+    {
+        _model = family.create(size).compile();
+        SolveResult result = solve();
+        if (!result.isOptimal())
+            throw new IllegalStateException(family + " " + size + " was not solved with " + engine + " and " + scaling + ": " + result.getStatus());
+    }
+    
+    @Benchmark
+    public SolveResult optimize(Iterations iterations)
+    {
+        SolveResult result = solve();
+        iterations.solves++;
+        iterations.iterations += result.getIterationCount();
+        iterations.phaseOneIterations += result.getPhaseOneIterationCount();
+        return result;
+    }
+    
+    private SolveResult solve()
+    {
+        Tableau tableau = _model.createTableau();
+        tableau.setEngine(engine);
+        tableau.setScaling(scaling);
+        return tableau.optimize();
+    }
+    
+    /**
+     * The counts reported next to the score of each measurement iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Iterations
+    {
+        public long solves;
+        public long iterations;
+        public long phaseOneIterations;
+        
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            solves = 0;
+            iterations = 0;
+            phaseOneIterations = 0;
+        }
+    }
+}
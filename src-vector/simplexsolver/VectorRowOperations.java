@@ -0,0 +1,147 @@
+package simplexsolver;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The row operations written with the Vector API. This needs the
+ * jdk.incubator.vector module (--add-modules jdk.incubator.vector) both to
+ * compile and to run; RowOperations.createVectorized falls back to the
+ * scalar operations without it.
+ *
+ * Every lane does exactly the arithmetic of the scalar loop (no fused
+ * multiply-add), and ties are broken toward the first entry the same way,
+ * so the pivots are identical to the scalar ones.
+ * @author Gennaro
+ */
+public class VectorRowOperations implements RowOperations
+{
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    
+    // The offset of each lane's row from the first row of a block, for the ratio test gathers.
+    private int[] _rowOffsets = new int[SPECIES.length()];
+    private int _rowOffsetsColumnCount = 0;
+    
+    @Override
+    public void subtractMultiple(double[] matrix, int targetOffset, int sourceOffset, int length, double coefficient)
+    {
+        int j = 0;
+        int upperBound = SPECIES.loopBound(length);
+        for (; j < upperBound; j += SPECIES.length())
+        {
+            DoubleVector target = DoubleVector.fromArray(SPECIES, matrix, targetOffset + j);
+            DoubleVector source = DoubleVector.fromArray(SPECIES, matrix, sourceOffset + j);
+            target.sub(source.mul(coefficient)).intoArray(matrix, targetOffset + j);
+        }
+        for (; j < length; j++)
+        {
+            matrix[targetOffset + j] = matrix[targetOffset + j] - coefficient * matrix[sourceOffset + j];
+        }
+    }
+    
+    @Override
+    public int findMostNegative(double[] matrix, int offset, int length)
+    {
+        int lanes = SPECIES.length();
+        int upperBound = SPECIES.loopBound(length);
+        if (upperBound == 0)
+            return new ScalarRowOperations().findMostNegative(matrix, offset, length);
+        
+        // Each lane keeps its own first smallest entry (indices are stored as doubles).
+        DoubleVector index = DoubleVector.zero(SPECIES).addIndex(1);
+        DoubleVector smallest = DoubleVector.fromArray(SPECIES, matrix, offset);
+        DoubleVector smallestIndex = index;
+        for (int j = lanes; j < upperBound; j += lanes)
+        {
+            index = index.add(lanes);
+            DoubleVector values = DoubleVector.fromArray(SPECIES, matrix, offset + j);
+            VectorMask<Double> smaller = values.compare(VectorOperators.LT, smallest);
+            smallest = smallest.blend(values, smaller);
+            smallestIndex = smallestIndex.blend(index, smaller);
+        }
+        
+        double mostNegative = Double.POSITIVE_INFINITY;
+        int mostNegativeIndex = -1;
+        for (int k = 0; k < lanes; k++)
+        {
+            double value = smallest.lane(k);
+            int laneIndex = (int) smallestIndex.lane(k);
+            if (mostNegativeIndex == -1 || value < mostNegative || (value == mostNegative && laneIndex < mostNegativeIndex))
+            {
+                mostNegative = value;
+                mostNegativeIndex = laneIndex;
+            }
+        }
+        for (int j = upperBound; j < length; j++)
+        {
+            if (matrix[offset + j] < mostNegative)
+            {
+                mostNegative = matrix[offset + j];
+                mostNegativeIndex = j;
+            }
+        }
+        return mostNegativeIndex;
+    }
+    
+    @Override
+    public int findMinimumRatio(double[] matrix, int columnCount, int firstRow, int rowCount, int column)
+    {
+        int lanes = SPECIES.length();
+        if (_rowOffsetsColumnCount != columnCount)
+        {
+            for (int k = 0; k < lanes; k++)
+            {
+                _rowOffsets[k] = k * columnCount;
+            }
+            _rowOffsetsColumnCount = columnCount;
+        }
+        
+        DoubleVector smallest = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        DoubleVector smallestIndex = DoubleVector.broadcast(SPECIES, -1.0);
+        DoubleVector index = DoubleVector.zero(SPECIES).addIndex(1).add(firstRow);
+        int rhsDistance = columnCount - 1 - column;
+        int i = firstRow;
+        for (; i + lanes <= rowCount; i += lanes)
+        {
+            int entryOffset = i * columnCount + column;
+            DoubleVector entries = DoubleVector.fromArray(SPECIES, matrix, entryOffset, _rowOffsets, 0);
+            DoubleVector rhs = DoubleVector.fromArray(SPECIES, matrix, entryOffset + rhsDistance, _rowOffsets, 0);
+            DoubleVector ratios = rhs.max(0.0).div(entries);
+            VectorMask<Double> smaller = entries.compare(VectorOperators.GT, PIVOT_TOLERANCE)
+                    .and(ratios.compare(VectorOperators.LT, smallest));
+            smallest = smallest.blend(ratios, smaller);
+            smallestIndex = smallestIndex.blend(index, smaller);
+            index = index.add(lanes);
+        }
+        
+        double smallestRatio = Double.POSITIVE_INFINITY;
+        int smallestRatioIndex = -1;
+        for (int k = 0; k < lanes; k++)
+        {
+            double value = smallest.lane(k);
+            int laneIndex = (int) smallestIndex.lane(k);
+            if (laneIndex != -1 && (value < smallestRatio || (value == smallestRatio && laneIndex < smallestRatioIndex)))
+            {
+                smallestRatio = value;
+                smallestRatioIndex = laneIndex;
+            }
+        }
+        for (; i < rowCount; i++)
+        {
+            int rowOffset = i * columnCount;
+            double entry = matrix[rowOffset + column];
+            if (entry <= PIVOT_TOLERANCE)
+                continue;
+            double ratio = Math.max(matrix[rowOffset + columnCount - 1], 0) / entry;
+            
+            if (ratio < smallestRatio)
+            {
+                smallestRatio = ratio;
+                smallestRatioIndex = i;
+            }
+        }
+        return smallestRatioIndex;
+    }
+}
@@ -0,0 +1,376 @@
+package simplexsolver;
+
+import java.util.Arrays;
+
+/**
+ * An LU factorization of a simplex basis with product form updates.
+ *
+ * Basis columns that have a single nonzero (slack, surplus and artificial
+ * variables, along with any singleton decision variables) each claim their
+ * row and are solved by substitution. The remaining columns, restricted to
+ * the unclaimed rows, form a small dense kernel that is factorized with
+ * partial pivoting. After each pivot an eta vector is appended instead of
+ * refactorizing, until refactorize is called again.
+ *
+ * Vectors passed to ftran are indexed by row and come back indexed by basis
+ * position. Vectors passed to btran are indexed by basis position and come
+ * back indexed by row.
+ * @author Gennaro
+ */
+public class BasisFactorization
+{
+    private static final double SINGULAR_TOLERANCE = 1E-11;
+    private static final double DROP_TOLERANCE = 1E-14;
+    
+    private final SparseMatrix _matrix;
+    private final int _size;
+    private final int[] _basis;
+    
+    // Singleton part: the row claimed by each basis position (-1 for kernel positions).
+    private final int[] _singletonRows;
+    private final double[] _singletonValues;
+    // Kernel index of each row, or -1 if the row is claimed by a singleton.
+    private final int[] _rowKernelIndices;
+    
+    private int _kernelSize;
+    private final int[] _kernelPositions;
+    private final int[] _kernelRows;
+    private double[] _kernel;
+    private final int[] _kernelPermutation;
+    private final double[] _kernelWork;
+    private final double[] _work;
+    
+    // Eta file: eta k replaces position _etaPositions[k] and has its nonzeros
+    // stored from _etaStarts[k] to _etaStarts[k + 1] - 1.
+    private int _etaCount;
+    private int[] _etaPositions;
+    private int[] _etaStarts;
+    private int[] _etaIndices;
+    private double[] _etaValues;
+    
+    /**
+     * Creates a factorization for bases drawn from the columns of a matrix.
+     * @param matrix The constraint matrix.
+     */
+    public BasisFactorization(SparseMatrix matrix)
+    {
+        _matrix = matrix;
+        _size = matrix.getRowCount();
+        _basis = new int[_size];
+        _singletonRows = new int[_size];
+        _singletonValues = new double[_size];
+        _rowKernelIndices = new int[_size];
+        _kernelPositions = new int[_size];
+        _kernelRows = new int[_size];
+        _kernel = new double[0];
+        _kernelPermutation = new int[_size];
+        _kernelWork = new double[_size];
+        _work = new double[_size];
+        
+        _etaPositions = new int[16];
+        _etaStarts = new int[17];
+        _etaIndices = new int[16 * Math.max(1, _size)];
+        _etaValues = new double[_etaIndices.length];
+    }
+    
+    /**
+     * Factorizes the given basis from scratch and clears the eta file.
+     * @param basis The column of each basis position.
+     * @throws ArithmeticException If the basis is singular.
+     */
+    public void factorize(int[] basis)
+    {
+        // Later pivots change the caller's array, but the factorization
+        // still describes the basis as it is now.
+        System.arraycopy(basis, 0, _basis, 0, _size);
+        _etaCount = 0;
+        
+        // First claim rows with singleton columns.
+        Arrays.fill(_rowKernelIndices, -1);
+        boolean[] claimed = new boolean[_size];
+        for (int p = 0; p < _size; p++)
+        {
+            int column = _basis[p];
+            int start = _matrix.getColumnStart(column);
+            _singletonRows[p] = -1;
+            if (_matrix.getColumnEnd(column) - start == 1)
+            {
+                int row = _matrix.getRowIndex(start);
+                double value = _matrix.getValue(start);
+                if (!claimed[row] && Math.abs(value) > SINGULAR_TOLERANCE)
+                {
+                    claimed[row] = true;
+                    _singletonRows[p] = row;
+                    _singletonValues[p] = value;
+                }
+            }
+        }
+        
+        // Whatever is left over forms the kernel.
+        _kernelSize = 0;
+        int kernelRowCount = 0;
+        for (int i = 0; i < _size; i++)
+        {
+            if (!claimed[i])
+            {
+                _rowKernelIndices[i] = kernelRowCount;
+                _kernelRows[kernelRowCount++] = i;
+            }
+        }
+        for (int p = 0; p < _size; p++)
+        {
+            if (_singletonRows[p] == -1)
+                _kernelPositions[_kernelSize++] = p;
+        }
+        if (_kernelSize != kernelRowCount)
+            throw new ArithmeticException("The basis is singular.");
+        
+        int k = _kernelSize;
+        if (_kernel.length < k * k)
+            _kernel = new double[k * k];
+        Arrays.fill(_kernel, 0, k * k, 0.0);
+        for (int s = 0; s < k; s++)
+        {
+            int column = _basis[_kernelPositions[s]];
+            for (int n = _matrix.getColumnStart(column); n < _matrix.getColumnEnd(column); n++)
+            {
+                int kernelRow = _rowKernelIndices[_matrix.getRowIndex(n)];
+                if (kernelRow >= 0)
+                    _kernel[kernelRow * k + s] = _matrix.getValue(n);
+            }
+        }
+        
+        // LU with partial pivoting: P * K = L * U, with L unit lower triangular.
+        for (int t = 0; t < k; t++)
+        {
+            _kernelPermutation[t] = t;
+        }
+        for (int t = 0; t < k; t++)
+        {
+            int pivotRow = t;
+            double largest = Math.abs(_kernel[t * k + t]);
+            for (int i = t + 1; i < k; i++)
+            {
+                double candidate = Math.abs(_kernel[i * k + t]);
+                if (candidate > largest)
+                {
+                    largest = candidate;
+                    pivotRow = i;
+                }
+            }
+            if (largest < SINGULAR_TOLERANCE)
+                throw new ArithmeticException("The basis is singular.");
+            
+            if (pivotRow != t)
+            {
+                for (int j = 0; j < k; j++)
+                {
+                    double temp = _kernel[t * k + j];
+                    _kernel[t * k + j] = _kernel[pivotRow * k + j];
+                    _kernel[pivotRow * k + j] = temp;
+                }
+                int temp = _kernelPermutation[t];
+                _kernelPermutation[t] = _kernelPermutation[pivotRow];
+                _kernelPermutation[pivotRow] = temp;
+            }
+            
+            double pivot = _kernel[t * k + t];
+            for (int i = t + 1; i < k; i++)
+            {
+                double multiplier = _kernel[i * k + t] / pivot;
+                _kernel[i * k + t] = multiplier;
+                if (multiplier == 0)
+                    continue;
+                for (int j = t + 1; j < k; j++)
+                {
+                    _kernel[i * k + j] -= multiplier * _kernel[t * k + j];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Solves B * x = v in place.
+     * @param vector The right hand side indexed by row. Holds x, indexed by basis position, on return.
+     */
+    public void ftran(double[] vector)
+    {
+        int k = _kernelSize;
+        for (int t = 0; t < k; t++)
+        {
+            _kernelWork[t] = vector[_kernelRows[_kernelPermutation[t]]];
+        }
+        // Forward substitution with L, then back substitution with U.
+        for (int i = 0; i < k; i++)
+        {
+            double sum = _kernelWork[i];
+            for (int j = 0; j < i; j++)
+            {
+                sum -= _kernel[i * k + j] * _kernelWork[j];
+            }
+            _kernelWork[i] = sum;
+        }
+        for (int i = k - 1; i >= 0; i--)
+        {
+            double sum = _kernelWork[i];
+            for (int j = i + 1; j < k; j++)
+            {
+                sum -= _kernel[i * k + j] * _kernelWork[j];
+            }
+            _kernelWork[i] = sum / _kernel[i * k + i];
+        }
+        
+        // Remove the kernel columns from the rows claimed by singletons.
+        for (int t = 0; t < k; t++)
+        {
+            double value = _kernelWork[t];
+            if (value == 0)
+                continue;
+            int column = _basis[_kernelPositions[t]];
+            for (int n = _matrix.getColumnStart(column); n < _matrix.getColumnEnd(column); n++)
+            {
+                vector[_matrix.getRowIndex(n)] -= _matrix.getValue(n) * value;
+            }
+        }
+        for (int p = 0; p < _size; p++)
+        {
+            if (_singletonRows[p] >= 0)
+                _work[p] = vector[_singletonRows[p]] / _singletonValues[p];
+        }
+        for (int t = 0; t < k; t++)
+        {
+            _work[_kernelPositions[t]] = _kernelWork[t];
+        }
+        System.arraycopy(_work, 0, vector, 0, _size);
+        
+        // Finally apply the eta file in order.
+        for (int e = 0; e < _etaCount; e++)
+        {
+            int position = _etaPositions[e];
+            double pivotValue = vector[position];
+            if (pivotValue == 0)
+                continue;
+            for (int n = _etaStarts[e]; n < _etaStarts[e + 1]; n++)
+            {
+                int index = _etaIndices[n];
+                if (index == position)
+                    vector[index] = _etaValues[n] * pivotValue;
+                else
+                    vector[index] += _etaValues[n] * pivotValue;
+            }
+        }
+    }
+    
+    /**
+     * Solves y * B = v in place.
+     * @param vector The right hand side indexed by basis position. Holds y, indexed by row, on return.
+     */
+    public void btran(double[] vector)
+    {
+        // Apply the eta file in reverse.
+        for (int e = _etaCount - 1; e >= 0; e--)
+        {
+            double sum = 0;
+            for (int n = _etaStarts[e]; n < _etaStarts[e + 1]; n++)
+            {
+                sum += _etaValues[n] * vector[_etaIndices[n]];
+            }
+            vector[_etaPositions[e]] = sum;
+        }
+        
+        // Rows claimed by singletons are solved directly.
+        for (int p = 0; p < _size; p++)
+        {
+            if (_singletonRows[p] >= 0)
+                _work[_singletonRows[p]] = vector[p] / _singletonValues[p];
+        }
+        
+        // The kernel sees whatever the claimed rows did not account for.
+        int k = _kernelSize;
+        for (int t = 0; t < k; t++)
+        {
+            int column = _basis[_kernelPositions[t]];
+            double sum = vector[_kernelPositions[t]];
+            for (int n = _matrix.getColumnStart(column); n < _matrix.getColumnEnd(column); n++)
+            {
+                int row = _matrix.getRowIndex(n);
+                if (_rowKernelIndices[row] < 0)
+                    sum -= _matrix.getValue(n) * _work[row];
+            }
+            _kernelWork[t] = sum;
+        }
+        // Solve U^T * a = rhs, then L^T * b = a, then undo the permutation.
+        for (int i = 0; i < k; i++)
+        {
+            double sum = _kernelWork[i];
+            for (int j = 0; j < i; j++)
+            {
+                sum -= _kernel[j * k + i] * _kernelWork[j];
+            }
+            _kernelWork[i] = sum / _kernel[i * k + i];
+        }
+        for (int i = k - 1; i >= 0; i--)
+        {
+            double sum = _kernelWork[i];
+            for (int j = i + 1; j < k; j++)
+            {
+                sum -= _kernel[j * k + i] * _kernelWork[j];
+            }
+            _kernelWork[i] = sum;
+        }
+        for (int t = 0; t < k; t++)
+        {
+            _work[_kernelRows[_kernelPermutation[t]]] = _kernelWork[t];
+        }
+        System.arraycopy(_work, 0, vector, 0, _size);
+    }
+    
+    /**
+     * Records a basis change as an eta vector. The caller is responsible
+     * for updating the basis array itself.
+     * @param position The basis position that is being replaced.
+     * @param column The entering column after ftran, indexed by basis position.
+     */
+    public void update(int position, double[] column)
+    {
+        double pivot = column[position];
+        if (_etaCount == _etaPositions.length)
+        {
+            _etaPositions = Arrays.copyOf(_etaPositions, _etaCount * 2);
+            _etaStarts = Arrays.copyOf(_etaStarts, _etaCount * 2 + 1);
+        }
+        int start = _etaStarts[_etaCount];
+        if (_etaIndices.length - start < _size)
+        {
+            _etaIndices = Arrays.copyOf(_etaIndices, Math.max(_etaIndices.length * 2, start + _size));
+            _etaValues = Arrays.copyOf(_etaValues, _etaIndices.length);
+        }
+        
+        int next = start;
+        for (int i = 0; i < _size; i++)
+        {
+            if (i == position)
+            {
+                _etaIndices[next] = i;
+                _etaValues[next++] = 1 / pivot;
+            }
+            else if (Math.abs(column[i]) > DROP_TOLERANCE)
+            {
+                _etaIndices[next] = i;
+                _etaValues[next++] = -column[i] / pivot;
+            }
+        }
+        _etaPositions[_etaCount] = position;
+        _etaCount++;
+        _etaStarts[_etaCount] = next;
+    }
+    
+    /**
+     * Returns the number of updates since the last factorization.
+     * @return The length of the eta file.
+     */
+    public int getUpdateCount()
+    {
+        return _etaCount;
+    }
+}
@@ -0,0 +1,419 @@
+package simplexsolver;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves a linear program whose integer variables (see Variable.setInteger)
+ * may only take integer values, by branch and bound over its relaxation. A
+ * node whose solution has an integer variable at a fractional value v is
+ * split in two, by adding X <= floor(v) to one child and X >= ceil(v) to the
+ * other. A child starts from a copy of the final tableau of its parent, so
+ * with the TABLEAU or DUAL engine the new row is only repaired with a few
+ * dual simplex pivots instead of the whole program being solved again.
+ *
+ * Before the root is split, its relaxation is tightened with a few rounds of
+ * Gomory mixed-integer cuts read from its final tableau. An equality whose
+ * integer coefficients cannot add up to its right hand side (such as
+ * X - Y = 0.5) makes the program infeasible without any search.
+ *
+ * The open nodes are explored by tasks on a ForkJoinPool, whose threads steal
+ * the tasks of the others when they run out. A task takes the open node with
+ * the best bound and dives from it depth-first: of every node it splits, it
+ * keeps the child on the side the fractional value is closer to, and leaves
+ * the other one open for a new task. The best integer solution found so far
+ * is published through an atomic reference, so every task prunes against it
+ * without taking a lock.
+ * @author Gennaro
+ */
+public class BranchAndBound
+{
+    // How far a value may be from an integer and still count as one.
+    private static final double INTEGRALITY_TOLERANCE = 1E-6;
+    // A node must beat the best solution by more than this (relative to its value) to be explored.
+    private static final double PRUNING_TOLERANCE = 1E-9;
+    private static final int CUTS_PER_ROUND = 50;
+    // The rounds of cuts stop once a round moves the bound by less than this (relative to the bound).
+    private static final double CUT_STALL = 1E-6;
+    // Equalities with larger coefficients are not checked for divisibility.
+    private static final double MAX_DIVISIBLE_COEFFICIENT = 1E9;
+    
+    // The best bound first, then the deepest node, then the oldest one.
+    private static final Comparator<Node> NODE_ORDER = Comparator
+            .comparingDouble((Node n) -> -n._bound)
+            .thenComparingInt(n -> -n._depth)
+            .thenComparingLong(n -> n._number);
+    
+    private final Tableau _root;
+    private final List<Variable> _variables;
+    private final int[] _integerColumns;
+    // 1 to maximize, -1 to minimize, so that a larger bound is always better.
+    private final double _sense;
+    private ForkJoinPool _pool = ForkJoinPool.commonPool();
+    private int _nodeLimit = Integer.MAX_VALUE;
+    private int _cutRounds = 5;
+    
+    // The state of the current solve.
+    private ConcurrentSkipListSet<Node> _openNodes;
+    private AtomicReference<Incumbent> _incumbent;
+    private AtomicLong _nodeNumbers;
+    private AtomicInteger _nodeCount;
+    private AtomicInteger _iterationCount;
+    private volatile boolean _limitReached;
+    private volatile boolean _unbounded;
+    private volatile int _phaseOneIterationCount;
+    
+    /**
+     * Defines a branch and bound search over a linear program. The program,
+     * its integer variables and its settings (engine, pricing, iteration limit
+     * per node, and so on) are taken from the tableau, which is not changed:
+     * every node works on a copy.
+     * @param root The tableau of the linear program.
+     * @throws IllegalStateException If the tableau holds a presolved program.
+     */
+    public BranchAndBound(Tableau root)
+    {
+        root.checkEditable();
+        _root = root;
+        _variables = root.getDecisionVariables();
+        _integerColumns = _variables.stream()
+                .filter(Variable::isInteger)
+                .mapToInt(v -> v.getIndex() - 1)
+                .toArray();
+        _sense = root.isMinimize() ? -1 : 1;
+    }
+    
+    /**
+     * Selects the pool the nodes are explored on. The default is the common pool.
+     * @param pool The pool to run on.
+     */
+    public void setParallelPool(ForkJoinPool pool)
+    {
+        _pool = pool;
+    }
+    
+    /**
+     * Limits the number of nodes a solve may explore. When the limit is
+     * reached the solve stops with a LIMIT status.
+     * @param limit The maximum number of nodes.
+     */
+    public void setNodeLimit(int limit)
+    {
+        _nodeLimit = limit;
+    }
+    
+    /**
+     * Sets the number of rounds of Gomory cuts added at the root before it is
+     * split (see Tableau.addGomoryCuts). Each round re-solves the root with the
+     * dual simplex method and adds up to 50 cuts, and the rounds stop early
+     * once they no longer move the bound. The default is 5; 0 turns the cuts off.
+     * @param rounds The maximum number of rounds.
+     */
+    public void setCutRounds(int rounds)
+    {
+        _cutRounds = rounds;
+    }
+    
+    /**
+     * Returns the number of nodes the last solve explored (each one is a
+     * solve of a linear program).
+     */
+    public int getNodeCount()
+    {
+        return _nodeCount == null ? 0 : Math.min(_nodeCount.get(), _nodeLimit);
+    }
+    
+    /**
+     * Solves the program with its integer variables. The status is OPTIMAL
+     * if an integer solution was found and proven best, INFEASIBLE if there
+     * is none, and UNBOUNDED if the relaxation is unbounded. It is LIMIT if
+     * the node limit, or the iteration limit of a node, stopped the search
+     * early; the result then holds the best integer solution found before
+     * that, if there is one.
+     * @return The result, whose values have the integer variables rounded to
+     * integers (the objective value is computed from them). The basis is left
+     * empty, since the nodes have rows of their own.
+     */
+    public SolveResult optimize()
+    {
+        _openNodes = new ConcurrentSkipListSet<>(NODE_ORDER);
+        _incumbent = new AtomicReference<>();
+        _nodeNumbers = new AtomicLong();
+        _nodeCount = new AtomicInteger();
+        _iterationCount = new AtomicInteger();
+        _limitReached = false;
+        _unbounded = false;
+        _phaseOneIterationCount = 0;
+        
+        if (hasIndivisibleEquality())
+            return new SolveResult(SolveResult.Status.INFEASIBLE, Double.NaN, new double[0], new int[0], 0, 0);
+        
+        Tableau root = _root.copy();
+        SolveResult rootResult = addRootCuts(root);
+        _openNodes.add(new Node(root, rootResult, Double.POSITIVE_INFINITY, 0, _nodeNumbers.getAndIncrement()));
+        _pool.invoke(new Explorer(null));
+        
+        Incumbent incumbent = _incumbent.get();
+        SolveResult.Status status;
+        if (_limitReached)
+            status = SolveResult.Status.LIMIT;
+        else if (_unbounded)
+            status = SolveResult.Status.UNBOUNDED;
+        else if (incumbent == null)
+            status = SolveResult.Status.INFEASIBLE;
+        else
+            status = SolveResult.Status.OPTIMAL;
+        if (incumbent == null)
+            return new SolveResult(status, Double.NaN, new double[0], new int[0], _iterationCount.get(), _phaseOneIterationCount);
+        
+        double[] values = incumbent._result.getValues().clone();
+        for (int j : _integerColumns)
+        {
+            values[j] = Math.rint(values[j]);
+        }
+        return new SolveResult(status, _root.evaluateObjective(values), values, new int[0], _iterationCount.get(), _phaseOneIterationCount);
+    }
+    
+    /**
+     * Looks for an equality that no integer values satisfy: one with only
+     * integer variables and integer coefficients, whose right hand side is
+     * not a multiple of the greatest common divisor of its coefficients (for
+     * example X - Y = 0.5). Its relaxation is feasible, so when the variables
+     * are not bounded, branching alone would never prove it infeasible.
+     */
+    private boolean hasIndivisibleEquality()
+    {
+        for (Constraint constraint : _root.getConstraints())
+        {
+            if (constraint.getSign() != SimplexUtilities.Sign.EQUAL)
+                continue;
+            long divisor = findCommonDivisor(constraint.getEquation());
+            if (divisor == 0)
+                continue;
+            double multiple = constraint.getRightHandSide() / divisor;
+            if (Math.abs(multiple - Math.rint(multiple)) > INTEGRALITY_TOLERANCE)
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the greatest common divisor of the coefficients of an equation,
+     * or 0 if it has a variable that is not an integer or a coefficient that
+     * is not an integer.
+     */
+    private static long findCommonDivisor(Map<Variable, Double> equation)
+    {
+        long divisor = 0;
+        for (Map.Entry<Variable, Double> kvp : equation.entrySet())
+        {
+            double coefficient = Math.abs(kvp.getValue());
+            if (!kvp.getKey().isInteger() || coefficient != Math.rint(coefficient) || coefficient > MAX_DIVISIBLE_COEFFICIENT)
+                return 0;
+            long b = (long) coefficient;
+            while (b != 0)
+            {
+                long remainder = divisor % b;
+                divisor = b;
+                b = remainder;
+            }
+        }
+        return divisor;
+    }
+    
+    /**
+     * Tightens the relaxation at the root with rounds of Gomory cuts.
+     * @return The result of the last solve, or null if cuts were added after
+     * it (they are then solved as the root node).
+     */
+    private SolveResult addRootCuts(Tableau root)
+    {
+        double lastBound = Double.POSITIVE_INFINITY;
+        for (int round = 0; round < _cutRounds; round++)
+        {
+            SolveResult result = root.optimize();
+            _iterationCount.addAndGet(result.getIterationCount());
+            _phaseOneIterationCount += result.getPhaseOneIterationCount();
+            if (!result.isOptimal())
+                return result;
+            double bound = _sense * result.getObjectiveValue();
+            if (lastBound - bound <= CUT_STALL * Math.max(1, Math.abs(bound)) || root.addGomoryCuts(CUTS_PER_ROUND) == 0)
+                return result;
+            lastBound = bound;
+        }
+        return null;
+    }
+    
+    /**
+     * Finds the integer variable whose value is the farthest from an integer.
+     * @return Its column, or -1 if all of them are integers.
+     */
+    private int findBranchingColumn(double[] values)
+    {
+        int column = -1;
+        double largestFraction = INTEGRALITY_TOLERANCE;
+        for (int j : _integerColumns)
+        {
+            double fraction = Math.abs(values[j] - Math.rint(values[j]));
+            if (fraction > largestFraction)
+            {
+                column = j;
+                largestFraction = fraction;
+            }
+        }
+        return column;
+    }
+    
+    /**
+     * Decides whether a node with this bound cannot beat the best solution.
+     */
+    private boolean isPruned(double bound)
+    {
+        Incumbent incumbent = _incumbent.get();
+        return incumbent != null && bound <= incumbent._bound + PRUNING_TOLERANCE * Math.max(1, Math.abs(incumbent._bound));
+    }
+    
+    /**
+     * Makes an integer solution the best one, unless a better one was found
+     * in the meantime.
+     */
+    private void offerIncumbent(double bound, SolveResult result)
+    {
+        Incumbent candidate = new Incumbent(bound, result);
+        Incumbent current = _incumbent.get();
+        while ((current == null || bound > current._bound) && !_incumbent.compareAndSet(current, candidate))
+        {
+            current = _incumbent.get();
+        }
+    }
+    
+    private Constraint createBound(int column, SimplexUtilities.Sign sign, double value)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        equation.put(_variables.get(column), 1.0);
+        return new Constraint(equation, sign, value);
+    }
+    
+    /**
+     * A node that is waiting to be explored: the tableau of its parent with
+     * its branching bound added, and the bound of its parent. Only the root
+     * may come with the result of solving its tableau.
+     */
+    private static class Node
+    {
+        private final Tableau _tableau;
+        private final SolveResult _result;
+        private final double _bound;
+        private final int _depth;
+        private final long _number;
+        
+        Node(Tableau tableau, SolveResult result, double bound, int depth, long number)
+        {
+            _tableau = tableau;
+            _result = result;
+            _bound = bound;
+            _depth = depth;
+            _number = number;
+        }
+    }
+    
+    /**
+     * The best integer solution found so far, with its objective value
+     * multiplied by the sense.
+     */
+    private static class Incumbent
+    {
+        private final double _bound;
+        private final SolveResult _result;
+        
+        Incumbent(double bound, SolveResult result)
+        {
+            _bound = bound;
+            _result = result;
+        }
+    }
+    
+    /**
+     * Takes the best open node and dives from it. Every node it leaves open
+     * is added with a new task, and the solve is complete once every task is.
+     */
+    private class Explorer extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        Explorer(Explorer parent)
+        {
+            super(parent);
+        }
+        
+        @Override
+        public void compute()
+        {
+            // Every task is created after its node was added, so there is always one left.
+            Node node = _openNodes.pollFirst();
+            if (!isPruned(node._bound))
+                dive(node._tableau, node._result, node._depth);
+            tryComplete();
+        }
+        
+        private void dive(Tableau tableau, SolveResult result, int depth)
+        {
+            while (true)
+            {
+                if (_limitReached || _nodeCount.incrementAndGet() > _nodeLimit)
+                {
+                    _limitReached = true;
+                    return;
+                }
+                if (result == null)
+                {
+                    result = tableau.optimize();
+                    _iterationCount.addAndGet(result.getIterationCount());
+                    if (depth == 0)
+                        _phaseOneIterationCount += result.getPhaseOneIterationCount();
+                }
+                if (result.getStatus() == SolveResult.Status.LIMIT)
+                    _limitReached = true;
+                if (result.getStatus() == SolveResult.Status.UNBOUNDED)
+                    _unbounded = true;
+                if (!result.isOptimal())
+                    return;
+                
+                double bound = _sense * result.getObjectiveValue();
+                if (isPruned(bound))
+                    return;
+                double[] values = result.getValues();
+                int column = findBranchingColumn(values);
+                if (column < 0)
+                {
+                    offerIncumbent(bound, result);
+                    return;
+                }
+                
+                double value = values[column];
+                Tableau up = tableau.copy();
+                tableau.addConstraint(createBound(column, SimplexUtilities.Sign.LESS_THAN, Math.floor(value)));
+                up.addConstraint(createBound(column, SimplexUtilities.Sign.GREATER_THAN, Math.ceil(value)));
+                Tableau open = up;
+                if (value - Math.floor(value) > 0.5)
+                {
+                    open = tableau;
+                    tableau = up;
+                }
+                depth++;
+                _openNodes.add(new Node(open, null, bound, depth, _nodeNumbers.getAndIncrement()));
+                addToPendingCount(1);
+                new Explorer(this).fork();
+                result = null;
+            }
+        }
+    }
+}
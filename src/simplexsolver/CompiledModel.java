@@ -0,0 +1,158 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A linear program that is checked and compressed once, so that it can be
+ * solved many times with different right hand sides and costs. A compiled
+ * model cannot be changed: it keeps its own copies of the variables and
+ * constraints, and every tableau created from it shares the same
+ * constraint matrix without modifying it. Any number of threads may
+ * create tableaus from the same model.
+ * @author Gennaro
+ */
+public class CompiledModel
+{
+    private final List<Variable> _variables;
+    private final SimplexUtilities.Objective _objective;
+    private final double[] _costs;
+    private final ArrayList<Constraint> _constraints;
+    private final double[] _rightHandSides;
+    private final SparseMatrix _matrix;
+    
+    /**
+     * Compiles a linear program.
+     * @param variables The declared decision variables. Their indices must be 1 to n.
+     * @param objective The objective function.
+     * @param constraints The constraints.
+     * @throws IllegalArgumentException If the indices are not 1 to n, or an equation uses an undeclared variable.
+     */
+    public CompiledModel(Collection<Variable> variables, ObjectiveFunction objective, List<Constraint> constraints)
+    {
+        // The variables are copied, so that their bounds cannot change after compiling.
+        Variable[] copies = new Variable[variables.size()];
+        for (Variable v : variables)
+        {
+            if (v.getIndex() < 1 || v.getIndex() > copies.length || copies[v.getIndex() - 1] != null)
+                throw new IllegalArgumentException("The variable indices must be 1 to " + copies.length + ".");
+            Variable copy = new Variable(v.getName(), v.getIndex());
+            copy.setAlias(v.getAlias());
+            copy.setBounds(v.getLowerBound(), v.getUpperBound());
+            copy.setInteger(v.isInteger());
+            copies[v.getIndex() - 1] = copy;
+        }
+        List<Variable> copyList = new ArrayList<>(copies.length);
+        Collections.addAll(copyList, copies);
+        _variables = Collections.unmodifiableList(copyList);
+        
+        _objective = objective.isMaximize() ? SimplexUtilities.Objective.MAX : SimplexUtilities.Objective.MIN;
+        _costs = new double[copies.length];
+        objective.getEquation().entrySet().stream().forEach(kvp -> _costs[getColumn(kvp.getKey())] += kvp.getValue());
+        
+        _constraints = new ArrayList<>(constraints.size());
+        _rightHandSides = new double[constraints.size()];
+        ArrayList<HashMap<Variable, Double>> equations = new ArrayList<>(constraints.size());
+        for (Constraint constraint : constraints)
+        {
+            HashMap<Variable, Double> equation = new HashMap<>();
+            for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+            {
+                equation.merge(_variables.get(getColumn(kvp.getKey())), kvp.getValue(), Double::sum);
+            }
+            _rightHandSides[equations.size()] = constraint.getRightHandSide();
+            equations.add(equation);
+            _constraints.add(new Constraint(equation, constraint.getSign(), constraint.getRightHandSide()));
+        }
+        _matrix = SparseMatrix.fromEquations(equations, copies.length);
+    }
+    
+    /**
+     * Defines a model that was read straight into compressed form (see
+     * ModelReader). The constraints refer to the rows of the matrix, so no
+     * equation is built unless a tableau needs one for an edit.
+     * @param variables The decision variables, by index. They are not copied.
+     * @param objective Whether to min or max the objective function.
+     * @param costs The cost of each variable.
+     * @param signs The sign of each constraint.
+     * @param rightHandSides The right hand side of each constraint.
+     * @param matrix The coefficients of the constraints.
+     */
+    CompiledModel(List<Variable> variables, SimplexUtilities.Objective objective, double[] costs, SimplexUtilities.Sign[] signs, double[] rightHandSides, SparseMatrix matrix)
+    {
+        _variables = Collections.unmodifiableList(variables);
+        _objective = objective;
+        _costs = costs;
+        _rightHandSides = rightHandSides;
+        _matrix = matrix;
+        _constraints = new ArrayList<>(signs.length);
+        for (int i = 0; i < signs.length; i++)
+        {
+            _constraints.add(new Constraint(matrix, i, _variables, signs[i], rightHandSides[i]));
+        }
+    }
+    
+    /**
+     * Creates a tableau for this model. The tableau can be edited and solved
+     * like any other; the edits do not change this model.
+     * @return A new tableau.
+     */
+    public Tableau createTableau()
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < _costs.length; j++)
+        {
+            if (_costs[j] != 0)
+                equation.put(_variables.get(j), _costs[j]);
+        }
+        return new Tableau(_variables, new ObjectiveFunction(equation, _objective), _constraints, _matrix);
+    }
+    
+    public int getVariableCount()
+    {
+        return _variables.size();
+    }
+    
+    public int getConstraintCount()
+    {
+        return _constraints.size();
+    }
+    
+    /**
+     * Returns the coefficient of each decision variable in the objective function.
+     * @return A copy of the costs (variable index 1 is at 0, and so on).
+     */
+    public double[] getCosts()
+    {
+        return _costs.clone();
+    }
+    
+    /**
+     * Returns the right hand side of each constraint.
+     * @return A copy of the right hand sides, in the order of the constraints.
+     */
+    public double[] getRightHandSides()
+    {
+        return _rightHandSides.clone();
+    }
+    
+    /**
+     * Returns the copy of a decision variable that the tableaus of this model use.
+     * @param column The variable index - 1.
+     */
+    Variable getVariable(int column)
+    {
+        return _variables.get(column);
+    }
+    
+    private int getColumn(Variable variable)
+    {
+        if (variable.getIndex() < 1 || variable.getIndex() > _variables.size())
+            throw new IllegalArgumentException("You attempted to use variable <" + variable.getName() + "> but it is not a defined variable.");
+        return variable.getIndex() - 1;
+    }
+}
@@ -1,6 +1,7 @@
 package simplexsolver;
 
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Represents a single constraint in a linear program.
@@ -8,9 +9,14 @@ import java.util.HashMap;
  */
 public class Constraint 
 {
-    private final HashMap<Variable, Double> _equation;
+    private HashMap<Variable, Double> _equation;
     private final SimplexUtilities.Sign _sign;
     private final double _rhs;
+    // A constraint read from a file keeps its row of the compressed matrix instead,
+    // and only builds its equation if someone asks for it.
+    private final SparseMatrix _matrix;
+    private final int _row;
+    private final List<Variable> _variables;
     
     /**
      * Define a constraint.
@@ -23,10 +29,38 @@ public class Constraint
         _equation = equation;
         _sign = sign;
         _rhs = rhs;
+        _matrix = null;
+        _row = -1;
+        _variables = null;
     }
     
-    public HashMap<Variable, Double> getEquation()
+    /**
+     * Define a constraint from a row of a compressed matrix.
+     * @param matrix The matrix.
+     * @param row The row of the constraint in the matrix.
+     * @param variables The variable of each column of the matrix.
+     * @param sign The sign of the equation.
+     * @param rhs The constant on the right hand side of the equation.
+     */
+    Constraint(SparseMatrix matrix, int row, List<Variable> variables, SimplexUtilities.Sign sign, double rhs)
+    {
+        _sign = sign;
+        _rhs = rhs;
+        _matrix = matrix;
+        _row = row;
+        _variables = variables;
+    }
+    
+    public synchronized HashMap<Variable, Double> getEquation()
     {
+        if (_equation == null)
+        {
+            _equation = new HashMap<>();
+            for (int k = _matrix.getRowStart(_row); k < _matrix.getRowEnd(_row); k++)
+            {
+                _equation.put(_variables.get(_matrix.getColumnIndex(k)), _matrix.getRowValue(k));
+            }
+        }
         return _equation;
     }
     
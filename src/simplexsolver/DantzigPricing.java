@@ -0,0 +1,23 @@
+package simplexsolver;
+
+/**
+ * Enters the variable with the most negative reduced cost. Ties go to the
+ * first column.
+ * @author Gennaro
+ */
+public class DantzigPricing implements PricingRule
+{
+    @Override
+    public void reset(double[] matrix, int rowCount, int columnCount)
+    {
+    }
+    
+    @Override
+    public int selectEntering(double[] matrix, int rowCount, int columnCount, RowOperations operations)
+    {
+        int mostNegativeIndex = operations.findMostNegative(matrix, 0, columnCount - 1);
+        
+        // Due to rounding errors, we must include an approximation here.
+        return matrix[mostNegativeIndex] < -OPTIMALITY_TOLERANCE ? mostNegativeIndex : -1;
+    }
+}
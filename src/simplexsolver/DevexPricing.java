@@ -0,0 +1,68 @@
+package simplexsolver;
+
+import java.util.Arrays;
+
+/**
+ * Devex pricing (Forrest and Goldfarb). Each column has a reference weight
+ * that approximates the length of its edge, and the column with the largest
+ * d * d / weight enters. The weights are updated from the pivot row, and
+ * reset to 1 when they grow too large to be accurate.
+ * @author Gennaro
+ */
+public class DevexPricing implements PricingRule
+{
+    private static final double RESET_WEIGHT = 1E6;
+    
+    private double[] _weights = new double[0];
+    
+    @Override
+    public void reset(double[] matrix, int rowCount, int columnCount)
+    {
+        if (_weights.length < columnCount - 1)
+            _weights = new double[columnCount - 1];
+        Arrays.fill(_weights, 1.0);
+    }
+    
+    @Override
+    public int selectEntering(double[] matrix, int rowCount, int columnCount, RowOperations operations)
+    {
+        double best = 0;
+        int bestIndex = -1;
+        for (int j = 0; j < columnCount - 1; j++)
+        {
+            double reducedCost = matrix[j];
+            if (reducedCost < -OPTIMALITY_TOLERANCE)
+            {
+                double score = reducedCost * reducedCost / _weights[j];
+                if (score > best)
+                {
+                    best = score;
+                    bestIndex = j;
+                }
+            }
+        }
+        return bestIndex;
+    }
+    
+    @Override
+    public void beforePivot(double[] matrix, int rowCount, int columnCount, int pivotRow, int pivotColumn, int leavingColumn)
+    {
+        int pivotOffset = pivotRow * columnCount;
+        double pivotElement = matrix[pivotOffset + pivotColumn];
+        double enteringWeight = _weights[pivotColumn];
+        if (enteringWeight > RESET_WEIGHT)
+        {
+            // Start a new reference framework.
+            Arrays.fill(_weights, 1.0);
+            return;
+        }
+        
+        for (int j = 0; j < columnCount - 1; j++)
+        {
+            double ratio = matrix[pivotOffset + j] / pivotElement;
+            if (ratio != 0 && j != pivotColumn)
+                _weights[j] = Math.max(_weights[j], ratio * ratio * enteringWeight);
+        }
+        _weights[leavingColumn] = Math.max(enteringWeight / (pivotElement * pivotElement), 1.0);
+    }
+}
@@ -0,0 +1,248 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Gomory mixed-integer cuts from the optimal final tableau of a
+ * TABLEAU or DUAL solve. Every row whose basic variable is an integer
+ * variable (see Variable.setInteger) at a fractional value gives a cut,
+ * which the current solution violates but no integer solution does. The
+ * cuts are written in terms of the decision variables, as >= constraints.
+ *
+ * A coefficient too small to matter is taken out by moving its variable to
+ * a bound, which only weakens the cut. A cut is left out if its
+ * coefficients still span more than 6 orders of magnitude, or if it barely
+ * cuts off the current solution.
+ * @author Gennaro
+ */
+public class GomorySeparator
+{
+    // A row only gives a cut if its integer variable is at least this far from an integer.
+    private static final double MIN_FRACTION = 1E-2;
+    // Entries of a tableau row below this are taken to be rounding errors.
+    private static final double ZERO = 1E-12;
+    // Cut coefficients below this (relative to the largest) are moved to a bound of their variable.
+    private static final double SMALL = 1E-9;
+    private static final double MAX_DYNAMISM = 1E6;
+    private static final double MIN_VIOLATION = 1E-6;
+    
+    private final Tableau _tableau;
+    private final List<Variable> _variables;
+    private final List<Constraint> _constraints;
+    private final int _variableCount;
+    // The basic column of each constraint, and the constraint of each slack/surplus
+    // column (-1 for the other columns), as they are numbered in the current tableau.
+    private final int[] _basicColumns;
+    private final BitSet _basicSet = new BitSet();
+    private final int[] _slackConstraints;
+    // The values of the decision variables, as they were entered.
+    private final double[] _values;
+    
+    /**
+     * Reads the solution from the final tableau.
+     * @param tableau A tableau whose final tableau is optimal (see Tableau.hasOptimalTableau).
+     */
+    GomorySeparator(Tableau tableau)
+    {
+        _tableau = tableau;
+        _variables = tableau.getDecisionVariables();
+        _constraints = tableau.getConstraints();
+        _variableCount = _variables.size();
+        _basicColumns = tableau.getBasicColumns();
+        Arrays.stream(_basicColumns).forEach(_basicSet::set);
+        
+        _slackConstraints = new int[tableau.getTableauColumnCount()];
+        Arrays.fill(_slackConstraints, -1);
+        for (int i = 0; i < _constraints.size(); i++)
+        {
+            int column = tableau.getSlackColumn(i);
+            if (column >= 0)
+                _slackConstraints[column] = i;
+        }
+        
+        _values = new double[_variableCount];
+        for (int j = 0; j < _variableCount; j++)
+        {
+            if (tableau.isFlippedColumn(j))
+                _values[j] = tableau.getUpperBound(j);
+        }
+        for (int i = 0; i < _basicColumns.length; i++)
+        {
+            int bv = _basicColumns[i];
+            if (bv < _variableCount)
+            {
+                double value = tableau.getRightHandSide(i);
+                _values[bv] = tableau.isFlippedColumn(bv) ? tableau.getUpperBound(bv) - value : value;
+            }
+        }
+        for (int j = 0; j < _variableCount; j++)
+        {
+            _values[j] = _values[j] * tableau.getColumnScale(j) + tableau.getColumnShift(j);
+        }
+    }
+    
+    /**
+     * Derives the cuts. The tableau is only read, so every cut is derived
+     * from the same final tableau.
+     * @param maxCuts The most cuts to return. The rows whose values are the
+     * farthest from an integer go first.
+     * @return The cuts.
+     */
+    List<Constraint> separate(int maxCuts)
+    {
+        // The rows of the integer variables that are fractional, the most fractional first.
+        ArrayList<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < _basicColumns.length; i++)
+        {
+            int bv = _basicColumns[i];
+            if (bv >= _variableCount || !_variables.get(bv).isInteger())
+                continue;
+            double fraction = _values[bv] - Math.floor(_values[bv]);
+            if (fraction >= MIN_FRACTION && fraction <= 1 - MIN_FRACTION)
+                rows.add(i);
+        }
+        rows.sort(Comparator.comparingDouble(i -> -Math.abs(_values[_basicColumns[i]] - Math.rint(_values[_basicColumns[i]]))));
+        
+        ArrayList<Constraint> cuts = new ArrayList<>();
+        for (int i : rows)
+        {
+            if (cuts.size() == maxCuts)
+                break;
+            Constraint cut = buildCut(i);
+            if (cut != null)
+                cuts.add(cut);
+        }
+        return cuts;
+    }
+    
+    /**
+     * Derives the cut of the row of a constraint. The row reads
+     * X + sum(a_j * Y_j) = x over the nonbasic columns Y_j >= 0, where X is
+     * the integer variable in the units it was entered in and x is its
+     * fractional value. With f the fractional part of x, the cut is
+     * sum(g_j * Y_j) >= 1, where g_j is a_j / f or -a_j / (1 - f) for a
+     * continuous Y_j, and for an integer Y_j it is the same on the fractional
+     * part of a_j, or 1 minus it. Every Y_j is then replaced by the decision
+     * variables it stands for.
+     * @return The cut, or null if it is not numerically safe or barely violated.
+     */
+    private Constraint buildCut(int constraint)
+    {
+        int basic = _basicColumns[constraint];
+        double unit = _tableau.isFlippedColumn(basic) ? -_tableau.getColumnScale(basic) : _tableau.getColumnScale(basic);
+        double fraction = _values[basic] - Math.floor(_values[basic]);
+        double[] row = _tableau.getTableauRow(constraint);
+        double[] coefficients = new double[_variableCount];
+        double rhs = 1;
+        for (int j = 0; j < row.length - 1; j++)
+        {
+            double a = unit * row[j];
+            // An artificial column that was kept is 0 in every solution of the program.
+            if (_basicSet.get(j) || Math.abs(a) < ZERO || _tableau.isArtificialColumn(j))
+                continue;
+            double g;
+            if (j < _variableCount && isIntegerColumn(j))
+            {
+                double f = a - Math.floor(a);
+                g = f <= fraction ? f / fraction : (1 - f) / (1 - fraction);
+            }
+            else
+                g = a > 0 ? a / fraction : -a / (1 - fraction);
+            
+            if (j < _variableCount)
+            {
+                // Y = (X - lower) / scale, or the width of the range minus that for a flipped column.
+                double perUnit = g / _tableau.getColumnScale(j);
+                if (_tableau.isFlippedColumn(j))
+                {
+                    coefficients[j] -= perUnit;
+                    rhs -= g * _tableau.getUpperBound(j) + perUnit * _tableau.getColumnShift(j);
+                }
+                else
+                {
+                    coefficients[j] += perUnit;
+                    rhs += perUnit * _tableau.getColumnShift(j);
+                }
+            }
+            else
+            {
+                // A slack column is (rhs - terms) of its row times the row scale, and a surplus column (terms - rhs).
+                int slackConstraint = _slackConstraints[j];
+                if (slackConstraint < 0)
+                    return null;
+                Constraint c = _constraints.get(slackConstraint);
+                double multiple = g * _tableau.getRowScale(slackConstraint) * (c.getSign() == SimplexUtilities.Sign.LESS_THAN ? 1 : -1);
+                for (Map.Entry<Variable, Double> kvp : c.getEquation().entrySet())
+                {
+                    coefficients[kvp.getKey().getIndex() - 1] -= multiple * kvp.getValue();
+                }
+                rhs -= multiple * c.getRightHandSide();
+            }
+        }
+        
+        // Scale the largest coefficient to 1, and move the tiny ones to the bound
+        // of their variable that weakens the cut.
+        double largest = 0;
+        for (double c : coefficients)
+        {
+            largest = Math.max(largest, Math.abs(c));
+        }
+        if (largest == 0)
+            return null;
+        rhs /= largest;
+        double smallest = 1;
+        for (int j = 0; j < coefficients.length; j++)
+        {
+            double c = coefficients[j] / largest;
+            coefficients[j] = c;
+            if (c == 0)
+                continue;
+            if (Math.abs(c) >= SMALL)
+            {
+                smallest = Math.min(smallest, Math.abs(c));
+                continue;
+            }
+            double bound = c > 0 ? _variables.get(j).getUpperBound() : _variables.get(j).getLowerBound();
+            if (Double.isInfinite(bound))
+                return null;
+            rhs -= c * bound;
+            coefficients[j] = 0;
+        }
+        if (smallest * MAX_DYNAMISM < 1)
+            return null;
+        
+        // Leave a little room for rounding, and require the cut to cut off the current solution.
+        rhs -= SMALL * Math.max(1, Math.abs(rhs));
+        double activity = 0;
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < coefficients.length; j++)
+        {
+            if (coefficients[j] == 0)
+                continue;
+            activity += coefficients[j] * _values[j];
+            equation.put(_variables.get(j), coefficients[j]);
+        }
+        if (rhs - activity < MIN_VIOLATION)
+            return null;
+        return new Constraint(equation, SimplexUtilities.Sign.GREATER_THAN, rhs);
+    }
+    
+    /**
+     * Decides whether a decision column only takes integer values: its variable
+     * is an integer, and the column is neither scaled nor shifted by a fraction.
+     */
+    private boolean isIntegerColumn(int column)
+    {
+        Variable variable = _variables.get(column);
+        if (!variable.isInteger() || _tableau.getColumnScale(column) != 1)
+            return false;
+        double origin = _tableau.isFlippedColumn(column) ? variable.getUpperBound() : variable.getLowerBound();
+        return origin == Math.rint(origin);
+    }
+}
@@ -0,0 +1,532 @@
+package simplexsolver;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads a linear program in CPLEX LP format: an objective function
+ * (Maximize or Minimize), Subject To, and optionally Bounds, Generals,
+ * Binaries and End. A constraint is "[name:] terms sign number", and a bound
+ * is "[number sign] variable [sign number]" or "variable free". A backslash
+ * starts a comment that runs to the end of the line. The variables in
+ * Generals and Binaries are marked as integer variables (a binary variable
+ * also gets the bounds 0 and 1). Quadratic terms, semi-continuous
+ * variables and SOS are not supported.
+ * @author Gennaro
+ */
+public class LpReader extends ModelReader
+{
+    private enum Token
+    {
+        NAME, NUMBER, LESS, GREATER, EQUAL, PLUS, MINUS, COLON, END
+    }
+    
+    private enum Section
+    {
+        OBJECTIVE, CONSTRAINTS, BOUNDS, GENERALS, BINARIES, END
+    }
+    
+    private Token _token;
+    private byte[] _text = new byte[64];
+    private int _textLength;
+    private double _number;
+    // A byte that was read too far while telling a number from a name.
+    private int _pending = -1;
+    
+    // The terms of the constraint being read, until its sign is known.
+    private int[] _termColumns = new int[64];
+    private double[] _termValues = new double[64];
+    private int _termCount;
+    private final byte[] _rowName = new byte[16];
+    
+    @Override
+    void parse(ModelBuilder builder) throws IOException
+    {
+        nextToken();
+        if (readSection(builder) != Section.OBJECTIVE)
+            throw error("Expected Maximize or Minimize");
+        readObjective(builder);
+        Section section = readSections(builder, null);
+        if (section == null)
+            throw error("Expected Subject To");
+        while (section != Section.END && _token != Token.END)
+        {
+            switch (section)
+            {
+                case CONSTRAINTS:
+                    readConstraint(builder);
+                    break;
+                case BOUNDS:
+                    readBound(builder);
+                    break;
+                case OBJECTIVE:
+                    throw error("Repeated objective function");
+                default:
+                    readInteger(builder, section == Section.BINARIES);
+                    break;
+            }
+            section = readSections(builder, section);
+        }
+    }
+    
+    /**
+     * Reads the section keywords before the next statement. A section may be
+     * empty, so there can be several in a row.
+     * @param builder Takes the objective (min or max).
+     * @param section The current section.
+     * @return The section of the next statement.
+     */
+    private Section readSections(ModelBuilder builder, Section section) throws IOException
+    {
+        Section next = readSection(builder);
+        while (next != null)
+        {
+            section = next;
+            next = section == Section.END ? null : readSection(builder);
+        }
+        return section;
+    }
+    
+    /**
+     * Reads a section keyword, if the current token starts one.
+     * @param builder Takes the objective (min or max).
+     * @return The section, or null if the token is not a keyword.
+     */
+    private Section readSection(ModelBuilder builder) throws IOException
+    {
+        if (_token != Token.NAME)
+            return null;
+        Section section = null;
+        if (isText("maximize") || isText("maximise") || isText("maximum") || isText("max"))
+        {
+            builder.setObjective(SimplexUtilities.Objective.MAX);
+            section = Section.OBJECTIVE;
+        }
+        else if (isText("minimize") || isText("minimise") || isText("minimum") || isText("min"))
+        {
+            builder.setObjective(SimplexUtilities.Objective.MIN);
+            section = Section.OBJECTIVE;
+        }
+        else if (isText("subject") || isText("such"))
+        {
+            boolean subject = isText("subject");
+            nextToken();
+            if (_token != Token.NAME || !isText(subject ? "to" : "that"))
+                throw error(subject ? "Expected Subject To" : "Expected Such That");
+            section = Section.CONSTRAINTS;
+        }
+        else if (isText("st") || isText("s.t.") || isText("st."))
+            section = Section.CONSTRAINTS;
+        else if (isText("bounds") || isText("bound"))
+            section = Section.BOUNDS;
+        else if (isText("generals") || isText("general") || isText("gen") || isText("integers") || isText("integer"))
+            section = Section.GENERALS;
+        else if (isText("binaries") || isText("binary") || isText("bin"))
+            section = Section.BINARIES;
+        else if (isText("end"))
+            section = Section.END;
+        else if (isText("semi-continuous") || isText("semis") || isText("semi") || isText("sos"))
+            throw error("Unsupported section", _text, 0, _textLength);
+        if (section != null && section != Section.END)
+            nextToken();
+        return section;
+    }
+    
+    private void readObjective(ModelBuilder builder) throws IOException
+    {
+        int row;
+        if (_token == Token.NAME && isLabel())
+        {
+            row = builder.addRow(_text, 0, _textLength, (byte) 'N');
+            nextToken();
+            nextToken();
+        }
+        else
+        {
+            byte[] name = { 'o', 'b', 'j' };
+            row = builder.addRow(name, 0, name.length, (byte) 'N');
+        }
+        double constant = readTerms(builder);
+        for (int k = 0; k < _termCount; k++)
+        {
+            builder.addEntry(row, _termColumns[k], _termValues[k]);
+        }
+        builder.addObjectiveConstant(constant);
+    }
+    
+    private void readConstraint(ModelBuilder builder) throws IOException
+    {
+        int nameLength = 0;
+        byte[] name = _rowName;
+        boolean named = _token == Token.NAME && isLabel();
+        if (named)
+        {
+            name = Arrays.copyOf(_text, _textLength);
+            nameLength = _textLength;
+            nextToken();
+            nextToken();
+        }
+        double constant = readTerms(builder);
+        byte type;
+        if (_token == Token.LESS)
+            type = 'L';
+        else if (_token == Token.GREATER)
+            type = 'G';
+        else if (_token == Token.EQUAL)
+            type = 'E';
+        else
+            throw error("Expected <=, >= or =");
+        nextToken();
+        double rhs = readSignedNumber() - constant;
+        
+        int row;
+        if (named)
+            row = builder.addRow(name, 0, nameLength, type);
+        else
+        {
+            // Unnamed constraints are R1, R2, ... (skipping any name that is taken).
+            row = -1;
+            for (int number = builder.getRowCount(); row < 0; number++)
+            {
+                nameLength = writeRowName(number);
+                row = builder.addRow(name, 0, nameLength, type);
+            }
+        }
+        if (row < 0)
+            throw error("Repeated constraint", name, 0, nameLength);
+        for (int k = 0; k < _termCount; k++)
+        {
+            builder.addEntry(row, _termColumns[k], _termValues[k]);
+        }
+        builder.setRightHandSide(row, rhs);
+    }
+    
+    private int writeRowName(int number)
+    {
+        String name = "R" + number;
+        for (int i = 0; i < name.length(); i++)
+        {
+            _rowName[i] = (byte) name.charAt(i);
+        }
+        return name.length();
+    }
+    
+    /**
+     * Reads "[number sign] variable [sign number]" or "variable free".
+     */
+    private void readBound(ModelBuilder builder) throws IOException
+    {
+        double before = Double.NaN;
+        Token beforeSign = null;
+        if (_token != Token.NAME || isInfinity())
+        {
+            before = readSignedNumber();
+            beforeSign = _token;
+            if (beforeSign != Token.LESS && beforeSign != Token.GREATER && beforeSign != Token.EQUAL)
+                throw error("Expected <=, >= or =");
+            nextToken();
+        }
+        if (_token != Token.NAME)
+            throw error("Expected a variable");
+        int column = builder.getColumn(_text, 0, _textLength);
+        nextToken();
+        if (beforeSign != null)
+            setBound(builder, column, flip(beforeSign), before);
+        if (beforeSign == null && _token == Token.NAME && isText("free"))
+        {
+            builder.setLowerBound(column, Double.NEGATIVE_INFINITY);
+            builder.setUpperBound(column, Double.POSITIVE_INFINITY);
+            nextToken();
+            return;
+        }
+        if (_token == Token.LESS || _token == Token.GREATER || _token == Token.EQUAL)
+        {
+            Token sign = _token;
+            nextToken();
+            setBound(builder, column, sign, readSignedNumber());
+        }
+        else if (beforeSign == null)
+            throw error("Expected a bound");
+    }
+    
+    private static Token flip(Token sign)
+    {
+        return sign == Token.LESS ? Token.GREATER : sign == Token.GREATER ? Token.LESS : sign;
+    }
+    
+    /**
+     * Applies "variable sign value".
+     */
+    private static void setBound(ModelBuilder builder, int column, Token sign, double value)
+    {
+        if (sign != Token.LESS)
+            builder.setLowerBound(column, value);
+        if (sign != Token.GREATER)
+            builder.setUpperBound(column, value);
+    }
+    
+    /**
+     * Reads the variables listed in a Generals or Binaries section.
+     */
+    private void readInteger(ModelBuilder builder, boolean binary) throws IOException
+    {
+        if (_token != Token.NAME)
+            throw error("Expected a variable");
+        int column = builder.getColumn(_text, 0, _textLength);
+        builder.setInteger(column);
+        if (binary)
+        {
+            builder.setLowerBound(column, 0);
+            builder.setUpperBound(column, 1);
+        }
+        nextToken();
+    }
+    
+    /**
+     * Reads terms ("[sign] [number] [variable]") into the term buffers, up to
+     * a sign, a section keyword, or a name that is not preceded by + or -.
+     * @return The sum of the constant terms.
+     */
+    private double readTerms(ModelBuilder builder) throws IOException
+    {
+        _termCount = 0;
+        double constant = 0;
+        boolean first = true;
+        while (true)
+        {
+            double sign = 1;
+            boolean signed = false;
+            while (_token == Token.PLUS || _token == Token.MINUS)
+            {
+                if (_token == Token.MINUS)
+                    sign = -sign;
+                signed = true;
+                nextToken();
+            }
+            if (!first && !signed)
+                return constant;
+            double coefficient = 1;
+            boolean numbered = false;
+            if (_token == Token.NUMBER)
+            {
+                coefficient = _number;
+                numbered = true;
+                nextToken();
+            }
+            if (_token == Token.NAME && !isKeyword())
+            {
+                addTerm(builder.getColumn(_text, 0, _textLength), sign * coefficient);
+                nextToken();
+            }
+            else if (numbered)
+                constant += sign * coefficient;
+            else if (signed)
+                throw error("Expected a number or a variable");
+            else
+                return constant;
+            first = false;
+        }
+    }
+    
+    private void addTerm(int column, double value)
+    {
+        if (_termCount == _termColumns.length)
+        {
+            _termColumns = Arrays.copyOf(_termColumns, _termCount * 2);
+            _termValues = Arrays.copyOf(_termValues, _termCount * 2);
+        }
+        _termColumns[_termCount] = column;
+        _termValues[_termCount] = value;
+        _termCount++;
+    }
+    
+    /**
+     * Reads "[sign] number", where the number may be "inf" or "infinity".
+     */
+    private double readSignedNumber() throws IOException
+    {
+        double sign = 1;
+        while (_token == Token.PLUS || _token == Token.MINUS)
+        {
+            if (_token == Token.MINUS)
+                sign = -sign;
+            nextToken();
+        }
+        double value;
+        if (_token == Token.NUMBER)
+            value = _number;
+        else if (_token == Token.NAME && isInfinity())
+            value = Double.POSITIVE_INFINITY;
+        else
+            throw error("Expected a number");
+        nextToken();
+        return sign * value;
+    }
+    
+    private boolean isInfinity()
+    {
+        return isText("inf") || isText("infinity");
+    }
+    
+    private boolean isKeyword()
+    {
+        return isText("subject") || isText("such") || isText("st") || isText("s.t.") || isText("st.") 
+                || isText("bounds") || isText("bound") || isText("generals") || isText("general") || isText("gen") 
+                || isText("integers") || isText("integer") || isText("binaries") || isText("binary") || isText("bin") 
+                || isText("end") || isText("semi-continuous") || isText("semis") || isText("semi") || isText("sos");
+    }
+    
+    private boolean isText(String word)
+    {
+        return isWord(_text, 0, _textLength, word);
+    }
+    
+    /**
+     * Tells whether the current name is followed by a colon (a constraint name).
+     */
+    private boolean isLabel() throws IOException
+    {
+        skipSpace();
+        return lexPeek() == ':';
+    }
+    
+    /**
+     * Reads the next token.
+     */
+    private void nextToken() throws IOException
+    {
+        skipSpace();
+        int b = lexRead();
+        _textLength = 0;
+        switch (b)
+        {
+            case -1:
+                _token = Token.END;
+                return;
+            case '+':
+                _token = Token.PLUS;
+                return;
+            case '-':
+                _token = Token.MINUS;
+                return;
+            case ':':
+                _token = Token.COLON;
+                return;
+            case '<':
+            case '>':
+                if (lexPeek() == '=')
+                    lexRead();
+                _token = b == '<' ? Token.LESS : Token.GREATER;
+                return;
+            case '=':
+                if (lexPeek() == '<' || lexPeek() == '>')
+                    _token = lexRead() == '<' ? Token.LESS : Token.GREATER;
+                else
+                    _token = Token.EQUAL;
+                return;
+            default:
+                break;
+        }
+        if ((b >= '0' && b <= '9') || b == '.')
+        {
+            readNumberText(b);
+            return;
+        }
+        if (!isNameByte(b))
+            throw error("Invalid character <" + (char) b + ">");
+        append(b);
+        while (isNameByte(lexPeek()) || (lexPeek() >= '0' && lexPeek() <= '9') || lexPeek() == '.')
+        {
+            append(lexRead());
+        }
+        _token = Token.NAME;
+    }
+    
+    /**
+     * Reads a number that starts with the given byte. An 'e' that is not
+     * followed by an exponent starts the next name instead ("2e" is 2 times e).
+     */
+    private void readNumberText(int b) throws IOException
+    {
+        append(b);
+        while ((lexPeek() >= '0' && lexPeek() <= '9') || lexPeek() == '.')
+        {
+            append(lexRead());
+        }
+        if (lexPeek() == 'e' || lexPeek() == 'E')
+        {
+            int e = lexRead();
+            int next = lexPeek();
+            if ((next >= '0' && next <= '9') || next == '+' || next == '-')
+            {
+                append(e);
+                append(lexRead());
+                while (lexPeek() >= '0' && lexPeek() <= '9')
+                {
+                    append(lexRead());
+                }
+            }
+            else
+                _pending = e;
+        }
+        try
+        {
+            _number = parseNumber(_text, 0, _textLength);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw error("Invalid number", _text, 0, _textLength);
+        }
+        _token = Token.NUMBER;
+    }
+    
+    private void append(int b)
+    {
+        if (_textLength == _text.length)
+            _text = Arrays.copyOf(_text, _text.length * 2);
+        _text[_textLength++] = (byte) b;
+    }
+    
+    private static boolean isNameByte(int b)
+    {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || (b >= 128 && b <= 255) || "!\"#$%&()/,;?@`'{}|~".indexOf(b) >= 0;
+    }
+    
+    /**
+     * Skips spaces, line breaks and comments.
+     */
+    private void skipSpace() throws IOException
+    {
+        while (true)
+        {
+            int b = lexPeek();
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n')
+                lexRead();
+            else if (b == '\\')
+            {
+                while (b >= 0 && b != '\n')
+                {
+                    b = lexRead();
+                }
+            }
+            else
+                return;
+        }
+    }
+    
+    private int lexPeek() throws IOException
+    {
+        return _pending >= 0 ? _pending : peek();
+    }
+    
+    private int lexRead() throws IOException
+    {
+        if (_pending >= 0)
+        {
+            int b = _pending;
+            _pending = -1;
+            return b;
+        }
+        return read();
+    }
+}
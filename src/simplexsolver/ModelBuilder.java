@@ -0,0 +1,425 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Collects a linear program as a model reader parses it, in primitive arrays
+ * only, and compresses it into a CompiledModel at the end. Rows are typed as
+ * in an MPS file: 'N' (free, the first one is the objective function), 'L',
+ * 'G' and 'E'. A ranged row becomes two constraints, a variable without a
+ * lower bound is replaced (by its negative, or by the difference of two
+ * columns), and an objective constant becomes a column fixed at 1, since a
+ * tableau only takes finite lower bounds and has no constant term. The
+ * columns that are added are named after the ones that were read (X- for
+ * the negative part of X, and CONSTANT), with ' appended until the name is
+ * not taken.
+ * @author Gennaro
+ */
+public class ModelBuilder
+{
+    private final NameTable _columnNames = new NameTable();
+    private double[] _costs = new double[64];
+    private double[] _lowerBounds = new double[64];
+    private double[] _upperBounds = new double[64];
+    private boolean[] _integers = new boolean[64];
+    
+    private final NameTable _rowNames = new NameTable();
+    private byte[] _rowTypes = new byte[64];
+    private double[] _rightHandSides = new double[64];
+    private double[] _ranges = new double[64];
+    private int _objectiveRow = -1;
+    private SimplexUtilities.Objective _objective = SimplexUtilities.Objective.MIN;
+    private double _objectiveConstant = 0;
+    
+    private int[] _entryRows = new int[1024];
+    private int[] _entryColumns = new int[1024];
+    private double[] _entryValues = new double[1024];
+    private int _entryCount = 0;
+    
+    // How the columns of the model map back to the columns that were read.
+    private int[] _negativeParts;
+    private boolean[] _negated;
+    private String[] _constraintNames;
+    
+    public void setObjective(SimplexUtilities.Objective objective)
+    {
+        _objective = objective;
+    }
+    
+    public void addObjectiveConstant(double constant)
+    {
+        _objectiveConstant += constant;
+    }
+    
+    /**
+     * Finds a column, adding it (with bounds 0 and infinity) if it is new.
+     * @return The number of the column.
+     */
+    public int getColumn(byte[] bytes, int offset, int length)
+    {
+        int column = _columnNames.find(bytes, offset, length);
+        if (column >= 0)
+            return column;
+        column = _columnNames.add(bytes, offset, length);
+        if (column == _costs.length)
+        {
+            _costs = Arrays.copyOf(_costs, column * 2);
+            _lowerBounds = Arrays.copyOf(_lowerBounds, column * 2);
+            _upperBounds = Arrays.copyOf(_upperBounds, column * 2);
+            _integers = Arrays.copyOf(_integers, column * 2);
+        }
+        _upperBounds[column] = Double.POSITIVE_INFINITY;
+        return column;
+    }
+    
+    /**
+     * Finds a row.
+     * @return The number of the row, or -1 if it was never added.
+     */
+    public int findRow(byte[] bytes, int offset, int length)
+    {
+        return _rowNames.find(bytes, offset, length);
+    }
+    
+    /**
+     * Adds a row. The first free row becomes the objective function.
+     * @param type 'N', 'L', 'G' or 'E'.
+     * @return The number of the row, or -1 if there is already a row with that name.
+     */
+    public int addRow(byte[] bytes, int offset, int length, byte type)
+    {
+        if (_rowNames.find(bytes, offset, length) >= 0)
+            return -1;
+        int row = _rowNames.add(bytes, offset, length);
+        if (row == _rowTypes.length)
+        {
+            _rowTypes = Arrays.copyOf(_rowTypes, row * 2);
+            _rightHandSides = Arrays.copyOf(_rightHandSides, row * 2);
+            _ranges = Arrays.copyOf(_ranges, row * 2);
+        }
+        _rowTypes[row] = type;
+        _ranges[row] = Double.NaN;
+        if (type == 'N' && _objectiveRow < 0)
+            _objectiveRow = row;
+        return row;
+    }
+    
+    public int getRowCount()
+    {
+        return _rowNames.size();
+    }
+    
+    /**
+     * Adds a coefficient. Coefficients in the objective function become costs,
+     * those in any other free row are dropped, and repeated ones add up.
+     */
+    public void addEntry(int row, int column, double value)
+    {
+        if (row == _objectiveRow)
+        {
+            _costs[column] += value;
+            return;
+        }
+        if (_rowTypes[row] == 'N' || value == 0)
+            return;
+        if (_entryCount == _entryRows.length)
+        {
+            _entryRows = Arrays.copyOf(_entryRows, _entryCount * 2);
+            _entryColumns = Arrays.copyOf(_entryColumns, _entryCount * 2);
+            _entryValues = Arrays.copyOf(_entryValues, _entryCount * 2);
+        }
+        _entryRows[_entryCount] = row;
+        _entryColumns[_entryCount] = column;
+        _entryValues[_entryCount] = value;
+        _entryCount++;
+    }
+    
+    /**
+     * Sets the right hand side of a row. As in an MPS file, the right hand
+     * side of the objective function is minus its constant.
+     */
+    public void setRightHandSide(int row, double value)
+    {
+        if (row == _objectiveRow)
+            _objectiveConstant = -value;
+        else
+            _rightHandSides[row] = value;
+    }
+    
+    /**
+     * Sets the range of a row, as in an MPS file: an 'L' row becomes
+     * rhs - |range| to rhs, a 'G' row rhs to rhs + |range|, and an 'E' row
+     * goes from rhs towards rhs + range.
+     */
+    public void setRange(int row, double range)
+    {
+        _ranges[row] = range;
+    }
+    
+    public void setLowerBound(int column, double value)
+    {
+        _lowerBounds[column] = value;
+    }
+    
+    public void setUpperBound(int column, double value)
+    {
+        _upperBounds[column] = value;
+    }
+    
+    public void setInteger(int column)
+    {
+        _integers[column] = true;
+    }
+    
+    public double getLowerBound(int column)
+    {
+        return _lowerBounds[column];
+    }
+    
+    /**
+     * Compresses the program into a model.
+     * @return The model.
+     * @throws IllegalArgumentException If a lower bound is greater than its upper bound.
+     */
+    public CompiledModel build()
+    {
+        int columnCount = _columnNames.size();
+        int rowCount = _rowNames.size();
+        
+        // Every constrained row becomes a constraint, and a ranged row also adds a second one.
+        int[] firstConstraints = new int[rowCount];
+        int[] secondConstraints = new int[rowCount];
+        ArrayList<SimplexUtilities.Sign> signs = new ArrayList<>();
+        ArrayList<Double> rightHandSides = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++)
+        {
+            firstConstraints[i] = -1;
+            secondConstraints[i] = -1;
+            if (_rowTypes[i] == 'N')
+                continue;
+            double rhs = _rightHandSides[i];
+            double range = _ranges[i];
+            double lower = rhs;
+            double upper = rhs;
+            if (_rowTypes[i] == 'L')
+                lower = Double.isNaN(range) ? Double.NEGATIVE_INFINITY : rhs - Math.abs(range);
+            else if (_rowTypes[i] == 'G')
+                upper = Double.isNaN(range) ? Double.POSITIVE_INFINITY : rhs + Math.abs(range);
+            else if (!Double.isNaN(range) && range > 0)
+                upper = rhs + range;
+            else if (!Double.isNaN(range))
+                lower = rhs + range;
+            
+            if (lower == upper)
+            {
+                firstConstraints[i] = addConstraint(signs, rightHandSides, names, i, SimplexUtilities.Sign.EQUAL, lower);
+                continue;
+            }
+            if (lower != Double.NEGATIVE_INFINITY)
+                firstConstraints[i] = addConstraint(signs, rightHandSides, names, i, SimplexUtilities.Sign.GREATER_THAN, lower);
+            if (upper != Double.POSITIVE_INFINITY)
+            {
+                int constraint = addConstraint(signs, rightHandSides, names, i, SimplexUtilities.Sign.LESS_THAN, upper);
+                if (firstConstraints[i] < 0)
+                    firstConstraints[i] = constraint;
+                else
+                    secondConstraints[i] = constraint;
+            }
+        }
+        _constraintNames = names.toArray(new String[0]);
+        
+        // A variable with only an upper bound is replaced by its negative, and a free
+        // variable by the difference of two columns (the second one is added at the end).
+        _negated = new boolean[columnCount];
+        _negativeParts = new int[columnCount];
+        int modelColumnCount = columnCount;
+        for (int j = 0; j < columnCount; j++)
+        {
+            _negativeParts[j] = -1;
+            if (_lowerBounds[j] > _upperBounds[j])
+                throw new IllegalArgumentException("The lower bound of " + _columnNames.getName(j) + " is greater than its upper bound.");
+            if (_lowerBounds[j] != Double.NEGATIVE_INFINITY)
+                continue;
+            if (_upperBounds[j] != Double.POSITIVE_INFINITY)
+                _negated[j] = true;
+            else
+                _negativeParts[j] = modelColumnCount++;
+        }
+        int constantColumn = _objectiveConstant != 0 ? modelColumnCount++ : -1;
+        
+        // Count the nonzeros of each column, then place them (a counting sort).
+        int[] columnStarts = new int[modelColumnCount + 1];
+        for (int k = 0; k < _entryCount; k++)
+        {
+            int row = _entryRows[k];
+            int copies = (firstConstraints[row] >= 0 ? 1 : 0) + (secondConstraints[row] >= 0 ? 1 : 0);
+            int column = _entryColumns[k];
+            columnStarts[column + 1] += copies;
+            if (_negativeParts[column] >= 0)
+                columnStarts[_negativeParts[column] + 1] += copies;
+        }
+        for (int j = 0; j < modelColumnCount; j++)
+        {
+            columnStarts[j + 1] += columnStarts[j];
+        }
+        int[] rowIndices = new int[columnStarts[modelColumnCount]];
+        double[] values = new double[rowIndices.length];
+        int[] next = Arrays.copyOf(columnStarts, modelColumnCount);
+        for (int k = 0; k < _entryCount; k++)
+        {
+            int row = _entryRows[k];
+            int column = _entryColumns[k];
+            double value = _negated[column] ? -_entryValues[k] : _entryValues[k];
+            for (int constraint : new int[] { firstConstraints[row], secondConstraints[row] })
+            {
+                if (constraint < 0)
+                    continue;
+                rowIndices[next[column]] = constraint;
+                values[next[column]++] = value;
+                if (_negativeParts[column] >= 0)
+                {
+                    rowIndices[next[_negativeParts[column]]] = constraint;
+                    values[next[_negativeParts[column]]++] = -value;
+                }
+            }
+        }
+        _entryRows = null;
+        _entryColumns = null;
+        _entryValues = null;
+        
+        // The compressed matrix may not repeat a row within a column, so repeated
+        // coefficients are added up in place.
+        int[] lastPositions = new int[signs.size()];
+        Arrays.fill(lastPositions, -1);
+        int size = 0;
+        for (int j = 0; j < modelColumnCount; j++)
+        {
+            int start = size;
+            for (int k = columnStarts[j]; k < columnStarts[j + 1]; k++)
+            {
+                int row = rowIndices[k];
+                if (lastPositions[row] >= start)
+                    values[lastPositions[row]] += values[k];
+                else
+                {
+                    lastPositions[row] = size;
+                    rowIndices[size] = row;
+                    values[size++] = values[k];
+                }
+            }
+            columnStarts[j] = start;
+        }
+        columnStarts[modelColumnCount] = size;
+        if (size < rowIndices.length)
+        {
+            rowIndices = Arrays.copyOf(rowIndices, size);
+            values = Arrays.copyOf(values, size);
+        }
+        SparseMatrix matrix = new SparseMatrix(signs.size(), modelColumnCount, columnStarts, rowIndices, values);
+        
+        List<Variable> variables = new ArrayList<>(modelColumnCount);
+        HashSet<String> usedNames = new HashSet<>(Arrays.asList(getColumnNames()));
+        double[] costs = new double[modelColumnCount];
+        for (int j = 0; j < columnCount; j++)
+        {
+            Variable variable = new Variable(_columnNames.getName(j), j + 1);
+            costs[j] = _negated[j] ? -_costs[j] : _costs[j];
+            if (_negated[j])
+                variable.setBounds(-_upperBounds[j], Double.POSITIVE_INFINITY);
+            else if (_negativeParts[j] < 0)
+                variable.setBounds(_lowerBounds[j], _upperBounds[j]);
+            variable.setInteger(_integers[j]);
+            variables.add(variable);
+        }
+        for (int j = 0; j < columnCount; j++)
+        {
+            if (_negativeParts[j] >= 0)
+            {
+                Variable negativePart = new Variable(getUniqueName(_columnNames.getName(j) + "-", usedNames), _negativeParts[j] + 1);
+                negativePart.setInteger(_integers[j]);
+                variables.add(negativePart);
+                costs[_negativeParts[j]] = -_costs[j];
+            }
+        }
+        if (constantColumn >= 0)
+        {
+            Variable constant = new Variable(getUniqueName("CONSTANT", usedNames), constantColumn + 1);
+            constant.setBounds(1, 1);
+            variables.add(constant);
+            costs[constantColumn] = _objectiveConstant;
+        }
+        
+        double[] rhs = new double[signs.size()];
+        for (int i = 0; i < rhs.length; i++)
+        {
+            rhs[i] = rightHandSides.get(i);
+        }
+        return new CompiledModel(variables, _objective, costs, signs.toArray(new SimplexUtilities.Sign[0]), rhs, matrix);
+    }
+    
+    /**
+     * Returns the name, followed by as many ' as it takes for no other column
+     * to have it, and marks it as taken.
+     */
+    private static String getUniqueName(String name, HashSet<String> usedNames)
+    {
+        while (!usedNames.add(name))
+        {
+            name += "'";
+        }
+        return name;
+    }
+    
+    private int addConstraint(ArrayList<SimplexUtilities.Sign> signs, ArrayList<Double> rightHandSides, ArrayList<String> names, int row, SimplexUtilities.Sign sign, double rhs)
+    {
+        signs.add(sign);
+        rightHandSides.add(rhs);
+        names.add(_rowNames.getName(row));
+        return signs.size() - 1;
+    }
+    
+    /**
+     * Returns the names of the columns that were read, in the order they first appeared.
+     * @return The column names.
+     */
+    public String[] getColumnNames()
+    {
+        String[] names = new String[_columnNames.size()];
+        for (int j = 0; j < names.length; j++)
+        {
+            names[j] = _columnNames.getName(j);
+        }
+        return names;
+    }
+    
+    /**
+     * Returns the name of the row each constraint of the model came from
+     * (a ranged row gives two constraints with the same name).
+     * @return The row names, in the order of the constraints.
+     */
+    public String[] getConstraintNames()
+    {
+        return _constraintNames.clone();
+    }
+    
+    /**
+     * Maps the values of a solution of the model back to the columns that were read.
+     * @param values The value of each column of the model.
+     * @return The value of each column that was read.
+     */
+    public double[] getColumnValues(double[] values)
+    {
+        double[] columnValues = new double[_negated.length];
+        for (int j = 0; j < columnValues.length; j++)
+        {
+            columnValues[j] = _negated[j] ? -values[j] : values[j];
+            if (_negativeParts[j] >= 0)
+                columnValues[j] -= values[_negativeParts[j]];
+        }
+        return columnValues;
+    }
+}
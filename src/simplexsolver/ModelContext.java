@@ -0,0 +1,232 @@
+package simplexsolver;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Holds the state of one model while it is entered: its declared decision
+ * variables, and the error from the last equation that could not be parsed.
+ * Each model gets its own context and nothing in it is static, so any number
+ * of threads can build and solve independent models at once, as long as no
+ * context is shared between them (a context itself is not synchronized).
+ * @author Gennaro
+ */
+public class ModelContext 
+{
+    private final VariableRegistry _variables = new VariableRegistry();
+    private String _errorMessage = null;
+    private String _errorTitle = null;
+    
+    /**
+     * Adds a new decision variable to the model. The variables must be
+     * added in the order of their indices.
+     * @param variable The variable to add.
+     * @throws IllegalArgumentException If another variable already has its name.
+     */
+    public void addNewVariable(Variable variable)
+    {
+        _variables.add(variable);
+    }
+    
+    /**
+     * Returns the declared decision variables, in the order of their indices.
+     * @return The declared variables.
+     */
+    public List<Variable> getVariables()
+    {
+        return _variables.asList();
+    }
+    
+    /**
+     * Returns why the last call to buildEquation failed.
+     * @return The message, or null if the last equation was valid.
+     */
+    public String getErrorMessage()
+    {
+        return _errorMessage;
+    }
+    
+    /**
+     * Returns the kind of error from the last call to buildEquation
+     * ("Syntax error" or "Undeclared Variable").
+     * @return The title, or null if the last equation was valid.
+     */
+    public String getErrorTitle()
+    {
+        return _errorTitle;
+    }
+    
+    /**
+     * Parses an equation into its coefficients. Only the variables that appear
+     * in the equation are stored; every other variable has a coefficient of 0.
+     * The equation is checked and parsed in a single pass over its characters,
+     * with the grammar c1X1 + c2X2 + ... cnXn: an optional leading -, and each
+     * term an optional decimal coefficient and a variable name (a letter, then
+     * any letters, digits or underscores), with at most one space on each side
+     * of a + or -. The names are looked up among the variables of this context
+     * exactly as they were added, so PROFIT and profit are different names.
+     * @param equationString The equation to parse.
+     * @return The coefficient of each variable, or null if the equation is invalid
+     * (see getErrorMessage).
+     */
+    public HashMap<Variable, Double> buildEquation(String equationString)
+    {
+        equationString = equationString.trim();
+        _errorMessage = null;
+        _errorTitle = null;
+        HashMap<Variable, Double> toReturn = new HashMap<>();
+        String undeclared = null;
+        ParseState state = ParseState.START;
+        boolean isNegative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        int numberStart = -1;
+        int nameStart = -1;
+        for (int i = 0; i < equationString.length(); i++)
+        {
+            char c = equationString.charAt(i);
+            ParseState next = state.next(c, i == 0);
+            if (next == null)
+            {
+                setError("Invalid character <" + c + "> at index " + i + 
+                        " in equation: " + equationString, "Syntax error");
+                return null;
+            }
+            
+            // The term ends where its name does.
+            if (state == ParseState.NAME && next != ParseState.NAME)
+            {
+                undeclared = addTerm(toReturn, equationString, nameStart, i, 
+                        numberStart, digits, mantissa, exponent, isNegative, undeclared);
+                mantissa = 0;
+                digits = 0;
+                exponent = 0;
+                numberStart = -1;
+            }
+            
+            // Collect the digits of the coefficient. Leading zeros do not count, and a
+            // coefficient of more than 15 digits is left to Double.parseDouble.
+            if (next == ParseState.INTEGER || next == ParseState.FRACTION)
+            {
+                if (numberStart < 0)
+                    numberStart = i;
+                if (mantissa == 0 && c == '0')
+                {
+                    if (next == ParseState.FRACTION)
+                        exponent--;
+                }
+                else
+                {
+                    mantissa = digits < 15 ? mantissa * 10 + (c - '0') : mantissa;
+                    digits++;
+                    if (next == ParseState.FRACTION)
+                        exponent--;
+                }
+            }
+            else if (next == ParseState.NAME && state != ParseState.NAME)
+                nameStart = i;
+            else if (next == ParseState.OPERATOR || next == ParseState.SIGN)
+                isNegative = c == '-';
+            state = next;
+        }
+        if (state != ParseState.NAME)
+        {
+            setError("Your equation is incomplete: " + equationString, "Syntax error");
+            return null;
+        }
+        undeclared = addTerm(toReturn, equationString, nameStart, equationString.length(), 
+                numberStart, digits, mantissa, exponent, isNegative, undeclared);
+        
+        // A syntax error anywhere is reported before an undeclared variable.
+        if (undeclared != null)
+        {
+            setError(
+                    "You attempted to use variable <" + undeclared + "> but it is not a defined variable.", 
+                    "Undeclared Variable");
+            return null;
+        }
+        return toReturn;
+    }
+    
+    /**
+     * The states of the equation parser. Each one knows which characters
+     * may follow it; NAME is the only state an equation may end in.
+     */
+    private enum ParseState
+    {
+        START, SIGN, INTEGER, POINT, FRACTION, NAME, SPACE_BEFORE, OPERATOR, SPACE_AFTER;
+        
+        /**
+         * Returns the state after a character, or null if the character is not allowed here.
+         */
+        ParseState next(char c, boolean first)
+        {
+            boolean digit = c >= '0' && c <= '9';
+            boolean letter = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            switch (this)
+            {
+                case START:
+                    if (c == '-' && first)
+                        return SIGN;
+                    // Otherwise a term starts here, as after a sign.
+                    return SIGN.next(c, false);
+                case SIGN:
+                case OPERATOR:
+                case SPACE_AFTER:
+                    if (this == OPERATOR && Character.isWhitespace(c))
+                        return SPACE_AFTER;
+                    return digit ? INTEGER : letter ? NAME : null;
+                case INTEGER:
+                    return digit ? INTEGER : c == '.' ? POINT : letter ? NAME : null;
+                case POINT:
+                    return digit ? FRACTION : null;
+                case FRACTION:
+                    return digit ? FRACTION : letter ? NAME : null;
+                case NAME:
+                    if (letter || digit || c == '_')
+                        return NAME;
+                    if (Character.isWhitespace(c))
+                        return SPACE_BEFORE;
+                    // Otherwise an operator may follow, as after a space.
+                    return SPACE_BEFORE.next(c, false);
+                case SPACE_BEFORE:
+                    return c == '+' || c == '-' ? OPERATOR : null;
+                default:
+                    return null;
+            }
+        }
+    }
+    
+    /**
+     * Adds a parsed term to an equation.
+     * @return The first undeclared variable name so far, or null if there is none.
+     */
+    private String addTerm(HashMap<Variable, Double> equation, String equationString, 
+            int nameStart, int nameEnd, int numberStart, int digits, long mantissa, int exponent, boolean isNegative, String undeclared)
+    {
+        // No number in front of the variable means a coefficient of 1.
+        double number = 1;
+        if (numberStart >= 0)
+        {
+            number = digits <= 15 ? SimplexUtilities.scaleByPowerOfTen(mantissa, exponent) : Double.NaN;
+            if (Double.isNaN(number))
+                number = Double.parseDouble(equationString.substring(numberStart, nameStart));
+        }
+        if (isNegative)
+            number *= -1;
+        
+        String name = equationString.substring(nameStart, nameEnd);
+        Variable variable = _variables.get(name);
+        if (variable == null)
+            return undeclared != null ? undeclared : name;
+        equation.put(variable, number);
+        return undeclared;
+    }
+    
+    private void setError(String message, String title)
+    {
+        _errorMessage = message;
+        _errorTitle = title;
+    }
+}
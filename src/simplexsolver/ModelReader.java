@@ -0,0 +1,258 @@
+package simplexsolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a linear program from a file straight into a CompiledModel. The file
+ * is read through a fixed buffer, one byte at a time, and names and numbers
+ * are taken from the bytes they were read into; the only memory that grows
+ * with the file is the model itself (and the names of its rows and columns).
+ * No equation map or equation string is built for a constraint.
+ * @author Gennaro
+ */
+public abstract class ModelReader
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private InputStream _input;
+    private final byte[] _buffer = new byte[BUFFER_SIZE];
+    private int _position;
+    private int _limit;
+    private int _lineNumber;
+    private ModelBuilder _builder;
+    
+    /**
+     * Reads a model from a file. A file whose name ends in .gz is decompressed
+     * while it is read.
+     * @param path The file.
+     * @return The model.
+     * @throws IOException If the file cannot be read, or it is not a valid model.
+     */
+    public CompiledModel read(Path path) throws IOException
+    {
+        try (InputStream input = Files.newInputStream(path))
+        {
+            if (path.getFileName().toString().endsWith(".gz"))
+                return read(new GZIPInputStream(input, BUFFER_SIZE));
+            return read(input);
+        }
+    }
+    
+    /**
+     * Reads a model from a stream. The stream is not closed.
+     * @param input The stream.
+     * @return The model.
+     * @throws IOException If the stream cannot be read, or it is not a valid model.
+     */
+    public CompiledModel read(InputStream input) throws IOException
+    {
+        _input = input;
+        _position = 0;
+        _limit = 0;
+        _lineNumber = 1;
+        _builder = new ModelBuilder();
+        parse(_builder);
+        try
+        {
+            return _builder.build();
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Returns the names of the columns of the last file that was read, in the
+     * order they first appeared. They are the first columns of the model.
+     * @return The column names.
+     */
+    public String[] getColumnNames()
+    {
+        return _builder.getColumnNames();
+    }
+    
+    /**
+     * Returns the name of the row each constraint of the model came from.
+     * A ranged row becomes two constraints with the same name.
+     * @return The row names, in the order of the constraints.
+     */
+    public String[] getConstraintNames()
+    {
+        return _builder.getConstraintNames();
+    }
+    
+    /**
+     * Returns the value of each column of the last file that was read, from
+     * a solution of its model. Besides the columns of the file, the model may
+     * have a column for the negative part of each free variable, and a column
+     * fixed at 1 that carries the constant of the objective function.
+     * @param result An optimal result of the model.
+     * @return The value of each column of the file.
+     */
+    public double[] getColumnValues(SolveResult result)
+    {
+        return _builder.getColumnValues(result.getValues());
+    }
+    
+    /**
+     * Reads the whole file into the builder.
+     * @param builder Collects the program.
+     * @throws IOException If the file cannot be read, or it is not a valid model.
+     */
+    abstract void parse(ModelBuilder builder) throws IOException;
+    
+    /**
+     * Returns the next byte of the file without reading it.
+     * @return The byte, or -1 at the end of the file.
+     */
+    int peek() throws IOException
+    {
+        if (_position == _limit)
+        {
+            _limit = _input.read(_buffer, 0, _buffer.length);
+            _position = 0;
+            if (_limit <= 0)
+            {
+                _limit = 0;
+                return -1;
+            }
+        }
+        return _buffer[_position] & 0xFF;
+    }
+    
+    /**
+     * Reads the next byte of the file.
+     * @return The byte, or -1 at the end of the file.
+     */
+    int read() throws IOException
+    {
+        int b = peek();
+        if (b >= 0)
+        {
+            _position++;
+            if (b == '\n')
+                _lineNumber++;
+        }
+        return b;
+    }
+    
+    /**
+     * Creates an error that points at the current line of the file.
+     */
+    IOException error(String message)
+    {
+        return new IOException("Line " + _lineNumber + ": " + message);
+    }
+    
+    /**
+     * Creates an error that points at the current line and quotes a name or number.
+     */
+    IOException error(String message, byte[] bytes, int offset, int length)
+    {
+        return error(message + " <" + new String(bytes, offset, length, StandardCharsets.ISO_8859_1) + ">");
+    }
+    
+    /**
+     * Tells whether a name or number is a word, ignoring case.
+     * @param word The word, in lower case.
+     */
+    static boolean isWord(byte[] bytes, int offset, int length, String word)
+    {
+        if (length != word.length())
+            return false;
+        for (int i = 0; i < length; i++)
+        {
+            if (Character.toLowerCase(bytes[offset + i]) != word.charAt(i))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Reads a number from the bytes it was read into. Numbers with up to 15
+     * digits and a small exponent are computed directly (one multiplication
+     * or division of exact values, so they round only once); any other number
+     * is left to Double.parseDouble. "Inf" and "Infinity" (with a sign, in
+     * any case) are infinite.
+     * @return The number.
+     * @throws NumberFormatException If the bytes are not a number.
+     */
+    static double parseNumber(byte[] bytes, int offset, int length)
+    {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+        {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (isWord(bytes, i, end - i, "inf") || isWord(bytes, i, end - i, "infinity"))
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean point = false;
+        for (; i < end; i++)
+        {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9')
+            {
+                anyDigit = true;
+                // Leading zeros do not count against the 15 digits.
+                if (mantissa != 0 || b != '0')
+                {
+                    if (digits < 18)
+                    {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits++;
+                        if (point)
+                            exponent--;
+                    }
+                    else if (!point)
+                        exponent++;
+                }
+                else if (point)
+                    exponent--;
+            }
+            else if (b == '.' && !point)
+                point = true;
+            else
+                break;
+        }
+        if (i < end && (bytes[i] == 'e' || bytes[i] == 'E') && anyDigit)
+        {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+            {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int written = 0;
+            int start = i;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++)
+            {
+                written = Math.min(written * 10 + (bytes[i] - '0'), 100000);
+            }
+            if (i == start)
+                throw new NumberFormatException(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+            exponent += negativeExponent ? -written : written;
+        }
+        if (!anyDigit || i != end)
+            throw new NumberFormatException(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+        
+        double value = digits <= 15 ? SimplexUtilities.scaleByPowerOfTen(mantissa, exponent) : Double.NaN;
+        if (Double.isNaN(value))
+            value = Double.parseDouble(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+        return negative && value > 0 ? -value : value;
+    }
+}
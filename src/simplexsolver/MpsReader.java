@@ -0,0 +1,368 @@
+package simplexsolver;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads a linear program in MPS format. In free format the fields of a line
+ * are separated by spaces (so names may not contain any); in fixed format
+ * they are found by column, as on a punched card. The sections are NAME,
+ * OBJSENSE (MIN or MAX), ROWS, COLUMNS, RHS, RANGES, BOUNDS and ENDATA. A
+ * right hand side on the objective row is minus the constant of the
+ * objective function. The columns between integer markers, and the ones
+ * with an integer bound (BV, LI or UI), are marked as integer variables
+ * (BV also sets the bounds 0 and 1).
+ * @author Gennaro
+ */
+public class MpsReader extends ModelReader
+{
+    /**
+     * Represents the two layouts of an MPS line.
+     */
+    public enum Format
+    {
+        FREE, FIXED
+    }
+    
+    // The first and last column (counting from 1) of each field in fixed format.
+    private static final int[][] FIXED_FIELDS = { { 2, 3 }, { 5, 12 }, { 15, 22 }, { 25, 36 }, { 40, 47 }, { 50, 61 } };
+    private static final int MAX_FIELDS = 6;
+    
+    private enum Section
+    {
+        NONE, OBJSENSE, ROWS, COLUMNS, RHS, RANGES, BOUNDS
+    }
+    
+    private final Format _format;
+    private byte[] _line = new byte[256];
+    private int _lineLength;
+    private final int[] _fieldStarts = new int[MAX_FIELDS];
+    private final int[] _fieldLengths = new int[MAX_FIELDS];
+    private int _fieldCount;
+    // Whether the columns being read are between the INTORG and INTEND markers.
+    private boolean _integerSection;
+    
+    /**
+     * Defines a reader for one of the two layouts.
+     * @param format Free or fixed format.
+     */
+    public MpsReader(Format format)
+    {
+        _format = format;
+    }
+    
+    @Override
+    void parse(ModelBuilder builder) throws IOException
+    {
+        Section section = Section.NONE;
+        boolean ended = false;
+        int lastColumn = -1;
+        _integerSection = false;
+        while (!ended && readLine())
+        {
+            // Comments and blank lines.
+            if (_lineLength == 0 || _line[0] == '*')
+                continue;
+            
+            // A section starts in the first column, and its header may be followed by a value.
+            if (_line[0] != ' ' && _line[0] != '\t')
+            {
+                splitFree(false);
+                if (_fieldCount == 0)
+                    continue;
+                if (isField(0, "name"))
+                    section = Section.NONE;
+                else if (isField(0, "objsense"))
+                {
+                    section = Section.OBJSENSE;
+                    if (_fieldCount > 1)
+                        readObjectiveSense(builder, 1);
+                }
+                else if (isField(0, "rows"))
+                    section = Section.ROWS;
+                else if (isField(0, "columns"))
+                    section = Section.COLUMNS;
+                else if (isField(0, "rhs"))
+                    section = Section.RHS;
+                else if (isField(0, "ranges"))
+                    section = Section.RANGES;
+                else if (isField(0, "bounds"))
+                    section = Section.BOUNDS;
+                else if (isField(0, "endata"))
+                    ended = true;
+                else
+                    throw error("Unknown section", _line, _fieldStarts[0], _fieldLengths[0]);
+                continue;
+            }
+            
+            if (_format == Format.FIXED && section != Section.OBJSENSE)
+                splitFixed();
+            else
+                splitFree(true);
+            if (_fieldCount == 0)
+                continue;
+            switch (section)
+            {
+                case OBJSENSE:
+                    readObjectiveSense(builder, 0);
+                    break;
+                case ROWS:
+                    readRow(builder);
+                    break;
+                case COLUMNS:
+                    lastColumn = readColumn(builder, lastColumn);
+                    break;
+                case RHS:
+                case RANGES:
+                    readRowValues(builder, section == Section.RANGES);
+                    break;
+                case BOUNDS:
+                    readBound(builder);
+                    break;
+                default:
+                    throw error("Data outside of a section");
+            }
+        }
+        if (!ended)
+            throw error("The file ends before ENDATA");
+    }
+    
+    private void readObjectiveSense(ModelBuilder builder, int field) throws IOException
+    {
+        if (isField(field, "max") || isField(field, "maximize"))
+            builder.setObjective(SimplexUtilities.Objective.MAX);
+        else if (isField(field, "min") || isField(field, "minimize"))
+            builder.setObjective(SimplexUtilities.Objective.MIN);
+        else
+            throw error("Unknown objective sense", _line, _fieldStarts[field], _fieldLengths[field]);
+    }
+    
+    /**
+     * Reads "type name".
+     */
+    private void readRow(ModelBuilder builder) throws IOException
+    {
+        if (_fieldCount < 2 || _fieldLengths[0] != 1)
+            throw error("Expected a row type and a row name");
+        byte type = (byte) Character.toUpperCase(_line[_fieldStarts[0]]);
+        if (type != 'N' && type != 'L' && type != 'G' && type != 'E')
+            throw error("Unknown row type", _line, _fieldStarts[0], 1);
+        if (builder.addRow(_line, _fieldStarts[1], _fieldLengths[1], type) < 0)
+            throw error("Repeated row", _line, _fieldStarts[1], _fieldLengths[1]);
+    }
+    
+    /**
+     * Reads "column row value [row value]", or an integer marker.
+     * @return The column.
+     */
+    private int readColumn(ModelBuilder builder, int lastColumn) throws IOException
+    {
+        // Fixed format: the marker keyword is in the third field. Free format: the second.
+        int markerField = _format == Format.FIXED ? 2 : 1;
+        if (_fieldCount > markerField && isField(markerField, "'marker'"))
+        {
+            // The keyword is in the fifth field in fixed format, and the third in free format.
+            for (int field = markerField + 1; field < _fieldCount; field++)
+            {
+                if (isField(field, "'intorg'"))
+                    _integerSection = true;
+                else if (isField(field, "'intend'"))
+                    _integerSection = false;
+            }
+            return lastColumn;
+        }
+        int first = _format == Format.FIXED ? 1 : 0;
+        if (_fieldCount < first + 3)
+            throw error("Expected a column, a row and a value");
+        int column = builder.getColumn(_line, _fieldStarts[first], _fieldLengths[first]);
+        if (_integerSection)
+            builder.setInteger(column);
+        for (int field = first + 1; field + 1 < _fieldCount; field += 2)
+        {
+            builder.addEntry(findRow(builder, field), column, readNumber(field + 1));
+        }
+        return column;
+    }
+    
+    /**
+     * Reads "[set] row value [row value]" in the RHS or RANGES section. Free
+     * format may leave out the name of the set.
+     */
+    private void readRowValues(ModelBuilder builder, boolean ranges) throws IOException
+    {
+        int first;
+        if (_format == Format.FIXED)
+            first = 2;
+        else
+            first = _fieldCount % 2 == 0 ? 0 : 1;
+        if (_fieldCount < first + 2)
+            throw error("Expected a row and a value");
+        for (int field = first; field + 1 < _fieldCount; field += 2)
+        {
+            int row = findRow(builder, field);
+            double value = readNumber(field + 1);
+            if (ranges)
+                builder.setRange(row, value);
+            else
+                builder.setRightHandSide(row, value);
+        }
+    }
+    
+    /**
+     * Reads "type [set] column [value]".
+     */
+    private void readBound(ModelBuilder builder) throws IOException
+    {
+        int typeStart = _fieldStarts[0];
+        int typeLength = _fieldLengths[0];
+        boolean needsValue = !isField(0, "fr") && !isField(0, "mi") && !isField(0, "pl") && !isField(0, "bv");
+        int columnField;
+        if (_format == Format.FIXED)
+            columnField = 2;
+        else
+            columnField = _fieldCount - (needsValue ? 2 : 1) >= 2 ? 2 : 1;
+        if (_fieldCount <= columnField || (needsValue && _fieldCount <= columnField + 1))
+            throw error("Expected a bound type, a column and a value");
+        int column = builder.getColumn(_line, _fieldStarts[columnField], _fieldLengths[columnField]);
+        double value = needsValue ? readNumber(columnField + 1) : 0;
+        if (isField(0, "ui") || isField(0, "li") || isField(0, "bv"))
+            builder.setInteger(column);
+        
+        if (isField(0, "up") || isField(0, "ui"))
+        {
+            builder.setUpperBound(column, value);
+            // By convention, a negative upper bound with the default lower bound frees the lower bound.
+            if (value < 0 && builder.getLowerBound(column) == 0)
+                builder.setLowerBound(column, Double.NEGATIVE_INFINITY);
+        }
+        else if (isField(0, "lo") || isField(0, "li"))
+            builder.setLowerBound(column, value);
+        else if (isField(0, "fx"))
+        {
+            builder.setLowerBound(column, value);
+            builder.setUpperBound(column, value);
+        }
+        else if (isField(0, "fr"))
+        {
+            builder.setLowerBound(column, Double.NEGATIVE_INFINITY);
+            builder.setUpperBound(column, Double.POSITIVE_INFINITY);
+        }
+        else if (isField(0, "mi"))
+            builder.setLowerBound(column, Double.NEGATIVE_INFINITY);
+        else if (isField(0, "pl"))
+            builder.setUpperBound(column, Double.POSITIVE_INFINITY);
+        else if (isField(0, "bv"))
+        {
+            builder.setLowerBound(column, 0);
+            builder.setUpperBound(column, 1);
+        }
+        else
+            throw error("Unsupported bound type", _line, typeStart, typeLength);
+    }
+    
+    private int findRow(ModelBuilder builder, int field) throws IOException
+    {
+        int row = builder.findRow(_line, _fieldStarts[field], _fieldLengths[field]);
+        if (row < 0)
+            throw error("Unknown row", _line, _fieldStarts[field], _fieldLengths[field]);
+        return row;
+    }
+    
+    private double readNumber(int field) throws IOException
+    {
+        try
+        {
+            return parseNumber(_line, _fieldStarts[field], _fieldLengths[field]);
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("Invalid number", _line, _fieldStarts[field], _fieldLengths[field]);
+        }
+    }
+    
+    private boolean isField(int field, String word)
+    {
+        return isWord(_line, _fieldStarts[field], _fieldLengths[field], word);
+    }
+    
+    /**
+     * Reads the next line into the line buffer, without its line break.
+     * @return False at the end of the file.
+     */
+    private boolean readLine() throws IOException
+    {
+        _lineLength = 0;
+        int b = read();
+        if (b < 0)
+            return false;
+        while (b >= 0 && b != '\n')
+        {
+            if (_lineLength == _line.length)
+                _line = Arrays.copyOf(_line, _line.length * 2);
+            _line[_lineLength++] = (byte) b;
+            b = read();
+        }
+        while (_lineLength > 0 && (_line[_lineLength - 1] == '\r' || _line[_lineLength - 1] == ' ' || _line[_lineLength - 1] == '\t'))
+        {
+            _lineLength--;
+        }
+        return true;
+    }
+    
+    /**
+     * Splits the line at spaces and tabs.
+     * @param strict Whether more fields than a data line can have is an error
+     * (otherwise they are ignored, as in the title after NAME).
+     */
+    private void splitFree(boolean strict) throws IOException
+    {
+        _fieldCount = 0;
+        int i = 0;
+        while (i < _lineLength)
+        {
+            while (i < _lineLength && (_line[i] == ' ' || _line[i] == '\t'))
+            {
+                i++;
+            }
+            if (i == _lineLength)
+                break;
+            if (_fieldCount == MAX_FIELDS && strict)
+                throw error("Too many fields");
+            else if (_fieldCount == MAX_FIELDS)
+                break;
+            _fieldStarts[_fieldCount] = i;
+            while (i < _lineLength && _line[i] != ' ' && _line[i] != '\t')
+            {
+                i++;
+            }
+            _fieldLengths[_fieldCount] = i - _fieldStarts[_fieldCount];
+            _fieldCount++;
+        }
+    }
+    
+    /**
+     * Splits the line at the fixed columns. The spaces around a field are
+     * dropped, and the fields after the last one on the line are missing.
+     */
+    private void splitFixed()
+    {
+        _fieldCount = 0;
+        for (int field = 0; field < MAX_FIELDS; field++)
+        {
+            int start = Math.min(FIXED_FIELDS[field][0] - 1, _lineLength);
+            int end = Math.min(FIXED_FIELDS[field][1], _lineLength);
+            while (start < end && _line[start] == ' ')
+            {
+                start++;
+            }
+            while (end > start && _line[end - 1] == ' ')
+            {
+                end--;
+            }
+            _fieldStarts[field] = start;
+            _fieldLengths[field] = end - start;
+            if (end > start)
+                _fieldCount = field + 1;
+        }
+    }
+}
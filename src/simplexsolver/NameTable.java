@@ -0,0 +1,117 @@
+package simplexsolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Numbers the names read from a model file (0, 1, 2, ... in the order they
+ * were added). The names are looked up straight from the bytes they were
+ * read into, and kept in one pool of bytes, so reading a name does not
+ * create a String.
+ * @author Gennaro
+ */
+public class NameTable
+{
+    private byte[] _pool = new byte[1024];
+    private int _poolSize = 0;
+    private int[] _starts = new int[64];
+    private int[] _lengths = new int[64];
+    private int[] _hashes = new int[64];
+    private int _size = 0;
+    // Open addressing: each slot holds a name number + 1, or 0 if it is empty.
+    private int[] _slots = new int[128];
+    
+    public int size()
+    {
+        return _size;
+    }
+    
+    /**
+     * Finds a name.
+     * @param bytes The array the name was read into.
+     * @param offset The start of the name.
+     * @param length The length of the name.
+     * @return The number of the name, or -1 if it was never added.
+     */
+    public int find(byte[] bytes, int offset, int length)
+    {
+        int hash = hash(bytes, offset, length);
+        int mask = _slots.length - 1;
+        for (int slot = hash & mask; _slots[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int id = _slots[slot] - 1;
+            if (_hashes[id] == hash && Arrays.equals(_pool, _starts[id], _starts[id] + _lengths[id], bytes, offset, offset + length))
+                return id;
+        }
+        return -1;
+    }
+    
+    /**
+     * Adds a name that is not in the table yet.
+     * @param bytes The array the name was read into.
+     * @param offset The start of the name.
+     * @param length The length of the name.
+     * @return The number of the new name.
+     */
+    public int add(byte[] bytes, int offset, int length)
+    {
+        if (_size == _starts.length)
+        {
+            _starts = Arrays.copyOf(_starts, _size * 2);
+            _lengths = Arrays.copyOf(_lengths, _size * 2);
+            _hashes = Arrays.copyOf(_hashes, _size * 2);
+        }
+        if (_poolSize + length > _pool.length)
+            _pool = Arrays.copyOf(_pool, Math.max(_pool.length * 2, _poolSize + length));
+        System.arraycopy(bytes, offset, _pool, _poolSize, length);
+        int id = _size++;
+        _starts[id] = _poolSize;
+        _lengths[id] = length;
+        _hashes[id] = hash(bytes, offset, length);
+        _poolSize += length;
+        
+        // Keep the table at most half full.
+        if (_size * 2 > _slots.length)
+        {
+            _slots = new int[_slots.length * 2];
+            for (int i = 0; i < _size; i++)
+            {
+                insert(i);
+            }
+        }
+        else
+            insert(id);
+        return id;
+    }
+    
+    /**
+     * Returns a name as a String.
+     * @param id The number of the name.
+     * @return The name.
+     */
+    public String getName(int id)
+    {
+        return new String(_pool, _starts[id], _lengths[id], StandardCharsets.ISO_8859_1);
+    }
+    
+    private void insert(int id)
+    {
+        int mask = _slots.length - 1;
+        int slot = _hashes[id] & mask;
+        while (_slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        _slots[slot] = id + 1;
+    }
+    
+    private static int hash(byte[] bytes, int offset, int length)
+    {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++)
+        {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
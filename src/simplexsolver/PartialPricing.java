@@ -0,0 +1,70 @@
+package simplexsolver;
+
+/**
+ * Prices the columns one segment at a time and enters the most negative
+ * reduced cost of the first segment that has a candidate. The next search
+ * starts at the segment after that one. On very wide models this only
+ * looks at a small part of the objective row per iteration.
+ * @author Gennaro
+ */
+public class PartialPricing implements PricingRule
+{
+    private final int _configuredSegmentSize;
+    private int _segmentSize;
+    private int _start;
+    
+    /**
+     * Defines partial pricing with segments of about the square root of the
+     * number of columns.
+     */
+    public PartialPricing()
+    {
+        this(0);
+    }
+    
+    /**
+     * Defines partial pricing with a fixed segment size.
+     * @param segmentSize The number of columns priced at a time (0 to pick automatically).
+     */
+    public PartialPricing(int segmentSize)
+    {
+        _configuredSegmentSize = segmentSize;
+    }
+    
+    @Override
+    public void reset(double[] matrix, int rowCount, int columnCount)
+    {
+        int variableCount = columnCount - 1;
+        _segmentSize = _configuredSegmentSize > 0
+                ? _configuredSegmentSize
+                : Math.max(16, (int) Math.ceil(Math.sqrt(variableCount)));
+        _start = 0;
+    }
+    
+    @Override
+    public int selectEntering(double[] matrix, int rowCount, int columnCount, RowOperations operations)
+    {
+        int variableCount = columnCount - 1;
+        if (_start >= variableCount)
+            _start = 0;
+        
+        int start = _start;
+        int priced = 0;
+        while (priced < variableCount)
+        {
+            int length = Math.min(_segmentSize, Math.min(variableCount - start, variableCount - priced));
+            int candidate = start + operations.findMostNegative(matrix, start, length);
+            start += length;
+            priced += length;
+            if (start == variableCount)
+                start = 0;
+            
+            if (matrix[candidate] < -OPTIMALITY_TOLERANCE)
+            {
+                _start = start;
+                return candidate;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,134 @@
+package simplexsolver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Applies a pivot to a flat row-major tableau.
+ *
+ * Once the pivot row has been divided, every other row is updated
+ * independently, so with a pool the rows are split into blocks of about
+ * 256 KB (small enough to stay in a core's cache) and eliminated in
+ * parallel. Small tableaus always take the serial path, where the cost of
+ * forking would be larger than the update itself. Both paths do the same
+ * arithmetic, so the results are identical. The row updates themselves
+ * are done by the given RowOperations.
+ * @author Gennaro
+ */
+public class PivotKernel
+{
+    private static final int BLOCK_SIZE = 32 * 1024;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    
+    private final ForkJoinPool _pool;
+    private final RowOperations _operations;
+    
+    /**
+     * Defines a kernel that always pivots on the calling thread.
+     */
+    public PivotKernel()
+    {
+        this(null, new ScalarRowOperations());
+    }
+    
+    /**
+     * Defines a kernel that eliminates the rows of large tableaus in parallel.
+     * @param pool The pool to run on, or null to always pivot on the calling thread.
+     * @param operations The row operations to use.
+     */
+    public PivotKernel(ForkJoinPool pool, RowOperations operations)
+    {
+        _pool = pool;
+        _operations = operations;
+    }
+    
+    /**
+     * Pivots the tableau in place on the given element.
+     * @param matrix The tableau, stored row by row.
+     * @param rowCount The number of rows in the tableau.
+     * @param columnCount The number of columns in the tableau.
+     * @param pivotRow The row of the leaving variable.
+     * @param pivotColumn The column of the entering variable.
+     */
+    public void pivot(double[] matrix, int rowCount, int columnCount, int pivotRow, int pivotColumn)
+    {
+        // First we'll update the pivot row (divide by the coefficient of the entering variable).
+        int pivotOffset = pivotRow * columnCount;
+        double pivotElement = matrix[pivotOffset + pivotColumn];
+        for (int j = 0; j < columnCount; j++)
+        {
+            matrix[pivotOffset + j] = matrix[pivotOffset + j] / pivotElement;
+        }
+        
+        if (_pool == null || (long) rowCount * columnCount < PARALLEL_THRESHOLD)
+        {
+            eliminate(_operations, matrix, columnCount, pivotRow, pivotColumn, 0, rowCount);
+        }
+        else
+        {
+            int blockRows = Math.max(1, BLOCK_SIZE / columnCount);
+            _pool.invoke(new EliminationTask(_operations, matrix, columnCount, pivotRow, pivotColumn, 0, rowCount, blockRows));
+        }
+    }
+    
+    /**
+     * Makes the entering variable 0 in rows from (inclusive) to to (exclusive),
+     * skipping the pivot row.
+     */
+    private static void eliminate(RowOperations operations, double[] matrix, int columnCount, int pivotRow, int pivotColumn, int from, int to)
+    {
+        int pivotOffset = pivotRow * columnCount;
+        for (int i = from; i < to; i++)
+        {
+            // This row has already been handled, skip it.
+            if (i == pivotRow)
+                continue;
+            
+            int rowOffset = i * columnCount;
+            operations.subtractMultiple(matrix, rowOffset, pivotOffset, columnCount, matrix[rowOffset + pivotColumn]);
+        }
+    }
+    
+    /**
+     * Splits a range of rows in half until it is a single block.
+     */
+    private static class EliminationTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final RowOperations _operations;
+        private final double[] _matrix;
+        private final int _columnCount;
+        private final int _pivotRow;
+        private final int _pivotColumn;
+        private final int _from;
+        private final int _to;
+        private final int _blockRows;
+        
+        EliminationTask(RowOperations operations, double[] matrix, int columnCount, int pivotRow, int pivotColumn, int from, int to, int blockRows)
+        {
+            _operations = operations;
+            _matrix = matrix;
+            _columnCount = columnCount;
+            _pivotRow = pivotRow;
+            _pivotColumn = pivotColumn;
+            _from = from;
+            _to = to;
+            _blockRows = blockRows;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (_to - _from <= _blockRows)
+            {
+                eliminate(_operations, _matrix, _columnCount, _pivotRow, _pivotColumn, _from, _to);
+                return;
+            }
+            
+            int middle = (_from + _to) >>> 1;
+            invokeAll(new EliminationTask(_operations, _matrix, _columnCount, _pivotRow, _pivotColumn, _from, middle, _blockRows),
+                    new EliminationTask(_operations, _matrix, _columnCount, _pivotRow, _pivotColumn, middle, _to, _blockRows));
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduces a linear program before the tableau is built, and maps the
+ * solution of the reduced program back to the original variables.
+ *
+ * The reductions are repeated until none of them finds anything more:
+ * empty rows are removed, a row with a single variable becomes a bound on
+ * that variable (which fixes it when its bounds meet), fixed variables are
+ * substituted out, constraints that can never be violated are dropped,
+ * parallel rows are merged, and a variable that only appears in one
+ * equality constraint is solved from it when the constraint already keeps
+ * the variable within its bounds.
+ * @author Gennaro
+ */
+public class Presolver
+{
+    private static final double TOLERANCE = 1E-9;
+    
+    // The original program. Columns are numbered by variable index - 1.
+    private final Variable[] _originalVariables;
+    private final double[] _originalCosts;
+    private final SimplexUtilities.Objective _objective;
+    
+    // The program as it is reduced. Removed rows keep their position.
+    private final ArrayList<HashMap<Integer, Double>> _rows = new ArrayList<>();
+    private final ArrayList<SimplexUtilities.Sign> _signs = new ArrayList<>();
+    private final ArrayList<Double> _rightHandSides = new ArrayList<>();
+    private final boolean[] _removedRows;
+    private final double[] _costs;
+    private final double[] _lowerBounds;
+    private final double[] _upperBounds;
+    private final boolean[] _removedColumns;
+    private final boolean[] _fixedColumns;
+    private final double[] _fixedValues;
+    // The columns that were solved from an equality constraint, in the order they were removed.
+    private final ArrayList<EliminatedColumn> _eliminatedColumns = new ArrayList<>();
+    private boolean _infeasible = false;
+    
+    // The reduced program, and the original column of each of its variables.
+    private final VariableRegistry _variables = new VariableRegistry();
+    private final ArrayList<Constraint> _constraints = new ArrayList<>();
+    private final HashMap<Variable, Double> _reducedObjective = new HashMap<>();
+    private int[] _originalColumns;
+    
+    /**
+     * A column that was solved from an equality constraint:
+     * X = (rhs - (the rest of the row)) / coefficient.
+     */
+    private static class EliminatedColumn
+    {
+        private final int _column;
+        private final double _coefficient;
+        private final HashMap<Integer, Double> _row;
+        private final double _rhs;
+        
+        private EliminatedColumn(int column, double coefficient, HashMap<Integer, Double> row, double rhs)
+        {
+            _column = column;
+            _coefficient = coefficient;
+            _row = row;
+            _rhs = rhs;
+        }
+    }
+    
+    /**
+     * Presolves a linear program. None of the passed in objects are modified.
+     * @param variables The declared decision variables (indexed 1 to n).
+     * @param objective The objective function.
+     * @param constraints The constraints.
+     */
+    public Presolver(Collection<Variable> variables, ObjectiveFunction objective, List<Constraint> constraints)
+    {
+        int columnCount = variables.size();
+        _originalVariables = new Variable[columnCount];
+        _originalCosts = new double[columnCount];
+        _costs = new double[columnCount];
+        _lowerBounds = new double[columnCount];
+        _upperBounds = new double[columnCount];
+        _removedColumns = new boolean[columnCount];
+        _fixedColumns = new boolean[columnCount];
+        _fixedValues = new double[columnCount];
+        _objective = objective.isMaximize() ? SimplexUtilities.Objective.MAX : SimplexUtilities.Objective.MIN;
+        for (Variable v : variables)
+        {
+            int j = v.getIndex() - 1;
+            _originalVariables[j] = v;
+            _lowerBounds[j] = v.getLowerBound();
+            _upperBounds[j] = v.getUpperBound();
+            if (_upperBounds[j] - _lowerBounds[j] <= TOLERANCE)
+                fixColumn(j, _lowerBounds[j]);
+        }
+        objective.getEquation().entrySet().stream().forEach(kvp -> _originalCosts[kvp.getKey().getIndex() - 1] = kvp.getValue());
+        System.arraycopy(_originalCosts, 0, _costs, 0, columnCount);
+        
+        for (Constraint constraint : constraints)
+        {
+            HashMap<Integer, Double> row = new HashMap<>();
+            constraint.getEquation().entrySet().stream().forEach(kvp -> row.put(kvp.getKey().getIndex() - 1, kvp.getValue()));
+            _rows.add(row);
+            _signs.add(constraint.getSign());
+            _rightHandSides.add(constraint.getRightHandSide());
+        }
+        _removedRows = new boolean[_rows.size()];
+        
+        boolean changed = true;
+        while (changed && !_infeasible)
+        {
+            changed = removeSmallRows();
+            if (!_infeasible)
+                changed |= removeDominatedRows();
+            if (!_infeasible)
+                changed |= mergeParallelRows();
+            if (!_infeasible)
+                changed |= eliminateColumnSingletons();
+        }
+        if (!_infeasible)
+            buildReducedProgram();
+    }
+    
+    /**
+     * Tells whether the reductions proved that no solution exists.
+     * @return True if the linear program is infeasible.
+     */
+    public boolean isInfeasible()
+    {
+        return _infeasible;
+    }
+    
+    public int getRemovedRowCount()
+    {
+        return _removedRows.length - _constraints.size();
+    }
+    
+    public int getRemovedColumnCount()
+    {
+        return _originalVariables.length - _variables.size();
+    }
+    
+    /**
+     * Returns the variables of the original program, sorted by index.
+     * @return The original variables.
+     */
+    public List<Variable> getOriginalVariables()
+    {
+        return Collections.unmodifiableList(Arrays.asList(_originalVariables));
+    }
+    
+    /**
+     * Creates a tableau for the reduced program. Its results are mapped back
+     * to the original variables.
+     * @return The new tableau.
+     * @throws IllegalStateException If the program was found to be infeasible.
+     */
+    public Tableau createTableau()
+    {
+        if (_infeasible)
+            throw new IllegalStateException("The linear program is infeasible.");
+        
+        // The tableau converts a minimize objective in place, so every tableau gets its own.
+        Tableau tableau = new Tableau(_variables.asList(), new ObjectiveFunction(new HashMap<>(_reducedObjective), _objective), _constraints);
+        tableau.setPresolver(this);
+        return tableau;
+    }
+    
+    /**
+     * Maps the result of the reduced program back to the original program. The
+     * basis and the scale factors of the reduced program have no counterpart
+     * in the original one (it has more rows and columns), so the result comes
+     * without them.
+     * @param result The result of solving the reduced program.
+     * @return The result for the original program.
+     */
+    public SolveResult postsolve(SolveResult result)
+    {
+        if (result.getStatus() != SolveResult.Status.OPTIMAL)
+            return result;
+        
+        double[] reducedValues = result.getValues();
+        double[] values = new double[_originalVariables.length];
+        for (int k = 0; k < _originalColumns.length; k++)
+        {
+            values[_originalColumns[k]] = reducedValues[k];
+        }
+        for (int j = 0; j < values.length; j++)
+        {
+            if (_fixedColumns[j])
+                values[j] = _fixedValues[j];
+        }
+        
+        // Every column in the row of an eliminated column is either kept, fixed,
+        // or eliminated after it, so they are solved in reverse order.
+        for (int e = _eliminatedColumns.size() - 1; e >= 0; e--)
+        {
+            EliminatedColumn column = _eliminatedColumns.get(e);
+            double rhs = column._rhs;
+            for (Map.Entry<Integer, Double> kvp : column._row.entrySet())
+            {
+                rhs -= kvp.getValue() * values[kvp.getKey()];
+            }
+            values[column._column] = rhs / column._coefficient;
+        }
+        
+        double objectiveValue = 0;
+        for (int j = 0; j < values.length; j++)
+        {
+            objectiveValue += _originalCosts[j] * values[j];
+        }
+        return new SolveResult(result.getStatus(), objectiveValue, values, new int[0], result.getIterationCount(), result.getPhaseOneIterationCount());
+    }
+    
+    private void fixColumn(int column, double value)
+    {
+        _removedColumns[column] = true;
+        _fixedColumns[column] = true;
+        _fixedValues[column] = value;
+    }
+    
+    private void removeRow(int row)
+    {
+        _removedRows[row] = true;
+        _rows.set(row, null);
+    }
+    
+    /**
+     * Substitutes the fixed columns out of every row, then removes the rows
+     * with no variables left, and turns the rows with one variable into bounds.
+     * @return True if anything was removed.
+     */
+    private boolean removeSmallRows()
+    {
+        boolean changed = false;
+        for (int i = 0; i < _rows.size() && !_infeasible; i++)
+        {
+            if (_removedRows[i])
+                continue;
+            
+            HashMap<Integer, Double> row = _rows.get(i);
+            double rhs = _rightHandSides.get(i);
+            for (int j : new ArrayList<>(row.keySet()))
+            {
+                if (_fixedColumns[j] || row.get(j) == 0)
+                {
+                    rhs -= row.remove(j) * _fixedValues[j];
+                }
+            }
+            _rightHandSides.set(i, rhs);
+            
+            if (row.isEmpty())
+            {
+                // 0 = rhs, 0 <= rhs or 0 >= rhs.
+                double slack = Math.abs(rhs) <= TOLERANCE * (1 + Math.abs(rhs)) ? 0 : rhs;
+                switch (_signs.get(i))
+                {
+                    case LESS_THAN:
+                        _infeasible = slack < 0;
+                        break;
+                    case GREATER_THAN:
+                        _infeasible = slack > 0;
+                        break;
+                    case EQUAL:
+                        _infeasible = slack != 0;
+                        break;
+                }
+                removeRow(i);
+                changed = true;
+            }
+            else if (row.size() == 1)
+            {
+                int j = row.keySet().iterator().next();
+                double coefficient = row.get(j);
+                double bound = rhs / coefficient;
+                SimplexUtilities.Sign sign = _signs.get(i);
+                if (coefficient < 0 && sign == SimplexUtilities.Sign.LESS_THAN)
+                    sign = SimplexUtilities.Sign.GREATER_THAN;
+                else if (coefficient < 0 && sign == SimplexUtilities.Sign.GREATER_THAN)
+                    sign = SimplexUtilities.Sign.LESS_THAN;
+                
+                if (sign != SimplexUtilities.Sign.GREATER_THAN)
+                    _upperBounds[j] = Math.min(_upperBounds[j], bound);
+                if (sign != SimplexUtilities.Sign.LESS_THAN)
+                    _lowerBounds[j] = Math.max(_lowerBounds[j], bound);
+                
+                double width = _upperBounds[j] - _lowerBounds[j];
+                double tolerance = TOLERANCE * (1 + Math.abs(_lowerBounds[j]));
+                if (width < -tolerance)
+                    _infeasible = true;
+                else if (width <= tolerance)
+                    fixColumn(j, _lowerBounds[j]);
+                removeRow(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Removes the constraints that hold for every value the variables can take,
+     * using the bounds of the variables.
+     * @return True if anything was removed.
+     */
+    private boolean removeDominatedRows()
+    {
+        boolean changed = false;
+        for (int i = 0; i < _rows.size() && !_infeasible; i++)
+        {
+            if (_removedRows[i])
+                continue;
+            
+            double smallest = 0;
+            double largest = 0;
+            for (Map.Entry<Integer, Double> kvp : _rows.get(i).entrySet())
+            {
+                int j = kvp.getKey();
+                double coefficient = kvp.getValue();
+                smallest += coefficient * (coefficient > 0 ? _lowerBounds[j] : _upperBounds[j]);
+                largest += coefficient * (coefficient > 0 ? _upperBounds[j] : _lowerBounds[j]);
+            }
+            
+            double rhs = _rightHandSides.get(i);
+            double tolerance = TOLERANCE * (1 + Math.abs(rhs));
+            boolean redundant = false;
+            switch (_signs.get(i))
+            {
+                case LESS_THAN:
+                    _infeasible = smallest > rhs + tolerance;
+                    redundant = largest <= rhs + tolerance;
+                    break;
+                case GREATER_THAN:
+                    _infeasible = largest < rhs - tolerance;
+                    redundant = smallest >= rhs - tolerance;
+                    break;
+                case EQUAL:
+                    _infeasible = smallest > rhs + tolerance || largest < rhs - tolerance;
+                    break;
+            }
+            if (redundant)
+            {
+                removeRow(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Merges rows whose coefficients are multiples of each other. Each row is
+     * scaled so that its first coefficient is 1, and the ranges the rows allow
+     * are intersected. The result is one equality, one inequality, or a pair of
+     * inequalities when the range has two finite ends.
+     * @return True if anything was removed.
+     */
+    private boolean mergeParallelRows()
+    {
+        HashMap<String, ArrayList<Integer>> groups = new HashMap<>();
+        HashMap<Integer, Double> scales = new HashMap<>();
+        for (int i = 0; i < _rows.size(); i++)
+        {
+            if (_removedRows[i])
+                continue;
+            
+            HashMap<Integer, Double> row = _rows.get(i);
+            int[] columns = row.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            double scale = row.get(columns[0]);
+            StringBuilder key = new StringBuilder();
+            for (int j : columns)
+            {
+                key.append(j).append(':').append(Math.rint(row.get(j) / scale * 1E9)).append(' ');
+            }
+            groups.computeIfAbsent(key.toString(), k -> new ArrayList<>()).add(i);
+            scales.put(i, scale);
+        }
+        
+        boolean changed = false;
+        for (ArrayList<Integer> group : groups.values())
+        {
+            if (group.size() < 2)
+                continue;
+            
+            double lower = Double.NEGATIVE_INFINITY;
+            double upper = Double.POSITIVE_INFINITY;
+            for (int i : group)
+            {
+                double scale = scales.get(i);
+                double rhs = _rightHandSides.get(i) / scale;
+                SimplexUtilities.Sign sign = _signs.get(i);
+                if (sign == SimplexUtilities.Sign.EQUAL || (sign == SimplexUtilities.Sign.LESS_THAN) == (scale > 0))
+                    upper = Math.min(upper, rhs);
+                if (sign == SimplexUtilities.Sign.EQUAL || (sign == SimplexUtilities.Sign.GREATER_THAN) == (scale > 0))
+                    lower = Math.max(lower, rhs);
+            }
+            
+            int first = group.get(0);
+            double firstScale = scales.get(first);
+            HashMap<Integer, Double> row = _rows.get(first);
+            row.replaceAll((j, coefficient) -> coefficient / firstScale);
+            double tolerance = TOLERANCE * (1 + Math.abs(lower == Double.NEGATIVE_INFINITY ? upper : lower));
+            int kept = 1;
+            if (lower > upper + tolerance)
+            {
+                _infeasible = true;
+                return true;
+            }
+            else if (upper - lower <= tolerance)
+            {
+                _signs.set(first, SimplexUtilities.Sign.EQUAL);
+                _rightHandSides.set(first, lower);
+            }
+            else if (lower == Double.NEGATIVE_INFINITY)
+            {
+                _signs.set(first, SimplexUtilities.Sign.LESS_THAN);
+                _rightHandSides.set(first, upper);
+            }
+            else
+            {
+                _signs.set(first, SimplexUtilities.Sign.GREATER_THAN);
+                _rightHandSides.set(first, lower);
+                if (upper != Double.POSITIVE_INFINITY)
+                {
+                    int second = group.get(1);
+                    _rows.set(second, new HashMap<>(row));
+                    _signs.set(second, SimplexUtilities.Sign.LESS_THAN);
+                    _rightHandSides.set(second, upper);
+                    kept = 2;
+                }
+            }
+            for (int k = kept; k < group.size(); k++)
+            {
+                removeRow(group.get(k));
+            }
+            changed |= group.size() > kept;
+        }
+        return changed;
+    }
+    
+    /**
+     * Solves a column that only appears in one equality constraint from that
+     * constraint, when the rest of the row keeps it within its bounds. Its cost
+     * is carried over to the other columns of the row.
+     * @return True if anything was removed.
+     */
+    private boolean eliminateColumnSingletons()
+    {
+        int[] rowOfColumn = new int[_costs.length];
+        int[] columnCounts = new int[_costs.length];
+        for (int i = 0; i < _rows.size(); i++)
+        {
+            if (_removedRows[i])
+                continue;
+            for (int j : _rows.get(i).keySet())
+            {
+                columnCounts[j]++;
+                rowOfColumn[j] = i;
+            }
+        }
+        
+        boolean changed = false;
+        for (int j = 0; j < _costs.length; j++)
+        {
+            int i = rowOfColumn[j];
+            if (_removedColumns[j] || columnCounts[j] != 1 || _removedRows[i] || _signs.get(i) != SimplexUtilities.Sign.EQUAL)
+                continue;
+            
+            // coefficient * X = rhs - (the rest of the row), and the rest of the row has a known range.
+            HashMap<Integer, Double> row = _rows.get(i);
+            double coefficient = row.get(j);
+            double rhs = _rightHandSides.get(i);
+            double smallest = 0;
+            double largest = 0;
+            for (Map.Entry<Integer, Double> kvp : row.entrySet())
+            {
+                int k = kvp.getKey();
+                double a = kvp.getValue();
+                if (k == j)
+                    continue;
+                smallest += a * (a > 0 ? _lowerBounds[k] : _upperBounds[k]);
+                largest += a * (a > 0 ? _upperBounds[k] : _lowerBounds[k]);
+            }
+            double impliedLower = (coefficient > 0 ? rhs - largest : rhs - smallest) / coefficient;
+            double impliedUpper = (coefficient > 0 ? rhs - smallest : rhs - largest) / coefficient;
+            if (Double.isNaN(impliedLower) || Double.isNaN(impliedUpper)
+                    || impliedLower < _lowerBounds[j] - TOLERANCE * (1 + Math.abs(_lowerBounds[j]))
+                    || impliedUpper > _upperBounds[j] + TOLERANCE * (1 + Math.abs(_upperBounds[j])))
+                continue;
+            
+            row.remove(j);
+            double cost = _costs[j];
+            row.entrySet().stream().forEach(kvp -> _costs[kvp.getKey()] -= cost * kvp.getValue() / coefficient);
+            _eliminatedColumns.add(new EliminatedColumn(j, coefficient, row, rhs));
+            _removedColumns[j] = true;
+            removeRow(i);
+            changed = true;
+        }
+        return changed;
+    }
+    
+    private void buildReducedProgram()
+    {
+        Variable[] reducedVariables = new Variable[_originalVariables.length];
+        _originalColumns = new int[_originalVariables.length];
+        int count = 0;
+        for (int j = 0; j < _originalVariables.length; j++)
+        {
+            if (_removedColumns[j])
+                continue;
+            
+            Variable original = _originalVariables[j];
+            Variable v = new Variable(original.getName(), count + 1);
+            v.setAlias(original.getAlias());
+            v.setBounds(_lowerBounds[j], _upperBounds[j]);
+            v.setInteger(original.isInteger());
+            reducedVariables[j] = v;
+            _originalColumns[count++] = j;
+            _variables.add(v);
+            if (_costs[j] != 0)
+                _reducedObjective.put(v, _costs[j]);
+        }
+        _originalColumns = Arrays.copyOf(_originalColumns, count);
+        
+        for (int i = 0; i < _rows.size(); i++)
+        {
+            if (_removedRows[i])
+                continue;
+            
+            HashMap<Variable, Double> equation = new HashMap<>();
+            _rows.get(i).entrySet().stream().forEach(kvp -> equation.put(reducedVariables[kvp.getKey()], kvp.getValue()));
+            _constraints.add(new Constraint(equation, _signs.get(i), _rightHandSides.get(i)));
+        }
+    }
+}
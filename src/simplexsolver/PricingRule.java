@@ -0,0 +1,64 @@
+package simplexsolver;
+
+/**
+ * Chooses the entering variable of the tableau engine. Row 0 of the tableau
+ * holds the reduced costs, and a column may enter when its reduced cost is
+ * below -OPTIMALITY_TOLERANCE. A rule may keep state between iterations, so
+ * every tableau creates its own.
+ * @author Gennaro
+ */
+public interface PricingRule
+{
+    public static final double OPTIMALITY_TOLERANCE = 1E-10;
+    
+    /**
+     * Called at the start of each phase, before the first call to selectEntering.
+     * @param matrix The tableau, stored row by row.
+     * @param rowCount The number of rows in the tableau.
+     * @param columnCount The number of columns in the tableau (the last one is the RHS).
+     */
+    void reset(double[] matrix, int rowCount, int columnCount);
+    
+    /**
+     * Chooses the entering column.
+     * @param matrix The tableau, stored row by row.
+     * @param rowCount The number of rows in the tableau.
+     * @param columnCount The number of columns in the tableau (the last one is the RHS).
+     * @param operations The row operations of the tableau.
+     * @return The entering column, or -1 if the tableau is optimal.
+     */
+    int selectEntering(double[] matrix, int rowCount, int columnCount, RowOperations operations);
+    
+    /**
+     * Called just before the tableau is pivoted, so the rule can update its weights.
+     * @param matrix The tableau, stored row by row.
+     * @param rowCount The number of rows in the tableau.
+     * @param columnCount The number of columns in the tableau (the last one is the RHS).
+     * @param pivotRow The row of the leaving variable.
+     * @param pivotColumn The column of the entering variable.
+     * @param leavingColumn The column of the leaving variable.
+     */
+    default void beforePivot(double[] matrix, int rowCount, int columnCount, int pivotRow, int pivotColumn, int leavingColumn)
+    {
+    }
+    
+    /**
+     * Creates a new rule of the given kind.
+     * @param pricing The kind of rule.
+     * @return The new rule.
+     */
+    static PricingRule create(SimplexUtilities.Pricing pricing)
+    {
+        switch (pricing)
+        {
+            case PARTIAL:
+                return new PartialPricing();
+            case DEVEX:
+                return new DevexPricing();
+            case STEEPEST_EDGE:
+                return new SteepestEdgePricing();
+            default:
+                return new DantzigPricing();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package simplexsolver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Runs the revised simplex method over a sparse constraint matrix.
+ *
+ * Instead of updating a full tableau on every pivot, only the basis is kept
+ * (as an LU factorization with product form updates). Each iteration prices
+ * the nonbasic columns from the dual values and solves for the entering
+ * column alone. The factorization is rebuilt every few pivots, which also
+ * recomputes the basic variable values from scratch to bound numerical drift.
+ *
+ * Every problem is a maximize, in the standard form A * x = b, 0 <= x <= u.
+ * A nonbasic variable sits at either of its bounds, so an upper bound does
+ * not need a row of its own.
+ *
+ * The entering column has the most negative reduced cost (Dantzig's rule),
+ * or with Devex pricing the largest d * d / weight. The Devex reference
+ * weights are updated from the pivot row, which takes one more solve with
+ * the basis and one more pass over the columns per pivot.
+ * @author Gennaro
+ */
+public class RevisedSimplex
+{
+    private static final double OPTIMALITY_TOLERANCE = 1E-10;
+    private static final double PIVOT_TOLERANCE = 1E-9;
+    // After this many pivots in a row that do not move, Bland's rule takes over.
+    private static final int DEGENERATE_PIVOT_LIMIT = 20;
+    private static final double DEGENERATE_STEP = 1E-12;
+    // A Devex weight above this starts a new reference framework.
+    private static final double DEVEX_RESET_WEIGHT = 1E6;
+    
+    private final SparseMatrix _matrix;
+    private final double[] _rhs;
+    private final int[] _basis;
+    // Position of each column in the basis, or -1 if it is nonbasic.
+    private final int[] _basisPositions;
+    private final double[] _values;
+    // The upper bound of every column (null if no column has one), and the
+    // nonbasic columns that sit at their upper bound.
+    private double[] _upperBounds;
+    private final BitSet _atUpperBound = new BitSet();
+    private final BasisFactorization _factorization;
+    private int _refactorizationFrequency = 50;
+    private int _iterationCount = 0;
+    private int _iterationLimit = Integer.MAX_VALUE;
+    private SimplexListener _listener;
+    private int _phase;
+    // The Devex reference weight of every column (null with Dantzig's rule).
+    private double[] _weights;
+    
+    // Work arrays, allocated once.
+    private final double[] _duals;
+    private final double[] _column;
+    private final double[] _pivotRow;
+    
+    /**
+     * Prepares a revised simplex run.
+     * @param matrix The constraint matrix, including slack and artificial columns.
+     * @param rhs The right hand side of each constraint.
+     * @param basis The column of the starting basic variable of each row.
+     */
+    public RevisedSimplex(SparseMatrix matrix, double[] rhs, int[] basis)
+    {
+        _matrix = matrix;
+        _rhs = rhs;
+        _basis = basis.clone();
+        _basisPositions = new int[matrix.getColumnCount()];
+        Arrays.fill(_basisPositions, -1);
+        for (int p = 0; p < _basis.length; p++)
+        {
+            _basisPositions[_basis[p]] = p;
+        }
+        _values = new double[matrix.getRowCount()];
+        _duals = new double[matrix.getRowCount()];
+        _column = new double[matrix.getRowCount()];
+        _pivotRow = new double[matrix.getRowCount()];
+        _factorization = new BasisFactorization(matrix);
+        refactorize();
+    }
+    
+    /**
+     * Sets how many pivots may be applied as eta updates before the basis
+     * is factorized again.
+     * @param frequency The number of updates between factorizations.
+     */
+    public void setRefactorizationFrequency(int frequency)
+    {
+        if (frequency < 1)
+            throw new IllegalArgumentException("The refactorization frequency must be positive.");
+        _refactorizationFrequency = frequency;
+    }
+    
+    /**
+     * Selects the rule for choosing the entering column. The default is Dantzig's rule.
+     * @param pricing DANTZIG or DEVEX.
+     * @throws IllegalArgumentException If the revised method does not support the rule.
+     */
+    public void setPricing(SimplexUtilities.Pricing pricing)
+    {
+        if (pricing != SimplexUtilities.Pricing.DANTZIG && pricing != SimplexUtilities.Pricing.DEVEX)
+            throw new IllegalArgumentException("The revised simplex method does not support " + pricing + " pricing.");
+        _weights = pricing == SimplexUtilities.Pricing.DEVEX ? new double[_matrix.getColumnCount()] : null;
+    }
+    
+    /**
+     * Gives the columns upper bounds. Every nonbasic column starts at its lower
+     * bound of 0, so this may be called at any point before the first maximize.
+     * @param upperBounds The upper bound of every column (infinite for none).
+     */
+    public void setUpperBounds(double[] upperBounds)
+    {
+        _upperBounds = upperBounds;
+    }
+    
+    /**
+     * Tells whether a nonbasic column sits at its upper bound.
+     * @param column The column.
+     * @return True if the column is nonbasic at its upper bound.
+     */
+    public boolean isAtUpperBound(int column)
+    {
+        return _atUpperBound.get(column);
+    }
+    
+    /**
+     * Limits the total number of pivots across every call to maximize.
+     * @param limit The maximum number of pivots.
+     */
+    public void setIterationLimit(int limit)
+    {
+        _iterationLimit = limit;
+    }
+    
+    /**
+     * Attaches a listener that is told about every pivot. The revised method
+     * never forms a tableau, so only pivot events are sent.
+     * @param listener The listener, or null to remove it.
+     * @param phase The phase to report to the listener.
+     */
+    public void setListener(SimplexListener listener, int phase)
+    {
+        _listener = listener;
+        _phase = phase;
+    }
+    
+    public int getIterationCount()
+    {
+        return _iterationCount;
+    }
+    
+    /**
+     * Returns the column of the basic variable in each row.
+     * @return The basis (owned by this object, do not modify).
+     */
+    public int[] getBasis()
+    {
+        return _basis;
+    }
+    
+    /**
+     * Returns the value of the basic variable in each row.
+     * @return The basic values (owned by this object, do not modify).
+     */
+    public double[] getBasicValues()
+    {
+        return _values;
+    }
+    
+    /**
+     * Maximizes the given costs from the current basis.
+     * @param costs The cost of every column.
+     * @param excluded Columns that may never enter the basis (may be null).
+     * @return OPTIMAL, UNBOUNDED, or LIMIT if the iteration limit was reached first.
+     */
+    public SolveResult.Status maximize(double[] costs, BitSet excluded)
+    {
+        int columnCount = _matrix.getColumnCount();
+        int degeneratePivots = 0;
+        if (_weights != null)
+            Arrays.fill(_weights, 1.0);
+        for (;;)
+        {
+            computeDuals(costs);
+            boolean antiCycling = degeneratePivots >= DEGENERATE_PIVOT_LIMIT;
+            
+            // Price every nonbasic column and take the best score: the most negative
+            // reduced cost (the same rule as the objective row of the tableau), or
+            // d * d / weight with Devex pricing. Bland's rule takes the first one
+            // instead. A column at its upper bound can only decrease, so the sign
+            // of its reduced cost is turned around.
+            double bestScore = 0;
+            int entering = -1;
+            for (int j = 0; j < columnCount; j++)
+            {
+                if (_basisPositions[j] >= 0 || (excluded != null && excluded.get(j)))
+                    continue;
+                double reducedCost = _matrix.dot(j, _duals) - costs[j];
+                if (_atUpperBound.get(j))
+                    reducedCost = -reducedCost;
+                if (reducedCost >= -OPTIMALITY_TOLERANCE)
+                    continue;
+                double score = _weights == null ? -reducedCost : reducedCost * reducedCost / _weights[j];
+                if (score > bestScore)
+                {
+                    bestScore = score;
+                    entering = j;
+                    if (antiCycling)
+                        break;
+                }
+            }
+            if (entering == -1)
+                return SolveResult.Status.OPTIMAL;
+            
+            _matrix.scatter(entering, _column);
+            _factorization.ftran(_column);
+            
+            // Minimum ratio test. The entering variable moves in this direction, and the
+            // basic variable of row p changes by -direction * _column[p] per unit.
+            // A basic variable that decreases leaves at 0, one that increases leaves at
+            // its upper bound. Under Bland's rule, ties go to the lowest basic column.
+            double direction = _atUpperBound.get(entering) ? -1 : 1;
+            double smallestRatio = Double.POSITIVE_INFINITY;
+            int leaving = -1;
+            for (int p = 0; p < _column.length; p++)
+            {
+                double rate = direction * _column[p];
+                double ratio;
+                if (rate > PIVOT_TOLERANCE)
+                    ratio = Math.max(_values[p], 0) / rate;
+                else if (rate < -PIVOT_TOLERANCE && _upperBounds != null && _upperBounds[_basis[p]] != Double.POSITIVE_INFINITY)
+                    ratio = Math.max(_upperBounds[_basis[p]] - _values[p], 0) / -rate;
+                else
+                    continue;
+                
+                if (ratio < smallestRatio - (antiCycling ? DEGENERATE_STEP : 0))
+                {
+                    smallestRatio = ratio;
+                    leaving = p;
+                }
+                else if (antiCycling && ratio <= smallestRatio + DEGENERATE_STEP && _basis[p] < _basis[leaving])
+                {
+                    leaving = p;
+                }
+            }
+            
+            // The entering variable may reach its other bound first.
+            boolean boundFlip = _upperBounds != null && _upperBounds[entering] < smallestRatio;
+            if (leaving == -1 && !boundFlip)
+                return SolveResult.Status.UNBOUNDED;
+            if (_iterationCount >= _iterationLimit)
+                return SolveResult.Status.LIMIT;
+            
+            if (boundFlip)
+            {
+                flip(entering, direction);
+                degeneratePivots = 0;
+            }
+            else
+            {
+                if (smallestRatio <= DEGENERATE_STEP)
+                    degeneratePivots++;
+                else
+                    degeneratePivots = 0;
+                if (_weights != null)
+                    updateWeights(leaving, entering, excluded);
+                // Before the pivot, which may refactorize and recompute the basic values.
+                _atUpperBound.set(_basis[leaving], direction * _column[leaving] < 0);
+                pivot(leaving, entering, direction * smallestRatio);
+            }
+            if (_listener != null)
+            {
+                double objectiveValue = 0;
+                for (int p = 0; p < _basis.length; p++)
+                {
+                    objectiveValue += costs[_basis[p]] * _values[p];
+                }
+                for (int j = _atUpperBound.nextSetBit(0); j >= 0; j = _atUpperBound.nextSetBit(j + 1))
+                {
+                    objectiveValue += costs[j] * _upperBounds[j];
+                }
+                // Phase 1 maximizes minus the sum of the artificial variables.
+                _listener.pivoted(_phase, entering, boundFlip ? -1 : leaving, _phase == 1 ? -objectiveValue : objectiveValue);
+            }
+        }
+    }
+    
+    /**
+     * Updates the Devex reference weights before a pivot. The entering column
+     * must be in _column. The pivot row of the current tableau is row p of the
+     * inverse basis times A, for every column that stays nonbasic.
+     * @param leaving The basis position of the leaving column.
+     * @param entering The entering column.
+     * @param excluded Columns that may never enter the basis (may be null).
+     */
+    private void updateWeights(int leaving, int entering, BitSet excluded)
+    {
+        double pivotElement = _column[leaving];
+        double enteringWeight = _weights[entering];
+        if (enteringWeight > DEVEX_RESET_WEIGHT)
+        {
+            // Start a new reference framework.
+            Arrays.fill(_weights, 1.0);
+            return;
+        }
+        
+        computeTableauRow(leaving, _pivotRow);
+        for (int j = 0; j < _weights.length; j++)
+        {
+            if (_basisPositions[j] >= 0 || j == entering || (excluded != null && excluded.get(j)))
+                continue;
+            double ratio = _matrix.dot(j, _pivotRow) / pivotElement;
+            if (ratio != 0)
+                _weights[j] = Math.max(_weights[j], ratio * ratio * enteringWeight);
+        }
+        _weights[_basis[leaving]] = Math.max(enteringWeight / (pivotElement * pivotElement), 1.0);
+    }
+    
+    /**
+     * Pivots basic columns out of the basis where possible. Columns whose row
+     * has no usable entry are left in place; their row is redundant.
+     * @param columns The columns to remove from the basis. None of them may replace another.
+     */
+    public void driveOut(BitSet columns)
+    {
+        int columnCount = _matrix.getColumnCount();
+        for (int p = 0; p < _basis.length; p++)
+        {
+            if (!columns.get(_basis[p]))
+                continue;
+            
+            computeTableauRow(p, _duals);
+            for (int j = 0; j < columnCount; j++)
+            {
+                if (_basisPositions[j] >= 0 || columns.get(j))
+                    continue;
+                if (Math.abs(_matrix.dot(j, _duals)) > 1E-7)
+                {
+                    _matrix.scatter(j, _column);
+                    _factorization.ftran(_column);
+                    pivot(p, j, _values[p] / _column[p]);
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Computes row p of the inverse basis (the multipliers that produce
+     * row p of the current tableau from the original constraints).
+     * @param position The basis position.
+     * @param row The array to fill, indexed by constraint row.
+     */
+    public void computeTableauRow(int position, double[] row)
+    {
+        Arrays.fill(row, 0.0);
+        row[position] = 1;
+        _factorization.btran(row);
+    }
+    
+    /**
+     * Computes the dual values for the given costs.
+     * @param costs The cost of every column.
+     * @param duals The array to fill, indexed by constraint row.
+     */
+    public void computeDuals(double[] costs, double[] duals)
+    {
+        for (int p = 0; p < _basis.length; p++)
+        {
+            duals[p] = costs[_basis[p]];
+        }
+        _factorization.btran(duals);
+    }
+    
+    private void computeDuals(double[] costs)
+    {
+        computeDuals(costs, _duals);
+    }
+    
+    /**
+     * Moves a nonbasic column to its other bound without changing the basis.
+     * @param column The column.
+     * @param direction 1 if it moves up from 0, -1 if it moves down from its upper bound.
+     */
+    private void flip(int column, double direction)
+    {
+        double step = direction * _upperBounds[column];
+        for (int p = 0; p < _values.length; p++)
+        {
+            _values[p] -= step * _column[p];
+        }
+        _atUpperBound.flip(column);
+        _iterationCount++;
+    }
+    
+    /**
+     * Replaces a basic column. The entering column must be in _column.
+     * @param leaving The basis position of the leaving column.
+     * @param entering The entering column.
+     * @param step The change in the value of the entering variable.
+     */
+    private void pivot(int leaving, int entering, double step)
+    {
+        for (int p = 0; p < _values.length; p++)
+        {
+            _values[p] -= step * _column[p];
+        }
+        _values[leaving] = step;
+        if (_atUpperBound.get(entering))
+        {
+            _values[leaving] += _upperBounds[entering];
+            _atUpperBound.clear(entering);
+        }
+        
+        _basisPositions[_basis[leaving]] = -1;
+        _basis[leaving] = entering;
+        _basisPositions[entering] = leaving;
+        _iterationCount++;
+        
+        if (_factorization.getUpdateCount() + 1 >= _refactorizationFrequency)
+            refactorize();
+        else
+            _factorization.update(leaving, _column);
+    }
+    
+    private void refactorize()
+    {
+        _factorization.factorize(_basis);
+        System.arraycopy(_rhs, 0, _values, 0, _rhs.length);
+        
+        // The columns at their upper bound are moved to the right hand side.
+        for (int j = _atUpperBound.nextSetBit(0); j >= 0; j = _atUpperBound.nextSetBit(j + 1))
+        {
+            for (int k = _matrix.getColumnStart(j); k < _matrix.getColumnEnd(j); k++)
+            {
+                _values[_matrix.getRowIndex(k)] -= _matrix.getValue(k) * _upperBounds[j];
+            }
+        }
+        _factorization.ftran(_values);
+    }
+}
@@ -0,0 +1,63 @@
+package simplexsolver;
+
+/**
+ * The inner loops of the tableau engine: the row update of a pivot, the
+ * search for the entering variable, and the minimum ratio test.
+ * @author Gennaro
+ */
+public interface RowOperations
+{
+    // Entries of the pivot column this close to 0 are rounding errors, and are never pivoted on.
+    public static final double PIVOT_TOLERANCE = 1E-9;
+    
+    /**
+     * Subtracts a multiple of one row from another:
+     * matrix[target + j] = matrix[target + j] - coefficient * matrix[source + j].
+     * @param matrix The tableau.
+     * @param targetOffset The start of the row to update.
+     * @param sourceOffset The start of the row to subtract.
+     * @param length The number of entries to update.
+     * @param coefficient The multiple to subtract.
+     */
+    void subtractMultiple(double[] matrix, int targetOffset, int sourceOffset, int length, double coefficient);
+    
+    /**
+     * Finds the smallest entry in part of a row. Ties go to the first entry.
+     * @param matrix The tableau.
+     * @param offset The first entry to look at.
+     * @param length The number of entries to look at.
+     * @return The position of the smallest entry, relative to offset.
+     */
+    int findMostNegative(double[] matrix, int offset, int length);
+    
+    /**
+     * Runs the minimum ratio test on a column. The right hand side is in the
+     * last column. Only rows with a positive entry (above PIVOT_TOLERANCE)
+     * take part, a right hand side that rounding left slightly negative
+     * counts as 0, and ties go to the first row.
+     * @param matrix The tableau.
+     * @param columnCount The number of columns in the tableau.
+     * @param firstRow The first row to test.
+     * @param rowCount The number of rows in the tableau.
+     * @param column The column of the entering variable.
+     * @return The row with the smallest ratio, or -1 if no row qualifies.
+     */
+    int findMinimumRatio(double[] matrix, int columnCount, int firstRow, int rowCount, int column);
+    
+    /**
+     * Creates the vectorized row operations if they were compiled and the
+     * jdk.incubator.vector module is present, and the scalar ones otherwise.
+     * @return The row operations to use.
+     */
+    static RowOperations createVectorized()
+    {
+        try
+        {
+            return (RowOperations) Class.forName("simplexsolver.VectorRowOperations").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError ex)
+        {
+            return new ScalarRowOperations();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package simplexsolver;
+
+/**
+ * The row operations as plain loops. This is the default, and the
+ * reference the vectorized operations have to match.
+ * @author Gennaro
+ */
+public class ScalarRowOperations implements RowOperations
+{
+    @Override
+    public void subtractMultiple(double[] matrix, int targetOffset, int sourceOffset, int length, double coefficient)
+    {
+        for (int j = 0; j < length; j++)
+        {
+            matrix[targetOffset + j] = matrix[targetOffset + j] - coefficient * matrix[sourceOffset + j];
+        }
+    }
+    
+    @Override
+    public int findMostNegative(double[] matrix, int offset, int length)
+    {
+        double mostNegative = matrix[offset];
+        int mostNegativeIndex = 0;
+        for (int i = 1; i < length; i++)
+        {
+            if (matrix[offset + i] < mostNegative)
+            {
+                mostNegative = matrix[offset + i];
+                mostNegativeIndex = i;
+            }
+        }
+        return mostNegativeIndex;
+    }
+    
+    @Override
+    public int findMinimumRatio(double[] matrix, int columnCount, int firstRow, int rowCount, int column)
+    {
+        double smallestRatio = Double.POSITIVE_INFINITY;
+        int smallestRatioIndex = -1;
+        for (int i = firstRow; i < rowCount; i++)
+        {
+            int rowOffset = i * columnCount;
+            double entry = matrix[rowOffset + column];
+            if (entry <= PIVOT_TOLERANCE)
+                continue;
+            double ratio = Math.max(matrix[rowOffset + columnCount - 1], 0) / entry;
+            
+            if (ratio < smallestRatio)
+            {
+                smallestRatio = ratio;
+                smallestRatioIndex = i;
+            }
+        }
+        return smallestRatioIndex;
+    }
+}
@@ -0,0 +1,167 @@
+package simplexsolver;
+
+import java.util.Arrays;
+
+/**
+ * Chooses row and column factors for a constraint matrix, so that its
+ * entries are closer to 1. The scaled matrix is R * A * C, where R and C
+ * are the diagonal matrices of the row and column factors. Every factor is
+ * rounded to a power of 2, so scaling and unscaling do not add any
+ * rounding error.
+ * @author Gennaro
+ */
+public class Scaler
+{
+    private static final int GEOMETRIC_PASSES = 4;
+    // Automatic scaling is skipped when the largest entry is at most this many times the smallest.
+    private static final double AUTOMATIC_RANGE = 1E3;
+    
+    private final SparseMatrix _matrix;
+    private final double[] _rowScales;
+    private final double[] _columnScales;
+    
+    /**
+     * Chooses the factors for a matrix.
+     * @param matrix The matrix to scale.
+     * @param scaling The kind of scaling.
+     */
+    public Scaler(SparseMatrix matrix, SimplexUtilities.Scaling scaling)
+    {
+        _matrix = matrix;
+        _rowScales = new double[matrix.getRowCount()];
+        _columnScales = new double[matrix.getColumnCount()];
+        Arrays.fill(_rowScales, 1.0);
+        Arrays.fill(_columnScales, 1.0);
+        
+        if (scaling == SimplexUtilities.Scaling.AUTOMATIC && getRange() <= AUTOMATIC_RANGE)
+            return;
+        if (scaling == SimplexUtilities.Scaling.GEOMETRIC || scaling == SimplexUtilities.Scaling.AUTOMATIC)
+        {
+            for (int pass = 0; pass < GEOMETRIC_PASSES; pass++)
+            {
+                scaleGeometric();
+            }
+        }
+        if (scaling == SimplexUtilities.Scaling.EQUILIBRATION || scaling == SimplexUtilities.Scaling.AUTOMATIC)
+            equilibrate();
+        
+        for (int i = 0; i < _rowScales.length; i++)
+        {
+            _rowScales[i] = roundToPowerOfTwo(_rowScales[i]);
+        }
+        for (int j = 0; j < _columnScales.length; j++)
+        {
+            _columnScales[j] = roundToPowerOfTwo(_columnScales[j]);
+        }
+    }
+    
+    /**
+     * Returns the factor of each row.
+     * @return The row factors (owned by this object, do not modify).
+     */
+    public double[] getRowScales()
+    {
+        return _rowScales;
+    }
+    
+    /**
+     * Returns the factor of each column. A variable of the scaled program
+     * is the original variable divided by its column factor.
+     * @return The column factors (owned by this object, do not modify).
+     */
+    public double[] getColumnScales()
+    {
+        return _columnScales;
+    }
+    
+    /**
+     * Tells whether every factor is 1.
+     * @return True if the matrix is not scaled at all.
+     */
+    public boolean isIdentity()
+    {
+        return Arrays.stream(_rowScales).allMatch(r -> r == 1.0) && Arrays.stream(_columnScales).allMatch(c -> c == 1.0);
+    }
+    
+    /**
+     * Returns the largest entry of the matrix divided by the smallest (both in absolute value).
+     */
+    private double getRange()
+    {
+        double smallest = Double.POSITIVE_INFINITY;
+        double largest = 0;
+        for (int k = 0; k < _matrix.getNonzeroCount(); k++)
+        {
+            double entry = Math.abs(_matrix.getValue(k));
+            smallest = Math.min(smallest, entry);
+            largest = Math.max(largest, entry);
+        }
+        return largest == 0 ? 1 : largest / smallest;
+    }
+    
+    /**
+     * Divides every row, then every column, by the geometric mean of its
+     * largest and smallest scaled entry.
+     */
+    private void scaleGeometric()
+    {
+        for (int i = 0; i < _rowScales.length; i++)
+        {
+            double smallest = Double.POSITIVE_INFINITY;
+            double largest = 0;
+            for (int k = _matrix.getRowStart(i); k < _matrix.getRowEnd(i); k++)
+            {
+                double entry = Math.abs(_matrix.getRowValue(k)) * _columnScales[_matrix.getColumnIndex(k)];
+                smallest = Math.min(smallest, entry);
+                largest = Math.max(largest, entry);
+            }
+            if (largest > 0)
+                _rowScales[i] = 1 / Math.sqrt(smallest * largest);
+        }
+        for (int j = 0; j < _columnScales.length; j++)
+        {
+            double smallest = Double.POSITIVE_INFINITY;
+            double largest = 0;
+            for (int k = _matrix.getColumnStart(j); k < _matrix.getColumnEnd(j); k++)
+            {
+                double entry = Math.abs(_matrix.getValue(k)) * _rowScales[_matrix.getRowIndex(k)];
+                smallest = Math.min(smallest, entry);
+                largest = Math.max(largest, entry);
+            }
+            if (largest > 0)
+                _columnScales[j] = 1 / Math.sqrt(smallest * largest);
+        }
+    }
+    
+    /**
+     * Divides every row, then every column, by its largest scaled entry.
+     */
+    private void equilibrate()
+    {
+        for (int i = 0; i < _rowScales.length; i++)
+        {
+            double largest = 0;
+            for (int k = _matrix.getRowStart(i); k < _matrix.getRowEnd(i); k++)
+            {
+                largest = Math.max(largest, Math.abs(_matrix.getRowValue(k)) * _rowScales[i] * _columnScales[_matrix.getColumnIndex(k)]);
+            }
+            if (largest > 0)
+                _rowScales[i] /= largest;
+        }
+        for (int j = 0; j < _columnScales.length; j++)
+        {
+            double largest = 0;
+            for (int k = _matrix.getColumnStart(j); k < _matrix.getColumnEnd(j); k++)
+            {
+                largest = Math.max(largest, Math.abs(_matrix.getValue(k)) * _rowScales[_matrix.getRowIndex(k)] * _columnScales[j]);
+            }
+            if (largest > 0)
+                _columnScales[j] /= largest;
+        }
+    }
+    
+    private static double roundToPowerOfTwo(double factor)
+    {
+        return Math.scalb(1.0, (int) Math.round(Math.log(factor) / Math.log(2)));
+    }
+}
@@ -0,0 +1,40 @@
+package simplexsolver;
+
+/**
+ * The right hand sides and costs of one solve of a compiled model.
+ * @author Gennaro
+ */
+public class Scenario
+{
+    private final double[] _rightHandSides;
+    private final double[] _costs;
+    
+    /**
+     * Defines a scenario. The arrays are copied.
+     * @param rightHandSides The right hand side of each constraint, or null to keep the ones of the model.
+     * @param costs The coefficient of each decision variable in the objective function, or null to keep the ones of the model.
+     */
+    public Scenario(double[] rightHandSides, double[] costs)
+    {
+        _rightHandSides = rightHandSides == null ? null : rightHandSides.clone();
+        _costs = costs == null ? null : costs.clone();
+    }
+    
+    /**
+     * Returns the right hand sides of this scenario.
+     * @return A copy of the right hand sides, or null if the ones of the model are kept.
+     */
+    public double[] getRightHandSides()
+    {
+        return _rightHandSides == null ? null : _rightHandSides.clone();
+    }
+    
+    /**
+     * Returns the costs of this scenario.
+     * @return A copy of the costs, or null if the ones of the model are kept.
+     */
+    public double[] getCosts()
+    {
+        return _costs == null ? null : _costs.clone();
+    }
+}
@@ -0,0 +1,266 @@
+package simplexsolver;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves a compiled model under many scenarios on a thread pool. Each worker
+ * creates one tableau and keeps it for all of its scenarios, so the constraint
+ * matrix is shared and only the dense working tableaus are per worker. With
+ * the TABLEAU or DUAL engine, a worker starts every scenario from the final
+ * tableau of its previous one (see Tableau.setRightHandSide and
+ * Tableau.setObjectiveCoefficient). The optimal objective values do not depend
+ * on which worker solves a scenario, but when there are several optimal
+ * solutions, the one that is reported may.
+ * @author Gennaro
+ */
+public class ScenarioBatch
+{
+    // A worker waits once this many scenarios per worker are being solved or waiting to be read.
+    private static final int PENDING_PER_WORKER = 4;
+    
+    /**
+     * Represents the orders in which results can be returned. SUBMISSION keeps
+     * the order of the scenarios. COMPLETION returns each result as soon as it
+     * is ready.
+     */
+    public enum Order
+    {
+        SUBMISSION, COMPLETION
+    }
+    
+    private final CompiledModel _model;
+    private final ExecutorService _pool;
+    private final int _workerCount;
+    private SimplexUtilities.Engine _engine = SimplexUtilities.Engine.TABLEAU;
+    private int _iterationLimit = Integer.MAX_VALUE;
+    
+    /**
+     * Defines a batch solver.
+     * @param model The model to solve.
+     * @param pool The pool the workers run on.
+     * @param workerCount The number of workers (at most one per thread of the pool is useful).
+     */
+    public ScenarioBatch(CompiledModel model, ExecutorService pool, int workerCount)
+    {
+        if (workerCount < 1)
+            throw new IllegalArgumentException("There must be at least one worker.");
+        _model = model;
+        _pool = pool;
+        _workerCount = workerCount;
+    }
+    
+    /**
+     * Selects the engine used by the workers. The default is the full tableau.
+     * @param engine The engine to use.
+     */
+    public void setEngine(SimplexUtilities.Engine engine)
+    {
+        _engine = engine;
+    }
+    
+    /**
+     * Limits the number of pivots each scenario may perform.
+     * @param limit The maximum number of pivots.
+     */
+    public void setIterationLimit(int limit)
+    {
+        _iterationLimit = limit;
+    }
+    
+    /**
+     * Starts solving the scenarios and returns their results as they become
+     * available. The scenarios are read as the workers need them. Closing the
+     * returned stream stops the workers after the scenarios they are solving;
+     * a stream that is neither read to the end nor closed keeps them waiting.
+     * @param scenarios The scenarios to solve.
+     * @param order The order of the results.
+     * @return The results, one per scenario. Reading it throws an IllegalStateException
+     * if a scenario could not be solved (for example, its arrays have the wrong length).
+     */
+    public Stream<ScenarioResult> solve(Stream<Scenario> scenarios, Order order)
+    {
+        Run run = new Run(scenarios.iterator(), order);
+        for (int w = 0; w < _workerCount; w++)
+        {
+            _pool.execute(run::work);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(run, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(run::cancel);
+    }
+    
+    /**
+     * The state of one call to solve, shared by its workers and the reader of
+     * its results. Everything but the permits is guarded by the lock of this object.
+     */
+    private class Run implements Iterator<ScenarioResult>
+    {
+        private final Iterator<Scenario> _scenarios;
+        private final Order _order;
+        private final Semaphore _permits = new Semaphore(_workerCount * PENDING_PER_WORKER);
+        private final ArrayDeque<ScenarioResult> _completed = new ArrayDeque<>();
+        private final HashMap<Integer, ScenarioResult> _waiting = new HashMap<>();
+        private int _submittedCount = 0;
+        private int _nextIndex = 0;
+        private int _activeWorkers = _workerCount;
+        private boolean _cancelled = false;
+        private RuntimeException _failure;
+        
+        Run(Iterator<Scenario> scenarios, Order order)
+        {
+            _scenarios = scenarios;
+            _order = order;
+        }
+        
+        /**
+         * The loop of one worker: take the next scenario, solve it on this
+         * worker's tableau, and hand the result to the reader.
+         */
+        void work()
+        {
+            Tableau tableau = null;
+            double[] rightHandSides = _model.getRightHandSides();
+            double[] costs = _model.getCosts();
+            try
+            {
+                for (;;)
+                {
+                    _permits.acquire();
+                    Scenario scenario;
+                    int index;
+                    synchronized (this)
+                    {
+                        if (_cancelled || _failure != null || !_scenarios.hasNext())
+                        {
+                            _permits.release();
+                            return;
+                        }
+                        scenario = _scenarios.next();
+                        index = _submittedCount++;
+                    }
+                    
+                    if (tableau == null)
+                    {
+                        tableau = _model.createTableau();
+                        tableau.setEngine(_engine);
+                        tableau.setIterationLimit(_iterationLimit);
+                    }
+                    ScenarioResult result = new ScenarioResult(index, scenario, solveScenario(tableau, scenario, rightHandSides, costs));
+                    synchronized (this)
+                    {
+                        if (_order == Order.SUBMISSION)
+                            _waiting.put(index, result);
+                        else
+                            _completed.addLast(result);
+                        notifyAll();
+                    }
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (RuntimeException ex)
+            {
+                synchronized (this)
+                {
+                    if (_failure == null)
+                        _failure = ex;
+                }
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    _activeWorkers--;
+                    notifyAll();
+                }
+            }
+        }
+        
+        /**
+         * Applies the differences from the previous scenario of the worker to
+         * its tableau, and solves it.
+         */
+        private SolveResult solveScenario(Tableau tableau, Scenario scenario, double[] rightHandSides, double[] costs)
+        {
+            double[] newRightHandSides = scenario.getRightHandSides();
+            if (newRightHandSides == null)
+                newRightHandSides = _model.getRightHandSides();
+            double[] newCosts = scenario.getCosts();
+            if (newCosts == null)
+                newCosts = _model.getCosts();
+            if (newRightHandSides.length != rightHandSides.length || newCosts.length != costs.length)
+                throw new IllegalArgumentException("A scenario needs one right hand side per constraint and one cost per variable.");
+            
+            for (int i = 0; i < rightHandSides.length; i++)
+            {
+                if (newRightHandSides[i] != rightHandSides[i])
+                {
+                    tableau.setRightHandSide(i, newRightHandSides[i]);
+                    rightHandSides[i] = newRightHandSides[i];
+                }
+            }
+            for (int j = 0; j < costs.length; j++)
+            {
+                if (newCosts[j] != costs[j])
+                {
+                    tableau.setObjectiveCoefficient(_model.getVariable(j), newCosts[j]);
+                    costs[j] = newCosts[j];
+                }
+            }
+            return tableau.optimize();
+        }
+        
+        @Override
+        public synchronized boolean hasNext()
+        {
+            for (;;)
+            {
+                if (_failure != null)
+                    throw new IllegalStateException("A scenario could not be solved.", _failure);
+                if (_order == Order.SUBMISSION ? _waiting.containsKey(_nextIndex) : !_completed.isEmpty())
+                    return true;
+                if (_activeWorkers == 0 || _cancelled)
+                    return false;
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a scenario.", ex);
+                }
+            }
+        }
+        
+        @Override
+        public synchronized ScenarioResult next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ScenarioResult result = _order == Order.SUBMISSION ? _waiting.remove(_nextIndex++) : _completed.removeFirst();
+            _permits.release();
+            return result;
+        }
+        
+        /**
+         * Stops the workers once their current scenarios are solved.
+         */
+        synchronized void cancel()
+        {
+            _cancelled = true;
+            _permits.release(_workerCount);
+            notifyAll();
+        }
+    }
+}
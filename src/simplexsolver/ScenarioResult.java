@@ -0,0 +1,40 @@
+package simplexsolver;
+
+/**
+ * The result of solving one scenario of a batch.
+ * @author Gennaro
+ */
+public class ScenarioResult
+{
+    private final int _index;
+    private final Scenario _scenario;
+    private final SolveResult _result;
+    
+    /**
+     * Defines the result of a scenario.
+     * @param index The position of the scenario in the batch (starting at 0).
+     * @param scenario The scenario.
+     * @param result The result of the solve.
+     */
+    public ScenarioResult(int index, Scenario scenario, SolveResult result)
+    {
+        _index = index;
+        _scenario = scenario;
+        _result = result;
+    }
+    
+    public int getIndex()
+    {
+        return _index;
+    }
+    
+    public Scenario getScenario()
+    {
+        return _scenario;
+    }
+    
+    public SolveResult getResult()
+    {
+        return _result;
+    }
+}
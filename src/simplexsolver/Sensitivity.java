@@ -0,0 +1,225 @@
+package simplexsolver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The sensitivity of an optimal solution: the dual value of every constraint,
+ * the reduced cost of every decision variable, and how far each right hand
+ * side and each cost can move before the optimal basis changes. Everything is
+ * in terms of the program as it was entered (the objective function as a min
+ * or a max, before any shift or scaling).
+ * @author Gennaro
+ */
+public class Sensitivity
+{
+    private static final double TOLERANCE = 1E-9;
+    
+    private final double[] _dualValues;
+    private final double[] _reducedCosts;
+    private final double[] _rightHandSideLowerLimits;
+    private final double[] _rightHandSideUpperLimits;
+    private final double[] _costLowerLimits;
+    private final double[] _costUpperLimits;
+    
+    /**
+     * Analyzes an optimal basis of a maximize problem in standard form, and
+     * converts the results back to the program as it was entered. Row i of
+     * the standard form is row i of the program times rowFactors[i], and
+     * variable j is (X - lower) / columnFactors[j].
+     * @param standardForm The constraint matrix, with a column for every slack/surplus and artificial variable.
+     * @param basis The column of the basic variable in each row.
+     * @param atUpperBound The nonbasic columns that are at their upper bound.
+     * @param costs The cost of every column of the standard form.
+     * @param rhs The right hand side of every row of the standard form.
+     * @param upperBounds The upper bound of every column of the standard form.
+     * @param rowFactors The factor of each row.
+     * @param columnFactors The factor of each decision variable.
+     * @param minimize Whether the objective function was entered as a min.
+     * @param rightHandSides The right hand sides of the program.
+     * @param objectiveCosts The costs of the program.
+     */
+    Sensitivity(SparseMatrix standardForm, int[] basis, BitSet atUpperBound, double[] costs, double[] rhs, double[] upperBounds, 
+            double[] rowFactors, double[] columnFactors, boolean minimize, double[] rightHandSides, double[] objectiveCosts)
+    {
+        int rowCount = standardForm.getRowCount();
+        int columnCount = standardForm.getColumnCount();
+        int variableCount = columnFactors.length;
+        double sign = minimize ? -1 : 1;
+        BasisFactorization factorization = new BasisFactorization(standardForm);
+        factorization.factorize(basis);
+        int[] positions = new int[columnCount];
+        Arrays.fill(positions, -1);
+        for (int p = 0; p < rowCount; p++)
+        {
+            positions[basis[p]] = p;
+        }
+        
+        // The duals price out the basic columns, and the reduced costs are what is left.
+        double[] duals = new double[rowCount];
+        for (int p = 0; p < rowCount; p++)
+        {
+            duals[p] = costs[basis[p]];
+        }
+        factorization.btran(duals);
+        double[] reducedCosts = new double[columnCount];
+        for (int j = 0; j < columnCount; j++)
+        {
+            reducedCosts[j] = positions[j] >= 0 ? 0 : costs[j] - standardForm.dot(j, duals);
+        }
+        
+        // The value of every basic variable, with the nonbasic columns at their bounds.
+        double[] values = rhs.clone();
+        atUpperBound.stream().forEach(j -> 
+        {
+            for (int k = standardForm.getColumnStart(j); k < standardForm.getColumnEnd(j); k++)
+            {
+                values[standardForm.getRowIndex(k)] -= standardForm.getValue(k) * upperBounds[j];
+            }
+        });
+        factorization.ftran(values);
+        
+        _dualValues = new double[rowCount];
+        _rightHandSideLowerLimits = new double[rowCount];
+        _rightHandSideUpperLimits = new double[rowCount];
+        double[] column = new double[rowCount];
+        for (int i = 0; i < rowCount; i++)
+        {
+            _dualValues[i] = sign * duals[i] * rowFactors[i];
+            
+            // Moving the right hand side by t moves the basic variables by t * (column i of the inverse basis).
+            Arrays.fill(column, 0.0);
+            column[i] = 1;
+            factorization.ftran(column);
+            double lower = Double.NEGATIVE_INFINITY;
+            double upper = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < rowCount; p++)
+            {
+                double bound = upperBounds[basis[p]];
+                double value = Math.min(Math.max(values[p], 0), bound);
+                if (column[p] > TOLERANCE)
+                {
+                    lower = Math.max(lower, -value / column[p]);
+                    upper = Math.min(upper, (bound - value) / column[p]);
+                }
+                else if (column[p] < -TOLERANCE)
+                {
+                    upper = Math.min(upper, -value / column[p]);
+                    lower = Math.max(lower, (bound - value) / column[p]);
+                }
+            }
+            setRange(_rightHandSideLowerLimits, _rightHandSideUpperLimits, i, rightHandSides[i], lower, upper, rowFactors[i]);
+        }
+        
+        _reducedCosts = new double[variableCount];
+        _costLowerLimits = new double[variableCount];
+        _costUpperLimits = new double[variableCount];
+        double[] row = new double[rowCount];
+        for (int j = 0; j < variableCount; j++)
+        {
+            _reducedCosts[j] = sign * reducedCosts[j] / columnFactors[j];
+            
+            // A nonbasic variable only has to keep the sign of its own reduced cost.
+            double lower = Double.NEGATIVE_INFINITY;
+            double upper = Double.POSITIVE_INFINITY;
+            int p = positions[j];
+            if (p < 0 && atUpperBound.get(j))
+                lower = -Math.max(reducedCosts[j], 0);
+            else if (p < 0)
+                upper = -Math.min(reducedCosts[j], 0);
+            else
+            {
+                // Moving the cost of a basic variable by d moves the reduced cost of every
+                // nonbasic column k by -d * (row p of the final tableau)[k].
+                Arrays.fill(row, 0.0);
+                row[p] = 1;
+                factorization.btran(row);
+                for (int k = 0; k < columnCount; k++)
+                {
+                    if (positions[k] >= 0 || upperBounds[k] == 0)
+                        continue;
+                    double entry = standardForm.dot(k, row);
+                    boolean atUpper = atUpperBound.get(k);
+                    double reducedCost = atUpper ? Math.max(reducedCosts[k], 0) : Math.min(reducedCosts[k], 0);
+                    if ((entry > TOLERANCE && !atUpper) || (entry < -TOLERANCE && atUpper))
+                        lower = Math.max(lower, reducedCost / entry);
+                    else if (Math.abs(entry) > TOLERANCE)
+                        upper = Math.min(upper, reducedCost / entry);
+                }
+            }
+            setRange(_costLowerLimits, _costUpperLimits, j, objectiveCosts[j], lower, upper, sign * columnFactors[j]);
+        }
+    }
+    
+    /**
+     * Converts a range of changes in the standard form to limits on a value
+     * of the program. A negative factor turns the range around.
+     */
+    private static void setRange(double[] lowerLimits, double[] upperLimits, int index, double value, double lower, double upper, double factor)
+    {
+        lowerLimits[index] = value + (factor > 0 ? lower : upper) / factor;
+        upperLimits[index] = value + (factor > 0 ? upper : lower) / factor;
+    }
+    
+    /**
+     * Returns the dual value (shadow price) of every constraint: how much the
+     * optimal objective value changes per unit of its right hand side, while
+     * the right hand side stays within its limits.
+     * @return The dual values, in the order of the constraints.
+     */
+    public double[] getDualValues()
+    {
+        return _dualValues;
+    }
+    
+    /**
+     * Returns the reduced cost of every decision variable: how much the optimal
+     * objective value changes per unit that a nonbasic variable is moved away
+     * from its bound (0 for a basic variable).
+     * @return The reduced costs (variable index 1 is at 0, and so on).
+     */
+    public double[] getReducedCosts()
+    {
+        return _reducedCosts;
+    }
+    
+    /**
+     * Returns the smallest value each right hand side can take, on its own,
+     * without changing the optimal basis.
+     * @return The lower limits (may be negative infinity), in the order of the constraints.
+     */
+    public double[] getRightHandSideLowerLimits()
+    {
+        return _rightHandSideLowerLimits;
+    }
+    
+    /**
+     * Returns the largest value each right hand side can take, on its own,
+     * without changing the optimal basis.
+     * @return The upper limits (may be infinity), in the order of the constraints.
+     */
+    public double[] getRightHandSideUpperLimits()
+    {
+        return _rightHandSideUpperLimits;
+    }
+    
+    /**
+     * Returns the smallest value each cost can take, on its own, without
+     * changing the optimal solution.
+     * @return The lower limits (may be negative infinity), variable index 1 at 0.
+     */
+    public double[] getCostLowerLimits()
+    {
+        return _costLowerLimits;
+    }
+    
+    /**
+     * Returns the largest value each cost can take, on its own, without
+     * changing the optimal solution.
+     * @return The upper limits (may be infinity), variable index 1 at 0.
+     */
+    public double[] getCostUpperLimits()
+    {
+        return _costUpperLimits;
+    }
+}
@@ -5,29 +5,25 @@ import java.util.HashMap;
 
 /**
  * This class acts as an interface between the SimplexFrame and the
- * SimplexSolver.
+ * SimplexSolver. Every solve parses the frame into a new ModelContext,
+ * so nothing is left over from the previous one.
  * @author Gennaro
  */
 public class SimplexController 
 {    
-    private SimplexController()
-    {
-        throw new UnsupportedOperationException("SimplexController should not be initialized.");
-    }
-    
-    private static SimplexFrame _frame;
+    private final SimplexFrame _frame;
     
     /**
-     * Attaches the controller to the input frame.
+     * Attaches a controller to the input frame.
      * @param frame The GUI to control.
      */
-    public static void attachController(SimplexFrame frame)
+    public SimplexController(SimplexFrame frame)
     {
         _frame = frame;
         attachEventHandlers();
     }
     
-    private static void attachEventHandlers()
+    private void attachEventHandlers()
     {
         _frame.getButtonPanel().getSolveButton().addActionListener(e ->
         {
@@ -58,17 +54,19 @@ public class SimplexController
             
             // Now we can check the syntax of what has been entered.
             // First we have to add all the variables.
-            SimplexUtilities.reset();
+            ModelContext context = new ModelContext();
             for (int i = 1; i <= _frame.getVariablesPanel().getVariableCount(); i++)
             {
-                SimplexUtilities.addNewVariable(new Variable("X" + i, i));
+                context.addNewVariable(new Variable("X" + i, i));
             }
             
-            // Check the objective function.
-            HashMap<Variable, Double> objectiveFunctionEquation = SimplexUtilities.buildEquation(_frame.getObjectivePanel().getEquation());
+            // Check the objective function. The variables are named X1 to XN,
+            // so x1 is accepted as well.
+            HashMap<Variable, Double> objectiveFunctionEquation = context.buildEquation(_frame.getObjectivePanel().getEquation().toUpperCase());
             if (objectiveFunctionEquation == null)
             {
-                // There was something wrong (and an error message has already been shown). Stop running.
+                // There was something wrong. Show what, and stop running.
+                GraphicUtilities.showErrorMessage(context.getErrorMessage(), context.getErrorTitle());
                 return;
             }
             ObjectiveFunction objectiveFunction = new ObjectiveFunction(objectiveFunctionEquation, _frame.getObjectivePanel().getObjective());
@@ -77,19 +75,26 @@ public class SimplexController
             ArrayList<Constraint> constraints = new ArrayList<>();
             for (ConstraintPanel panel : _frame.getConstraintPanels())
             {
-                HashMap<Variable, Double> constraint = SimplexUtilities.buildEquation(panel.getEquation());
+                HashMap<Variable, Double> constraint = context.buildEquation(panel.getEquation().toUpperCase());
                 if (constraint == null)
                 {
-                    // Error in constraint. An error message has already been shown. Stop running.
+                    // Error in constraint. Show it, and stop running.
+                    GraphicUtilities.showErrorMessage(context.getErrorMessage(), context.getErrorTitle());
                     return;
                 }
                 // Add the constraint to the list.
                 constraints.add(new Constraint(constraint, panel.getSign(), panel.getRightHandSide()));
             }
             
-            // If we reach this point, the syntax is all valid. We can start using the
-            // Simplex algorithm now.
-            Tableau tableau = new Tableau(objectiveFunction, constraints);
+            // If we reach this point, the syntax is all valid. Presolve removes what it
+            // can before we start using the Simplex algorithm.
+            Presolver presolver = new Presolver(context.getVariables(), objectiveFunction, constraints);
+            if (presolver.isInfeasible())
+            {
+                GraphicUtilities.showErrorMessage("The LP is infeasible and cannot be solved.", "Solve Error");
+                return;
+            }
+            Tableau tableau = presolver.createTableau();
             String solution = tableau.solve();
             if (solution != null)
             {
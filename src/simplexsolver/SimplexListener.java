@@ -0,0 +1,38 @@
+package simplexsolver;
+
+/**
+ * Receives progress events from a solve. A tableau with no listener
+ * does no extra work at all.
+ * @author Gennaro
+ */
+public interface SimplexListener
+{
+    /**
+     * Represents how much detail a listener receives. PIVOTS only reports
+     * the pivot events, TABLEAUS also renders the full tableau after each
+     * change (the tableau engine only, and slow for anything but small models).
+     */
+    public enum Verbosity
+    {
+        PIVOTS, TABLEAUS
+    }
+    
+    /**
+     * Called after every pivot.
+     * @param phase 1 while searching for a feasible basis, 2 while optimizing.
+     * @param enteringColumn The column of the entering variable (variable index - 1).
+     * @param leavingRow The constraint row the leaving variable was basic in (starting at 0), or -1
+     * if the entering variable reached its upper bound first and stayed nonbasic.
+     * @param objectiveValue The objective value after the pivot. In phase 1 this is the sum of the artificial variables.
+     */
+    void pivoted(int phase, int enteringColumn, int leavingRow, double objectiveValue);
+    
+    /**
+     * Called with the rendered tableau when the verbosity is TABLEAUS.
+     * @param phase 1 while searching for a feasible basis, 2 while optimizing.
+     * @param tableau The tableau as text.
+     */
+    default void tableauChanged(int phase, String tableau)
+    {
+    }
+}
@@ -1,5 +1,8 @@
 package simplexsolver;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.JFrame;
 
 /**
@@ -15,9 +18,15 @@ public class SimplexSolver
      */
     public static void main(String[] args) 
     {
-//        SimplexUtilities.buildEquation("13X0 + X2 + 4X3 + X1 +*");
+        // A model file is solved without the GUI.
+        if (args.length != 0 && args[0].matches("(?i).*\\.(mps|lp)(\\.gz)?$"))
+        {
+            solveFile(Paths.get(args[0]), args.length > 1 && args[1].equalsIgnoreCase("fixed"));
+            return;
+        }
+        
         _frame = new SimplexFrame();
-        SimplexController.attachController(_frame);
+        new SimplexController(_frame);
         
         // For testing.
         int testCase = -1;
@@ -84,6 +93,43 @@ public class SimplexSolver
         _frame.setVisible(true);
     }
     
+    /**
+     * Reads a model file (MPS or CPLEX LP, by its extension) and prints the
+     * value of each of its columns and of the objective function. A model
+     * with integer columns is solved with branch and bound. The label of the
+     * objective value cannot be a column name: only fixed MPS names may have
+     * a space, and they are at most 8 characters long.
+     * @param path The file.
+     * @param fixed Whether an MPS file is in fixed format.
+     */
+    private static void solveFile(Path path, boolean fixed)
+    {
+        String name = path.getFileName().toString().toLowerCase();
+        ModelReader reader = name.endsWith(".lp") || name.endsWith(".lp.gz") 
+                ? new LpReader() 
+                : new MpsReader(fixed ? MpsReader.Format.FIXED : MpsReader.Format.FREE);
+        try
+        {
+            Tableau tableau = reader.read(path).createTableau();
+            boolean hasIntegers = tableau.getDecisionVariables().stream().anyMatch(Variable::isInteger);
+            SolveResult result = hasIntegers ? new BranchAndBound(tableau).optimize() : tableau.optimize();
+            System.out.println(result.getStatus());
+            if (!result.isOptimal())
+                return;
+            String[] columnNames = reader.getColumnNames();
+            double[] values = reader.getColumnValues(result);
+            for (int j = 0; j < columnNames.length; j++)
+            {
+                System.out.println(columnNames[j] + "* = " + values[j]);
+            }
+            System.out.println("Objective value = " + result.getObjectiveValue());
+        }
+        catch (IOException e)
+        {
+            System.err.println(path + ": " + e.getMessage());
+        }
+    }
+    
     /**
      * Returns the parent panel of the GUI.
      * @return 
@@ -1,10 +1,5 @@
 package simplexsolver;
 
-import java.util.HashMap;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * This class provides utilities needed for creating and solving
  * a linear program.
@@ -35,216 +30,73 @@ public class SimplexUtilities
         MIN, MAX
     }
     
-    private static TreeSet<Variable> _variables = null;
-    
     /**
-     * Adds a new decision variable to the set of variables.
-     * @param variable The variable to add.
+     * Represents the engines that can solve a tableau. TABLEAU updates the
+     * full tableau on every pivot. REVISED only keeps a factorization of the
+     * basis and computes the parts of the tableau it needs. DUAL runs the
+     * dual simplex method on the full tableau from the starting slack basis,
+     * without a first phase, when the objective function allows it (for
+     * example, minimizing nonnegative costs), and TABLEAU otherwise.
      */
-    public static void addNewVariable(Variable variable)
+    public enum Engine
     {
-        if (_variables == null)
-        {
-            // This set should sort by variable index to guarantee order in all other objects.
-            _variables = new TreeSet<>((Variable v1, Variable v2) ->
-            {
-                return v1.getIndex() - v2.getIndex();
-            });
-        }
-        
-        _variables.add(variable);
+        TABLEAU, REVISED, DUAL
     }
     
     /**
-     * Resets the variables for a new run of the simplex algorithm.
+     * Represents the rules for choosing the entering variable in the tableau
+     * engine. DANTZIG takes the most negative reduced cost, PARTIAL prices a
+     * segment of the columns at a time, DEVEX and STEEPEST_EDGE scale the
+     * reduced costs by (approximate and exact) edge lengths.
      */
-    public static void reset()
+    public enum Pricing
     {
-        _variables = null;
+        DANTZIG, PARTIAL, DEVEX, STEEPEST_EDGE
     }
     
     /**
-     * Checks the passed in equation string for correct syntax. Returns
-     * null if no error, or an error message if something is incorrect.
-     * @param equationString The equation to parse.
-     * @return An error message, or null if no errors.
+     * Represents the rules the tableau engine switches to after a long run of
+     * degenerate pivots, so it cannot cycle. BLAND enters the first improving
+     * column and breaks ratio ties by the lowest variable index. LEXICOGRAPHIC
+     * keeps the pricing rule and breaks ratio ties lexicographically.
      */
-    private static String checkEquationSyntax(String equationString)
+    public enum DegeneracyRule
     {
-        // Format: c1X1 + c2X2 + ... cnXn
-        String pattern = "-?((\\d+(\\.\\d+)?)?[A-Z]+\\d+\\s?[+-]\\s?)*((\\d+(\\.\\d+)?)?[A-Z]+\\d+)";
-        equationString = equationString.toUpperCase().trim();
-        int syntaxError = findSyntaxError(Pattern.compile(pattern), equationString);
-        if (syntaxError == -1)
-            return null;
-        else if (syntaxError == equationString.length())
-            return "Your equation is incomplete: " + equationString;
-        else
-            return "Invalid character <" + equationString.charAt(syntaxError) + "> at index " + 
-                    syntaxError + " in equation: " + equationString;
+        BLAND, LEXICOGRAPHIC
     }
     
     /**
-     * Returns the first index of a syntax error (or -1 if there is no syntax error).
-     * @return 
+     * Represents the ways the constraint matrix can be scaled before a solve.
+     * GEOMETRIC divides every row and column by the geometric mean of its
+     * largest and smallest entry, a few times over. EQUILIBRATION makes the
+     * largest entry of every row and column about 1. AUTOMATIC does both,
+     * but only when the entries of the matrix span several orders of magnitude.
      */
-    private static int findSyntaxError(Pattern pattern, String string)
+    public enum Scaling
     {
-        // Step through the string until invalid syntax is found.
-        for (int i = 0; i <= string.length(); i++) 
-        {
-            Matcher m = pattern.matcher(string.substring(0, i));
-            if (!m.matches() && !m.hitEnd()) 
-            {
-                return i - 1;
-            }
-        }
-        // If no syntax error was found, either it is a match (this case)...
-        if (pattern.matcher(string).matches()) 
-        {
-            return -1;
-        }
-        // ... or the pattern was not fully matched (the equation is missing characters).
-        else 
-        {
-            return string.length();
-        }
+        NONE, GEOMETRIC, EQUILIBRATION, AUTOMATIC
     }
     
-    public static HashMap<Variable, Double> buildEquation(String equationString)
-    {
-        HashMap<Variable, Double> toReturn = new HashMap<>();
-        String syntaxError = checkEquationSyntax(equationString);
-        if (syntaxError != null)
-        {
-            GraphicUtilities.showErrorMessage(syntaxError, "Syntax error");
-            return null;
-        }
-        
-        _variables.stream().forEach(v -> 
-        {
-            toReturn.put(v, 0.0);
-        });
-        
-        // Since the syntax check was successful, we can remove all the whitespaces
-        // to make parsing the string easier.
-        equationString = equationString.replace(" ", "");
-        
-        // Now we have to step through the string and assign the correct integers
-        // to each variable.
-        for (int i = 0; i < equationString.length(); i++)
-        {
-            // First we need a number.
-            double number = 0;
-            boolean isNegative;
-            char c = equationString.charAt(i);
-            int fractionalCounter = 0;
-            StringBuilder variableName = new StringBuilder();
-            
-            // If this is the first iteration, the first character may be a negative sign.
-            if (i == 0)
-            {
-                isNegative = (c == '-');
-                // If this is the first iteration, and the first char is a -, we need
-                // to eat that char to reach the first number.
-                if (isNegative)
-                {
-                    i++;
-                    c = equationString.charAt(i);
-                }
-            }
-            else
-            {
-                // If this is a different iteration, we will have to find a sign.
-                // Check the sign.
-                isNegative = (c == '-');
-                i++;
-                c = equationString.charAt(i);
-            }
-            
-            // Since the regex was successful, there is guaranteed to be a variable
-            // after every constant.
-            while (isDigit(c))
-            {
-                // First, we have to make room for the new number in the one's place.
-                number *= 10;
-                number += Character.getNumericValue(c);
-                i++;
-                c = equationString.charAt(i);
-                
-                // If we reached a decimal point, we now have to handle the fractional portion.
-                if (c == '.')
-                {
-                    i++;
-                    c = equationString.charAt(i);
-                    fractionalCounter = 1;
-                    while (isDigit(c))
-                    {
-                        number += (Character.getNumericValue(c) * Math.pow(10, -fractionalCounter));
-                        fractionalCounter++;
-                        i++;
-                        c = equationString.charAt(i);
-                    }
-                }
-            }
-            
-            // If the number remained 0, that means there was no number in front of the variable.
-            // This means the coefficient of the variable is 1.
-            if (number == 0)
-                number = 1;
-            
-            if (isNegative)
-                number *= -1;
-            
-            // Now we need the variable name. In the current implementation,
-            // we will assume that all variables are named XN where N is an integer.
-            do
-            {
-                // The first char is 'X'.
-                // Build the variable number.
-                variableName.append(c);
-                i++;
-                
-                // If we reach the end of the string, i will extend one char too far,
-                // in which case we should just exit the loop.
-                if (i  == equationString.length())
-                    break;
-                c = equationString.charAt(i);
-            } while (isDigit(c));
-            
-            // When we exit the loop, we want to decrement since the for loop
-            // will automatically re-increment i.
-            i--;
-            
-            System.out.println("Constant: " + number + " Variable name: " + variableName.toString());
-            
-            Object[] matches = toReturn
-                .keySet()
-                .stream()
-                .filter(key -> key.getName().equals(variableName.toString()))
-                .toArray();
-            
-            if (matches.length > 1)
-                throw new IllegalStateException("There are multiple variables with the same name.");
-            else if (matches.length == 0)
-            {
-                GraphicUtilities.showErrorMessage(
-                        "You attempted to use variable <" + variableName.toString() + "> but it is not a defined variable.", 
-                        "Undeclared Variable");
-                return null;
-            }
-            
-            // If neither of the above error cases occurred, we have found the variable
-            // corresponding to the coefficient we read in.
-            toReturn.replace((Variable)matches[0], number);
-        }
-        
-        
-        return toReturn;
-    }
+    // Powers of 10 that are exact as doubles.
+    private static final double[] POWERS_OF_TEN = {
+        1E0, 1E1, 1E2, 1E3, 1E4, 1E5, 1E6, 1E7, 1E8, 1E9, 1E10, 1E11,
+        1E12, 1E13, 1E14, 1E15, 1E16, 1E17, 1E18, 1E19, 1E20, 1E21, 1E22
+    };
     
-    private static boolean isDigit(char c)
+    /**
+     * Computes mantissa * 10^exponent with a single rounding, when that can be
+     * done with one multiplication or division of exact doubles (a mantissa
+     * up to 2^53, and a power of 10 up to 10^22).
+     * @param mantissa The digits, as an integer.
+     * @param exponent The power of 10.
+     * @return The value, or NaN if it cannot be computed this way.
+     */
+    static double scaleByPowerOfTen(long mantissa, int exponent)
     {
-        return c >= '0' && c <= '9';
+        if (mantissa == 0)
+            return 0;
+        if (mantissa > (1L << 53) || exponent < -22 || exponent > 22)
+            return Double.NaN;
+        return exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
     }
 }
@@ -0,0 +1,159 @@
+package simplexsolver;
+
+/**
+ * The result of solving a linear program, without any formatting.
+ * @author Gennaro
+ */
+public class SolveResult
+{
+    /**
+     * Represents the possible outcomes of a solve. LIMIT means the iteration
+     * limit was reached before the solve finished.
+     */
+    public enum Status
+    {
+        OPTIMAL, INFEASIBLE, UNBOUNDED, LIMIT
+    }
+    
+    private final Status _status;
+    private final double _objectiveValue;
+    private final double[] _values;
+    private final int[] _basis;
+    private final int _iterationCount;
+    private final int _phaseOneIterationCount;
+    private final double[] _rowScales;
+    private final double[] _columnScales;
+    private final Sensitivity _sensitivity;
+    
+    /**
+     * Defines the result of a solve.
+     * @param status The outcome of the solve.
+     * @param objectiveValue The optimal value of the objective function (NaN if not optimal).
+     * @param values The value of each decision variable (variable index 1 is at 0, and so on).
+     * @param basis The variable index - 1 of the basic variable in each constraint row.
+     * @param iterationCount The number of pivots that were performed.
+     * @param phaseOneIterationCount The number of those pivots that were spent finding a feasible basis.
+     */
+    public SolveResult(Status status, double objectiveValue, double[] values, int[] basis, int iterationCount, int phaseOneIterationCount)
+    {
+        this(status, objectiveValue, values, basis, iterationCount, phaseOneIterationCount, new double[0], new double[0]);
+    }
+    
+    /**
+     * Defines the result of a solve, including the scale factors that were used.
+     * @param status The outcome of the solve.
+     * @param objectiveValue The optimal value of the objective function (NaN if not optimal).
+     * @param values The value of each decision variable (variable index 1 is at 0, and so on).
+     * @param basis The variable index - 1 of the basic variable in each constraint row.
+     * @param iterationCount The number of pivots that were performed.
+     * @param phaseOneIterationCount The number of those pivots that were spent finding a feasible basis.
+     * @param rowScales The factor each constraint row was multiplied by.
+     * @param columnScales The factor each decision variable column was multiplied by.
+     */
+    public SolveResult(Status status, double objectiveValue, double[] values, int[] basis, int iterationCount, int phaseOneIterationCount, double[] rowScales, double[] columnScales)
+    {
+        this(status, objectiveValue, values, basis, iterationCount, phaseOneIterationCount, rowScales, columnScales, null);
+    }
+    
+    /**
+     * Defines the result of a solve, including the scale factors that were used
+     * and the sensitivity analysis of the optimal basis.
+     * @param status The outcome of the solve.
+     * @param objectiveValue The optimal value of the objective function (NaN if not optimal).
+     * @param values The value of each decision variable (variable index 1 is at 0, and so on).
+     * @param basis The variable index - 1 of the basic variable in each constraint row.
+     * @param iterationCount The number of pivots that were performed.
+     * @param phaseOneIterationCount The number of those pivots that were spent finding a feasible basis.
+     * @param rowScales The factor each constraint row was multiplied by.
+     * @param columnScales The factor each decision variable column was multiplied by.
+     * @param sensitivity The sensitivity analysis, or null if it was not requested.
+     */
+    public SolveResult(Status status, double objectiveValue, double[] values, int[] basis, int iterationCount, int phaseOneIterationCount, double[] rowScales, double[] columnScales, Sensitivity sensitivity)
+    {
+        _status = status;
+        _objectiveValue = objectiveValue;
+        _values = values;
+        _basis = basis;
+        _iterationCount = iterationCount;
+        _phaseOneIterationCount = phaseOneIterationCount;
+        _rowScales = rowScales;
+        _columnScales = columnScales;
+        _sensitivity = sensitivity;
+    }
+    
+    public Status getStatus()
+    {
+        return _status;
+    }
+    
+    public boolean isOptimal()
+    {
+        return _status == Status.OPTIMAL;
+    }
+    
+    public double getObjectiveValue()
+    {
+        return _objectiveValue;
+    }
+    
+    /**
+     * Returns the primal solution. Variable index 1 is at position 0, and so on.
+     * Slack/surplus and artificial variables are not included.
+     * @return The value of each decision variable (empty if not optimal).
+     */
+    public double[] getValues()
+    {
+        return _values;
+    }
+    
+    /**
+     * Returns the final basis. Slack/surplus and artificial variables are numbered
+     * after the decision variables, in the order they were created.
+     * @return The variable index - 1 of the basic variable in each row (empty if not optimal,
+     * or if the program was presolved).
+     */
+    public int[] getBasis()
+    {
+        return _basis;
+    }
+    
+    public int getIterationCount()
+    {
+        return _iterationCount;
+    }
+    
+    public int getPhaseOneIterationCount()
+    {
+        return _phaseOneIterationCount;
+    }
+    
+    /**
+     * Returns the factor each constraint row was multiplied by before the solve.
+     * @return The row factors (all 1 if the program was not scaled, empty if they are not known).
+     */
+    public double[] getRowScales()
+    {
+        return _rowScales;
+    }
+    
+    /**
+     * Returns the factor each decision variable column was multiplied by before
+     * the solve. The solved variable was the original one divided by this factor.
+     * @return The column factors (all 1 if the program was not scaled, empty if they are not known).
+     */
+    public double[] getColumnScales()
+    {
+        return _columnScales;
+    }
+    
+    /**
+     * Returns the dual values, reduced costs and ranging of the optimal basis.
+     * They are only computed on request (see Tableau.setSensitivityAnalysis),
+     * which a presolved program does not allow.
+     * @return The sensitivity analysis, or null if it was not computed.
+     */
+    public Sensitivity getSensitivity()
+    {
+        return _sensitivity;
+    }
+}
@@ -0,0 +1,236 @@
+package simplexsolver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * A constraint matrix stored in compressed sparse form. The nonzeros of
+ * column j are stored at positions getColumnStart(j) to getColumnEnd(j) - 1,
+ * and the same nonzeros are also indexed by row: the nonzeros of row i are
+ * at positions getRowStart(i) to getRowEnd(i) - 1 of the row arrays.
+ * Memory is proportional to the number of nonzeros.
+ * @author Gennaro
+ */
+public class SparseMatrix
+{
+    private final int _rowCount;
+    private final int _columnCount;
+    private final int[] _columnStarts;
+    private final int[] _rowIndices;
+    private final double[] _values;
+    private final int[] _rowStarts;
+    private final int[] _columnIndices;
+    private final double[] _rowValues;
+    
+    /**
+     * Defines a sparse matrix from its compressed column arrays.
+     * @param rowCount The number of rows in the matrix.
+     * @param columnCount The number of columns in the matrix.
+     * @param columnStarts The start of each column, with one extra entry marking the end of the last column.
+     * @param rowIndices The row of each nonzero.
+     * @param values The value of each nonzero.
+     */
+    public SparseMatrix(int rowCount, int columnCount, int[] columnStarts, int[] rowIndices, double[] values)
+    {
+        _rowCount = rowCount;
+        _columnCount = columnCount;
+        _columnStarts = columnStarts;
+        _rowIndices = rowIndices;
+        _values = values;
+        
+        // Build the row index by counting the nonzeros in each row.
+        _rowStarts = new int[rowCount + 1];
+        for (int k = 0; k < columnStarts[columnCount]; k++)
+        {
+            _rowStarts[rowIndices[k] + 1]++;
+        }
+        for (int i = 0; i < rowCount; i++)
+        {
+            _rowStarts[i + 1] += _rowStarts[i];
+        }
+        _columnIndices = new int[columnStarts[columnCount]];
+        _rowValues = new double[columnStarts[columnCount]];
+        int[] next = Arrays.copyOf(_rowStarts, rowCount);
+        for (int j = 0; j < columnCount; j++)
+        {
+            for (int k = columnStarts[j]; k < columnStarts[j + 1]; k++)
+            {
+                int row = rowIndices[k];
+                _columnIndices[next[row]] = j;
+                _rowValues[next[row]] = values[k];
+                next[row]++;
+            }
+        }
+    }
+    
+    /**
+     * Compresses a list of equations. Every variable with index i is placed in
+     * column i - 1, and coefficients of exactly 0 are not stored.
+     * @param equations The equations, one per row.
+     * @param columnCount The number of decision variables.
+     * @return The compressed matrix.
+     */
+    public static SparseMatrix fromEquations(List<HashMap<Variable, Double>> equations, int columnCount)
+    {
+        int[] columnStarts = new int[columnCount + 1];
+        for (HashMap<Variable, Double> equation : equations)
+        {
+            for (Entry<Variable, Double> kvp : equation.entrySet())
+            {
+                if (kvp.getValue() != 0)
+                    columnStarts[kvp.getKey().getIndex()]++;
+            }
+        }
+        for (int j = 0; j < columnCount; j++)
+        {
+            columnStarts[j + 1] += columnStarts[j];
+        }
+        
+        int[] rowIndices = new int[columnStarts[columnCount]];
+        double[] values = new double[columnStarts[columnCount]];
+        int[] next = Arrays.copyOf(columnStarts, columnCount);
+        for (int i = 0; i < equations.size(); i++)
+        {
+            for (Entry<Variable, Double> kvp : equations.get(i).entrySet())
+            {
+                if (kvp.getValue() == 0)
+                    continue;
+                int column = kvp.getKey().getIndex() - 1;
+                rowIndices[next[column]] = i;
+                values[next[column]] = kvp.getValue();
+                next[column]++;
+            }
+        }
+        return new SparseMatrix(equations.size(), columnCount, columnStarts, rowIndices, values);
+    }
+    
+    /**
+     * Returns a copy of this matrix with extra columns appended, each of
+     * which has a single nonzero (such as slack and artificial variables).
+     * @param rows The row of the nonzero in each new column.
+     * @param values The value of the nonzero in each new column.
+     * @return The extended matrix.
+     */
+    public SparseMatrix withSingletonColumns(int[] rows, double[] values)
+    {
+        int nonzeros = getNonzeroCount();
+        int[] columnStarts = Arrays.copyOf(_columnStarts, _columnCount + rows.length + 1);
+        int[] rowIndices = Arrays.copyOf(_rowIndices, nonzeros + rows.length);
+        double[] newValues = Arrays.copyOf(_values, nonzeros + rows.length);
+        for (int k = 0; k < rows.length; k++)
+        {
+            rowIndices[nonzeros + k] = rows[k];
+            newValues[nonzeros + k] = values[k];
+            columnStarts[_columnCount + k + 1] = nonzeros + k + 1;
+        }
+        return new SparseMatrix(_rowCount, _columnCount + rows.length, columnStarts, rowIndices, newValues);
+    }
+    
+    /**
+     * Returns a copy of this matrix with every entry (i, j) multiplied by
+     * rowScales[i] * columnScales[j].
+     * @param rowScales The factor of each row.
+     * @param columnScales The factor of each column.
+     * @return The scaled matrix.
+     */
+    public SparseMatrix scaled(double[] rowScales, double[] columnScales)
+    {
+        double[] values = new double[getNonzeroCount()];
+        for (int j = 0; j < _columnCount; j++)
+        {
+            for (int k = _columnStarts[j]; k < _columnStarts[j + 1]; k++)
+            {
+                values[k] = _values[k] * rowScales[_rowIndices[k]] * columnScales[j];
+            }
+        }
+        return new SparseMatrix(_rowCount, _columnCount, _columnStarts, _rowIndices, values);
+    }
+    
+    public int getRowCount()
+    {
+        return _rowCount;
+    }
+    
+    public int getColumnCount()
+    {
+        return _columnCount;
+    }
+    
+    public int getNonzeroCount()
+    {
+        return _columnStarts[_columnCount];
+    }
+    
+    public int getColumnStart(int column)
+    {
+        return _columnStarts[column];
+    }
+    
+    public int getColumnEnd(int column)
+    {
+        return _columnStarts[column + 1];
+    }
+    
+    public int getRowIndex(int position)
+    {
+        return _rowIndices[position];
+    }
+    
+    public double getValue(int position)
+    {
+        return _values[position];
+    }
+    
+    public int getRowStart(int row)
+    {
+        return _rowStarts[row];
+    }
+    
+    public int getRowEnd(int row)
+    {
+        return _rowStarts[row + 1];
+    }
+    
+    public int getColumnIndex(int position)
+    {
+        return _columnIndices[position];
+    }
+    
+    public double getRowValue(int position)
+    {
+        return _rowValues[position];
+    }
+    
+    /**
+     * Computes the dot product of a column with a dense vector indexed by row.
+     * @param column The column of this matrix.
+     * @param vector The dense vector.
+     * @return The dot product.
+     */
+    public double dot(int column, double[] vector)
+    {
+        double sum = 0;
+        for (int k = _columnStarts[column]; k < _columnStarts[column + 1]; k++)
+        {
+            sum += _values[k] * vector[_rowIndices[k]];
+        }
+        return sum;
+    }
+    
+    /**
+     * Writes a column into a dense vector indexed by row. Rows that are
+     * not in the column are set to 0.
+     * @param column The column of this matrix.
+     * @param vector The dense vector to fill.
+     */
+    public void scatter(int column, double[] vector)
+    {
+        Arrays.fill(vector, 0, _rowCount, 0.0);
+        for (int k = _columnStarts[column]; k < _columnStarts[column + 1]; k++)
+        {
+            vector[_rowIndices[k]] = _values[k];
+        }
+    }
+}
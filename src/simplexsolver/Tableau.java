@@ -3,13 +3,16 @@ package simplexsolver;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Represents a tableau for use in the simplex algorithm.
@@ -17,381 +20,1949 @@ import java.util.TreeSet;
  */
 public class Tableau
 {
-    private double[][] _matrix;
-    private TreeSet<Variable> _variables;
-    private TreeSet<Variable> _originalVariables;
+    // After this many pivots in a row that do not move, the degeneracy rule takes over.
+    private static final int DEGENERATE_PIVOT_LIMIT = 20;
+    private static final double DEGENERATE_STEP = 1E-12;
+    private static final double PERTURBATION_SIZE = 1E-6;
+    // The Big-M cost of an artificial variable, relative to the largest cost.
+    private static final double BIG_M_FACTOR = 1E6;
+    
+    /**
+     * The tableau is stored row-major in a single array so that pivots can be
+     * performed in place. Element (i, j) lives at i * _columnCount + j.
+     */
+    private double[] _matrix;
+    private int _rowCount;
+    private int _columnCount;
+    private VariableRegistry _variables;
+    private VariableRegistry _originalVariables;
     private ObjectiveFunction _objective;
     private ArrayList<Constraint> _constraints;
     private boolean _requiresTwoPhase = false;
-    private LinkedList<Integer> _basicVariables;
+    // The basic variable of each constraint (row i + 1 of the tableau is at i).
+    private int[] _basicVariables;
     private boolean _wasMinimize;
-    private ArrayList<Integer> _artificalIndices;
+    private BitSet _artificalIndices;
+    // The decision variable coefficients of the constraints as they were entered (null
+    // until loadProgram compresses them, and after an edit to a coefficient). It may be
+    // shared with other tableaus, so it is never modified.
+    private SparseMatrix _programMatrix;
+    // The same coefficients after the rows were turned around and scaled. Edits
+    // applied to the final tableau do not update it (loadProgram builds it again).
+    private SparseMatrix _constraintMatrix;
+    private double[] _rightHandSides;
+    // The sign of each constraint, after any constraint with a negative right hand side was
+    // turned around, and -1 for the constraints that were turned around (1 for the others).
+    private SimplexUtilities.Sign[] _signs;
+    private double[] _rowDirections;
+    // The lower bound of each decision variable, and the width of its range (infinite if it
+    // has no upper bound). The columns in _flippedColumns are measured down from the upper bound.
+    private double[] _lowerBounds;
+    private double[] _upperBounds;
+    private boolean _hasUpperBounds = false;
+    private BitSet _flippedColumns;
+    // The objective value of the lower bounds, which the shift takes out of the objective.
+    private double _objectiveOffset;
+    private int _originalVariableCount;
+    // The slack/surplus and artificial column of each constraint (-1 if it has none).
+    private int[] _slackColumns;
+    private int[] _artificialColumns;
+    // The decision column that starts out basic in each row instead of an artificial
+    // variable (-1 if there is none), chosen by the crash basis.
+    private int[] _crashColumns;
+    private boolean _crashBasis = true;
+    private boolean _bigM = false;
+    private SimplexUtilities.Engine _engine = SimplexUtilities.Engine.TABLEAU;
+    private SimplexUtilities.Scaling _scaling = SimplexUtilities.Scaling.AUTOMATIC;
+    // The factors chosen on the first solve (null until then). Variable j of the
+    // scaled program is the shifted decision variable divided by _columnScales[j].
+    private double[] _rowScales;
+    private double[] _columnScales;
+    private int _iterationLimit = Integer.MAX_VALUE;
+    private boolean _sensitivityAnalysis = false;
+    private int _iterationCount = 0;
+    private int _phaseOneIterationCount = 0;
+    private SimplexUtilities.Pricing _pricing = SimplexUtilities.Pricing.DANTZIG;
+    private PricingRule _pricingRule = new DantzigPricing();
+    private SimplexUtilities.DegeneracyRule _degeneracyRule = SimplexUtilities.DegeneracyRule.BLAND;
+    private boolean _perturb = false;
+    // The part of each right hand side that comes from the perturbation, carried through every pivot.
+    private double[] _perturbation;
+    private boolean _artificialsRemoved = false;
+    // _reloadRequired is set when the next solve has to start over from the program.
+    // After an optimal solve with a dense engine, edits are applied to the final tableau
+    // instead. An edit may leave it primal infeasible (repaired with the dual simplex
+    // method) or dual infeasible (repaired with the primal simplex method), but not both.
+    private boolean _reloadRequired = false;
+    private boolean _warmStartable = false;
+    private boolean _primalFeasible = false;
+    private boolean _dualFeasible = false;
+    private int _nextSlackNumber;
+    private ForkJoinPool _parallelPool;
+    private RowOperations _rowOperations = new ScalarRowOperations();
+    private PivotKernel _pivotKernel = new PivotKernel();
+    private SimplexListener _listener;
+    // Maps the results back to the original program when this tableau holds a presolved one.
+    private Presolver _presolver;
+    private SimplexListener.Verbosity _verbosity = SimplexListener.Verbosity.PIVOTS;
+    // State kept by the revised engine so the final tableau can be written on request.
+    private RevisedSimplex _revisedSimplex;
+    private SparseMatrix _standardForm;
+    private double[] _costs;
+    
+    /**
+     * Defines a tableau for a linear program. Only the nonzero coefficients
+     * are stored at this point; the dense tableau is built when it is needed.
+     * @param variables The declared decision variables.
+     * @param objective The objective function.
+     * @param constraints The constraints.
+     */
+    public Tableau(Collection<Variable> variables, ObjectiveFunction objective, ArrayList<Constraint> constraints)
+    {
+        this(variables, objective, constraints, null);
+    }
     
-    public Tableau(ObjectiveFunction objective, ArrayList<Constraint> constraints)
+    /**
+     * Defines a tableau for a linear program whose constraints were already
+     * compressed. Used by CompiledModel, so that every tableau of a model
+     * shares the same matrix.
+     * @param matrix The coefficients of the constraints, as they were entered.
+     */
+    Tableau(Collection<Variable> variables, ObjectiveFunction objective, ArrayList<Constraint> constraints, SparseMatrix matrix)
     {
+        _programMatrix = matrix;
         _objective = objective;
-        _constraints = constraints;
+        _constraints = new ArrayList<>(constraints);
         _wasMinimize = !_objective.isMaximize();
         if (!_objective.isMaximize())
             _objective.convertToMaximize();
         
-        _basicVariables = new LinkedList<>();
-        
-        // Add all the variables to the list, and sort by index number.
+        // Sort the variables by index number.
         // Variable index 1 will be index 0 in the matrix, and so on.
-        _variables = new TreeSet<>((v1, v2) -> v1.getIndex() - v2.getIndex());
-        _originalVariables = new TreeSet<>((v1, v2) -> v1.getIndex() - v2.getIndex());
-        HashMap<Variable, Double> objectiveEquation = objective.getEquation();
-        objectiveEquation
+        ArrayList<Variable> sorted = new ArrayList<>(variables);
+        sorted.sort((v1, v2) -> v1.getIndex() - v2.getIndex());
+        _originalVariables = new VariableRegistry();
+        sorted.forEach(_originalVariables::add);
+        loadProgram();
+    }
+    
+    /**
+     * Copies a tableau, including the final tableau of its last solve. The
+     * compressed matrices and the constraints are never modified, so they are
+     * shared; everything that a solve or an edit changes in place is copied.
+     * The copy has no listener.
+     */
+    private Tableau(Tableau other)
+    {
+        _matrix = other._matrix == null ? null : other._matrix.clone();
+        _rowCount = other._rowCount;
+        _columnCount = other._columnCount;
+        _variables = new VariableRegistry();
+        other._variables.forEach(_variables::add);
+        _originalVariables = new VariableRegistry();
+        other._originalVariables.forEach(_originalVariables::add);
+        _objective = new ObjectiveFunction(new HashMap<>(other._objective.getEquation()), SimplexUtilities.Objective.MAX);
+        _constraints = new ArrayList<>(other._constraints);
+        _requiresTwoPhase = other._requiresTwoPhase;
+        _basicVariables = other._basicVariables.clone();
+        _wasMinimize = other._wasMinimize;
+        _artificalIndices = (BitSet) other._artificalIndices.clone();
+        _programMatrix = other._programMatrix;
+        _constraintMatrix = other._constraintMatrix;
+        _rightHandSides = other._rightHandSides.clone();
+        _signs = other._signs.clone();
+        _rowDirections = other._rowDirections.clone();
+        _lowerBounds = other._lowerBounds.clone();
+        _upperBounds = other._upperBounds.clone();
+        _hasUpperBounds = other._hasUpperBounds;
+        _flippedColumns = (BitSet) other._flippedColumns.clone();
+        _objectiveOffset = other._objectiveOffset;
+        _originalVariableCount = other._originalVariableCount;
+        _slackColumns = other._slackColumns.clone();
+        _artificialColumns = other._artificialColumns.clone();
+        _crashColumns = other._crashColumns.clone();
+        _crashBasis = other._crashBasis;
+        _bigM = other._bigM;
+        _engine = other._engine;
+        _scaling = other._scaling;
+        _rowScales = other._rowScales == null ? null : other._rowScales.clone();
+        _columnScales = other._columnScales == null ? null : other._columnScales.clone();
+        _iterationLimit = other._iterationLimit;
+        _sensitivityAnalysis = other._sensitivityAnalysis;
+        _pricing = other._pricing;
+        _pricingRule = PricingRule.create(other._pricing);
+        _degeneracyRule = other._degeneracyRule;
+        _perturb = other._perturb;
+        _perturbation = other._perturbation == null ? null : other._perturbation.clone();
+        _artificialsRemoved = other._artificialsRemoved;
+        _reloadRequired = other._reloadRequired;
+        _warmStartable = other._warmStartable;
+        _primalFeasible = other._primalFeasible;
+        _dualFeasible = other._dualFeasible;
+        _nextSlackNumber = other._nextSlackNumber;
+        _parallelPool = other._parallelPool;
+        // The vectorized row operations keep buffers, so the copy gets its own.
+        _rowOperations = other._rowOperations instanceof ScalarRowOperations ? new ScalarRowOperations() : RowOperations.createVectorized();
+        _pivotKernel = new PivotKernel(_parallelPool, _rowOperations);
+        _presolver = other._presolver;
+        _revisedSimplex = other._revisedSimplex;
+        _standardForm = other._standardForm;
+        _costs = other._costs == null ? null : other._costs.clone();
+    }
+    
+    /**
+     * Copies this tableau with its settings and the final tableau of its last
+     * solve, so that the copy can be edited and solved again on its own (for
+     * example, on another thread) and still continue from that basis.
+     * @return The copy.
+     */
+    public Tableau copy()
+    {
+        return new Tableau(this);
+    }
+    
+    /**
+     * Sets up the columns and the compressed constraints from the variables
+     * and the constraints. This is repeated when an edit cannot be applied
+     * to the final tableau of the previous solve.
+     */
+    private void loadProgram()
+    {
+        ArrayList<Constraint> constraints = _constraints;
+        _variables = new VariableRegistry();
+        _originalVariables.forEach(_variables::add);
+        _requiresTwoPhase = false;
+        _hasUpperBounds = false;
+        _artificialsRemoved = false;
+        _perturbation = null;
+        _matrix = null;
+        _rowScales = null;
+        _columnScales = null;
+        _reloadRequired = false;
+        _warmStartable = false;
+        
+        // Every variable is shifted so that its lower bound is 0 (X = lower + X'),
+        // and its upper bound becomes the width of its range.
+        _originalVariableCount = _variables.size();
+        _lowerBounds = new double[_originalVariableCount];
+        _upperBounds = new double[_originalVariableCount];
+        _flippedColumns = new BitSet();
+        for (Variable v : _originalVariables)
+        {
+            _lowerBounds[v.getIndex() - 1] = v.getLowerBound();
+            _upperBounds[v.getIndex() - 1] = v.getUpperBound() - v.getLowerBound();
+            _hasUpperBounds |= v.getUpperBound() != Double.POSITIVE_INFINITY;
+        }
+        _objectiveOffset = _objective.getEquation()
                 .entrySet()
                 .stream()
-                .forEach(kvp -> 
-                {
-                    _variables.add(kvp.getKey());
-                    _originalVariables.add(kvp.getKey());
-                });
+                .mapToDouble(kvp -> kvp.getValue() * _lowerBounds[kvp.getKey().getIndex() - 1])
+                .sum();
+        
+        // The shift moves the right hand sides. A constraint that is left with a
+        // negative right hand side is multiplied by -1, which also turns its sign around.
+        // With the crash basis, so is a >= constraint with a right hand side of 0, whose
+        // slack variable can then start out basic at 0.
+        if (_programMatrix == null)
+        {
+            ArrayList<HashMap<Variable, Double>> equations = new ArrayList<>(constraints.size());
+            constraints.stream().forEach(constraint -> equations.add(constraint.getEquation()));
+            _programMatrix = SparseMatrix.fromEquations(equations, _originalVariableCount);
+        }
+        _signs = new SimplexUtilities.Sign[constraints.size()];
+        _rowDirections = new double[constraints.size()];
+        _rightHandSides = new double[constraints.size()];
+        boolean turnedAround = false;
+        for (int i = 0; i < constraints.size(); i++)
+        {
+            Constraint constraint = constraints.get(i);
+            double rhs = constraint.getRightHandSide();
+            for (int k = _programMatrix.getRowStart(i); k < _programMatrix.getRowEnd(i); k++)
+            {
+                rhs -= _programMatrix.getRowValue(k) * _lowerBounds[_programMatrix.getColumnIndex(k)];
+            }
+            _signs[i] = constraint.getSign();
+            _rowDirections[i] = 1;
+            if (rhs < 0 || (rhs == 0 && _crashBasis && _signs[i] == SimplexUtilities.Sign.GREATER_THAN))
+            {
+                _rowDirections[i] = -1;
+                rhs = -rhs;
+                turnedAround = true;
+                if (_signs[i] == SimplexUtilities.Sign.LESS_THAN)
+                    _signs[i] = SimplexUtilities.Sign.GREATER_THAN;
+                else if (_signs[i] == SimplexUtilities.Sign.GREATER_THAN)
+                    _signs[i] = SimplexUtilities.Sign.LESS_THAN;
+            }
+            _rightHandSides[i] = rhs;
+        }
         
         // We also need some slack/surplus/artificial variables.
         // If _variables has 3 items, that means the next index is 4.
+        // Each one is placed in the next column. A constraint that has
+        // a crash column does not need an artificial variable.
+        findCrashColumns();
         int sVariableIndex = 1;
         int aVariableIndex = 1;
-        int originalVariablesSize = _variables.size();
-        for (Constraint constraint : constraints)
+        _slackColumns = new int[constraints.size()];
+        _artificialColumns = new int[constraints.size()];
+        _artificalIndices = new BitSet();
+        for (int i = 0; i < constraints.size(); i++)
         {
-            switch (constraint.getSign())
+            _slackColumns[i] = -1;
+            _artificialColumns[i] = -1;
+            switch (_signs[i])
             {
                 // +Si
                 case LESS_THAN:
-                    _variables.add(new Variable("S" + sVariableIndex, _variables.size() + 1));
+                    _slackColumns[i] = _variables.size();
+                    _variables.add(new Variable(getLogicalName('S', sVariableIndex), _variables.size() + 1));
                     sVariableIndex++;
                     break;
-                    
+                
                 // -Si + Ai
                 case GREATER_THAN:
-                    _variables.add(new Variable("S" + sVariableIndex, _variables.size() + 1));
-                    _variables.add(new Variable("A" + aVariableIndex, _variables.size() + 1));
+                    _slackColumns[i] = _variables.size();
+                    _variables.add(new Variable(getLogicalName('S', sVariableIndex), _variables.size() + 1));
                     sVariableIndex++;
+                    if (_crashColumns[i] >= 0)
+                        break;
+                    _artificialColumns[i] = _variables.size();
+                    _variables.add(new Variable(getLogicalName('A', aVariableIndex), _variables.size() + 1));
                     aVariableIndex++;
+                    _artificalIndices.set(_artificialColumns[i]);
                     break;
-                    
+                
                 // +Ai
                 case EQUAL:
-                    _variables.add(new Variable("A" + aVariableIndex, _variables.size() + 1));
+                    if (_crashColumns[i] >= 0)
+                        break;
+                    _artificialColumns[i] = _variables.size();
+                    _variables.add(new Variable(getLogicalName('A', aVariableIndex), _variables.size() + 1));
                     aVariableIndex++;
+                    _artificalIndices.set(_artificialColumns[i]);
                     break;
             }
         }
         
+        _nextSlackNumber = sVariableIndex;
+        resetBasis();
+        
         // There are artificial variables, so we will have to do two-phase.
         if (aVariableIndex > 1)
         {
             _requiresTwoPhase = true;
         }
         
-        // Now we know how big to make the array
+        // Turn the rows around in a copy of the matrix, so that it can stay shared.
+        _constraintMatrix = _programMatrix;
+        if (turnedAround)
+        {
+            double[] columnScales = new double[_originalVariableCount];
+            Arrays.fill(columnScales, 1.0);
+            _constraintMatrix = _programMatrix.scaled(_rowDirections, columnScales);
+        }
+        
         // # of rows = 1 + # of constraints
         // # of columns = # of variables + 1 for RHS.
-        _matrix = new double[1 + constraints.size()][_variables.size() + 1];
+        _rowCount = 1 + constraints.size();
+        _columnCount = _variables.size() + 1;
+    }
+    
+    /**
+     * Chooses the crash column of each >= or = constraint: a decision column
+     * whose only entry is in its row, with a positive coefficient, so that it
+     * can start out basic at (right hand side / coefficient) in place of an
+     * artificial variable, if that is within its upper bound. Of several, the
+     * one with the largest coefficient is taken.
+     */
+    private void findCrashColumns()
+    {
+        _crashColumns = new int[_signs.length];
+        Arrays.fill(_crashColumns, -1);
+        if (!_crashBasis)
+            return;
+        double[] coefficients = new double[_signs.length];
+        Arrays.fill(coefficients, 1E-9);
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            int start = _programMatrix.getColumnStart(j);
+            if (_programMatrix.getColumnEnd(j) - start != 1)
+                continue;
+            int i = _programMatrix.getRowIndex(start);
+            double coefficient = _programMatrix.getValue(start) * _rowDirections[i];
+            if (_signs[i] != SimplexUtilities.Sign.LESS_THAN && coefficient > coefficients[i] 
+                    && _rightHandSides[i] / coefficient <= _upperBounds[j])
+            {
+                _crashColumns[i] = j;
+                coefficients[i] = coefficient;
+            }
+        }
+    }
+    
+    /**
+     * Sets the starting basis: the crash column of each constraint that has
+     * one, and otherwise its artificial variable, or its slack variable.
+     */
+    private void resetBasis()
+    {
+        _basicVariables = new int[_signs.length];
+        for (int i = 0; i < _signs.length; i++)
+        {
+            if (_crashColumns[i] >= 0)
+                _basicVariables[i] = _crashColumns[i];
+            else if (_artificialColumns[i] >= 0)
+                _basicVariables[i] = _artificialColumns[i];
+            else
+                _basicVariables[i] = _slackColumns[i];
+        }
+    }
+    
+    /**
+     * Chooses the scale factors and scales the constraints, the right hand
+     * sides and the upper bounds. The costs are scaled where they are written
+     * into the objective row. Slack/surplus and artificial columns keep their
+     * entries of 1 (they take the factor of their row).
+     */
+    private void scaleProgram()
+    {
+        Scaler scaler = new Scaler(_constraintMatrix, _scaling);
+        _rowScales = scaler.getRowScales();
+        _columnScales = scaler.getColumnScales();
+        if (scaler.isIdentity())
+            return;
+        
+        _constraintMatrix = _constraintMatrix.scaled(_rowScales, _columnScales);
+        for (int i = 0; i < _rightHandSides.length; i++)
+        {
+            _rightHandSides[i] *= _rowScales[i];
+        }
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            _upperBounds[j] /= _columnScales[j];
+        }
+    }
+    
+    /**
+     * Builds the dense tableau used by the full tableau engine.
+     * @param phaseOne Whether row 0 holds the objective of the first phase instead
+     * of the objective function (only if there are artificial variables).
+     */
+    private void buildTableau(boolean phaseOne)
+    {
+        _matrix = new double[_rowCount * _columnCount];
+        _flippedColumns.clear();
+        resetBasis();
         
         // Start filling in the tableau.
-        // Row 0: objective function (only if not two-phase).
-        if (!_requiresTwoPhase)
-        {
-            for (int i = 0; i < _variables.size(); i++)
-            {
-                // Objective function has no s or a variables.
-                int currentIndex = i + 1;
-                Optional<Entry<Variable, Double>> entry = objectiveEquation
-                        .entrySet()
-                        .stream()
-                        .filter(kvp -> kvp.getKey().getIndex() == currentIndex)
-                        .findFirst();
-
-                // I am assuming that each variable only appears once. This
-                // assumption should be held by the programmer, and cannot be broken
-                // by the user.
-                // Entry will be null for s and a variables.
-                if (!entry.isPresent())
-                    _matrix[0][i] = 0.0;
-                else
-                    _matrix[0][i] = -entry.get().getValue();
-            }
-            
-            // The RHS of the objective function starts at 0.
-            _matrix[0][_matrix[0].length - 1] = 0;
+        // Row 0: objective function (only if not the first phase).
+        // The RHS of the objective function starts at 0.
+        if (!phaseOne)
+        {
+            scatterObjective();
         }
         
-        // Track the S/A variables that have already been used.
-        ArrayList<Integer> usedIndices = new ArrayList<>();
-        _artificalIndices = new ArrayList<>();
-        // Rows 1 - n: Constraints
-        for (int i = 0; i < constraints.size(); i++)
+        // Rows 1 - n: Constraints. Only the nonzeros need to be written.
+        for (int i = 0; i < _constraints.size(); i++)
         {
-            HashMap<Variable, Double> constraintEquation = constraints.get(i).getEquation();
-            for (int j = 0; j < _variables.size(); j++)
+            int rowOffset = (i + 1) * _columnCount;
+            for (int k = _constraintMatrix.getRowStart(i); k < _constraintMatrix.getRowEnd(i); k++)
             {
-                if (j >= originalVariablesSize)
-                {
-                    // This is an S/A variable.
-                    if (usedIndices.contains(j))
-                    {
-                        // This index has already been handled. Set it to 0 and continue.
-                        _matrix[i + 1][j] = 0.0;
-                        continue;
-                    }
-                    else
-                    {
-                        // This index belongs to this constraint.
-                        switch (constraints.get(i).getSign())
-                        {
-                            // +Si
-                            case LESS_THAN:
-                                _matrix[i + 1][j] = 1;
-                                usedIndices.add(j);
-                                // Si is a basic variable.
-                                _basicVariables.addLast(j);
-                                break;
-
-                            // -Si + Ai
-                            case GREATER_THAN:
-                                _matrix[i + 1][j] = -1;
-                                _matrix[i + 1][j + 1] = 1;
-                                j++;
-                                usedIndices.add(j - 1);
-                                usedIndices.add(j);
-                                _artificalIndices.add(j);
-                                // Ai is a basic variable.
-                                _basicVariables.addLast(j);
-                                break;
-
-                            // +Ai
-                            case EQUAL:
-                                _matrix[i + 1][j] = 1;
-                                usedIndices.add(j);
-                                _artificalIndices.add(j);
-                                // Ai is a basic variable.
-                                _basicVariables.addLast(j);
-                                break;
-                        }
-                        break;
-                    }
-                }
-                int currentIndex = j + 1;
-                Optional<Entry<Variable, Double>> entry = constraintEquation
-                        .entrySet()
-                        .stream()
-                        .filter(kvp -> kvp.getKey().getIndex() == currentIndex)
-                        .findFirst();
+                _matrix[rowOffset + _constraintMatrix.getColumnIndex(k)] = _constraintMatrix.getRowValue(k);
+            }
+            
+            switch (_signs[i])
+            {
+                // +Si
+                case LESS_THAN:
+                    _matrix[rowOffset + _slackColumns[i]] = 1;
+                    break;
                 
-                if (entry.isPresent())
-                {
-                    _matrix[i + 1][j] = entry.get().getValue();
-                }
-                else
-                {
-                    throw new IllegalStateException("The case where this is a non-normal variable should have been handled.");
-                }
+                // -Si + Ai (without Ai if the row has a crash column)
+                case GREATER_THAN:
+                    _matrix[rowOffset + _slackColumns[i]] = -1;
+                    if (_artificialColumns[i] >= 0)
+                        _matrix[rowOffset + _artificialColumns[i]] = 1;
+                    break;
+                
+                // +Ai
+                case EQUAL:
+                    if (_artificialColumns[i] >= 0)
+                        _matrix[rowOffset + _artificialColumns[i]] = 1;
+                    break;
             }
             
             // Add in the RHS.
-            _matrix[i + 1][_matrix[i + 1].length - 1] = _constraints.get(i).getRightHandSide();
+            _matrix[rowOffset + _columnCount - 1] = _rightHandSides[i];
+            
+            // A crash column becomes a unit column when its row is divided by its coefficient.
+            if (_crashColumns[i] >= 0)
+            {
+                double coefficient = _matrix[rowOffset + _crashColumns[i]];
+                for (int j = 0; j < _columnCount; j++)
+                {
+                    _matrix[rowOffset + j] /= coefficient;
+                }
+            }
+        }
+        
+        // If this is a two-phase problem, our first equation will be different.
+        // Each element in this row is the sum of that column over the rows with an
+        // artificial variable. Otherwise, the crash columns are priced out of row 0.
+        if (phaseOne)
+            subtractArtificialRows(-1);
+        else
+            priceOutBasicVariables();
+        
+        fireTableauChanged(phaseOne ? 'W' : 'Z');
+    }
+    
+    /**
+     * Subtracts a multiple of every row that has an artificial variable from
+     * row 0, and leaves the artificial columns of row 0 at 0. With -1, an empty
+     * row 0 becomes the objective of the first phase (minimize W). With M, row 0
+     * becomes the Big-M objective function.
+     * @param multiple The multiple to subtract.
+     */
+    private void subtractArtificialRows(double multiple)
+    {
+        for (int i = 0; i < _artificialColumns.length; i++)
+        {
+            if (_artificialColumns[i] >= 0)
+                _rowOperations.subtractMultiple(_matrix, 0, (i + 1) * _columnCount, _columnCount, multiple);
+        }
+        _artificalIndices.stream().forEach(j -> _matrix[j] = 0);
+    }
+    
+    /**
+     * Takes every basic variable out of row 0 with the row it is basic in,
+     * so that its reduced cost is 0.
+     */
+    private void priceOutBasicVariables()
+    {
+        int row = 0;
+        for (int bv : _basicVariables)
+        {
+            row++;
+            double coefficient = _matrix[bv];
+            if (coefficient != 0)
+                _rowOperations.subtractMultiple(_matrix, 0, row * _columnCount, _columnCount, coefficient);
+        }
+    }
+    
+    /**
+     * Builds the tableau for the dual simplex method. The starting basis of
+     * the other engines is used (see resetBasis), and row 0 holds the
+     * objective function. A decision variable with a negative reduced cost is
+     * moved to its upper bound, which makes its reduced cost positive. (A
+     * surplus variable can only have one when a crash column was priced out.)
+     * @return False if that is not possible (the objective function is not dual feasible).
+     */
+    private boolean startDualSimplex()
+    {
+        buildTableau(false);
+        for (int j = 0; j < _columnCount - 1; j++)
+        {
+            if (_matrix[j] < -PricingRule.OPTIMALITY_TOLERANCE && (j >= _originalVariableCount || _upperBounds[j] == Double.POSITIVE_INFINITY))
+                return false;
+        }
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            if (_matrix[j] < -PricingRule.OPTIMALITY_TOLERANCE)
+                complementColumn(j);
+        }
+        return true;
+    }
+    
+    /**
+     * Selects how the constraint matrix is scaled before it is solved. The
+     * default is AUTOMATIC. The factors are chosen when a solve starts from the
+     * program, and kept while edits are applied to its final tableau.
+     * @param scaling The kind of scaling.
+     */
+    public void setScaling(SimplexUtilities.Scaling scaling)
+    {
+        _scaling = scaling;
+        if (_warmStartable)
+            discardFinalTableau();
+    }
+    
+    /**
+     * Selects the engine used by solve. The default is the full tableau.
+     * @param engine The engine to use.
+     * @throws IllegalStateException If the engine is REVISED and a rule is
+     * selected that it does not support (see setPricing, setDegeneracyRule
+     * and setPerturbation).
+     */
+    public void setEngine(SimplexUtilities.Engine engine)
+    {
+        checkEngineSettings(engine, _pricing, _degeneracyRule, _perturb);
+        _engine = engine;
+        if (_warmStartable)
+            discardFinalTableau();
+    }
+    
+    /**
+     * Lets the tableau engine eliminate rows in parallel. Small tableaus are
+     * still pivoted on the calling thread.
+     * @param pool The pool to run on, or null to pivot on the calling thread.
+     */
+    public void setParallelPool(ForkJoinPool pool)
+    {
+        _parallelPool = pool;
+        _pivotKernel = new PivotKernel(_parallelPool, _rowOperations);
+    }
+    
+    /**
+     * Selects the rule used to choose the entering variable. The default is
+     * Dantzig's rule. The revised engine supports DANTZIG and DEVEX.
+     * @param pricing The pricing rule.
+     * @throws IllegalStateException If the engine is REVISED and does not support the rule.
+     */
+    public void setPricing(SimplexUtilities.Pricing pricing)
+    {
+        checkEngineSettings(_engine, pricing, _degeneracyRule, _perturb);
+        _pricing = pricing;
+        _pricingRule = PricingRule.create(pricing);
+    }
+    
+    /**
+     * Selects the rule that takes over after a long run of degenerate pivots.
+     * The default is Bland's rule, which is the only one the revised engine supports.
+     * @param rule The anti-cycling rule.
+     * @throws IllegalStateException If the engine is REVISED and the rule is LEXICOGRAPHIC.
+     */
+    public void setDegeneracyRule(SimplexUtilities.DegeneracyRule rule)
+    {
+        checkEngineSettings(_engine, _pricing, rule, _perturb);
+        _degeneracyRule = rule;
+    }
+    
+    /**
+     * Makes the tableau engine add a small random amount (at most 1E-6, relative
+     * to the value) to every basic variable before phase 2, so that no pivot is
+     * degenerate. The perturbation is taken back out before the result is
+     * reported, and any variable that is then negative is repaired with dual
+     * simplex pivots. The revised engine does not support it.
+     * @param perturb True to perturb the right hand side.
+     * @throws IllegalStateException If the engine is REVISED and perturb is true.
+     */
+    public void setPerturbation(boolean perturb)
+    {
+        checkEngineSettings(_engine, _pricing, _degeneracyRule, perturb);
+        _perturb = perturb;
+    }
+    
+    /**
+     * Rejects the rules that the revised engine does not implement, whichever
+     * of them is selected first.
+     */
+    private static void checkEngineSettings(SimplexUtilities.Engine engine, SimplexUtilities.Pricing pricing,
+            SimplexUtilities.DegeneracyRule rule, boolean perturb)
+    {
+        if (engine != SimplexUtilities.Engine.REVISED)
+            return;
+        if (pricing != SimplexUtilities.Pricing.DANTZIG && pricing != SimplexUtilities.Pricing.DEVEX)
+            throw new IllegalStateException("The revised engine does not support " + pricing + " pricing.");
+        if (rule != SimplexUtilities.DegeneracyRule.BLAND)
+            throw new IllegalStateException("The revised engine does not support the " + rule + " degeneracy rule.");
+        if (perturb)
+            throw new IllegalStateException("The revised engine does not support perturbation.");
+    }
+    
+    /**
+     * Makes a solve that starts over from the program start from a crash basis
+     * instead of the slack basis. A >= or = constraint whose row holds the only
+     * entry of a decision variable starts with that variable as its basic
+     * variable, and a >= constraint with a right hand side of 0 is turned around
+     * so that its slack variable can be. Only the other >= and = constraints get
+     * an artificial variable, which shortens the first phase, or skips it when
+     * there are none left. On by default.
+     * @param crash True to use the crash basis, false for the slack basis.
+     */
+    public void setCrashBasis(boolean crash)
+    {
+        _crashBasis = crash;
+        discardFinalTableau();
+    }
+    
+    /**
+     * Makes the TABLEAU and REVISED engines solve a program with artificial
+     * variables in a single phase with the Big-M method, instead of two phases.
+     * Every artificial variable costs M, a million times the largest cost. If
+     * that does not settle the solve (it ends unbounded, or with an artificial
+     * variable above 0), the first phase takes over. Off by default.
+     * @param bigM True to use the Big-M method, false for two phases.
+     */
+    public void setBigM(boolean bigM)
+    {
+        _bigM = bigM;
+    }
+    
+    /**
+     * Makes the tableau engine use the Vector API for its inner loops, if it
+     * is available. The pivots are the same either way.
+     * @param vectorized True to use the Vector API, false for plain loops.
+     */
+    public void setVectorized(boolean vectorized)
+    {
+        _rowOperations = vectorized ? RowOperations.createVectorized() : new ScalarRowOperations();
+        _pivotKernel = new PivotKernel(_parallelPool, _rowOperations);
+    }
+    
+    /**
+     * Attaches a listener that is told about every pivot.
+     * @param listener The listener, or null to remove it.
+     * @param verbosity Whether the listener also receives the rendered tableaus.
+     */
+    public void setListener(SimplexListener listener, SimplexListener.Verbosity verbosity)
+    {
+        _listener = listener;
+        _verbosity = verbosity;
+    }
+    
+    /**
+     * Limits the number of pivots a solve may perform. When the limit is
+     * reached the solve stops with a LIMIT status.
+     * @param limit The maximum number of pivots.
+     */
+    public void setIterationLimit(int limit)
+    {
+        _iterationLimit = limit;
+    }
+    
+    /**
+     * Chooses whether an optimal result comes with its sensitivity analysis
+     * (dual values, reduced costs and ranging). It is off by default, since it
+     * factorizes the optimal basis again and takes a pass over it per constraint
+     * and per basic variable.
+     * @param sensitivityAnalysis Whether to analyze the optimal basis.
+     * @throws IllegalStateException If this tableau holds a presolved program,
+     * whose basis says nothing about the rows and columns presolve removed.
+     */
+    public void setSensitivityAnalysis(boolean sensitivityAnalysis)
+    {
+        if (sensitivityAnalysis && _presolver != null)
+            throw new IllegalStateException("A presolved program cannot be analyzed. Analyze the original program instead.");
+        _sensitivityAnalysis = sensitivityAnalysis;
+    }
+    
+    /**
+     * Changes the right hand side of a constraint. After an optimal solve with
+     * the TABLEAU or DUAL engine, the change is applied to the final tableau
+     * (for a constraint with a slack/surplus variable), and the next solve
+     * only repairs it with the dual simplex method. Otherwise, the next solve
+     * starts over.
+     * @param constraint The position of the constraint (starting at 0).
+     * @param rhs The new right hand side.
+     */
+    public void setRightHandSide(int constraint, double rhs)
+    {
+        checkEditable();
+        Constraint old = _constraints.get(constraint);
+        _constraints.set(constraint, new Constraint(old.getEquation(), old.getSign(), rhs));
+        if (!_warmStartable || !_dualFeasible || _slackColumns[constraint] < 0)
+        {
+            discardFinalTableau();
+            return;
+        }
+        
+        // The change goes through the same shift, sign and scale as the row.
+        double change = (rhs - old.getRightHandSide()) * _rowDirections[constraint] * _rowScales[constraint];
+        _rightHandSides[constraint] += change;
+        addInverseColumn(constraint, change, _columnCount - 1);
+        _primalFeasible = false;
+    }
+    
+    /**
+     * Adds a constraint after the existing ones. After an optimal solve with
+     * the TABLEAU or DUAL engine, an inequality is added to the final tableau
+     * with its slack/surplus variable as the basic variable, and the next
+     * solve only repairs it with the dual simplex method. An equality makes
+     * the next solve start over.
+     * @param constraint The constraint to add.
+     */
+    public void addConstraint(Constraint constraint)
+    {
+        checkEditable();
+        _programMatrix = null;
+        _constraints.add(constraint);
+        if (!_warmStartable || !_dualFeasible || constraint.getSign() == SimplexUtilities.Sign.EQUAL)
+        {
+            discardFinalTableau();
+            return;
+        }
+        
+        // Write the row in terms of the columns of the tableau: shifted to the lower bounds,
+        // scaled, and measured down from the upper bound for the columns that are. A surplus
+        // row is multiplied by -1 so that its surplus variable can be basic.
+        int oldColumnCount = _columnCount;
+        double direction = constraint.getSign() == SimplexUtilities.Sign.LESS_THAN ? 1 : -1;
+        double[] row = new double[oldColumnCount + 1];
+        double shiftedRhs = constraint.getRightHandSide();
+        for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+        {
+            shiftedRhs -= kvp.getValue() * _lowerBounds[getColumn(kvp.getKey())];
+        }
+        double rhs = shiftedRhs;
+        for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+        {
+            int column = getColumn(kvp.getKey());
+            double coefficient = kvp.getValue() * _columnScales[column];
+            if (_flippedColumns.get(column))
+            {
+                rhs -= coefficient * _upperBounds[column];
+                coefficient = -coefficient;
+            }
+            row[column] += direction * coefficient;
+        }
+        row[oldColumnCount - 1] = 1;
+        row[oldColumnCount] = direction * rhs;
+        
+        // Take the basic variables out of the row with the rows they are basic in.
+        int basicRow = 0;
+        for (int bv : _basicVariables)
+        {
+            basicRow++;
+            double coefficient = row[bv];
+            if (coefficient == 0)
+                continue;
+            for (int j = 0; j < oldColumnCount - 1; j++)
+            {
+                row[j] -= coefficient * _matrix[basicRow * oldColumnCount + j];
+            }
+            row[oldColumnCount] -= coefficient * _matrix[(basicRow + 1) * oldColumnCount - 1];
+        }
+        
+        // The slack/surplus column goes after the last column, in both numberings.
+        double[] matrix = new double[(_rowCount + 1) * (oldColumnCount + 1)];
+        for (int i = 0; i < _rowCount; i++)
+        {
+            System.arraycopy(_matrix, i * oldColumnCount, matrix, i * (oldColumnCount + 1), oldColumnCount - 1);
+            matrix[(i + 1) * (oldColumnCount + 1) - 1] = _matrix[(i + 1) * oldColumnCount - 1];
+        }
+        System.arraycopy(row, 0, matrix, _rowCount * (oldColumnCount + 1), row.length);
+        _matrix = matrix;
+        _rowCount++;
+        _columnCount++;
+        
+        int slackColumn = oldColumnCount - 1 + (_artificialsRemoved ? _artificalIndices.cardinality() : 0);
+        _variables.add(new Variable(getLogicalName('S', _nextSlackNumber), slackColumn + 1));
+        _nextSlackNumber++;
+        _basicVariables = Arrays.copyOf(_basicVariables, _basicVariables.length + 1);
+        _basicVariables[_basicVariables.length - 1] = oldColumnCount - 1;
+        int count = _signs.length;
+        _signs = Arrays.copyOf(_signs, count + 1);
+        _signs[count] = constraint.getSign();
+        _rowDirections = Arrays.copyOf(_rowDirections, count + 1);
+        _rowDirections[count] = 1;
+        _rowScales = Arrays.copyOf(_rowScales, count + 1);
+        _rowScales[count] = 1;
+        _rightHandSides = Arrays.copyOf(_rightHandSides, count + 1);
+        _rightHandSides[count] = shiftedRhs;
+        _slackColumns = Arrays.copyOf(_slackColumns, count + 1);
+        _slackColumns[count] = slackColumn;
+        _artificialColumns = Arrays.copyOf(_artificialColumns, count + 1);
+        _artificialColumns[count] = -1;
+        _crashColumns = Arrays.copyOf(_crashColumns, count + 1);
+        _crashColumns[count] = -1;
+        _primalFeasible = false;
+    }
+    
+    /**
+     * Removes a constraint. After an optimal solve with the TABLEAU or DUAL
+     * engine, a constraint that is not binding (its slack/surplus variable is
+     * basic) is removed from the final tableau, which stays optimal. Any other
+     * constraint makes the next solve start over.
+     * @param constraint The position of the constraint (starting at 0).
+     */
+    public void removeConstraint(int constraint)
+    {
+        checkEditable();
+        _programMatrix = null;
+        _constraints.remove(constraint);
+        if (!_warmStartable)
+        {
+            discardFinalTableau();
+            return;
+        }
+        int slackColumn = _slackColumns[constraint];
+        int artificialColumn = _artificialColumns[constraint];
+        int row = slackColumn < 0 ? -1 : findBasicRow(getCurrentColumn(slackColumn));
+        if (row < 0 || (artificialColumn >= 0 && !_artificialsRemoved))
+        {
+            discardFinalTableau();
+            return;
+        }
+        
+        // No other row has an entry in the column of a basic variable, so no other row
+        // depends on the constraint. Its row and its slack/surplus column are dropped.
+        int column = getCurrentColumn(slackColumn);
+        int oldColumnCount = _columnCount;
+        double[] matrix = new double[(_rowCount - 1) * (oldColumnCount - 1)];
+        int destination = 0;
+        for (int i = 0; i < _rowCount; i++)
+        {
+            if (i == row + 1)
+                continue;
+            for (int j = 0; j < oldColumnCount; j++)
+            {
+                if (j != column)
+                    matrix[destination++] = _matrix[i * oldColumnCount + j];
+            }
+        }
+        _matrix = matrix;
+        _rowCount--;
+        _columnCount--;
+        int[] basicVariables = new int[_basicVariables.length - 1];
+        for (int i = 0, k = 0; i < _basicVariables.length; i++)
+        {
+            if (i != row)
+                basicVariables[k++] = _basicVariables[i] > column ? _basicVariables[i] - 1 : _basicVariables[i];
+        }
+        _basicVariables = basicVariables;
+        
+        renumberLogicalColumns(j -> j == slackColumn || j == artificialColumn ? -1 :
+                j - (j > slackColumn ? 1 : 0) - (artificialColumn >= 0 && j > artificialColumn ? 1 : 0));
+        int count = _signs.length - 1;
+        for (int i = constraint; i < count; i++)
+        {
+            _signs[i] = _signs[i + 1];
+            _rowDirections[i] = _rowDirections[i + 1];
+            _rowScales[i] = _rowScales[i + 1];
+            _rightHandSides[i] = _rightHandSides[i + 1];
+            _slackColumns[i] = _slackColumns[i + 1];
+            _artificialColumns[i] = _artificialColumns[i + 1];
+            _crashColumns[i] = _crashColumns[i + 1];
+        }
+        _signs = Arrays.copyOf(_signs, count);
+        _rowDirections = Arrays.copyOf(_rowDirections, count);
+        _rowScales = Arrays.copyOf(_rowScales, count);
+        _rightHandSides = Arrays.copyOf(_rightHandSides, count);
+        _slackColumns = Arrays.copyOf(_slackColumns, count);
+        _artificialColumns = Arrays.copyOf(_artificialColumns, count);
+        _crashColumns = Arrays.copyOf(_crashColumns, count);
+    }
+    
+    /**
+     * Changes the coefficient of a decision variable in the objective function.
+     * After an optimal solve with the TABLEAU or DUAL engine, only the objective
+     * row of the final tableau is updated, and the next solve continues from
+     * there with the primal simplex method. Otherwise, the next solve starts over.
+     * @param variable The decision variable.
+     * @param coefficient The new coefficient, for the objective as it was entered (min or max).
+     */
+    public void setObjectiveCoefficient(Variable variable, double coefficient)
+    {
+        checkEditable();
+        int column = getColumn(variable);
+        HashMap<Variable, Double> equation = _objective.getEquation();
+        double oldCost = equation
+                .entrySet()
+                .stream()
+                .filter(kvp -> kvp.getKey().getIndex() == variable.getIndex())
+                .mapToDouble(Map.Entry::getValue)
+                .sum();
+        double cost = _wasMinimize ? -coefficient : coefficient;
+        equation.keySet().removeIf(v -> v.getIndex() == variable.getIndex());
+        equation.put(variable, cost);
+        if (!_warmStartable || !_primalFeasible || (_requiresTwoPhase && !_artificialsRemoved))
+        {
+            discardFinalTableau();
+            return;
+        }
+        _objectiveOffset += (cost - oldCost) * _lowerBounds[column];
+        
+        // A nonbasic variable only changes its own reduced cost. A basic variable changes
+        // every reduced cost through its row, but keeps its own at 0. A variable measured
+        // down from its upper bound has the opposite cost, plus a constant.
+        double change = (cost - oldCost) * _columnScales[column];
+        boolean flipped = _flippedColumns.get(column);
+        if (flipped)
+            _matrix[_columnCount - 1] += change * _upperBounds[column];
+        int row = findBasicRow(column) + 1;
+        if (row == 0)
+            _matrix[column] += flipped ? change : -change;
+        else
+        {
+            _rowOperations.subtractMultiple(_matrix, 0, row * _columnCount, _columnCount, flipped ? change : -change);
+            _matrix[column] = 0;
+        }
+        _dualFeasible = false;
+    }
+    
+    /**
+     * Adds a decision variable after the existing ones. After an optimal solve
+     * with the TABLEAU or DUAL engine, the variable is added to the final
+     * tableau as a nonbasic variable, and the next solve continues from there
+     * with the primal simplex method. The next solve starts over instead if
+     * the variable has a lower bound other than 0, or a coefficient in an equality.
+     * @param variable The decision variable. Its index must follow the last one.
+     * @param cost Its coefficient in the objective function (min or max, as it was entered).
+     * @param coefficients Its coefficient in each constraint, in order.
+     * @throws IllegalArgumentException If the index does not follow the last one, another
+     * decision variable has its name, or there is not one coefficient for each constraint.
+     */
+    public void addVariable(Variable variable, double cost, double[] coefficients)
+    {
+        checkEditable();
+        int column = _originalVariables.size();
+        if (variable.getIndex() != column + 1)
+            throw new IllegalArgumentException("The index of " + variable.getName() + " must be " + (column + 1) + ".");
+        if (_originalVariables.contains(variable.getName()))
+            throw new IllegalArgumentException("There is already a variable named " + variable.getName() + ".");
+        if (coefficients.length != _constraints.size())
+            throw new IllegalArgumentException("There must be one coefficient for each constraint.");
+        
+        _programMatrix = null;
+        _originalVariables.add(variable);
+        _objective.getEquation().put(variable, _wasMinimize ? -cost : cost);
+        for (int i = 0; i < coefficients.length; i++)
+        {
+            if (coefficients[i] == 0)
+                continue;
+            Constraint old = _constraints.get(i);
+            HashMap<Variable, Double> equation = new HashMap<>(old.getEquation());
+            equation.put(variable, coefficients[i]);
+            _constraints.set(i, new Constraint(equation, old.getSign(), old.getRightHandSide()));
+        }
+        // A name that is taken by a slack/surplus variable needs the logical variables renamed.
+        boolean warm = _warmStartable && _primalFeasible && (!_requiresTwoPhase || _artificialsRemoved) && variable.getLowerBound() == 0
+                && !_variables.contains(variable.getName());
+        for (int i = 0; i < coefficients.length && warm; i++)
+        {
+            warm = coefficients[i] == 0 || _slackColumns[i] >= 0;
+        }
+        if (!warm)
+        {
+            discardFinalTableau();
+            return;
+        }
+        
+        // The new column goes before the first slack/surplus column, which moves
+        // every logical column one to the right.
+        int oldColumnCount = _columnCount;
+        double[] matrix = new double[_rowCount * (oldColumnCount + 1)];
+        for (int i = 0; i < _rowCount; i++)
+        {
+            System.arraycopy(_matrix, i * oldColumnCount, matrix, i * (oldColumnCount + 1), column);
+            System.arraycopy(_matrix, i * oldColumnCount + column, matrix, i * (oldColumnCount + 1) + column + 1, oldColumnCount - column);
+        }
+        _matrix = matrix;
+        _columnCount++;
+        for (int i = 0; i < _basicVariables.length; i++)
+        {
+            if (_basicVariables[i] >= column)
+                _basicVariables[i]++;
+        }
+        renumberLogicalColumns(j -> j + 1);
+        _variables.add(column, variable);
+        _originalVariableCount++;
+        _lowerBounds = Arrays.copyOf(_lowerBounds, column + 1);
+        _upperBounds = Arrays.copyOf(_upperBounds, column + 1);
+        _upperBounds[column] = variable.getUpperBound();
+        _hasUpperBounds |= variable.getUpperBound() != Double.POSITIVE_INFINITY;
+        _columnScales = Arrays.copyOf(_columnScales, column + 1);
+        _columnScales[column] = 1;
+        
+        // The column of the final tableau is the inverse basis times the column of the
+        // program, and its reduced cost takes the cost away from the duals in row 0.
+        for (int i = 0; i < coefficients.length; i++)
+        {
+            if (coefficients[i] != 0)
+                addInverseColumn(i, coefficients[i] * _rowDirections[i] * _rowScales[i], column);
+        }
+        _matrix[column] -= _wasMinimize ? -cost : cost;
+        _dualFeasible = false;
+    }
+    
+    /**
+     * Adds Gomory mixed-integer cuts after an optimal solve with the TABLEAU or
+     * DUAL engine (see GomorySeparator). The cuts are added as >= constraints
+     * after the existing ones, so the next solve only repairs them with the
+     * dual simplex method, and a solve that starts over keeps them.
+     * @param maxCuts The most cuts to add. The rows whose values are the farthest
+     * from an integer go first.
+     * @return The number of cuts that were added (0 if there is no optimal final tableau).
+     */
+    public int addGomoryCuts(int maxCuts)
+    {
+        checkEditable();
+        if (!hasOptimalTableau())
+            return 0;
+        
+        // Every cut is read from this tableau before any of them is added to it.
+        List<Constraint> cuts = new GomorySeparator(this).separate(maxCuts);
+        cuts.forEach(this::addConstraint);
+        return cuts.size();
+    }
+    
+    /**
+     * Sets the basic variables that the dual simplex method or the first phase
+     * left slightly below 0 (within its tolerance) to 0. The minimum ratio test of
+     * the primal simplex method would otherwise skip their rows, and let them go negative.
+     */
+    private void clearRoundingErrors()
+    {
+        for (int i = 1; i < _rowCount; i++)
+        {
+            int rhsIndex = (i + 1) * _columnCount - 1;
+            if (_matrix[rhsIndex] < 0)
+                _matrix[rhsIndex] = 0;
+        }
+    }
+    
+    /**
+     * Adds a multiple of the column of the inverse basis for a constraint to a
+     * column of the tableau, including row 0. The slack column of the final
+     * tableau is that column (times -1 for a surplus).
+     * @param constraint The constraint, which must have a slack/surplus variable.
+     * @param multiplier The multiple to add.
+     * @param targetColumn The column to add it to.
+     */
+    private void addInverseColumn(int constraint, double multiplier, int targetColumn)
+    {
+        double step = _signs[constraint] == SimplexUtilities.Sign.LESS_THAN ? multiplier : -multiplier;
+        int column = getCurrentColumn(_slackColumns[constraint]);
+        for (int i = 0; i < _rowCount; i++)
+        {
+            _matrix[i * _columnCount + targetColumn] += step * _matrix[i * _columnCount + column];
+        }
+    }
+    
+    /**
+     * Renumbers the slack/surplus and artificial columns, as they were numbered
+     * when the tableau was built, along with their variables.
+     * @param renumber Maps each old column to its new column, or to -1 if it is removed.
+     */
+    private void renumberLogicalColumns(IntUnaryOperator renumber)
+    {
+        for (int i = 0; i < _slackColumns.length; i++)
+        {
+            if (_slackColumns[i] >= 0)
+                _slackColumns[i] = renumber.applyAsInt(_slackColumns[i]);
+            if (_artificialColumns[i] >= 0)
+                _artificialColumns[i] = renumber.applyAsInt(_artificialColumns[i]);
+        }
+        BitSet artificialIndices = new BitSet();
+        _artificalIndices.stream().map(renumber).filter(j -> j >= 0).forEach(artificialIndices::set);
+        _artificalIndices = artificialIndices;
+        
+        VariableRegistry variables = new VariableRegistry();
+        for (Variable v : _variables)
+        {
+            if (v.getIndex() <= _originalVariableCount)
+                variables.add(v);
+            else if (renumber.applyAsInt(v.getIndex() - 1) >= 0)
+                variables.add(new Variable(v.getName(), renumber.applyAsInt(v.getIndex() - 1) + 1));
+        }
+        _variables = variables;
+    }
+    
+    /**
+     * Names a slack/surplus (S) or artificial (A) variable, adding primes
+     * until no other variable of the tableau has the name.
+     */
+    private String getLogicalName(char prefix, int number)
+    {
+        String name = prefix + Integer.toString(number);
+        while (_variables.contains(name))
+        {
+            name += "'";
+        }
+        return name;
+    }
+    
+    /**
+     * Returns the column of a decision variable.
+     * @throws IllegalArgumentException If it is not a decision variable of this program.
+     */
+    private int getColumn(Variable variable)
+    {
+        if (variable.getIndex() < 1 || variable.getIndex() > _originalVariables.size())
+            throw new IllegalArgumentException(variable.getName() + " is not a decision variable of this program.");
+        return variable.getIndex() - 1;
+    }
+    
+    /**
+     * Makes sure the edits are in terms of the program that was entered.
+     * @throws IllegalStateException If this tableau holds a presolved program.
+     */
+    void checkEditable()
+    {
+        if (_presolver != null)
+            throw new IllegalStateException("A presolved program cannot be edited. Edit the original program and presolve it again.");
+    }
+    
+    /**
+     * Makes the next solve start over from the program.
+     */
+    private void discardFinalTableau()
+    {
+        _warmStartable = false;
+        _reloadRequired = true;
+    }
+    
+    /**
+     * Returns the decision variables of the program, ordered by index.
+     */
+    List<Variable> getDecisionVariables()
+    {
+        return _originalVariables.asList();
+    }
+    
+    /**
+     * Returns the constraints of the program, including the ones added since
+     * it was built (branching bounds, cuts, and so on).
+     */
+    List<Constraint> getConstraints()
+    {
+        return Collections.unmodifiableList(_constraints);
+    }
+    
+    boolean isMinimize()
+    {
+        return _wasMinimize;
+    }
+    
+    /**
+     * Decides whether the final tableau holds an optimal solution of the
+     * program as it is now, which the accessors below read.
+     */
+    boolean hasOptimalTableau()
+    {
+        return _warmStartable && _primalFeasible && _dualFeasible;
+    }
+    
+    /**
+     * Returns the number of columns of the final tableau, without the right hand side.
+     */
+    int getTableauColumnCount()
+    {
+        return _columnCount - 1;
+    }
+    
+    /**
+     * Returns a copy of the row of a constraint in the final tableau, with the
+     * right hand side last.
+     */
+    double[] getTableauRow(int constraint)
+    {
+        int rowOffset = (constraint + 1) * _columnCount;
+        return Arrays.copyOfRange(_matrix, rowOffset, rowOffset + _columnCount);
+    }
+    
+    /**
+     * Returns the value of the basic variable of a constraint in the final tableau.
+     */
+    double getRightHandSide(int constraint)
+    {
+        return _matrix[(constraint + 2) * _columnCount - 1];
+    }
+    
+    /**
+     * Returns the basic column of each constraint, as it is numbered in the current tableau.
+     */
+    int[] getBasicColumns()
+    {
+        return _basicVariables.clone();
+    }
+    
+    /**
+     * Returns the slack/surplus column of a constraint, as it is numbered in
+     * the current tableau, or -1 if it has none.
+     */
+    int getSlackColumn(int constraint)
+    {
+        return _slackColumns[constraint] >= 0 ? getCurrentColumn(_slackColumns[constraint]) : -1;
+    }
+    
+    /**
+     * Decides whether a column of the current tableau is an artificial column
+     * that is still there (it is 0 in every solution of the program).
+     */
+    boolean isArtificialColumn(int column)
+    {
+        return !_artificialsRemoved && _artificalIndices.get(column);
+    }
+    
+    /**
+     * Decides whether a decision column is measured down from its upper bound.
+     */
+    boolean isFlippedColumn(int column)
+    {
+        return _flippedColumns.get(column);
+    }
+    
+    /**
+     * Returns the lower bound a decision column is shifted by (X = lower + scale * X').
+     */
+    double getColumnShift(int column)
+    {
+        return _lowerBounds[column];
+    }
+    
+    /**
+     * Returns the scale factor of a decision column (X = lower + scale * X').
+     */
+    double getColumnScale(int column)
+    {
+        return _columnScales[column];
+    }
+    
+    /**
+     * Returns the factor a constraint was scaled by, before it was turned around.
+     */
+    double getRowScale(int constraint)
+    {
+        return _rowScales[constraint];
+    }
+    
+    /**
+     * Computes the objective function, as it was entered (min or max), at the
+     * given values of the decision variables.
+     */
+    double evaluateObjective(double[] values)
+    {
+        double value = _objective.getEquation()
+                .entrySet()
+                .stream()
+                .mapToDouble(kvp -> kvp.getValue() * values[kvp.getKey().getIndex() - 1])
+                .sum();
+        return _wasMinimize ? -value : value;
+    }
+    
+    /**
+     * Called by the presolver that created this tableau.
+     */
+    void setPresolver(Presolver presolver)
+    {
+        _presolver = presolver;
+    }
+    
+    /**
+     * Solves the linear program without producing any text or showing
+     * any messages.
+     * @return The result of the solve.
+     */
+    public SolveResult optimize()
+    {
+        if (_reloadRequired)
+            loadProgram();
+        if (_rowScales == null)
+            scaleProgram();
+        _iterationCount = 0;
+        _phaseOneIterationCount = 0;
+        
+        SolveResult.Status status;
+        if (_warmStartable)
+        {
+            // The final tableau of the last solve, with the edits since then applied to it.
+            if (_dualFeasible)
+                status = solveWithDualSimplex();
+            else
+            {
+                clearRoundingErrors();
+                status = solveWithSimplex('Z');
+            }
+        }
+        else if (_engine == SimplexUtilities.Engine.REVISED)
+        {
+            status = solveWithRevisedSimplex();
+        }
+        else if (_engine == SimplexUtilities.Engine.DUAL && startDualSimplex())
+        {
+            status = solveWithDualSimplex();
+            
+            // An artificial variable can only stay basic at 0, on a redundant row.
+            // Its column is kept then, as in the revised engine.
+            if (status == SolveResult.Status.OPTIMAL && _requiresTwoPhase && Arrays.stream(_basicVariables).noneMatch(_artificalIndices::get))
+                removeArtificialVariables();
+        }
+        else
+        {
+            boolean bigM = _bigM && _requiresTwoPhase;
+            buildTableau(_requiresTwoPhase && !bigM);
+            status = SolveResult.Status.OPTIMAL;
+            if (bigM)
+                status = solveWithBigM();
+            else if (_requiresTwoPhase)
+                status = solveFirstPhase();
+            
+            if (status == SolveResult.Status.OPTIMAL)
+            {
+                if (_perturb)
+                    perturbRightHandSide();
+                status = solveWithSimplex('Z');
+                if (_perturbation != null)
+                    status = removePerturbation(status);
+            }
+        }
+        
+        _warmStartable = status == SolveResult.Status.OPTIMAL && _engine != SimplexUtilities.Engine.REVISED;
+        _reloadRequired = !_warmStartable;
+        _primalFeasible = _warmStartable;
+        _dualFeasible = _warmStartable;
+        if (status != SolveResult.Status.OPTIMAL)
+            return new SolveResult(status, Double.NaN, new double[0], new int[0], _iterationCount, _phaseOneIterationCount, _rowScales, _columnScales);
+        
+        double[] values = new double[_originalVariableCount];
+        int[] basis = new int[_rowCount - 1];
+        double objectiveValue;
+        if (_engine == SimplexUtilities.Engine.REVISED)
+        {
+            int[] basicColumns = _revisedSimplex.getBasis();
+            double[] basicValues = _revisedSimplex.getBasicValues();
+            for (int j = 0; j < _originalVariableCount; j++)
+            {
+                if (_revisedSimplex.isAtUpperBound(j))
+                    values[j] = _upperBounds[j];
+            }
+            for (int i = 0; i < basis.length; i++)
+            {
+                basis[i] = basicColumns[i];
+                if (basicColumns[i] < _originalVariableCount)
+                    values[basicColumns[i]] = basicValues[i];
+            }
+            objectiveValue = 0;
+            for (int j = 0; j < _originalVariableCount; j++)
+            {
+                objectiveValue += _costs[j] * values[j];
+            }
+        }
+        else
+        {
+            // Only the ones that are basic variables will have values, apart from the ones
+            // at their upper bound. Once the artificial columns are removed, every column
+            // after one has moved left.
+            _flippedColumns.stream().forEach(j -> values[j] = _upperBounds[j]);
+            int i = 0;
+            for (int bv : _basicVariables)
+            {
+                if (bv < _originalVariableCount)
+                {
+                    double value = _matrix[(i + 2) * _columnCount - 1];
+                    values[bv] = _flippedColumns.get(bv) ? _upperBounds[bv] - value : value;
+                }
+                basis[i] = bv;
+                i++;
+            }
+            if (_artificialsRemoved)
+            {
+                int[] originalColumns = new int[_columnCount - 1];
+                int column = _artificalIndices.nextClearBit(0);
+                for (int j = 0; j < originalColumns.length; j++)
+                {
+                    originalColumns[j] = column;
+                    column = _artificalIndices.nextClearBit(column + 1);
+                }
+                for (int k = 0; k < basis.length; k++)
+                {
+                    basis[k] = originalColumns[basis[k]];
+                }
+            }
+            objectiveValue = _matrix[_columnCount - 1];
+        }
+        
+        // Undo the scaling and the shift to the lower bounds.
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            values[j] = values[j] * _columnScales[j] + _lowerBounds[j];
+        }
+        Sensitivity sensitivity = _sensitivityAnalysis ? analyzeSensitivity(basis) : null;
+        SolveResult result = new SolveResult(status, reportedObjective(objectiveValue), values, basis, _iterationCount, _phaseOneIterationCount, _rowScales, _columnScales, sensitivity);
+        return _presolver != null ? _presolver.postsolve(result) : result;
+    }
+    
+    /**
+     * Solves the linear program and describes the solution (and the final
+     * tableau) as text. If there is no solution, an error message is shown.
+     * @return The solution, or null if no solution was found.
+     */
+    public String solve()
+    {
+        SolveResult result = optimize();
+        switch (result.getStatus())
+        {
+            case INFEASIBLE:
+                GraphicUtilities.showErrorMessage("The LP is infeasible and cannot be solved.", "Solve Error");
+                return null;
+            case UNBOUNDED:
+                GraphicUtilities.showErrorMessage("The LP is unbounded and cannot be solved.", "Solve Error");
+                return null;
+            case LIMIT:
+                GraphicUtilities.showErrorMessage("The iteration limit was reached before a solution was found.", "Solve Error");
+                return null;
+        }
+        
+        if (_engine == SimplexUtilities.Engine.REVISED)
+            writeFinalTableau();
+        
+        if (_wasMinimize)
+        {
+            _matrix[_columnCount - 1] *= -1;
+        }
+        
+        // Get the values of all of the original variables.
+        HashMap<String, Double> originalVariableValues = new HashMap<>();
+        double[] values = result.getValues();
+        Collection<Variable> originalVariables = _presolver != null ? _presolver.getOriginalVariables() : _originalVariables.asList();
+        originalVariables.stream().forEach((v) -> 
+        {
+            originalVariableValues.put(v.getName(), values[v.getIndex() - 1]);
+        }); 
+        
+        DecimalFormat df = new DecimalFormat("#.####");
+        df.setRoundingMode(RoundingMode.HALF_UP);
+        
+        StringBuilder toReturn = new StringBuilder();
+        originalVariableValues
+                .entrySet()
+                .stream()
+                .forEach(kvp ->
+                {
+                    toReturn.append(kvp.getKey()).append('*').append(": ").append(df.format(kvp.getValue())).append('\n');
+                });
+        toReturn.append("Z*: ").append(df.format(result.getObjectiveValue())).append('\n');
+        
+        toReturn.append('\n').append(stringifyTableau(_variables, 'Z'));
+        if (_wasMinimize)
+        {
+            _matrix[_columnCount - 1] *= -1;
+        }
+        return toReturn.toString();
+    }
+    
+    private SolveResult.Status solveFirstPhase()
+    {
+        // The objective in the first phase is to minimze W.
+        // We have a method to solve maximize problems, so convert it
+        // to a maximize W problem.
+        for (int i = 0; i < _columnCount; i++)
+        {
+            _matrix[i] = -_matrix[i];
+        }
+        fireTableauChanged('W');
+        SolveResult.Status status = solveWithSimplex('W');
+        _phaseOneIterationCount = _iterationCount;
+        if (status != SolveResult.Status.OPTIMAL)
+            return status;
+        driveOutArtificialVariables();
+        clearRoundingErrors();
+        if (!keepRedundantRows())
+            return SolveResult.Status.INFEASIBLE;
+        
+        // Now we need to put the original equation back in for phase 2.
+        scatterObjective();
+        
+        fireTableauChanged('Z');
+        
+        // Now we need to remove basic variables from the objective function.
+        priceOutBasicVariables();
+        
+        // Finally, we have to remove the artificial variables (unless one is kept on a redundant row).
+        if (Arrays.stream(_basicVariables).noneMatch(_artificalIndices::get))
+            removeArtificialVariables();
+        
+        fireTableauChanged('Z');
+        
+        return SolveResult.Status.OPTIMAL;
+    }
+    
+    /**
+     * Solves the tableau in a single phase with the Big-M method. Row 0 holds
+     * the objective function with every artificial variable costing M, so the
+     * artificial variables leave the basis on the way to the optimum. When they
+     * do, the artificial columns are removed and row 0 is written again without
+     * M, and phase 2 only has to confirm it. Otherwise, M may just have been too
+     * small, so the first phase decides from a new tableau.
+     */
+    private SolveResult.Status solveWithBigM()
+    {
+        double largestCost = 1;
+        for (int j = 0; j < _columnCount - 1; j++)
+        {
+            largestCost = Math.max(largestCost, Math.abs(_matrix[j]));
+        }
+        subtractArtificialRows(BIG_M_FACTOR * largestCost);
+        fireTableauChanged('Z');
+        SolveResult.Status status = solveWithSimplex('Z');
+        if (status == SolveResult.Status.LIMIT)
+            return status;
+        if (status == SolveResult.Status.OPTIMAL)
+        {
+            driveOutArtificialVariables();
+            if (removeArtificialVariables())
+            {
+                _matrix[_columnCount - 1] = 0;
+                scatterObjective();
+                priceOutBasicVariables();
+                fireTableauChanged('Z');
+                return SolveResult.Status.OPTIMAL;
+            }
+        }
+        
+        buildTableau(true);
+        return solveFirstPhase();
+    }
+    
+    /**
+     * A degenerate phase 1 can end with artificial variables that are basic
+     * at 0. Each one is swapped for any other variable with a nonzero entry
+     * in its row, which does not change the right hand side.
+     */
+    private void driveOutArtificialVariables()
+    {
+        for (int row = 1; row < _rowCount; row++)
+        {
+            int rowOffset = row * _columnCount;
+            if (!_artificalIndices.get(_basicVariables[row - 1]) || Math.abs(_matrix[rowOffset + _columnCount - 1]) > 1E-9)
+                continue;
+            
+            for (int j = 0; j < _columnCount - 1; j++)
+            {
+                if (!_artificalIndices.get(j) && Math.abs(_matrix[rowOffset + j]) > 1E-9)
+                {
+                    _basicVariables[row - 1] = j;
+                    pivot(row, j);
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * An artificial variable that is still basic after driveOutArtificialVariables
+     * is either above 0, so the program is infeasible, or on a redundant row:
+     * every other entry of its row is 0, because the row is a combination of
+     * the others. Such a variable stays basic at 0 for the rest of the solve,
+     * as in the revised engine. Its row is cleared to its own entry, so no
+     * pivot changes it, and the columns of the other artificial variables are
+     * cleared, so none of them can enter the basis.
+     * @return False if an artificial variable is basic above 0.
+     */
+    private boolean keepRedundantRows()
+    {
+        BitSet basicArtificials = new BitSet();
+        for (int row = 1; row < _rowCount; row++)
+        {
+            int bv = _basicVariables[row - 1];
+            if (!_artificalIndices.get(bv))
+                continue;
+            int rowOffset = row * _columnCount;
+            if (Math.abs(_matrix[rowOffset + _columnCount - 1]) > 1E-9)
+                return false;
+            Arrays.fill(_matrix, rowOffset, rowOffset + _columnCount, 0.0);
+            _matrix[rowOffset + bv] = 1;
+            basicArtificials.set(bv);
+        }
+        if (basicArtificials.isEmpty())
+            return true;
+        
+        for (int j = _artificalIndices.nextSetBit(0); j >= 0; j = _artificalIndices.nextSetBit(j + 1))
+        {
+            if (basicArtificials.get(j))
+                continue;
+            for (int i = 0; i < _rowCount; i++)
+            {
+                _matrix[i * _columnCount + j] = 0;
+            }
+        }
+        return true;
+    }
+    
+    private boolean removeArtificialVariables()
+    {
+        // Artifical variables should never be basic variables at this point.
+        for (int bv : _basicVariables)
+        {
+            if (_artificalIndices.get(bv))
+                return false;
         }
         
-        // If this is a two-phase problem, our first equation will be different.
-        if (_requiresTwoPhase)
+        // Decrease the index of every basic variable to make up for the loss
+        // of the artifical variables before it.
+        for (int i = 0; i < _basicVariables.length; i++)
+        {
+            _basicVariables[i] -= _artificalIndices.get(0, _basicVariables[i]).cardinality();
+        }
+        
+        // We also need to remove the artifical variables from the variables list.
+        // Remember that variable indices start at 1.
+        _variables.removeIf(var -> _artificalIndices.get(var.getIndex() - 1));
+        
+        // Compact the remaining columns in place. The destination of every element
+        // is never past its source, so walking forward never overwrites unread data.
+        int newColumnCount = _columnCount - _artificalIndices.cardinality();
+        int destination = 0;
+        for (int i = 0; i < _rowCount; i++)
         {
-            for (int i = 0; i <= _variables.size(); i++)
+            int rowOffset = i * _columnCount;
+            for (int j = 0; j < _columnCount; j++)
             {
-                _matrix[0][i] = 0.0;
-                if (_artificalIndices.contains(i))
-                    _matrix[0][i] = -1.0;
-                
-                // Each element in this row is the sum of every other element in that column.
-                for (int j = 1; j <= constraints.size(); j++)
+                if (!_artificalIndices.get(j))
                 {
-                    _matrix[0][i] += _matrix[j][i];
+                    _matrix[destination++] = _matrix[rowOffset + j];
                 }
             }
         }
         
-        System.out.println(stringifyTableau(_variables, _matrix, _requiresTwoPhase ? 'W' : 'Z'));
+        _columnCount = newColumnCount;
+        _artificialsRemoved = true;
+        return true;
     }
     
-    public String solve()
+    /**
+     * Solves the tableau with the revised simplex method. The constraints
+     * stay in compressed form and the dense tableau is never built.
+     */
+    private SolveResult.Status solveWithRevisedSimplex()
     {
-        if (_requiresTwoPhase)
-            if (!solveFirstPhase())
-                return null;
+        int constraintCount = _rowCount - 1;
+        int columnCount = _columnCount - 1;
         
-        if (!solveWithSimplex('Z'))
-            return null;
-        
-        if (_wasMinimize)
+        _standardForm = buildStandardForm(_constraintMatrix);
+        double[] rhs = _rightHandSides;
+        int[] basis = new int[constraintCount];
+        for (int i = 0; i < constraintCount; i++)
         {
-            _matrix[0][_matrix[0].length - 1] *= -1;
+            basis[i] = _basicVariables[i];
         }
+        BitSet artificialColumns = _artificalIndices;
         
-        // Get the values of all of the original variables.
-        HashMap<String, Double> originalVariableValues = new HashMap<>();
-        // First, set all the values to 0.
-        _originalVariables.stream().forEach((v) -> 
+        RevisedSimplex simplex = new RevisedSimplex(_standardForm, rhs, basis);
+        if (_hasUpperBounds)
         {
-            originalVariableValues.put(v.getName(), 0.0);
-        }); 
-        // Only the ones that are basic variables will have values.
-        for (int i = 0; i < _basicVariables.size(); i++)
+            double[] upperBounds = new double[columnCount];
+            Arrays.fill(upperBounds, Double.POSITIVE_INFINITY);
+            System.arraycopy(_upperBounds, 0, upperBounds, 0, _originalVariableCount);
+            simplex.setUpperBounds(upperBounds);
+        }
+        simplex.setIterationLimit(_iterationLimit);
+        simplex.setPricing(_pricing);
+        simplex.setListener(_listener, 1);
+        _revisedSimplex = simplex;
+        _costs = new double[columnCount];
+        _objective.getEquation().entrySet().stream().forEach(kvp -> _costs[kvp.getKey().getIndex() - 1] = kvp.getValue() * _columnScales[kvp.getKey().getIndex() - 1]);
+        if (_requiresTwoPhase)
         {
-            if (_originalVariables.size() > _basicVariables.get(i))
+            // Phase 1: maximize -(A1 + A2 + ...). This can never be unbounded.
+            double[] phaseOneCosts = new double[columnCount];
+            artificialColumns.stream().forEach(j -> phaseOneCosts[j] = -1);
+            SolveResult.Status status = null;
+            boolean phaseOne = true;
+            if (_bigM)
             {
-                // We have found a basic variable that is one of the original X variables.
-                // We need to find the value.
-                double value = _matrix[i + 1][_matrix[i+1].length - 1];
-                Iterator<Variable> iter = _originalVariables.iterator();
-                for (int j = 0; j < _basicVariables.get(i); j++)
-                {
-                    iter.next();
-                }
-                originalVariableValues.replace(iter.next().getName(), value);
+                // Big-M: the objective function, with every artificial variable costing M.
+                // Phase 1 continues from its basis if that does not settle the solve.
+                double[] bigMCosts = _costs.clone();
+                double largestCost = Math.max(1, Arrays.stream(_costs).map(Math::abs).max().orElse(0));
+                artificialColumns.stream().forEach(j -> bigMCosts[j] = -BIG_M_FACTOR * largestCost);
+                status = simplex.maximize(bigMCosts, null);
+                phaseOne = status != SolveResult.Status.LIMIT 
+                        && (status != SolveResult.Status.OPTIMAL || getInfeasibility(simplex) > 1E-9);
             }
+            if (phaseOne)
+                status = simplex.maximize(phaseOneCosts, null);
+            _iterationCount = simplex.getIterationCount();
+            _phaseOneIterationCount = phaseOne ? _iterationCount : 0;
+            if (status != SolveResult.Status.OPTIMAL)
+                return status;
+            
+            if (getInfeasibility(simplex) > 1E-9)
+                return SolveResult.Status.INFEASIBLE;
+            simplex.driveOut(artificialColumns);
         }
         
-        DecimalFormat df = new DecimalFormat("#.####");
-        df.setRoundingMode(RoundingMode.HALF_UP);
-        
-        StringBuilder toReturn = new StringBuilder();
-        originalVariableValues
-                .entrySet()
-                .stream()
-                .forEach(kvp ->
-                {
-                    toReturn.append(kvp.getKey()).append('*').append(": ").append(df.format(kvp.getValue())).append('\n');
-                });
-        toReturn.append("Z*: ").append(df.format(_matrix[0][_matrix[0].length - 1])).append('\n');
-        
-        return toReturn.append('\n').append(stringifyTableau(_variables, _matrix, 'Z')).toString();
+        // Phase 2 uses the original objective function. Artificial variables may not re-enter.
+        if (_listener != null && (_wasMinimize || _objectiveOffset != 0))
+        {
+            SimplexListener listener = _listener;
+            simplex.setListener((phase, entering, leaving, objectiveValue) -> listener.pivoted(phase, entering, leaving, reportedObjective(objectiveValue)), 2);
+        }
+        else
+            simplex.setListener(_listener, 2);
+        SolveResult.Status status = simplex.maximize(_costs, artificialColumns);
+        _iterationCount = simplex.getIterationCount();
+        return status;
     }
     
-    private boolean solveFirstPhase()
+    /**
+     * Returns the sum of the artificial variables that are basic in the revised engine.
+     */
+    private double getInfeasibility(RevisedSimplex simplex)
     {
-        // The objective in the first phase is to minimze W.
-        // We have a method to solve maximize problems, so convert it
-        // to a maximize W problem.
-        for (int i = 0; i < _matrix[0].length; i++)
+        double infeasibility = 0;
+        for (int i = 0; i < _rowCount - 1; i++)
         {
-            _matrix[0][i] = -_matrix[0][i];
-        }
-        System.out.println(stringifyTableau(_variables, _matrix, 'W'));
-        if (!solveWithSimplex('W'))
-            return false;
-        
-        // Now we need to put the original equation back in for phase 2.
-        for (int i = 0; i < _variables.size(); i++)
-        {
-            // Objective function has no s or a variables.
-            int currentIndex = i + 1;
-            Optional<Entry<Variable, Double>> entry = _objective.getEquation()
-                    .entrySet()
-                    .stream()
-                    .filter(kvp -> kvp.getKey().getIndex() == currentIndex)
-                    .findFirst();
-
-            // I am assuming that each variable only appears once. This
-            // assumption should be held by the programmer, and cannot be broken
-            // by the user.
-            // Entry will be null for s and a variables.
-            if (!entry.isPresent())
-                _matrix[0][i] = 0.0;
-            else
-                _matrix[0][i] = -entry.get().getValue();            
+            if (_artificalIndices.get(simplex.getBasis()[i]))
+                infeasibility += simplex.getBasicValues()[i];
         }
-        
-        System.out.println(stringifyTableau(_variables, _matrix, 'Z'));
-        
-        // Now we need to remove basic variables from the objective function.
-        ListIterator<Integer> iter = _basicVariables.listIterator();
-        int index = 0;
-        while (iter.hasNext())
+        return infeasibility;
+    }
+    
+    /**
+     * Adds the slack/surplus/artificial columns to a matrix of the constraints,
+     * numbered as they were when the tableau was built.
+     * @param constraintMatrix The decision variable columns.
+     * @return The matrix with every column of the tableau.
+     */
+    private SparseMatrix buildStandardForm(SparseMatrix constraintMatrix)
+    {
+        int logicalCount = (int) (Arrays.stream(_slackColumns).filter(j -> j >= 0).count() + Arrays.stream(_artificialColumns).filter(j -> j >= 0).count());
+        int[] logicalRows = new int[logicalCount];
+        double[] logicalValues = new double[logicalCount];
+        for (int i = 0; i < _slackColumns.length; i++)
         {
-            int bv = iter.next();
-            // bv = index of basic variable (column number).
-            // index = row which contains that variable set to 1.
-            double coefficient = _matrix[0][bv];
-            for (int i = 0; i < _matrix[0].length; i++)
+            if (_slackColumns[i] >= 0)
             {
-                _matrix[0][i] -= (coefficient * _matrix[index + 1][i]);
+                logicalRows[_slackColumns[i] - _originalVariableCount] = i;
+                logicalValues[_slackColumns[i] - _originalVariableCount] = 
+                        _signs[i] == SimplexUtilities.Sign.LESS_THAN ? 1 : -1;
+            }
+            if (_artificialColumns[i] >= 0)
+            {
+                logicalRows[_artificialColumns[i] - _originalVariableCount] = i;
+                logicalValues[_artificialColumns[i] - _originalVariableCount] = 1;
             }
-            
-            index++;
         }
+        return constraintMatrix.withSingletonColumns(logicalRows, logicalValues);
+    }
+    
+    /**
+     * Analyzes the optimal basis. The constraint matrix is built again from the
+     * program, since the final tableau may have been edited since it was loaded.
+     * @param basis The basic column of each row, numbered as the tableau was built.
+     * @return The sensitivity of the solution.
+     */
+    private Sensitivity analyzeSensitivity(int[] basis)
+    {
+        int constraintCount = _constraints.size();
+        SparseMatrix programMatrix = _programMatrix;
+        if (programMatrix == null)
+        {
+            ArrayList<HashMap<Variable, Double>> equations = new ArrayList<>(constraintCount);
+            _constraints.stream().forEach(constraint -> equations.add(constraint.getEquation()));
+            programMatrix = SparseMatrix.fromEquations(equations, _originalVariableCount);
+        }
+        double[] rowFactors = new double[constraintCount];
+        double[] rightHandSides = new double[constraintCount];
+        for (int i = 0; i < constraintCount; i++)
+        {
+            rowFactors[i] = _rowDirections[i] * _rowScales[i];
+            rightHandSides[i] = _constraints.get(i).getRightHandSide();
+        }
+        SparseMatrix standardForm = buildStandardForm(programMatrix.scaled(rowFactors, _columnScales));
         
-        // Finally, we have to remove the artificial variables.
-        if (!removeArtificialVariables())
-            return false;
-        
-        System.out.println(stringifyTableau(_variables, _matrix, 'Z'));
+        // Slack/surplus variables have no upper bound, and artificial variables stay at 0.
+        int columnCount = standardForm.getColumnCount();
+        double[] costs = new double[columnCount];
+        double[] objectiveCosts = new double[_originalVariableCount];
+        double[] upperBounds = new double[columnCount];
+        Arrays.fill(upperBounds, Double.POSITIVE_INFINITY);
+        System.arraycopy(_upperBounds, 0, upperBounds, 0, _originalVariableCount);
+        Arrays.stream(_artificialColumns).filter(j -> j >= 0).forEach(j -> upperBounds[j] = 0);
+        for (Map.Entry<Variable, Double> kvp : _objective.getEquation().entrySet())
+        {
+            int column = kvp.getKey().getIndex() - 1;
+            costs[column] = kvp.getValue() * _columnScales[column];
+            objectiveCosts[column] = _wasMinimize ? -kvp.getValue() : kvp.getValue();
+        }
         
-        return true;
+        BitSet atUpperBound = new BitSet();
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            if (_engine == SimplexUtilities.Engine.REVISED ? _revisedSimplex.isAtUpperBound(j) : _flippedColumns.get(j))
+                atUpperBound.set(j);
+        }
+        Arrays.stream(basis).forEach(atUpperBound::clear);
+        return new Sensitivity(standardForm, basis, atUpperBound, costs, _rightHandSides, upperBounds, 
+                rowFactors, _columnScales, _wasMinimize, rightHandSides, objectiveCosts);
     }
     
-    private boolean removeArtificialVariables()
+    /**
+     * Writes out the final tableau of the revised engine: row p is (row p of the
+     * inverse basis) * A, and the objective row holds the reduced costs. This is
+     * only needed to describe the solution as text.
+     */
+    private void writeFinalTableau()
     {
-        // We have to adjust the indices of the basic variables as we perform this operator.
-        double[][] newMatrix = new double[_matrix.length][_matrix[0].length - _artificalIndices.size()];
-        String previousTableau = stringifyTableau(_variables, _matrix, 'W');
-        
-        int actualColumn = newMatrix[0].length;
-        // First iterate over the columns.
-        for (int j = _matrix[0].length - 1; j >= 0; j--)
+        int constraintCount = _rowCount - 1;
+        int columnCount = _columnCount - 1;
+        RevisedSimplex simplex = _revisedSimplex;
+        _matrix = new double[_rowCount * _columnCount];
+        double[] multipliers = new double[constraintCount];
+        boolean artificialIsBasic = false;
+        for (int p = 0; p < constraintCount; p++)
         {
-            if (!_artificalIndices.contains(j))
+            simplex.computeTableauRow(p, multipliers);
+            int rowOffset = (p + 1) * _columnCount;
+            for (int j = 0; j < columnCount; j++)
             {
-                actualColumn--;
+                _matrix[rowOffset + j] = _standardForm.dot(j, multipliers);
             }
-            else
-            {
-                // This column will be removed. Update the basic variable list.
-                for (int k = 0; k < _basicVariables.size(); k++)
+            _matrix[rowOffset + columnCount] = simplex.getBasicValues()[p];
+            _basicVariables[p] = simplex.getBasis()[p];
+            artificialIsBasic |= _artificalIndices.get(simplex.getBasis()[p]);
+        }
+        simplex.computeDuals(_costs, multipliers);
+        double objectiveValue = 0;
+        for (int p = 0; p < constraintCount; p++)
+        {
+            objectiveValue += _costs[simplex.getBasis()[p]] * simplex.getBasicValues()[p];
+        }
+        for (int j = 0; j < _originalVariableCount; j++)
+        {
+            if (simplex.isAtUpperBound(j))
+                objectiveValue += _costs[j] * _upperBounds[j];
+        }
+        for (int j = 0; j < columnCount; j++)
+        {
+            _matrix[j] = _standardForm.dot(j, multipliers) - _costs[j];
+        }
+        _matrix[columnCount] = objectiveValue;
+        
+        // An artificial variable left in the basis sits on a redundant row at 0.
+        // Its column is kept so the tableau still shows it.
+        if (_requiresTwoPhase && !artificialIsBasic)
+            removeArtificialVariables();
+    }
+    
+    /**
+     * Writes the objective function into row 0 of the tableau. Slack/surplus
+     * and artificial variables are not in the objective function, so their
+     * entries are 0. A variable that is measured down from its upper bound
+     * has the opposite sign, and adds the value of its bound to the RHS.
+     */
+    private void scatterObjective()
+    {
+        Arrays.fill(_matrix, 0, _columnCount - 1, 0.0);
+        _objective.getEquation()
+                .entrySet()
+                .stream()
+                .forEach(kvp -> 
                 {
-                    if (_basicVariables.get(k) == j)
-                    {
-                        // Artifical variables should never be basic variables at this point.
-//                        String errorMessage = "The LP is infeasible and cannot be solved.\n\nCurrent Tableau:\n" + previousTableau;
-//                        GraphicUtilities.showMessage(errorMessage, "Infeasible LP");
-                        GraphicUtilities.showErrorMessage("The LP is infeasible and cannot be solved.", "Solve Error");
-                        return false;
-//                        GraphicUtilities.showErrorMessage("Error: An artifical variable is a " +
-//                                "basic variable after the first phase completed.", "ERROR");
-                    }
-                    else if (_basicVariables.get(k) > j)
+                    int column = kvp.getKey().getIndex() - 1;
+                    double cost = kvp.getValue() * _columnScales[column];
+                    if (_flippedColumns.get(column))
                     {
-                        // Decrease the index to make up for the loss of the artifical variable.
-                        // We are iterating the list backwards, so deducting 1 should not cause an issue.
-                        _basicVariables.set(k, _basicVariables.get(k) - 1);
+                        _matrix[column] = cost;
+                        _matrix[_columnCount - 1] += cost * _upperBounds[column];
                     }
-                    
-                    // We also need to remove the artifical variable from the variables list.
-                    // Remember that variable indices start at 1.
-                    int indexToRemove = j + 1;
-                    _variables.removeIf(var -> var.getIndex() == indexToRemove);
-                }
-                continue;
-            }
-            for (int i = 0; i < _matrix.length; i++)
-            {
-                newMatrix[i][actualColumn] = _matrix[i][j];
-            }
-        }
-        
-        _matrix = newMatrix;
-        return true;
+                    else
+                        _matrix[column] = -cost;
+                });
     }
     
     /**
      * This method assumes that the objective function is the first row
      * in the tableau and that it is a maximize.
      */
-    private boolean solveWithSimplex(char objectiveVariable)
+    private SolveResult.Status solveWithSimplex(char objectiveVariable)
     {
+        _pricingRule.reset(_matrix, _rowCount, _columnCount);
+        int degeneratePivots = 0;
+        int[] referenceColumns = null;
+        
         // Run forever (until a solution is found).
         for (;;)
         {
@@ -421,100 +1992,444 @@ public class Tableau
 //                return false;
 //            }
             
-            // First we have to find the entering variable (most negative coefficient).
-            double mostNegative = _matrix[0][0];
-            int mostNegativeIndex = 0;
-            for (int i = 1; i < _matrix[0].length - 1; i++)
-            {
-                if (_matrix[0][i] < mostNegative)
-                {
-                    mostNegative = _matrix[0][i];
-                    mostNegativeIndex = i;
-                }
-            }
-            
+            // First we have to find the entering variable (most negative coefficient,
+            // unless another pricing rule was selected).
             // If there are no negative numbers, we are done.
-            // Due to rounding errors, we must include an approximation here.
-            if (mostNegative >= -1E-10)
+            // After a long run of degenerate pivots, Bland's rule takes the first one instead.
+            boolean antiCycling = degeneratePivots >= DEGENERATE_PIVOT_LIMIT;
+            int mostNegativeIndex;
+            if (antiCycling && _degeneracyRule == SimplexUtilities.DegeneracyRule.BLAND)
+                mostNegativeIndex = findFirstNegative();
+            else
+                mostNegativeIndex = _pricingRule.selectEntering(_matrix, _rowCount, _columnCount, _rowOperations);
+            if (mostNegativeIndex == -1)
             {
                 break;
             }
             
-            // Now we have to find the leaving variable (samllest MRT).
-            double[] mrt = new double[_matrix.length - 1];
-            
+            // Now we have to find the leaving variable (smallest MRT).
             // We don't need to perform the mrt for the objective function.
-            for (int i = 1; i < _matrix.length; i++)
-            {
-                if (_matrix[i][mostNegativeIndex] == 0 || _matrix[i][_matrix[i].length - 1] / _matrix[i][mostNegativeIndex] < 0)
-                    mrt[i - 1] = Double.POSITIVE_INFINITY;
-                else
-                    mrt[i - 1] = _matrix[i][_matrix[i].length - 1] / _matrix[i][mostNegativeIndex];
-            }
+            // If it is a tie, we will grab the first one we see.
+            int smallestMRTIndex = _rowOperations.findMinimumRatio(_matrix, _columnCount, 1, _rowCount, mostNegativeIndex);
+            
+            // Ties are what lets the simplex method cycle, so break them by rule.
+            if (antiCycling && smallestMRTIndex != -1)
+                smallestMRTIndex = breakRatioTie(mostNegativeIndex, referenceColumns);
             
-            // Find the smallest mrt (if it is a tie, we will grab the first one we see).
-            double smallestMRT = mrt[0];
-            int smallestMRTIndex = 0;
-            for (int i = 1; i < mrt.length; i++)
+            // With upper bounds, the step can also be cut short by a basic variable that
+            // reaches its upper bound, or by the entering variable reaching its own.
+            boolean boundFlip = false;
+            if (_hasUpperBounds)
             {
-                if (mrt[i] < smallestMRT)
+                double step = Double.POSITIVE_INFINITY;
+                if (smallestMRTIndex != -1)
+                    step = Math.max(_matrix[(smallestMRTIndex + 1) * _columnCount - 1], 0) / _matrix[smallestMRTIndex * _columnCount + mostNegativeIndex];
+                int upperBoundRow = findUpperBoundRow(mostNegativeIndex, step);
+                if (upperBoundRow != -1)
                 {
-                    smallestMRT = mrt[i];
-                    smallestMRTIndex = i;
+                    complementBasicVariable(upperBoundRow);
+                    smallestMRTIndex = upperBoundRow;
+                    step = _matrix[(upperBoundRow + 1) * _columnCount - 1] / _matrix[upperBoundRow * _columnCount + mostNegativeIndex];
                 }
+                boundFlip = mostNegativeIndex < _originalVariableCount && _upperBounds[mostNegativeIndex] < step;
             }
-            
-            if (smallestMRT == Double.POSITIVE_INFINITY)
+            if (smallestMRTIndex == -1 && !boundFlip)
             {
                 if (objectiveVariable == 'W')
-                    GraphicUtilities.showErrorMessage("The LP is infeasible and cannot be solved.", "Solve Error");
+                    return SolveResult.Status.INFEASIBLE;
                 else
-                    GraphicUtilities.showErrorMessage("The LP is unbounded and cannot be solved.", "Solve Error");
-                return false;
+                    return SolveResult.Status.UNBOUNDED;
+            }
+            
+            if (_iterationCount >= _iterationLimit)
+                return SolveResult.Status.LIMIT;
+            _iterationCount++;
+            
+            // The entering variable reaches its upper bound first, so it stays nonbasic.
+            if (boundFlip)
+            {
+                complementColumn(mostNegativeIndex);
+                degeneratePivots = 0;
+                firePivoted(objectiveVariable, mostNegativeIndex, -1);
+                continue;
             }
             
-            _basicVariables.set(smallestMRTIndex, mostNegativeIndex);
+            int pivotOffset = smallestMRTIndex * _columnCount;
+            if (_matrix[pivotOffset + _columnCount - 1] / _matrix[pivotOffset + mostNegativeIndex] <= DEGENERATE_STEP)
+                degeneratePivots++;
+            else
+                degeneratePivots = 0;
+            
+            // The basic variable list ignores the objective function row.
+            int leavingIndex = _basicVariables[smallestMRTIndex - 1];
+            _basicVariables[smallestMRTIndex - 1] = mostNegativeIndex;
+            _pricingRule.beforePivot(_matrix, _rowCount, _columnCount, smallestMRTIndex, mostNegativeIndex, leavingIndex);
+            
+            pivot(smallestMRTIndex, mostNegativeIndex);
             
-            // This index will be one less than expected since we ignored the
-            // objective function. Increment it to fix that issue.
-            smallestMRTIndex++;
+            // The lexicographic rule is measured against the basis it starts from.
+            if (degeneratePivots == DEGENERATE_PIVOT_LIMIT && _degeneracyRule == SimplexUtilities.DegeneracyRule.LEXICOGRAPHIC)
+                referenceColumns = _basicVariables.clone();
             
-            // Now that we have our entering and leaving variables, we need to
-            // create a new matrix for our tableau.
-            double[][] newMatrix = new double[_matrix.length][_matrix[0].length];
+            firePivoted(objectiveVariable, mostNegativeIndex, smallestMRTIndex - 1);
+        }
+        
+        return SolveResult.Status.OPTIMAL;
+    }
+    
+    /**
+     * Finds the row whose basic variable reaches its upper bound first as the
+     * entering variable increases, if that happens before the given step.
+     * @param column The column of the entering variable.
+     * @param step The step allowed by the rest of the ratio test.
+     * @return The row, or -1 if no basic variable reaches its upper bound first.
+     */
+    private int findUpperBoundRow(int column, double step)
+    {
+        int row = -1;
+        int i = 0;
+        for (int bv : _basicVariables)
+        {
+            i++;
+            if (bv >= _originalVariableCount || _upperBounds[bv] == Double.POSITIVE_INFINITY)
+                continue;
+            double entry = _matrix[i * _columnCount + column];
+            if (entry < -1E-9)
+            {
+                double ratio = Math.max(_upperBounds[bv] - _matrix[(i + 1) * _columnCount - 1], 0) / -entry;
+                if (ratio < step)
+                {
+                    step = ratio;
+                    row = i;
+                }
+            }
+        }
+        return row;
+    }
+    
+    /**
+     * Measures the basic variable of a row down from its upper bound instead
+     * (X' = upper - X). The row is multiplied by -1, except for the basic
+     * column which stays 1. No other row has an entry in that column.
+     * @param row The row of the basic variable.
+     */
+    private void complementBasicVariable(int row)
+    {
+        int bv = _basicVariables[row - 1];
+        int rowOffset = row * _columnCount;
+        for (int j = 0; j < _columnCount; j++)
+        {
+            _matrix[rowOffset + j] = -_matrix[rowOffset + j];
+        }
+        _matrix[rowOffset + bv] = 1;
+        _matrix[rowOffset + _columnCount - 1] += getUpperBound(bv);
+        if (_perturbation != null)
+            _perturbation[row] = -_perturbation[row];
+        
+        // An artificial variable is 0 either way, and its column is never used again.
+        if (bv < _originalVariableCount)
+            _flippedColumns.flip(bv);
+    }
+    
+    /**
+     * Returns the upper bound of a column of the tableau: the width of the range
+     * of a decision variable, 0 for an artificial variable (it may only leave
+     * the basis), and infinity for a slack/surplus variable.
+     * @param column The column, as it is numbered in the current tableau.
+     */
+    double getUpperBound(int column)
+    {
+        if (column < _originalVariableCount)
+            return _upperBounds[column];
+        if (isArtificialColumn(column))
+            return 0;
+        return Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Returns the position of a column in the current tableau, which moves
+     * left once the artificial columns before it are removed.
+     * @param column The column, as it was numbered when the tableau was built.
+     */
+    private int getCurrentColumn(int column)
+    {
+        return _artificialsRemoved ? column - _artificalIndices.get(0, column).cardinality() : column;
+    }
+    
+    /**
+     * Finds the constraint a column is basic in.
+     * @param column The column, as it is numbered in the current tableau.
+     * @return The constraint (row - 1), or -1 if the column is not basic.
+     */
+    private int findBasicRow(int column)
+    {
+        for (int i = 0; i < _basicVariables.length; i++)
+        {
+            if (_basicVariables[i] == column)
+                return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Moves a nonbasic variable to its other bound. Its column is multiplied
+     * by -1, and every right hand side moves by the width of its range.
+     * @param column The column of the nonbasic variable.
+     */
+    private void complementColumn(int column)
+    {
+        double range = _upperBounds[column];
+        for (int i = 0; i < _rowCount; i++)
+        {
+            int rowOffset = i * _columnCount;
+            _matrix[rowOffset + _columnCount - 1] -= _matrix[rowOffset + column] * range;
+            _matrix[rowOffset + column] = -_matrix[rowOffset + column];
+        }
+        _flippedColumns.flip(column);
+    }
+    
+    /**
+     * Finds the first column with a negative reduced cost (Bland's rule).
+     * @return The column, or -1 if there is none.
+     */
+    private int findFirstNegative()
+    {
+        for (int j = 0; j < _columnCount - 1; j++)
+        {
+            if (_matrix[j] < -PricingRule.OPTIMALITY_TOLERANCE)
+                return j;
+        }
+        return -1;
+    }
+    
+    /**
+     * Chooses between the rows that tie in the minimum ratio test. Bland's rule
+     * takes the row whose basic variable has the lowest index. The lexicographic
+     * rule compares the rows, divided by their entries in the pivot column, on
+     * the reference columns in order and takes the smallest.
+     * Only rows with a positive entry take part, as in the plain ratio test.
+     * @param column The column of the entering variable.
+     * @param referenceColumns The basis the lexicographic rule started from.
+     * @return The row of the leaving variable, or -1 if no entry is positive.
+     */
+    private int breakRatioTie(int column, int[] referenceColumns)
+    {
+        int rhsColumn = _columnCount - 1;
+        double smallestRatio = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < _rowCount; i++)
+        {
+            double entry = _matrix[i * _columnCount + column];
+            if (entry > 1E-9)
+                smallestRatio = Math.min(smallestRatio, Math.max(_matrix[i * _columnCount + rhsColumn], 0) / entry);
+        }
+        if (smallestRatio == Double.POSITIVE_INFINITY)
+            return -1;
+        
+        int[] ties = new int[_rowCount];
+        int tieCount = 0;
+        int basicIndex = 0;
+        int chosen = -1;
+        int chosenVariable = Integer.MAX_VALUE;
+        for (int bv : _basicVariables)
+        {
+            int i = ++basicIndex;
+            double entry = _matrix[i * _columnCount + column];
+            if (entry <= 1E-9 || Math.max(_matrix[i * _columnCount + rhsColumn], 0) / entry > smallestRatio + DEGENERATE_STEP)
+                continue;
             
-            // First we'll update the pivot row (divide by the coefficient of the entering variable).
-            for (int i = 0; i < _matrix[smallestMRTIndex].length; i++)
+            ties[tieCount++] = i;
+            if (bv < chosenVariable)
+            {
+                chosen = i;
+                chosenVariable = bv;
+            }
+        }
+        if (_degeneracyRule == SimplexUtilities.DegeneracyRule.BLAND || referenceColumns == null)
+            return chosen;
+        
+        for (int k = 0; k < referenceColumns.length && tieCount > 1; k++)
+        {
+            double smallest = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < tieCount; t++)
+            {
+                int offset = ties[t] * _columnCount;
+                smallest = Math.min(smallest, _matrix[offset + referenceColumns[k]] / _matrix[offset + column]);
+            }
+            int remaining = 0;
+            for (int t = 0; t < tieCount; t++)
+            {
+                int offset = ties[t] * _columnCount;
+                if (_matrix[offset + referenceColumns[k]] / _matrix[offset + column] <= smallest + DEGENERATE_STEP)
+                    ties[remaining++] = ties[t];
+            }
+            tieCount = remaining;
+        }
+        return ties[0];
+    }
+    
+    /**
+     * Adds a small random amount to the value of every basic variable. The
+     * amounts are recorded so that they can be removed again. A variable
+     * that would be pushed past its upper bound is moved down instead.
+     */
+    private void perturbRightHandSide()
+    {
+        Random random = new Random(_rowCount);
+        _perturbation = new double[_rowCount];
+        int i = 0;
+        for (int bv : _basicVariables)
+        {
+            i++;
+            int rhsIndex = (i + 1) * _columnCount - 1;
+            double rhs = _matrix[rhsIndex];
+            double amount = PERTURBATION_SIZE * (1 + Math.abs(rhs)) * (0.5 + 0.5 * random.nextDouble());
+            if (bv < _originalVariableCount && rhs + amount > _upperBounds[bv])
+                amount = rhs - amount >= 0 ? -amount : 0;
+            _matrix[rhsIndex] += amount;
+            _perturbation[i] = amount;
+        }
+    }
+    
+    /**
+     * Removes the perturbation from the right hand side. The optimal basis of
+     * the perturbed problem may then be slightly infeasible, so it is repaired
+     * with dual simplex pivots (it is still dual feasible).
+     * @param status The result of the perturbed solve.
+     * @return The result for the original right hand side.
+     */
+    private SolveResult.Status removePerturbation(SolveResult.Status status)
+    {
+        for (int i = 0; i < _rowCount; i++)
+        {
+            _matrix[(i + 1) * _columnCount - 1] -= _perturbation[i];
+        }
+        _perturbation = null;
+        if (status != SolveResult.Status.OPTIMAL)
+            return status;
+        
+        return solveWithDualSimplex();
+    }
+    
+    /**
+     * Runs the dual simplex method. The tableau must be dual feasible (no
+     * negative reduced costs), but the basic variables may be outside their
+     * bounds. Each iteration, the variable that is furthest outside its
+     * bounds leaves, and the entering variable is the one that keeps the
+     * reduced costs nonnegative. Artificial variables may leave, but never enter.
+     * @return OPTIMAL, INFEASIBLE, or LIMIT if the iteration limit was reached first.
+     */
+    private SolveResult.Status solveWithDualSimplex()
+    {
+        for (;;)
+        {
+            // The leaving row has the most negative right hand side. A basic variable
+            // above its upper bound is measured down from the bound first, which makes it negative.
+            int row = -1;
+            double mostNegative = -1E-9;
+            int i = 0;
+            for (int bv : _basicVariables)
             {
-                newMatrix[smallestMRTIndex][i] = (_matrix[smallestMRTIndex][i] / _matrix[smallestMRTIndex][mostNegativeIndex]);
+                i++;
+                double rhs = _matrix[(i + 1) * _columnCount - 1];
+                rhs = Math.min(rhs, getUpperBound(bv) - rhs);
+                if (rhs < mostNegative)
+                {
+                    mostNegative = rhs;
+                    row = i;
+                }
             }
+            if (row == -1)
+                return SolveResult.Status.OPTIMAL;
+            if (_matrix[(row + 1) * _columnCount - 1] >= 0)
+                complementBasicVariable(row);
             
-            // Now we have to update all the other rows (make the entering variable value 0).
-            for (int i = 0; i < _matrix.length; i++)
+            // The entering column keeps the reduced costs nonnegative.
+            int rowOffset = row * _columnCount;
+            int column = -1;
+            double smallestRatio = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < _columnCount - 1; j++)
             {
-                // This row has already been handled, skip it.
-                if (i == smallestMRTIndex)
-                    continue;
-                
-                double coefficient = _matrix[i][mostNegativeIndex];
-                for (int j = 0; j < _matrix[i].length; j++)
+                double entry = _matrix[rowOffset + j];
+                if (entry < -1E-9 && getUpperBound(j) != 0)
                 {
-                    newMatrix[i][j] = _matrix[i][j] - coefficient * newMatrix[smallestMRTIndex][j];
+                    double ratio = Math.max(_matrix[j], 0) / -entry;
+                    if (ratio < smallestRatio)
+                    {
+                        smallestRatio = ratio;
+                        column = j;
+                    }
                 }
             }
+            if (column == -1)
+                return SolveResult.Status.INFEASIBLE;
             
-            _matrix = newMatrix;
-            System.out.println(stringifyTableau(_variables, _matrix, objectiveVariable));
+            if (_iterationCount >= _iterationLimit)
+                return SolveResult.Status.LIMIT;
+            _iterationCount++;
+            
+            _basicVariables[row - 1] = column;
+            pivot(row, column);
+            firePivoted('Z', column, row - 1);
         }
+    }
+    
+    private void firePivoted(char objectiveVariable, int enteringColumn, int leavingRow)
+    {
+        if (_listener == null)
+            return;
         
-        return true;
+        // Phase 1 maximizes -W, so the right hand side of row 0 holds -W.
+        double objectiveValue = _matrix[_columnCount - 1];
+        if (objectiveVariable == 'W')
+            objectiveValue *= -1;
+        else
+            objectiveValue = reportedObjective(objectiveValue);
+        _listener.pivoted(objectiveVariable == 'W' ? 1 : 2, enteringColumn, leavingRow, objectiveValue);
+        fireTableauChanged(objectiveVariable);
+    }
+    
+    /**
+     * Converts an objective value of the shifted maximize problem back to the
+     * objective function that was entered.
+     */
+    private double reportedObjective(double objectiveValue)
+    {
+        objectiveValue += _objectiveOffset;
+        return _wasMinimize ? -objectiveValue : objectiveValue;
+    }
+    
+    private void fireTableauChanged(char objectiveVariable)
+    {
+        if (_listener != null && _verbosity == SimplexListener.Verbosity.TABLEAUS)
+            _listener.tableauChanged(objectiveVariable == 'W' ? 1 : 2, stringifyTableau(_variables, objectiveVariable));
+    }
+    
+    /**
+     * Pivots the tableau in place on the given element. No memory is allocated.
+     * @param pivotRow The row of the leaving variable (row 0 is the objective function).
+     * @param pivotColumn The column of the entering variable.
+     */
+    private void pivot(int pivotRow, int pivotColumn)
+    {
+        if (_perturbation != null)
+        {
+            // The perturbation goes through the same row operations as the right hand side.
+            int pivotOffset = pivotRow * _columnCount;
+            double step = _perturbation[pivotRow] / _matrix[pivotOffset + pivotColumn];
+            for (int i = 0; i < _rowCount; i++)
+            {
+                _perturbation[i] -= _matrix[i * _columnCount + pivotColumn] * step;
+            }
+            _perturbation[pivotRow] = step;
+        }
+        _pivotKernel.pivot(_matrix, _rowCount, _columnCount, pivotRow, pivotColumn);
     }
     
-    private String stringifyTableau(TreeSet<Variable> variables, double[][] matrix, char objectiveVariable)
+    private String stringifyTableau(VariableRegistry variables, char objectiveVariable)
     {
         StringBuilder toReturn = new StringBuilder();
         toReturn.append("BV\tEQ\t").append(objectiveVariable).append("\t");
-        variables.stream().forEach((variable) -> 
+        variables.forEach((variable) -> 
         {
             toReturn.append(variable.getName()).append("\t");
         });
@@ -524,7 +2439,7 @@ public class Tableau
         df.setRoundingMode(RoundingMode.HALF_UP);
         int basicVariableCount = -1;
         
-        for (int i = 0; i < matrix.length; i++) 
+        for (int i = 0; i < _rowCount; i++) 
         {
             toReturn.append("\n");
             if (basicVariableCount == -1)
@@ -532,13 +2447,8 @@ public class Tableau
             else
             {
                 // Get the basic variable.
-                int basicVariableIndex = _basicVariables.get(basicVariableCount);
-                Iterator<Variable> iter = _variables.iterator();
-                for (int j = 0; j < basicVariableIndex; j++)
-                {
-                    iter.next();
-                }
-                toReturn.append(iter.next().getName()).append("\t");
+                int basicVariableIndex = _basicVariables[basicVariableCount];
+                toReturn.append(_variables.get(basicVariableIndex).getName()).append("\t");
             }
             toReturn.append(basicVariableCount + 1).append("\t");
             if (basicVariableCount == -1)
@@ -550,9 +2460,9 @@ public class Tableau
                 toReturn.append("0\t");
             }
             basicVariableCount++;
-            for (int j = 0; j < matrix[i].length; j++)
+            for (int j = 0; j < _columnCount; j++)
             {
-                toReturn.append(df.format(matrix[i][j])).append("\t");
+                toReturn.append(df.format(_matrix[i * _columnCount + j])).append("\t");
             }
         }
         return toReturn.toString();
@@ -9,6 +9,9 @@ public class Variable
     private final String _name;
     private String _alias;
     private final int _index;
+    private double _lowerBound = 0;
+    private double _upperBound = Double.POSITIVE_INFINITY;
+    private boolean _integer = false;
     
     /**
      * Defines a new decision variable with the specified name.
@@ -40,7 +43,72 @@ public class Variable
     {
         _alias = alias;
     }
+    
+    public double getLowerBound()
+    {
+        return _lowerBound;
+    }
+    
+    public double getUpperBound()
+    {
+        return _upperBound;
+    }
+    
+    /**
+     * Sets the bounds of this variable. The default is 0 <= X < infinity.
+     * The bounds are handled by the simplex engines directly, so they do
+     * not add any rows to the tableau.
+     * @param lowerBound The smallest value of the variable.
+     * @param upperBound The largest value of the variable (may be infinite).
+     * @throws IllegalArgumentException If the lower bound is not finite, or is greater than the upper bound.
+     */
+    public void setBounds(double lowerBound, double upperBound)
+    {
+        if (Double.isInfinite(lowerBound) || Double.isNaN(lowerBound))
+            throw new IllegalArgumentException("The lower bound of " + _name + " must be finite.");
+        if (Double.isNaN(upperBound) || lowerBound > upperBound)
+            throw new IllegalArgumentException("The lower bound of " + _name + " is greater than its upper bound.");
+        
+        _lowerBound = lowerBound;
+        _upperBound = upperBound;
+    }
 
+    public boolean isInteger()
+    {
+        return _integer;
+    }
+    
+    /**
+     * Makes this variable take only integer values. A Tableau still solves
+     * the continuous relaxation; BranchAndBound enforces the integrality.
+     * @param integer Whether the variable must be an integer.
+     */
+    public void setInteger(boolean integer)
+    {
+        _integer = integer;
+    }
+    
+    /**
+     * Two variables are equal if they have the same index and the same name.
+     * The bounds, the alias and the integrality may change, so they do not count.
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+            return true;
+        if (!(other instanceof Variable))
+            return false;
+        Variable variable = (Variable) other;
+        return _index == variable._index && _name.equals(variable._name);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return _index;
+    }
+    
     @Override
     public String toString() 
     {
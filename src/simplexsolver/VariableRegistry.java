@@ -0,0 +1,153 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Keeps a set of variables in order, each under its own name, so that a
+ * variable can be found by its name or by its position in constant time.
+ * The position is the dense column of the variable (0, 1, 2, ...), which is
+ * not necessarily its index - 1 (for example, once the artificial columns
+ * of a tableau are removed). Any name is allowed, as long as it is unique.
+ * @author Gennaro
+ */
+public class VariableRegistry implements Iterable<Variable>
+{
+    private final ArrayList<Variable> _variables = new ArrayList<>();
+    private final HashMap<String, Integer> _positions = new HashMap<>();
+    
+    /**
+     * Adds a variable after the last one. Adding the same variable again does
+     * nothing, so each variable is only kept once.
+     * @param variable The variable.
+     * @return The variable that is kept under its name.
+     * @throws IllegalArgumentException If another variable already has its name.
+     */
+    public Variable add(Variable variable)
+    {
+        return add(_variables.size(), variable);
+    }
+    
+    /**
+     * Adds a variable at a position, moving the ones from there on one position up.
+     * @param position The position of the new variable.
+     * @param variable The variable.
+     * @return The variable that is kept under its name.
+     * @throws IllegalArgumentException If another variable already has its name.
+     */
+    public Variable add(int position, Variable variable)
+    {
+        Integer existing = _positions.get(variable.getName());
+        if (existing != null)
+        {
+            if (!_variables.get(existing).equals(variable))
+                throw new IllegalArgumentException("There are multiple variables named " + variable.getName() + ".");
+            return _variables.get(existing);
+        }
+        _variables.add(position, variable);
+        if (position == _variables.size() - 1)
+            _positions.put(variable.getName(), position);
+        else
+            reindex();
+        return variable;
+    }
+    
+    /**
+     * Finds a variable by its name.
+     * @param name The name.
+     * @return The variable, or null if there is none with that name.
+     */
+    public Variable get(String name)
+    {
+        Integer position = _positions.get(name);
+        return position == null ? null : _variables.get(position);
+    }
+    
+    /**
+     * Returns the variable at a position.
+     * @param position The position (starting at 0).
+     * @return The variable.
+     */
+    public Variable get(int position)
+    {
+        return _variables.get(position);
+    }
+    
+    /**
+     * Finds the position of a variable by its name.
+     * @param name The name.
+     * @return The position, or -1 if there is no variable with that name.
+     */
+    public int indexOf(String name)
+    {
+        Integer position = _positions.get(name);
+        return position == null ? -1 : position;
+    }
+    
+    /**
+     * Tells whether a name is taken.
+     * @param name The name.
+     * @return True if a variable has that name.
+     */
+    public boolean contains(String name)
+    {
+        return _positions.containsKey(name);
+    }
+    
+    /**
+     * Removes every variable that matches a condition, in a single pass. The
+     * others keep their order and move down to fill the gaps.
+     * @param filter The condition.
+     */
+    public void removeIf(Predicate<Variable> filter)
+    {
+        if (_variables.removeIf(filter))
+            reindex();
+    }
+    
+    /**
+     * Replaces the variable at a position (for example, with one that has a
+     * new index), under the same name.
+     * @param position The position.
+     * @param variable The new variable, with the same name as the old one.
+     */
+    public void set(int position, Variable variable)
+    {
+        if (!_variables.get(position).getName().equals(variable.getName()))
+            throw new IllegalArgumentException("The variable at " + position + " is not named " + variable.getName() + ".");
+        _variables.set(position, variable);
+    }
+    
+    public int size()
+    {
+        return _variables.size();
+    }
+    
+    /**
+     * Returns the variables in order.
+     * @return A read-only view of the variables.
+     */
+    public List<Variable> asList()
+    {
+        return Collections.unmodifiableList(_variables);
+    }
+    
+    @Override
+    public Iterator<Variable> iterator()
+    {
+        return asList().iterator();
+    }
+    
+    private void reindex()
+    {
+        _positions.clear();
+        for (int i = 0; i < _variables.size(); i++)
+        {
+            _positions.put(_variables.get(i).getName(), i);
+        }
+    }
+}
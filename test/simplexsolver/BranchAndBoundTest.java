@@ -0,0 +1,62 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Regression tests for integer programs that branch and bound once solved
+ * wrongly or never finished.
+ * @author Gennaro
+ */
+public class BranchAndBoundTest
+{
+    private static final double TOLERANCE = 1E-9;
+    
+    /**
+     * min X + Y s.t. X + Y >= 2.5, X - Y = 0.5 with X and Y integers. Every
+     * relaxation along the way is feasible, so branching never ended.
+     */
+    @Test
+    public void detectsIndivisibleEquality()
+    {
+        BranchAndBound search = new BranchAndBound(createProgram(0.5));
+        search.setNodeLimit(1000);
+        assertEquals(SolveResult.Status.INFEASIBLE, search.optimize().getStatus());
+        assertEquals(0, search.getNodeCount());
+    }
+    
+    @Test
+    public void solvesDivisibleEquality()
+    {
+        SolveResult result = new BranchAndBound(createProgram(1)).optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus());
+        assertEquals(3, result.getObjectiveValue(), TOLERANCE);
+        assertEquals(2, result.getValues()[0], TOLERANCE);
+        assertEquals(1, result.getValues()[1], TOLERANCE);
+    }
+    
+    private static Tableau createProgram(double difference)
+    {
+        Variable x = new Variable("X", 1);
+        Variable y = new Variable("Y", 2);
+        x.setInteger(true);
+        y.setInteger(true);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        HashMap<Variable, Double> equation = new HashMap<>();
+        equation.put(x, 1.0);
+        equation.put(y, 1.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.GREATER_THAN, 2.5));
+        equation = new HashMap<>();
+        equation.put(x, 1.0);
+        equation.put(y, -1.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.EQUAL, difference));
+        
+        HashMap<Variable, Double> costs = new HashMap<>();
+        costs.put(x, 1.0);
+        costs.put(y, 1.0);
+        return new Tableau(Arrays.asList(x, y), new ObjectiveFunction(costs, SimplexUtilities.Objective.MIN), constraints);
+    }
+}
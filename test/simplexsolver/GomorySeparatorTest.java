@@ -0,0 +1,195 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the Gomory cuts read from the final tableau: they must cut off
+ * the solution of the relaxation but no integer solution of the program.
+ * @author Gennaro
+ */
+public class GomorySeparatorTest
+{
+    private static final double TOLERANCE = 1E-7;
+    
+    /**
+     * Adds rounds of cuts to small random programs whose integer solutions can
+     * all be listed, with shifted and upper bounded variables, and rows of
+     * every sign. Each cut must hold at every integer solution.
+     */
+    @Test
+    public void keepsEveryIntegerSolution()
+    {
+        Random random = new Random(7);
+        int cutCount = 0;
+        for (int program = 0; program < 200; program++)
+        {
+            Variable[] variables = new Variable[3];
+            for (int j = 0; j < variables.length; j++)
+            {
+                variables[j] = new Variable("X" + (j + 1), j + 1);
+                variables[j].setInteger(true);
+                int lower = random.nextInt(4) - 2;
+                variables[j].setBounds(lower, lower + 2 + random.nextInt(4));
+            }
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+            {
+                constraints.add(createRandomConstraint(variables, random));
+            }
+            HashMap<Variable, Double> costs = new HashMap<>();
+            Arrays.stream(variables).forEach(v -> costs.put(v, (double)(random.nextInt(11) - 5)));
+            Tableau tableau = new Tableau(Arrays.asList(variables),
+                    new ObjectiveFunction(costs, random.nextBoolean() ? SimplexUtilities.Objective.MAX : SimplexUtilities.Objective.MIN), constraints);
+            List<double[]> points = listIntegerSolutions(variables, constraints);
+            
+            for (int round = 0; round < 3; round++)
+            {
+                SolveResult result = tableau.optimize();
+                if (!result.isOptimal())
+                    break;
+                int first = tableau.getConstraints().size();
+                if (tableau.addGomoryCuts(10) == 0)
+                    break;
+                for (Constraint cut : tableau.getConstraints().subList(first, tableau.getConstraints().size()))
+                {
+                    assertTrue(evaluate(cut, result.getValues()) < cut.getRightHandSide(), "The cut does not cut off the solution.");
+                    for (double[] point : points)
+                    {
+                        assertTrue(evaluate(cut, point) >= cut.getRightHandSide() - TOLERANCE,
+                                "The cut of program " + program + " cuts off " + Arrays.toString(point));
+                    }
+                    cutCount++;
+                }
+            }
+        }
+        assertTrue(cutCount > 100);
+    }
+    
+    /**
+     * max Y s.t. 3X + 2Y <= 6, -3X + 2Y <= 0. The relaxation is solved at
+     * (1, 1.5), and the best integer solutions have Y = 1. No round may
+     * loosen the bound, and the rounds close the gap.
+     */
+    @Test
+    public void rootRoundsShrinkTheGap()
+    {
+        Tableau tableau = createTriangle();
+        double bound = tableau.optimize().getObjectiveValue();
+        assertEquals(1.5, bound, TOLERANCE);
+        for (int round = 0; round < 5 && tableau.addGomoryCuts(50) > 0; round++)
+        {
+            double nextBound = tableau.optimize().getObjectiveValue();
+            assertTrue(nextBound <= bound + TOLERANCE, "A round of cuts loosened the bound.");
+            bound = nextBound;
+        }
+        assertEquals(1, bound, 1E-6);
+        
+        BranchAndBound search = new BranchAndBound(createTriangle());
+        assertEquals(1, search.optimize().getObjectiveValue(), 1E-6);
+        search.setCutRounds(0);
+        assertEquals(1, search.optimize().getObjectiveValue(), TOLERANCE);
+    }
+    
+    private static Tableau createTriangle()
+    {
+        Variable x = new Variable("X", 1);
+        Variable y = new Variable("Y", 2);
+        x.setInteger(true);
+        y.setInteger(true);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        HashMap<Variable, Double> equation = new HashMap<>();
+        equation.put(x, 3.0);
+        equation.put(y, 2.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.LESS_THAN, 6));
+        equation = new HashMap<>();
+        equation.put(x, -3.0);
+        equation.put(y, 2.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.LESS_THAN, 0));
+        return new Tableau(Arrays.asList(x, y), createObjective(y), constraints);
+    }
+    
+    private static ObjectiveFunction createObjective(Variable variable)
+    {
+        HashMap<Variable, Double> costs = new HashMap<>();
+        costs.put(variable, 1.0);
+        return new ObjectiveFunction(costs, SimplexUtilities.Objective.MAX);
+    }
+    
+    /**
+     * Creates a constraint with small coefficients (some of them fractional)
+     * that a random point of the box of the variables satisfies.
+     */
+    private static Constraint createRandomConstraint(Variable[] variables, Random random)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        double activity = 0;
+        for (Variable v : variables)
+        {
+            double coefficient = (random.nextInt(13) - 6) / (random.nextBoolean() ? 1.0 : 2.0);
+            if (coefficient == 0)
+                continue;
+            equation.put(v, coefficient);
+            activity += coefficient * (v.getLowerBound() + random.nextInt((int)(v.getUpperBound() - v.getLowerBound()) + 1));
+        }
+        SimplexUtilities.Sign sign = SimplexUtilities.Sign.values()[random.nextInt(3)];
+        double room = random.nextInt(8) / 2.0;
+        if (sign == SimplexUtilities.Sign.LESS_THAN)
+            activity += room;
+        else if (sign == SimplexUtilities.Sign.GREATER_THAN)
+            activity -= room;
+        return new Constraint(equation, sign, activity);
+    }
+    
+    /**
+     * Lists the integer points of the box of the variables that satisfy the constraints.
+     */
+    private static List<double[]> listIntegerSolutions(Variable[] variables, List<Constraint> constraints)
+    {
+        ArrayList<double[]> points = new ArrayList<>();
+        double[] point = new double[variables.length];
+        for (point[0] = variables[0].getLowerBound(); point[0] <= variables[0].getUpperBound(); point[0]++)
+        {
+            for (point[1] = variables[1].getLowerBound(); point[1] <= variables[1].getUpperBound(); point[1]++)
+            {
+                for (point[2] = variables[2].getLowerBound(); point[2] <= variables[2].getUpperBound(); point[2]++)
+                {
+                    if (constraints.stream().allMatch(c -> isSatisfied(c, point)))
+                        points.add(point.clone());
+                }
+            }
+        }
+        return points;
+    }
+    
+    private static boolean isSatisfied(Constraint constraint, double[] point)
+    {
+        double activity = evaluate(constraint, point);
+        switch (constraint.getSign())
+        {
+            case LESS_THAN:
+                return activity <= constraint.getRightHandSide() + TOLERANCE;
+            case GREATER_THAN:
+                return activity >= constraint.getRightHandSide() - TOLERANCE;
+            default:
+                return Math.abs(activity - constraint.getRightHandSide()) <= TOLERANCE;
+        }
+    }
+    
+    private static double evaluate(Constraint constraint, double[] point)
+    {
+        double activity = 0;
+        for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+        {
+            activity += kvp.getValue() * point[kvp.getKey().getIndex() - 1];
+        }
+        return activity;
+    }
+}
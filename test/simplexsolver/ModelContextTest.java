@@ -0,0 +1,41 @@
+package simplexsolver;
+
+import java.util.HashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that equations are parsed against the names of the declared
+ * variables exactly as they were declared.
+ * @author Gennaro
+ */
+public class ModelContextTest
+{
+    @Test
+    public void resolvesLowercaseNames()
+    {
+        ModelContext context = new ModelContext();
+        Variable profit = new Variable("profit", 1);
+        Variable x2 = new Variable("X2", 2);
+        context.addNewVariable(profit);
+        context.addNewVariable(x2);
+        
+        HashMap<Variable, Double> equation = context.buildEquation("3profit - 2.5X2");
+        assertEquals(2, equation.size());
+        assertEquals(3, equation.get(profit), 0);
+        assertEquals(-2.5, equation.get(x2), 0);
+    }
+    
+    @Test
+    public void namesAreCaseSensitive()
+    {
+        ModelContext context = new ModelContext();
+        context.addNewVariable(new Variable("profit", 1));
+        
+        assertNull(context.buildEquation("PROFIT"));
+        assertEquals("Undeclared Variable", context.getErrorTitle());
+        assertNull(context.buildEquation("x1 + Profit"));
+        assertEquals("You attempted to use variable <x1> but it is not a defined variable.", context.getErrorMessage());
+    }
+}
@@ -0,0 +1,344 @@
+package simplexsolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the MPS and LP readers, and how ModelBuilder turns what they read
+ * into a model: ranged rows, bounds, objective constants, integer variables
+ * and the names of the columns it adds.
+ * @author Gennaro
+ */
+public class ModelReaderTest
+{
+    private static final double TOLERANCE = 1E-9;
+    // Branch and bound only rounds the values of the integer variables to this.
+    private static final double INTEGER_TOLERANCE = 1E-6;
+    
+    /**
+     * max 3x + 2y - 2z s.t. x + y <= 4, x >= 1, y + z = 2, whose only
+     * optimum is x = 2, y = 2, z = 0.
+     */
+    @Test
+    public void readsFreeMps() throws IOException
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FREE);
+        CompiledModel model = read(reader,
+                "NAME          FREE\n" +
+                "* A comment\n" +
+                "OBJSENSE\n" +
+                "    MAX\n" +
+                "ROWS\n" +
+                " N  profit\n" +
+                " L  lim1\n" +
+                " G  lim2\n" +
+                " E  bal\n" +
+                "COLUMNS\n" +
+                "    x  profit 3  lim1 1\n" +
+                "    x  lim2 1\n" +
+                "    y  profit 2  lim1 1\n" +
+                "    y  bal 1\n" +
+                "    z  bal 1  profit -2\n" +
+                "RHS\n" +
+                "    RHS lim1 4  lim2 1\n" +
+                "    bal 2\n" +
+                "ENDATA\n");
+        
+        assertArrayEquals(new String[] { "x", "y", "z" }, reader.getColumnNames());
+        assertArrayEquals(new String[] { "lim1", "lim2", "bal" }, reader.getConstraintNames());
+        assertSolution(reader, model, 10, 2, 2, 0);
+    }
+    
+    /**
+     * The same program in fixed format, where names may have spaces.
+     */
+    @Test
+    public void readsFixedMps() throws IOException
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FIXED);
+        CompiledModel model = read(reader,
+                "NAME          FIXED\n" +
+                "OBJSENSE\n" +
+                "    MAX\n" +
+                "ROWS\n" +
+                fixed("N", "profit") +
+                fixed("L", "lim 1") +
+                fixed("G", "lim 2") +
+                fixed("E", "bal") +
+                "COLUMNS\n" +
+                fixed("", "my x", "profit", "3", "lim 1", "1") +
+                fixed("", "my x", "lim 2", "1") +
+                fixed("", "y", "profit", "2", "lim 1", "1") +
+                fixed("", "y", "bal", "1") +
+                fixed("", "z", "bal", "1", "profit", "-2") +
+                "RHS\n" +
+                fixed("", "RHS", "lim 1", "4", "lim 2", "1") +
+                fixed("", "RHS", "bal", "2") +
+                "ENDATA\n");
+        
+        assertArrayEquals(new String[] { "my x", "y", "z" }, reader.getColumnNames());
+        assertArrayEquals(new String[] { "lim 1", "lim 2", "bal" }, reader.getConstraintNames());
+        assertSolution(reader, model, 10, 2, 2, 0);
+    }
+    
+    /**
+     * An L row goes from rhs - |range| to rhs, a G row from rhs to
+     * rhs + |range|, and an E row from rhs towards rhs + range.
+     */
+    @Test
+    public void readsRanges() throws IOException
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FREE);
+        CompiledModel model = read(reader,
+                "NAME RANGES\n" +
+                "ROWS\n" +
+                " N obj\n" +
+                " L r1\n" +
+                " G r2\n" +
+                " E r3\n" +
+                " E r4\n" +
+                "COLUMNS\n" +
+                " x obj 1 r1 1\n" +
+                " y obj 1 r2 1\n" +
+                " z obj 1 r3 1\n" +
+                " w obj 1 r4 1\n" +
+                "RHS\n" +
+                " RHS r1 10 r2 1\n" +
+                " RHS r3 5 r4 1\n" +
+                "RANGES\n" +
+                " RNG r1 -4 r2 2\n" +
+                " RNG r3 -2 r4 3\n" +
+                "ENDATA\n");
+        
+        assertArrayEquals(new String[] { "r1", "r1", "r2", "r2", "r3", "r3", "r4", "r4" }, reader.getConstraintNames());
+        List<Constraint> constraints = model.createTableau().getConstraints();
+        double[] expected = { 6, 10, 1, 3, 3, 5, 1, 4 };
+        for (int i = 0; i < expected.length; i++)
+        {
+            SimplexUtilities.Sign sign = i % 2 == 0 ? SimplexUtilities.Sign.GREATER_THAN : SimplexUtilities.Sign.LESS_THAN;
+            assertEquals(sign, constraints.get(i).getSign(), "constraint " + i);
+            assertEquals(expected[i], constraints.get(i).getRightHandSide(), TOLERANCE, "constraint " + i);
+        }
+        assertSolution(reader, model, 11, 6, 1, 3, 1);
+    }
+    
+    /**
+     * MI and FR free the lower bound (a is split into two columns, and so is
+     * b), and a negative UP on a column whose lower bound is still 0 frees it
+     * as well (c is negated). A negative UP after an explicit LO keeps it.
+     */
+    @Test
+    public void readsBounds() throws IOException
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FREE);
+        CompiledModel model = read(reader,
+                "NAME BOUNDS\n" +
+                "ROWS\n" +
+                " N obj\n" +
+                " G c1\n" +
+                " G c2\n" +
+                " G c3\n" +
+                "COLUMNS\n" +
+                " a obj 1 c1 1\n" +
+                " b obj 1 c2 1\n" +
+                " c obj 1 c3 1\n" +
+                " d obj 1\n" +
+                "RHS\n" +
+                " RHS c1 -3 c2 -2\n" +
+                " RHS c3 -7\n" +
+                "BOUNDS\n" +
+                " MI BND a\n" +
+                " FR BND b\n" +
+                " UP BND c -1\n" +
+                " LO BND d -5\n" +
+                " UP BND d -1\n" +
+                "ENDATA\n");
+        
+        assertEquals(6, model.getVariableCount());
+        assertSolution(reader, model, -17, -3, -2, -7, -5);
+    }
+    
+    @Test
+    public void rejectsCrossedBounds()
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FREE);
+        IOException e = assertThrows(IOException.class, () -> read(reader,
+                "NAME CROSSED\n" +
+                "ROWS\n" +
+                " N obj\n" +
+                "COLUMNS\n" +
+                " x obj 1\n" +
+                "BOUNDS\n" +
+                " LO BND x 2\n" +
+                " UP BND x 1\n" +
+                "ENDATA\n"));
+        assertEquals("The lower bound of x is greater than its upper bound.", e.getMessage());
+    }
+    
+    /**
+     * The right hand side of the objective row is minus the constant of the
+     * objective function, and the LP format writes the constant as a term.
+     */
+    @Test
+    public void readsObjectiveConstant() throws IOException
+    {
+        MpsReader mpsReader = new MpsReader(MpsReader.Format.FREE);
+        CompiledModel model = read(mpsReader,
+                "NAME CONSTANT\n" +
+                "ROWS\n" +
+                " N obj\n" +
+                " G c1\n" +
+                "COLUMNS\n" +
+                " x obj 1 c1 1\n" +
+                "RHS\n" +
+                " RHS obj 5 c1 2\n" +
+                "ENDATA\n");
+        assertSolution(mpsReader, model, -3, 2);
+        
+        LpReader lpReader = new LpReader();
+        model = read(lpReader,
+                "Minimize\n" +
+                " obj: x + 5 - 1\n" +
+                "Subject To\n" +
+                " c1: x >= 2\n" +
+                "End\n");
+        assertSolution(lpReader, model, 6, 2);
+    }
+    
+    /**
+     * max 5x + 4y + 3b s.t. 2x + 3y + b <= 5.5 with x integer and b binary.
+     */
+    @Test
+    public void readsGeneralsAndBinaries() throws IOException
+    {
+        LpReader reader = new LpReader();
+        CompiledModel model = read(reader,
+                "\\ A comment\n" +
+                "Maximize\n" +
+                " obj: 5 x + 4 y + 3 b\n" +
+                "Subject To\n" +
+                " c1: 2 x + 3 y + b <= 5.5\n" +
+                "Generals\n" +
+                " x\n" +
+                "Binaries\n" +
+                " b\n" +
+                "End\n");
+        
+        assertTrue(model.getVariable(0).isInteger());
+        assertFalse(model.getVariable(1).isInteger());
+        assertTrue(model.getVariable(2).isInteger());
+        assertEquals(0, model.getVariable(2).getLowerBound());
+        assertEquals(1, model.getVariable(2).getUpperBound());
+        
+        SolveResult result = new BranchAndBound(model.createTableau()).optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus());
+        assertEquals(13 + 2.0 / 3, result.getObjectiveValue(), INTEGER_TOLERANCE);
+        assertArrayEquals(new double[] { 2, 1.0 / 6, 1 }, reader.getColumnValues(result), INTEGER_TOLERANCE);
+    }
+    
+    /**
+     * An e after a number starts an exponent only if a digit or a sign
+     * follows it, so 2e is 2 times the variable e.
+     */
+    @Test
+    public void tellsExponentsFromNames() throws IOException
+    {
+        LpReader reader = new LpReader();
+        CompiledModel model = read(reader,
+                "Minimize\n" +
+                " obj: 2e + 3e1x + 1.5E-1 y + 2e+1 z\n" +
+                "Subject To\n" +
+                " c1: e + x + y + z >= 1\n" +
+                "End\n");
+        
+        assertArrayEquals(new String[] { "e", "x", "y", "z" }, reader.getColumnNames());
+        assertArrayEquals(new double[] { 2, 30, 0.15, 20 }, model.getCosts(), TOLERANCE);
+    }
+    
+    /**
+     * A column named CONSTANT does not clash with the column that carries
+     * the objective constant.
+     */
+    @Test
+    public void namesConstantColumnApart() throws IOException
+    {
+        LpReader reader = new LpReader();
+        CompiledModel model = read(reader,
+                "Maximize\n" +
+                " obj: x + CONSTANT + 5\n" +
+                "Subject To\n" +
+                " c1: x + 2 CONSTANT <= 4\n" +
+                "End\n");
+        
+        assertEquals(3, model.getVariableCount());
+        assertEquals("CONSTANT'", model.getVariable(2).getName());
+        assertSolution(reader, model, 9, 4, 0);
+    }
+    
+    /**
+     * A column named X- does not clash with the negative part of a free X.
+     */
+    @Test
+    public void namesNegativePartApart() throws IOException
+    {
+        MpsReader reader = new MpsReader(MpsReader.Format.FREE);
+        CompiledModel model = read(reader,
+                "NAME CLASH\n" +
+                "ROWS\n" +
+                " N obj\n" +
+                " G c1\n" +
+                " L c2\n" +
+                "COLUMNS\n" +
+                " X obj 1 c1 1\n" +
+                " X c2 1\n" +
+                " X- obj 2 c1 1\n" +
+                "RHS\n" +
+                " RHS c1 -3 c2 5\n" +
+                "BOUNDS\n" +
+                " FR BND X\n" +
+                "ENDATA\n");
+        
+        assertEquals(3, model.getVariableCount());
+        assertEquals("X-'", model.getVariable(2).getName());
+        assertSolution(reader, model, -3, -3, 0);
+    }
+    
+    private static CompiledModel read(ModelReader reader, String text) throws IOException
+    {
+        return reader.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+    
+    /**
+     * Places the fields of a fixed format line at their columns (2, 5, 15, 25, 40 and 50).
+     */
+    private static String fixed(String... fields)
+    {
+        int[] starts = { 2, 5, 15, 25, 40, 50 };
+        StringBuilder line = new StringBuilder();
+        for (int field = 0; field < fields.length; field++)
+        {
+            while (line.length() < starts[field] - 1)
+            {
+                line.append(' ');
+            }
+            line.append(fields[field]);
+        }
+        return line.append('\n').toString();
+    }
+    
+    private static void assertSolution(ModelReader reader, CompiledModel model, double objectiveValue, double... values)
+    {
+        SolveResult result = model.createTableau().optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus());
+        assertEquals(objectiveValue, result.getObjectiveValue(), TOLERANCE);
+        assertArrayEquals(values, reader.getColumnValues(result), TOLERANCE);
+    }
+}
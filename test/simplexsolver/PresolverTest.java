@@ -0,0 +1,284 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests each reduction of the presolver, and that the postsolved result of
+ * every reduced program is the result of solving the original one.
+ * @author Gennaro
+ */
+public class PresolverTest
+{
+    private static final double TOLERANCE = 1E-9;
+    
+    /**
+     * A row whose variables all have a coefficient of 0, or are fixed, is
+     * removed when it holds, and proves the program infeasible when it does not.
+     */
+    @Test
+    public void removesEmptyRows()
+    {
+        Variable[] x = createVariables(3);
+        x[1].setBounds(2, 2);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 5, 0, 0, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 3, 0, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 7, 1, 1, 1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 1, 1, 1);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(2, presolver.getRemovedRowCount());
+        assertEquals(1, presolver.getRemovedColumnCount());
+        assertPostsolved(x, objective, constraints, presolver);
+        
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, 1, 0, 0, 0));
+        assertTrue(new Presolver(Arrays.asList(x), objective, constraints).isInfeasible());
+    }
+    
+    /**
+     * A row with one variable becomes a bound on it, and fixes it when its
+     * bounds meet.
+     */
+    @Test
+    public void turnsSingletonRowsIntoBounds()
+    {
+        Variable[] x = createVariables(3);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 8, 2, 0, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, -1, -1, 0, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, 3, 0, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 3, 0, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 10, 1, 1, 1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MIN, 1, 1, -1);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(4, presolver.getRemovedRowCount());
+        assertEquals(1, presolver.getRemovedColumnCount());
+        List<Variable> reduced = presolver.createTableau().getDecisionVariables();
+        assertEquals(1, reduced.get(0).getLowerBound());
+        assertEquals(4, reduced.get(0).getUpperBound());
+        assertPostsolved(x, objective, constraints, presolver);
+    }
+    
+    /**
+     * Rows that are multiples of each other are merged into the range they
+     * all allow: one inequality, an equality, or a pair of inequalities.
+     */
+    @Test
+    public void mergesDuplicateAndParallelRows()
+    {
+        Variable[] x = createVariables(3);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 4, 1, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 4, 1, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, -3, -1, -1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, 2, 2, 2, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 6, 1, 0, 2));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.EQUAL, -3, -0.5, 0, -1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 2, 1, 1);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(3, presolver.getRemovedRowCount());
+        List<Constraint> reduced = presolver.createTableau().getConstraints();
+        assertEquals(SimplexUtilities.Sign.GREATER_THAN, reduced.get(0).getSign());
+        assertEquals(1, reduced.get(0).getRightHandSide(), TOLERANCE);
+        assertEquals(SimplexUtilities.Sign.LESS_THAN, reduced.get(1).getSign());
+        assertEquals(3, reduced.get(1).getRightHandSide(), TOLERANCE);
+        assertEquals(SimplexUtilities.Sign.EQUAL, reduced.get(2).getSign());
+        assertEquals(6, reduced.get(2).getRightHandSide(), TOLERANCE);
+        assertPostsolved(x, objective, constraints, presolver);
+        
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, 7, 2, 2, 0));
+        assertTrue(new Presolver(Arrays.asList(x), objective, constraints).isInfeasible());
+    }
+    
+    /**
+     * A row that the bounds of its variables always satisfy is removed, and
+     * one that they never satisfy proves the program infeasible.
+     */
+    @Test
+    public void removesDominatedRows()
+    {
+        Variable[] x = createVariables(3);
+        x[0].setBounds(0, 1);
+        x[1].setBounds(-1, 2);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 5, 1, 2, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, -3, 1, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 4, 1, 1, 1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 1, 1, 1);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(2, presolver.getRemovedRowCount());
+        assertEquals(0, presolver.getRemovedColumnCount());
+        assertPostsolved(x, objective, constraints, presolver);
+        
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.GREATER_THAN, 4, 1, 1, 0));
+        assertTrue(new Presolver(Arrays.asList(x), objective, constraints).isInfeasible());
+    }
+    
+    /**
+     * max 2x + y + 3z s.t. x + y + z = 10, y - z <= 1, y <= 3, z <= 4. x only
+     * appears in the equality, which keeps it between 3 and 10, so it is
+     * solved from it: x = 10 - y - z. The optimum is x = 6, y = 0, z = 4.
+     */
+    @Test
+    public void eliminatesColumnSingletons()
+    {
+        Variable[] x = createVariables(3);
+        x[1].setBounds(0, 3);
+        x[2].setBounds(0, 4);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.EQUAL, 10, 1, 1, 1));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 1, 0, 1, -1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 2, 1, 3);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(1, presolver.getRemovedRowCount());
+        assertEquals(1, presolver.getRemovedColumnCount());
+        SolveResult result = assertPostsolved(x, objective, constraints, presolver);
+        assertEquals(24, result.getObjectiveValue(), TOLERANCE);
+        assertArrayEquals(new double[] { 6, 0, 4 }, result.getValues(), TOLERANCE);
+    }
+    
+    /**
+     * A column whose bounds the equality could break is kept: here x may be
+     * at most 5, but the rest of the row allows it to be up to 10.
+     */
+    @Test
+    public void keepsColumnSingletonsTheRowDoesNotBound()
+    {
+        Variable[] x = createVariables(3);
+        x[0].setBounds(0, 5);
+        x[1].setBounds(0, 3);
+        x[2].setBounds(0, 4);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.EQUAL, 10, 1, 1, 1));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 1, 0, 1, -1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 2, 1, 3);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        assertEquals(0, presolver.getRemovedColumnCount());
+        assertPostsolved(x, objective, constraints, presolver);
+    }
+    
+    /**
+     * The basis and the scale factors of the reduced program do not describe
+     * the original one, so a postsolved result has none, and a presolved
+     * program cannot be analyzed.
+     */
+    @Test
+    public void postsolvedResultHasNoBasis()
+    {
+        Variable[] x = createVariables(2);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 4, 1, 0));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 6, 1, 2));
+        constraints.add(createConstraint(x, SimplexUtilities.Sign.LESS_THAN, 9, 2, 1));
+        ObjectiveFunction objective = createObjective(x, SimplexUtilities.Objective.MAX, 1, 1);
+        
+        Presolver presolver = new Presolver(Arrays.asList(x), objective, constraints);
+        Tableau tableau = presolver.createTableau();
+        tableau.setScaling(SimplexUtilities.Scaling.GEOMETRIC);
+        SolveResult result = tableau.optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus());
+        assertEquals(0, result.getBasis().length);
+        assertEquals(0, result.getRowScales().length);
+        assertEquals(0, result.getColumnScales().length);
+        
+        assertThrows(IllegalStateException.class, () -> tableau.setSensitivityAnalysis(true));
+        tableau.setSensitivityAnalysis(false);
+        assertFalse(presolver.isInfeasible());
+    }
+    
+    private static Variable[] createVariables(int count)
+    {
+        Variable[] variables = new Variable[count];
+        for (int j = 0; j < count; j++)
+        {
+            variables[j] = new Variable("X" + (j + 1), j + 1);
+        }
+        return variables;
+    }
+    
+    private static Constraint createConstraint(Variable[] variables, SimplexUtilities.Sign sign, double rhs, double... coefficients)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < coefficients.length; j++)
+        {
+            equation.put(variables[j], coefficients[j]);
+        }
+        return new Constraint(equation, sign, rhs);
+    }
+    
+    private static ObjectiveFunction createObjective(Variable[] variables, SimplexUtilities.Objective objective, double... costs)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < costs.length; j++)
+        {
+            equation.put(variables[j], costs[j]);
+        }
+        return new ObjectiveFunction(equation, objective);
+    }
+    
+    /**
+     * Checks that the postsolved result of the reduced program is an optimal
+     * solution of the original one, with the optimal value of the original.
+     * @return The postsolved result.
+     */
+    private static SolveResult assertPostsolved(Variable[] variables, ObjectiveFunction objective, ArrayList<Constraint> constraints, Presolver presolver)
+    {
+        assertFalse(presolver.isInfeasible());
+        SolveResult expected = new Tableau(Arrays.asList(variables), copy(objective), constraints).optimize();
+        SolveResult result = presolver.createTableau().optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, expected.getStatus());
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus());
+        assertEquals(expected.getObjectiveValue(), result.getObjectiveValue(), TOLERANCE);
+        
+        double[] values = result.getValues();
+        assertEquals(variables.length, values.length);
+        for (Variable v : variables)
+        {
+            double value = values[v.getIndex() - 1];
+            assertTrue(value >= v.getLowerBound() - TOLERANCE && value <= v.getUpperBound() + TOLERANCE, v.getName() + " = " + value);
+        }
+        for (Constraint constraint : constraints)
+        {
+            double activity = constraint.getEquation().entrySet().stream()
+                    .mapToDouble(kvp -> kvp.getValue() * values[kvp.getKey().getIndex() - 1])
+                    .sum();
+            double rhs = constraint.getRightHandSide();
+            switch (constraint.getSign())
+            {
+                case LESS_THAN:
+                    assertTrue(activity <= rhs + TOLERANCE, activity + " <= " + rhs);
+                    break;
+                case GREATER_THAN:
+                    assertTrue(activity >= rhs - TOLERANCE, activity + " >= " + rhs);
+                    break;
+                case EQUAL:
+                    assertEquals(rhs, activity, TOLERANCE);
+                    break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * A tableau converts a MIN objective function to MAX in place, so every
+     * tableau needs its own.
+     */
+    private static ObjectiveFunction copy(ObjectiveFunction objective)
+    {
+        return new ObjectiveFunction(new HashMap<>(objective.getEquation()), objective.isMaximize() ? SimplexUtilities.Objective.MAX : SimplexUtilities.Objective.MIN);
+    }
+}
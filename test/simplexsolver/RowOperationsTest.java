@@ -0,0 +1,124 @@
+package simplexsolver;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the row operations of the tableau engine, and that the vectorized
+ * ones pivot exactly like the scalar ones.
+ * @author Gennaro
+ */
+public class RowOperationsTest
+{
+    private static final double TOLERANCE = 1E-9;
+    
+    @Test
+    public void ratioTestSkipsEntriesThatAreNotPositive()
+    {
+        // Columns: entering variable, right hand side. Row 0 is the objective function.
+        double[] matrix = {
+            -1, 0,
+            -2, 0,
+            0, 1,
+            4, 8,
+            2, 6
+        };
+        assertEquals(3, new ScalarRowOperations().findMinimumRatio(matrix, 2, 1, 5, 0));
+    }
+    
+    @Test
+    public void ratioTestTreatsSlightlyNegativeRightHandSideAsZero()
+    {
+        double[] matrix = {
+            -1, 0,
+            2, 4,
+            1, -1E-15,
+            -1, -1E-15
+        };
+        assertEquals(2, new ScalarRowOperations().findMinimumRatio(matrix, 2, 1, 4, 0));
+    }
+    
+    /**
+     * Runs the simplex method on random tableaus with both kernels side by
+     * side: the pricing scan, the ratio test and the row updates (through
+     * PivotKernel). Every step must choose the same pivot, and the tableaus
+     * must stay equal within a tolerance. The sizes are not multiples of the
+     * vector length, so the scalar tails are covered too.
+     */
+    @Test
+    public void vectorizedOperationsPivotLikeScalarOnes()
+    {
+        RowOperations vectorized = RowOperations.createVectorized();
+        assumeTrue(!(vectorized instanceof ScalarRowOperations), "jdk.incubator.vector is not available");
+        RowOperations scalar = new ScalarRowOperations();
+        PivotKernel scalarKernel = new PivotKernel(null, scalar);
+        PivotKernel vectorizedKernel = new PivotKernel(null, vectorized);
+        
+        Random random = new Random(8);
+        for (int test = 0; test < 20; test++)
+        {
+            int rowCount = 2 + random.nextInt(40);
+            int columnCount = 2 + random.nextInt(70);
+            double[] expected = createTableau(random, rowCount, columnCount);
+            double[] actual = expected.clone();
+            for (int iteration = 0; iteration < 2 * rowCount; iteration++)
+            {
+                int column = scalar.findMostNegative(expected, 0, columnCount - 1);
+                assertEquals(column, vectorized.findMostNegative(actual, 0, columnCount - 1), "entering column");
+                if (expected[column] >= 0)
+                    break;
+                int row = scalar.findMinimumRatio(expected, columnCount, 1, rowCount, column);
+                assertEquals(row, vectorized.findMinimumRatio(actual, columnCount, 1, rowCount, column), "leaving row");
+                if (row == -1)
+                    break;
+                
+                scalarKernel.pivot(expected, rowCount, columnCount, row, column);
+                vectorizedKernel.pivot(actual, rowCount, columnCount, row, column);
+                assertArrayEquals(expected, actual, TOLERANCE, "tableau after pivot " + iteration);
+            }
+        }
+    }
+    
+    @Test
+    public void vectorizedSubtractMultipleMatchesScalar()
+    {
+        RowOperations vectorized = RowOperations.createVectorized();
+        assumeTrue(!(vectorized instanceof ScalarRowOperations), "jdk.incubator.vector is not available");
+        
+        Random random = new Random(8);
+        for (int length = 1; length < 40; length++)
+        {
+            double[] expected = new double[2 * length + 3];
+            for (int k = 0; k < expected.length; k++)
+            {
+                expected[k] = random.nextDouble() * 10 - 5;
+            }
+            double[] actual = expected.clone();
+            double coefficient = random.nextDouble() * 4 - 2;
+            new ScalarRowOperations().subtractMultiple(expected, 1, length + 2, length, coefficient);
+            vectorized.subtractMultiple(actual, 1, length + 2, length, coefficient);
+            assertArrayEquals(expected, actual, TOLERANCE, "length " + length);
+        }
+    }
+    
+    /**
+     * Creates a feasible tableau: random reduced costs in row 0, random
+     * entries, and a positive right hand side in the last column.
+     */
+    private static double[] createTableau(Random random, int rowCount, int columnCount)
+    {
+        double[] matrix = new double[rowCount * columnCount];
+        for (int i = 0; i < rowCount; i++)
+        {
+            for (int j = 0; j < columnCount - 1; j++)
+            {
+                matrix[i * columnCount + j] = random.nextInt(4) == 0 ? 0 : random.nextDouble() * 10 - (i == 0 ? 6 : 3);
+            }
+            matrix[(i + 1) * columnCount - 1] = i == 0 ? 0 : 1 + random.nextDouble() * 20;
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,210 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the scenario batch. Every result must be the one a new tableau
+ * finds for its scenario alone, whichever worker solved it and whatever that
+ * worker solved before.
+ * @author Gennaro
+ */
+public class ScenarioBatchTest
+{
+    private static final double TOLERANCE = 1E-6;
+    
+    @Test
+    public void returnsResultsInSubmissionOrder()
+    {
+        CompiledModel model = createModel();
+        List<Scenario> scenarios = createScenarios(model, 200, new Random(3));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+            {
+                List<ScenarioResult> results = solve(model, pool, 4, engine, scenarios, ScenarioBatch.Order.SUBMISSION);
+                assertEquals(scenarios.size(), results.size());
+                for (int i = 0; i < results.size(); i++)
+                {
+                    assertEquals(i, results.get(i).getIndex(), engine.toString());
+                    assertSame(scenarios.get(i), results.get(i).getScenario(), engine.toString());
+                    assertSolved(model, results.get(i), engine);
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void returnsEveryResultInCompletionOrder()
+    {
+        CompiledModel model = createModel();
+        List<Scenario> scenarios = createScenarios(model, 200, new Random(5));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+            {
+                List<ScenarioResult> results = solve(model, pool, 4, engine, scenarios, ScenarioBatch.Order.COMPLETION);
+                int[] indices = results.stream().mapToInt(ScenarioResult::getIndex).sorted().toArray();
+                assertArrayEquals(IntStream.range(0, scenarios.size()).toArray(), indices, engine.toString());
+                for (ScenarioResult result : results)
+                {
+                    assertSame(scenarios.get(result.getIndex()), result.getScenario(), engine.toString());
+                    assertSolved(model, result, engine);
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * With a single worker, every scenario is solved on the tableau of the
+     * one before it. Scenarios that keep the right hand sides or the costs of
+     * the model follow ones that changed them, which must be undone.
+     */
+    @Test
+    public void resetsTheTableauOfAWorker()
+    {
+        CompiledModel model = createModel();
+        double[] rightHandSides = model.getRightHandSides();
+        double[] costs = model.getCosts();
+        double[] tightened = rightHandSides.clone();
+        tightened[0] = 6;
+        double[] reversed = costs.clone();
+        for (int j = 0; j < reversed.length; j++)
+        {
+            reversed[j] = costs[reversed.length - 1 - j];
+        }
+        List<Scenario> scenarios = Arrays.asList(
+                new Scenario(tightened, reversed),
+                new Scenario(null, null),
+                new Scenario(tightened, null),
+                new Scenario(null, reversed),
+                new Scenario(rightHandSides, costs),
+                new Scenario(null, null));
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try
+        {
+            for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+            {
+                List<ScenarioResult> results = solve(model, pool, 1, engine, scenarios, ScenarioBatch.Order.SUBMISSION);
+                results.forEach(result -> assertSolved(model, result, engine));
+                assertEquals(results.get(1).getResult().getObjectiveValue(), results.get(5).getResult().getObjectiveValue(), TOLERANCE);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    private static List<ScenarioResult> solve(CompiledModel model, ExecutorService pool, int workerCount, SimplexUtilities.Engine engine,
+            List<Scenario> scenarios, ScenarioBatch.Order order)
+    {
+        ScenarioBatch batch = new ScenarioBatch(model, pool, workerCount);
+        batch.setEngine(engine);
+        try (Stream<ScenarioResult> results = batch.solve(scenarios.stream(), order))
+        {
+            return results.collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Compares a result with the solve of its scenario on a new tableau.
+     */
+    private static void assertSolved(CompiledModel model, ScenarioResult result, SimplexUtilities.Engine engine)
+    {
+        Tableau tableau = model.createTableau();
+        Scenario scenario = result.getScenario();
+        double[] rightHandSides = scenario.getRightHandSides();
+        for (int i = 0; rightHandSides != null && i < rightHandSides.length; i++)
+        {
+            tableau.setRightHandSide(i, rightHandSides[i]);
+        }
+        double[] costs = scenario.getCosts();
+        for (int j = 0; costs != null && j < costs.length; j++)
+        {
+            tableau.setObjectiveCoefficient(model.getVariable(j), costs[j]);
+        }
+        SolveResult expected = tableau.optimize();
+        String message = engine + " scenario " + result.getIndex();
+        assertEquals(expected.getStatus(), result.getResult().getStatus(), message);
+        if (expected.isOptimal())
+            assertEquals(expected.getObjectiveValue(), result.getResult().getObjectiveValue(), TOLERANCE, message);
+    }
+    
+    /**
+     * Creates scenarios that change the right hand sides, the costs, both,
+     * or neither. A few of them make the program infeasible.
+     */
+    private static List<Scenario> createScenarios(CompiledModel model, int count, Random random)
+    {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (int k = 0; k < count; k++)
+        {
+            double[] rightHandSides = null;
+            double[] costs = null;
+            if (random.nextBoolean())
+                rightHandSides = Arrays.stream(model.getRightHandSides()).map(rhs -> rhs * (0.5 + random.nextDouble())).toArray();
+            if (random.nextBoolean())
+                costs = random.doubles(model.getVariableCount(), -2, 6).toArray();
+            scenarios.add(new Scenario(rightHandSides, costs));
+        }
+        return scenarios;
+    }
+    
+    /**
+     * max 3X1 + 5X2 + 4X3 + 2X4 s.t. X1 + 2X2 + X3 + X4 <= 10,
+     * 3X1 + X2 + 2X3 <= 15, X2 + X3 + 3X4 <= 8, X1 + X2 + X3 + X4 >= 6,
+     * with X4 <= 2.
+     */
+    private static CompiledModel createModel()
+    {
+        List<Variable> variables = new ArrayList<>();
+        for (int j = 0; j < 4; j++)
+        {
+            variables.add(new Variable("X" + (j + 1), j + 1));
+        }
+        variables.get(3).setBounds(0, 2);
+        double[][] rows = { { 1, 2, 1, 1 }, { 3, 1, 2, 0 }, { 0, 1, 1, 3 }, { 1, 1, 1, 1 } };
+        double[] rightHandSides = { 10, 15, 8, 6 };
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++)
+        {
+            HashMap<Variable, Double> equation = new HashMap<>();
+            for (int j = 0; j < rows[i].length; j++)
+            {
+                if (rows[i][j] != 0)
+                    equation.put(variables.get(j), rows[i][j]);
+            }
+            constraints.add(new Constraint(equation, i == 3 ? SimplexUtilities.Sign.GREATER_THAN : SimplexUtilities.Sign.LESS_THAN, rightHandSides[i]));
+        }
+        HashMap<Variable, Double> costs = new HashMap<>();
+        double[] objective = { 3, 5, 4, 2 };
+        for (int j = 0; j < objective.length; j++)
+        {
+            costs.put(variables.get(j), objective[j]);
+        }
+        return new CompiledModel(variables, new ObjectiveFunction(costs, SimplexUtilities.Objective.MAX), constraints);
+    }
+}
@@ -0,0 +1,201 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the dual values, reduced costs and ranges on small textbook
+ * programs whose shadow prices and ranges are known. Every program is
+ * analyzed after a solve with each engine.
+ * @author Gennaro
+ */
+public class SensitivityTest
+{
+    private static final double TOLERANCE = 1E-6;
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+    
+    /**
+     * The Wyndor Glass Co. program: max 3X1 + 5X2 s.t. X1 <= 4, 2X2 <= 12,
+     * 3X1 + 2X2 <= 18, solved at (2, 6).
+     */
+    @Test
+    public void analyzesMax()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            Sensitivity sensitivity = analyze(createWyndor(1, 1), engine, SimplexUtilities.Scaling.NONE, 36);
+            assertArrayEquals(new double[] { 0, 1.5, 1 }, sensitivity.getDualValues(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 0, 0 }, sensitivity.getReducedCosts(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 2, 6, 12 }, sensitivity.getRightHandSideLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { INFINITY, 18, 24 }, sensitivity.getRightHandSideUpperLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 0, 2 }, sensitivity.getCostLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 7.5, INFINITY }, sensitivity.getCostUpperLimits(), TOLERANCE, engine.toString());
+        }
+    }
+    
+    /**
+     * min 2X + 3Y + 5Z s.t. -X - Y - Z <= -4, X + 3Y + Z >= 6, solved at
+     * (3, 1, 0). The first row has a negative right hand side, so it is
+     * turned around into a >= row, and raising its right hand side loosens it.
+     */
+    @Test
+    public void analyzesMin()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            List<Variable> variables = createVariables(3);
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, -4, -1, -1, -1));
+            constraints.add(createConstraint(variables, SimplexUtilities.Sign.GREATER_THAN, 6, 1, 3, 1));
+            Tableau tableau = new Tableau(variables, createObjective(variables, SimplexUtilities.Objective.MIN, 2, 3, 5), constraints);
+            
+            Sensitivity sensitivity = analyze(tableau, engine, SimplexUtilities.Scaling.NONE, 9);
+            assertArrayEquals(new double[] { -1.5, 0.5 }, sensitivity.getDualValues(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 0, 0, 3 }, sensitivity.getReducedCosts(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { -6, 4 }, sensitivity.getRightHandSideLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { -2, 12 }, sensitivity.getRightHandSideUpperLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 1, 2, 2 }, sensitivity.getCostLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 3, 6, INFINITY }, sensitivity.getCostUpperLimits(), TOLERANCE, engine.toString());
+        }
+    }
+    
+    /**
+     * max X + Y s.t. X - Y >= -2, X <= 3, solved at (3, 5). The first row is
+     * a >= row with a negative right hand side, which is turned around.
+     */
+    @Test
+    public void analyzesTurnedAroundRow()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            List<Variable> variables = createVariables(2);
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            constraints.add(createConstraint(variables, SimplexUtilities.Sign.GREATER_THAN, -2, 1, -1));
+            constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 3, 1, 0));
+            Tableau tableau = new Tableau(variables, createObjective(variables, SimplexUtilities.Objective.MAX, 1, 1), constraints);
+            
+            Sensitivity sensitivity = analyze(tableau, engine, SimplexUtilities.Scaling.NONE, 8);
+            assertArrayEquals(new double[] { -1, 2 }, sensitivity.getDualValues(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { Double.NEGATIVE_INFINITY, 0 }, sensitivity.getRightHandSideLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 3, INFINITY }, sensitivity.getRightHandSideUpperLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { -1, 0 }, sensitivity.getCostLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { INFINITY, INFINITY }, sensitivity.getCostUpperLimits(), TOLERANCE, engine.toString());
+        }
+    }
+    
+    /**
+     * max 3X + 2Y s.t. X + Y <= 4 with X <= 2, solved at (2, 2). X is
+     * nonbasic at its upper bound, where it stays while its cost is at least
+     * the dual value of the row.
+     */
+    @Test
+    public void analyzesUpperBoundedColumn()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            List<Variable> variables = createVariables(2);
+            variables.get(0).setBounds(0, 2);
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 4, 1, 1));
+            Tableau tableau = new Tableau(variables, createObjective(variables, SimplexUtilities.Objective.MAX, 3, 2), constraints);
+            
+            Sensitivity sensitivity = analyze(tableau, engine, SimplexUtilities.Scaling.NONE, 10);
+            assertArrayEquals(new double[] { 2 }, sensitivity.getDualValues(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 1, 0 }, sensitivity.getReducedCosts(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 2 }, sensitivity.getRightHandSideLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { INFINITY }, sensitivity.getRightHandSideUpperLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { 2, 0 }, sensitivity.getCostLowerLimits(), TOLERANCE, engine.toString());
+            assertArrayEquals(new double[] { INFINITY, 3 }, sensitivity.getCostUpperLimits(), TOLERANCE, engine.toString());
+        }
+    }
+    
+    /**
+     * The Wyndor Glass Co. program with X1 counted in thousandths and the
+     * second row multiplied by 1000, so that the scaling has something to
+     * do. The results are the ones of the program as it was entered.
+     */
+    @Test
+    public void analyzesScaledProgram()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            for (SimplexUtilities.Scaling scaling : SimplexUtilities.Scaling.values())
+            {
+                String message = engine + " " + scaling;
+                Sensitivity sensitivity = analyze(createWyndor(1E-3, 1E3), engine, scaling, 36);
+                assertArrayEquals(new double[] { 0, 1.5E-3, 1 }, sensitivity.getDualValues(), TOLERANCE, message);
+                assertArrayEquals(new double[] { 2E3, 6E3, 12 }, sensitivity.getRightHandSideLowerLimits(), TOLERANCE, message);
+                assertArrayEquals(new double[] { INFINITY, 18E3, 24 }, sensitivity.getRightHandSideUpperLimits(), TOLERANCE, message);
+                assertArrayEquals(new double[] { 0, 2 }, sensitivity.getCostLowerLimits(), TOLERANCE, message);
+                assertArrayEquals(new double[] { 7.5E-3, INFINITY }, sensitivity.getCostUpperLimits(), TOLERANCE, message);
+            }
+        }
+        
+        Tableau tableau = createWyndor(1E-3, 1E3);
+        tableau.setScaling(SimplexUtilities.Scaling.GEOMETRIC);
+        assertTrue(Arrays.stream(tableau.optimize().getColumnScales()).anyMatch(scale -> scale != 1));
+    }
+    
+    private static Sensitivity analyze(Tableau tableau, SimplexUtilities.Engine engine, SimplexUtilities.Scaling scaling, double objectiveValue)
+    {
+        tableau.setEngine(engine);
+        tableau.setScaling(scaling);
+        tableau.setSensitivityAnalysis(true);
+        SolveResult result = tableau.optimize();
+        assertEquals(SolveResult.Status.OPTIMAL, result.getStatus(), engine.toString());
+        assertEquals(objectiveValue, result.getObjectiveValue(), TOLERANCE, engine.toString());
+        return result.getSensitivity();
+    }
+    
+    /**
+     * max 3X1 + 5X2 s.t. X1 <= 4, 2X2 <= 12, 3X1 + 2X2 <= 18, with X1
+     * counted in units of the given size and the second row multiplied by
+     * the given factor.
+     */
+    private static Tableau createWyndor(double unit, double rowFactor)
+    {
+        List<Variable> variables = createVariables(2);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 4 / unit, 1, 0));
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 12 * rowFactor, 0, 2 * rowFactor));
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 18, 3 * unit, 2));
+        return new Tableau(variables, createObjective(variables, SimplexUtilities.Objective.MAX, 3 * unit, 5), constraints);
+    }
+    
+    private static List<Variable> createVariables(int count)
+    {
+        List<Variable> variables = new ArrayList<>();
+        for (int j = 0; j < count; j++)
+        {
+            variables.add(new Variable("X" + (j + 1), j + 1));
+        }
+        return variables;
+    }
+    
+    private static Constraint createConstraint(List<Variable> variables, SimplexUtilities.Sign sign, double rhs, double... coefficients)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < coefficients.length; j++)
+        {
+            if (coefficients[j] != 0)
+                equation.put(variables.get(j), coefficients[j]);
+        }
+        return new Constraint(equation, sign, rhs);
+    }
+    
+    private static ObjectiveFunction createObjective(List<Variable> variables, SimplexUtilities.Objective objective, double... costs)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < costs.length; j++)
+        {
+            equation.put(variables.get(j), costs[j]);
+        }
+        return new ObjectiveFunction(equation, objective);
+    }
+}
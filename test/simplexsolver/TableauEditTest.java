@@ -0,0 +1,349 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the edits that are applied to the final tableau. After each edit,
+ * the next solve continues from the final tableau (with the dual simplex
+ * method after a right hand side or a row changes, and the primal simplex
+ * method after a cost changes or a column is added), and must find what a
+ * solve of the edited program from the start finds. The cold solves run
+ * without the crash basis, so a solve that starts over runs a phase 1 on
+ * these programs, and a warm solve does not.
+ * @author Gennaro
+ */
+public class TableauEditTest
+{
+    private static final double TOLERANCE = 1E-6;
+    
+    /**
+     * Tightening a binding row leaves the final tableau primal infeasible.
+     * The last edit makes the program infeasible, which the dual simplex
+     * method finds without starting over.
+     */
+    @Test
+    public void changesRightHandSide()
+    {
+        for (SimplexUtilities.Engine engine : new SimplexUtilities.Engine[] { SimplexUtilities.Engine.TABLEAU, SimplexUtilities.Engine.DUAL })
+        {
+            List<Variable> variables = createVariables();
+            ArrayList<Constraint> constraints = createConstraints(variables);
+            HashMap<Variable, Double> costs = createCosts(variables);
+            Tableau tableau = solve(variables, constraints, costs, SimplexUtilities.Objective.MAX, engine);
+            assertTrue(createTableau(variables, constraints, costs, SimplexUtilities.Objective.MAX, SimplexUtilities.Engine.TABLEAU)
+                    .optimize().getPhaseOneIterationCount() > 0);
+            
+            for (double[] edit : new double[][] { { 0, 3 }, { 2, 2 }, { 1, 3 }, { 0, 9 }, { 2, 20 } })
+            {
+                int i = (int)edit[0];
+                tableau.setRightHandSide(i, edit[1]);
+                Constraint old = constraints.get(i);
+                constraints.set(i, new Constraint(old.getEquation(), old.getSign(), edit[1]));
+                assertWarmSolve(tableau, variables, constraints, costs, SimplexUtilities.Objective.MAX);
+            }
+        }
+    }
+    
+    @Test
+    public void addsConstraint()
+    {
+        List<Variable> variables = createVariables();
+        ArrayList<Constraint> constraints = createConstraints(variables);
+        HashMap<Variable, Double> costs = createCosts(variables);
+        Tableau tableau = solve(variables, constraints, costs, SimplexUtilities.Objective.MAX, SimplexUtilities.Engine.TABLEAU);
+        
+        Constraint[] added =
+        {
+            createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 2, 1, 0, 1),
+            createConstraint(variables, SimplexUtilities.Sign.GREATER_THAN, 1.5, 0, 1, 0),
+            createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 100, 1, 1, 1)
+        };
+        for (Constraint constraint : added)
+        {
+            tableau.addConstraint(constraint);
+            constraints.add(constraint);
+            assertWarmSolve(tableau, variables, constraints, costs, SimplexUtilities.Objective.MAX);
+        }
+    }
+    
+    /**
+     * Removes the constraints from the last one to the first. A constraint
+     * that is not binding is removed from the final tableau, and any other
+     * makes the next solve start over.
+     */
+    @Test
+    public void removesConstraints()
+    {
+        List<Variable> variables = createVariables();
+        ArrayList<Constraint> constraints = createConstraints(variables);
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 100, 1, 1, 1));
+        HashMap<Variable, Double> costs = createCosts(variables);
+        Tableau tableau = solve(variables, constraints, costs, SimplexUtilities.Objective.MAX, SimplexUtilities.Engine.TABLEAU);
+        
+        tableau.removeConstraint(constraints.size() - 1);
+        constraints.remove(constraints.size() - 1);
+        SolveResult result = assertWarmSolve(tableau, variables, constraints, costs, SimplexUtilities.Objective.MAX);
+        assertEquals(0, result.getIterationCount());
+        while (!constraints.isEmpty())
+        {
+            tableau.removeConstraint(constraints.size() - 1);
+            constraints.remove(constraints.size() - 1);
+            assertColdSolve(tableau.optimize(), variables, constraints, costs, SimplexUtilities.Objective.MAX);
+        }
+    }
+    
+    /**
+     * Changes the costs of a nonbasic and a basic variable, of a min and a max.
+     */
+    @Test
+    public void changesObjectiveCoefficient()
+    {
+        for (SimplexUtilities.Objective objective : SimplexUtilities.Objective.values())
+        {
+            List<Variable> variables = createVariables();
+            ArrayList<Constraint> constraints = createConstraints(variables);
+            HashMap<Variable, Double> costs = createCosts(variables);
+            Tableau tableau = solve(variables, constraints, costs, objective, SimplexUtilities.Engine.TABLEAU);
+            
+            for (int j = 0; j < variables.size(); j++)
+            {
+                double cost = objective == SimplexUtilities.Objective.MAX ? 10 - 3 * j : 3 * j - 10;
+                tableau.setObjectiveCoefficient(variables.get(j), cost);
+                costs.put(variables.get(j), cost);
+                assertWarmSolve(tableau, variables, constraints, costs, objective);
+            }
+        }
+    }
+    
+    @Test
+    public void addsVariable()
+    {
+        List<Variable> variables = createVariables();
+        ArrayList<Constraint> constraints = createConstraints(variables);
+        HashMap<Variable, Double> costs = createCosts(variables);
+        Tableau tableau = solve(variables, constraints, costs, SimplexUtilities.Objective.MAX, SimplexUtilities.Engine.TABLEAU);
+        
+        Variable w = new Variable("W", variables.size() + 1);
+        w.setBounds(0, 1.5);
+        double[] coefficients = { 1, 0, 0.5 };
+        tableau.addVariable(w, 6, coefficients);
+        addColumn(w, 6, coefficients, variables, constraints, costs);
+        assertWarmSolve(tableau, variables, constraints, costs, SimplexUtilities.Objective.MAX);
+    }
+    
+    /**
+     * Applies random edits to random programs whose variables have upper
+     * bounds, so that some edits change a row that a variable measured down
+     * from its upper bound is basic in.
+     */
+    @Test
+    public void matchesColdSolves()
+    {
+        Random random = new Random(11);
+        int flippedRows = 0;
+        for (int program = 0; program < 300; program++)
+        {
+            List<Variable> variables = new ArrayList<>();
+            for (int j = 0; j < 4; j++)
+            {
+                Variable v = new Variable("X" + (j + 1), j + 1);
+                v.setBounds(0, 1 + random.nextInt(4));
+                variables.add(v);
+            }
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+            {
+                double[] coefficients = random.doubles(variables.size(), -1, 3).map(Math::rint).toArray();
+                constraints.add(createConstraint(variables, random.nextInt(3) == 0 ? SimplexUtilities.Sign.GREATER_THAN : SimplexUtilities.Sign.LESS_THAN,
+                        1 + random.nextInt(8), coefficients));
+            }
+            HashMap<Variable, Double> costs = new HashMap<>();
+            variables.forEach(v -> costs.put(v, (double)(random.nextInt(9) - 2)));
+            SimplexUtilities.Engine engine = random.nextBoolean() ? SimplexUtilities.Engine.TABLEAU : SimplexUtilities.Engine.DUAL;
+            Tableau tableau = createTableau(variables, constraints, costs, SimplexUtilities.Objective.MAX, engine);
+            assertColdSolve(tableau.optimize(), variables, constraints, costs, SimplexUtilities.Objective.MAX);
+            
+            for (int step = 0; step < 4 && !constraints.isEmpty(); step++)
+            {
+                int i = random.nextInt(constraints.size());
+                if (tableau.hasOptimalTableau())
+                {
+                    int basic = tableau.getBasicColumns()[i];
+                    if (basic < variables.size() && tableau.isFlippedColumn(basic))
+                        flippedRows++;
+                }
+                switch (random.nextInt(5))
+                {
+                    case 0:
+                        double rhs = constraints.get(i).getRightHandSide() + random.nextInt(7) - 3;
+                        tableau.setRightHandSide(i, rhs);
+                        constraints.set(i, new Constraint(constraints.get(i).getEquation(), constraints.get(i).getSign(), rhs));
+                        break;
+                    case 1:
+                        Constraint constraint = createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, random.nextInt(6),
+                                random.doubles(variables.size(), 0, 2).map(Math::rint).toArray());
+                        tableau.addConstraint(constraint);
+                        constraints.add(constraint);
+                        break;
+                    case 2:
+                        tableau.removeConstraint(i);
+                        constraints.remove(i);
+                        break;
+                    case 3:
+                        Variable v = variables.get(random.nextInt(variables.size()));
+                        double cost = random.nextInt(9) - 4;
+                        tableau.setObjectiveCoefficient(v, cost);
+                        costs.put(v, cost);
+                        break;
+                    default:
+                        Variable w = new Variable("X" + (variables.size() + 1), variables.size() + 1);
+                        w.setBounds(0, 2);
+                        double[] coefficients = random.doubles(constraints.size(), 0, 2).map(Math::rint).toArray();
+                        tableau.addVariable(w, 3, coefficients);
+                        addColumn(w, 3, coefficients, variables, constraints, costs);
+                        break;
+                }
+                assertColdSolve(tableau.optimize(), variables, constraints, costs, SimplexUtilities.Objective.MAX);
+            }
+        }
+        assertTrue(flippedRows > 0);
+    }
+    
+    /**
+     * Solves the edited tableau, checks that it continued from the final
+     * tableau, and compares the result with a solve from the start.
+     */
+    private static SolveResult assertWarmSolve(Tableau tableau, List<Variable> variables, List<Constraint> constraints,
+            HashMap<Variable, Double> costs, SimplexUtilities.Objective objective)
+    {
+        SolveResult result = tableau.optimize();
+        assertEquals(0, result.getPhaseOneIterationCount(), "The solve started over.");
+        assertColdSolve(result, variables, constraints, costs, objective);
+        return result;
+    }
+    
+    private static void assertColdSolve(SolveResult result, List<Variable> variables, List<Constraint> constraints,
+            HashMap<Variable, Double> costs, SimplexUtilities.Objective objective)
+    {
+        SolveResult cold = createTableau(variables, constraints, costs, objective, SimplexUtilities.Engine.TABLEAU).optimize();
+        assertEquals(cold.getStatus(), result.getStatus());
+        if (!cold.isOptimal())
+            return;
+        assertEquals(cold.getObjectiveValue(), result.getObjectiveValue(), TOLERANCE);
+        
+        // The values may be another optimal solution, but they must be feasible.
+        double[] values = result.getValues();
+        for (Variable v : variables)
+        {
+            double value = values[v.getIndex() - 1];
+            assertTrue(value >= v.getLowerBound() - TOLERANCE && value <= v.getUpperBound() + TOLERANCE, v.getName() + " is out of bounds");
+        }
+        for (Constraint constraint : constraints)
+        {
+            double activity = 0;
+            for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+            {
+                activity += kvp.getValue() * values[kvp.getKey().getIndex() - 1];
+            }
+            double rhs = constraint.getRightHandSide();
+            assertTrue(constraint.getSign() == SimplexUtilities.Sign.LESS_THAN ? activity <= rhs + TOLERANCE : activity >= rhs - TOLERANCE,
+                    "A constraint is violated");
+        }
+    }
+    
+    private static Tableau solve(List<Variable> variables, List<Constraint> constraints, HashMap<Variable, Double> costs,
+            SimplexUtilities.Objective objective, SimplexUtilities.Engine engine)
+    {
+        Tableau tableau = createTableau(variables, constraints, costs, objective, engine);
+        assertEquals(SolveResult.Status.OPTIMAL, tableau.optimize().getStatus());
+        return tableau;
+    }
+    
+    /**
+     * Creates a tableau of copies of the constraint list and the costs, which
+     * the edits of the tableau do not change.
+     */
+    private static Tableau createTableau(List<Variable> variables, List<Constraint> constraints, HashMap<Variable, Double> costs,
+            SimplexUtilities.Objective objective, SimplexUtilities.Engine engine)
+    {
+        Tableau tableau = new Tableau(variables, new ObjectiveFunction(new HashMap<>(costs), objective), new ArrayList<>(constraints));
+        tableau.setCrashBasis(false);
+        tableau.setEngine(engine);
+        return tableau;
+    }
+    
+    /**
+     * X, Y and Z, with Y <= 3 and Z <= 1.5.
+     */
+    private static List<Variable> createVariables()
+    {
+        Variable x = new Variable("X", 1);
+        Variable y = new Variable("Y", 2);
+        Variable z = new Variable("Z", 3);
+        y.setBounds(0, 3);
+        z.setBounds(0, 1.5);
+        return new ArrayList<>(Arrays.asList(x, y, z));
+    }
+    
+    /**
+     * X + Y + 2Z <= 4, 2X + Z <= 5, X + Y >= 1.
+     */
+    private static ArrayList<Constraint> createConstraints(List<Variable> variables)
+    {
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 4, 1, 1, 2));
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.LESS_THAN, 5, 2, 0, 1));
+        constraints.add(createConstraint(variables, SimplexUtilities.Sign.GREATER_THAN, 1, 1, 1, 0));
+        return constraints;
+    }
+    
+    /**
+     * 3X + 2Y + 4Z.
+     */
+    private static HashMap<Variable, Double> createCosts(List<Variable> variables)
+    {
+        HashMap<Variable, Double> costs = new HashMap<>();
+        costs.put(variables.get(0), 3.0);
+        costs.put(variables.get(1), 2.0);
+        costs.put(variables.get(2), 4.0);
+        return costs;
+    }
+    
+    private static Constraint createConstraint(List<Variable> variables, SimplexUtilities.Sign sign, double rhs, double... coefficients)
+    {
+        HashMap<Variable, Double> equation = new HashMap<>();
+        for (int j = 0; j < coefficients.length; j++)
+        {
+            if (coefficients[j] != 0)
+                equation.put(variables.get(j), coefficients[j]);
+        }
+        return new Constraint(equation, sign, rhs);
+    }
+    
+    /**
+     * Adds a variable to the program the way Tableau.addVariable does.
+     */
+    private static void addColumn(Variable variable, double cost, double[] coefficients, List<Variable> variables,
+            List<Constraint> constraints, HashMap<Variable, Double> costs)
+    {
+        variables.add(variable);
+        costs.put(variable, cost);
+        for (int i = 0; i < coefficients.length; i++)
+        {
+            if (coefficients[i] == 0)
+                continue;
+            Constraint old = constraints.get(i);
+            HashMap<Variable, Double> equation = new HashMap<>(old.getEquation());
+            equation.put(variable, coefficients[i]);
+            constraints.set(i, new Constraint(equation, old.getSign(), old.getRightHandSide()));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package simplexsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Regression tests for programs the tableau engines once solved wrongly.
+ * Every program is solved with each engine and checked against its known
+ * solution.
+ * @author Gennaro
+ */
+public class TableauTest
+{
+    private static final double TOLERANCE = 1E-6;
+    
+    /**
+     * A covering program whose phase 1 is highly degenerate. The ratio test
+     * used to skip rows whose right hand side rounding had left slightly
+     * negative, so TABLEAU and DUAL drove those basic variables below 0 and
+     * reported an infeasible point (objective 23) as optimal.
+     */
+    @Test
+    public void solvesDegenerateCovering()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            List<Variable> variables = new ArrayList<>();
+            ArrayList<Constraint> constraints = new ArrayList<>();
+            ObjectiveFunction objective = createCovering(40, 376, variables, constraints);
+            Tableau tableau = new Tableau(variables, objective, constraints);
+            tableau.setEngine(engine);
+            SolveResult result = tableau.optimize();
+            
+            assertEquals(SolveResult.Status.OPTIMAL, result.getStatus(), engine.toString());
+            assertEquals(24, result.getObjectiveValue(), TOLERANCE, engine.toString());
+            double[] values = result.getValues();
+            for (Constraint constraint : constraints)
+            {
+                double covered = 0;
+                for (Map.Entry<Variable, Double> kvp : constraint.getEquation().entrySet())
+                {
+                    covered += kvp.getValue() * values[kvp.getKey().getIndex() - 1];
+                }
+                assertTrue(covered >= 1 - TOLERANCE, engine + " leaves a row uncovered");
+            }
+            for (double value : values)
+            {
+                assertTrue(value >= -TOLERANCE, engine + " returns a negative value");
+            }
+        }
+    }
+    
+    /**
+     * max x1 + 2x2 s.t. x1 + x2 = 2, 2x1 + 2x2 = 4, x1 <= 1.5. The second row
+     * is redundant, so its artificial variable cannot be driven out of the
+     * basis after phase 1. TABLEAU and DUAL used to report the program as
+     * infeasible.
+     */
+    @Test
+    public void solvesRedundantEquality()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            for (boolean bigM : new boolean[] { false, true })
+            {
+                Tableau tableau = createDuplicateEquality(4);
+                tableau.setEngine(engine);
+                tableau.setBigM(bigM);
+                SolveResult result = tableau.optimize();
+                
+                assertEquals(SolveResult.Status.OPTIMAL, result.getStatus(), engine.toString());
+                assertEquals(4, result.getObjectiveValue(), TOLERANCE, engine.toString());
+                assertEquals(0, result.getValues()[0], TOLERANCE, engine.toString());
+                assertEquals(2, result.getValues()[1], TOLERANCE, engine.toString());
+            }
+        }
+    }
+    
+    /**
+     * The same program with 2x1 + 2x2 = 5, which contradicts the first row.
+     */
+    @Test
+    public void detectsContradictoryEquality()
+    {
+        for (SimplexUtilities.Engine engine : SimplexUtilities.Engine.values())
+        {
+            Tableau tableau = createDuplicateEquality(5);
+            tableau.setEngine(engine);
+            assertEquals(SolveResult.Status.INFEASIBLE, tableau.optimize().getStatus(), engine.toString());
+        }
+    }
+    
+    private static Tableau createDuplicateEquality(double duplicateRightHandSide)
+    {
+        Variable x1 = new Variable("X1", 1);
+        Variable x2 = new Variable("X2", 2);
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        HashMap<Variable, Double> equation = new HashMap<>();
+        equation.put(x1, 1.0);
+        equation.put(x2, 1.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.EQUAL, 2));
+        equation = new HashMap<>();
+        equation.put(x1, 2.0);
+        equation.put(x2, 2.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.EQUAL, duplicateRightHandSide));
+        equation = new HashMap<>();
+        equation.put(x1, 1.0);
+        constraints.add(new Constraint(equation, SimplexUtilities.Sign.LESS_THAN, 1.5));
+        
+        HashMap<Variable, Double> costs = new HashMap<>();
+        costs.put(x1, 1.0);
+        costs.put(x2, 2.0);
+        return new Tableau(Arrays.asList(x1, x2), new ObjectiveFunction(costs, SimplexUtilities.Objective.MAX), constraints);
+    }
+    
+    /**
+     * Covering programs start out dual feasible (without a crash basis, whose
+     * columns would be priced out of the objective row), so the DUAL engine
+     * solves them without a phase 1. It must find the optimum TABLEAU finds.
+     */
+    @Test
+    public void solvesCoveringWithDualSimplex()
+    {
+        for (int seed = 1; seed <= 30; seed++)
+        {
+            int size = 5 + seed;
+            Tableau tableau = createCoveringTableau(size, seed, SimplexUtilities.Engine.TABLEAU);
+            Tableau dual = createCoveringTableau(size, seed, SimplexUtilities.Engine.DUAL);
+            SolveResult expected = tableau.optimize();
+            SolveResult result = dual.optimize();
+            assertEquals(SolveResult.Status.OPTIMAL, result.getStatus(), "seed " + seed);
+            assertEquals(expected.getObjectiveValue(), result.getObjectiveValue(), TOLERANCE, "seed " + seed);
+            assertEquals(0, result.getPhaseOneIterationCount(), "seed " + seed);
+            
+            // Covering the first row twice is repaired from the final tableau.
+            dual.setRightHandSide(0, 2);
+            tableau = createCoveringTableau(size, seed, SimplexUtilities.Engine.TABLEAU);
+            tableau.setRightHandSide(0, 2);
+            assertEquals(tableau.optimize().getObjectiveValue(), dual.optimize().getObjectiveValue(), TOLERANCE, "seed " + seed);
+        }
+    }
+    
+    /**
+     * The revised engine with Devex pricing must find the optimum TABLEAU
+     * finds, on the degenerate covering above and on smaller ones whose
+     * columns are bounded by 1, where some iterations only move a column to
+     * its other bound.
+     */
+    @Test
+    public void solvesCoveringWithRevisedDevex()
+    {
+        Tableau degenerate = createCoveringTableau(40, 376, SimplexUtilities.Engine.REVISED);
+        degenerate.setPricing(SimplexUtilities.Pricing.DEVEX);
+        assertEquals(24, degenerate.optimize().getObjectiveValue(), TOLERANCE);
+        
+        for (int seed = 1; seed <= 30; seed++)
+        {
+            int size = 5 + seed;
+            Tableau tableau = createBoundedCoveringTableau(size, seed);
+            Tableau revised = createBoundedCoveringTableau(size, seed);
+            revised.setEngine(SimplexUtilities.Engine.REVISED);
+            revised.setPricing(SimplexUtilities.Pricing.DEVEX);
+            SolveResult expected = tableau.optimize();
+            SolveResult result = revised.optimize();
+            assertEquals(SolveResult.Status.OPTIMAL, result.getStatus(), "seed " + seed);
+            assertEquals(expected.getObjectiveValue(), result.getObjectiveValue(), TOLERANCE, "seed " + seed);
+        }
+    }
+    
+    /**
+     * The revised engine has no steepest edge or partial pricing, no
+     * lexicographic rule and no perturbation, so selecting one of them
+     * together with it fails, in either order.
+     */
+    @Test
+    public void rejectsRulesTheRevisedEngineLacks()
+    {
+        Tableau tableau = createCoveringTableau(5, 1, SimplexUtilities.Engine.REVISED);
+        assertThrows(IllegalStateException.class, () -> tableau.setPricing(SimplexUtilities.Pricing.STEEPEST_EDGE));
+        assertThrows(IllegalStateException.class, () -> tableau.setPricing(SimplexUtilities.Pricing.PARTIAL));
+        assertThrows(IllegalStateException.class, () -> tableau.setDegeneracyRule(SimplexUtilities.DegeneracyRule.LEXICOGRAPHIC));
+        assertThrows(IllegalStateException.class, () -> tableau.setPerturbation(true));
+        tableau.setPricing(SimplexUtilities.Pricing.DEVEX);
+        
+        Tableau other = createCoveringTableau(5, 1, SimplexUtilities.Engine.TABLEAU);
+        other.setPerturbation(true);
+        assertThrows(IllegalStateException.class, () -> other.setEngine(SimplexUtilities.Engine.REVISED));
+        other.setPerturbation(false);
+        other.setDegeneracyRule(SimplexUtilities.DegeneracyRule.LEXICOGRAPHIC);
+        assertThrows(IllegalStateException.class, () -> other.setEngine(SimplexUtilities.Engine.REVISED));
+        other.setDegeneracyRule(SimplexUtilities.DegeneracyRule.BLAND);
+        other.setPricing(SimplexUtilities.Pricing.STEEPEST_EDGE);
+        assertThrows(IllegalStateException.class, () -> other.setEngine(SimplexUtilities.Engine.REVISED));
+        other.setPricing(SimplexUtilities.Pricing.DEVEX);
+        other.setEngine(SimplexUtilities.Engine.REVISED);
+        assertEquals(SolveResult.Status.OPTIMAL, other.optimize().getStatus());
+    }
+    
+    private static Tableau createCoveringTableau(int size, long seed, SimplexUtilities.Engine engine)
+    {
+        List<Variable> variables = new ArrayList<>();
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        Tableau tableau = new Tableau(variables, createCovering(size, seed, variables, constraints), constraints);
+        tableau.setEngine(engine);
+        tableau.setCrashBasis(false);
+        return tableau;
+    }
+    
+    /**
+     * A covering whose columns are bounded by 1, solved from the slack basis.
+     */
+    private static Tableau createBoundedCoveringTableau(int size, long seed)
+    {
+        List<Variable> variables = new ArrayList<>();
+        ArrayList<Constraint> constraints = new ArrayList<>();
+        ObjectiveFunction objective = createCovering(size, seed, variables, constraints);
+        variables.forEach(v -> v.setBounds(0, 1));
+        Tableau tableau = new Tableau(variables, objective, constraints);
+        tableau.setCrashBasis(false);
+        return tableau;
+    }
+    
+    /**
+     * Covers size rows with 2 * size columns at the lowest cost, each row by
+     * up to 3 random columns with costs from 1 to 3.
+     */
+    private static ObjectiveFunction createCovering(int size, long seed, List<Variable> variables, ArrayList<Constraint> constraints)
+    {
+        Random random = new Random(seed);
+        int columns = 2 * size;
+        HashMap<Variable, Double> costs = new HashMap<>();
+        for (int j = 1; j <= columns; j++)
+        {
+            Variable variable = new Variable("X" + j, j);
+            variables.add(variable);
+            costs.put(variable, (double) (1 + random.nextInt(3)));
+        }
+        for (int i = 0; i < size; i++)
+        {
+            HashMap<Variable, Double> equation = new HashMap<>();
+            for (int k = 0; k < 3; k++)
+            {
+                equation.put(variables.get(random.nextInt(columns)), 1.0);
+            }
+            constraints.add(new Constraint(equation, SimplexUtilities.Sign.GREATER_THAN, 1));
+        }
+        return new ObjectiveFunction(costs, SimplexUtilities.Objective.MIN);
+    }
+}